@@ -0,0 +1,157 @@
+package com.example;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+/**
+ * Synthetic rows shaped like the ones the resources read from the tenant tables.
+ * A fixed seed keeps every run on the same data.
+ */
+class BenchmarkData {
+
+    private static final String[] STATUSES = {
+            "Nonexistent", "Initial", "Limited", "Defined", "Managed", "Optimized", "Not Applicable"
+    };
+    private static final String[] GRADINGS = {"Major", "Minor", "Observation"};
+    private static final String[] STANDARDS = {"ISO 9001:2015", "ISO 14001:2015", "ISO 45001:2018", "SMETA 6.1"};
+
+    private final Random random = new Random(42);
+
+    /**
+     * Report data as built by InternalAuditResource.fetchReportData, with the given number of findings.
+     */
+    Map<String, Object> internalAuditReport(int findings) {
+        Map<String, Object> reportData = new HashMap<>();
+        reportData.put("company", company());
+        reportData.put("auditNo", "IA-2024-0042");
+        reportData.put("standardName", STANDARDS[0]);
+        reportData.put("startDate", "2024-03-11");
+        reportData.put("endDate", "2024-03-15");
+
+        List<String> auditors = new ArrayList<>();
+        auditors.add("Priya Sharma");
+        auditors.add("Rahul Verma");
+        reportData.put("auditors", auditors);
+
+        List<Map<String, String>> rows = new ArrayList<>(findings);
+        for (int i = 0; i < findings; i++) {
+            Map<String, String> finding = new HashMap<>();
+            finding.put("stdName", pick(STANDARDS));
+            finding.put("grading", pick(GRADINGS));
+            finding.put("clauseNo", clauseNo(i));
+            finding.put("clauseName", "Control of documented information & <records>");
+            finding.put("evidence", sentence(30));
+            rows.add(finding);
+        }
+        reportData.put("findings", rows);
+        return reportData;
+    }
+
+    Map<String, String> company() {
+        Map<String, String> company = new HashMap<>();
+        company.put("name", "Acme Textiles Pvt. Ltd.");
+        company.put("street1", "Plot 14, MIDC Industrial Area");
+        company.put("street2", "Phase II");
+        company.put("city", "Pune");
+        company.put("state", "Maharashtra");
+        company.put("country", "India");
+        company.put("pincode", "411026");
+        return company;
+    }
+
+    /**
+     * Gap assessment detail rows joined with clause_master, as gathered by
+     * GapAssessmentReportResource.generateReport.
+     */
+    GapAssessmentReportResource.ReportRows gapReportRows(int rows) {
+        GapAssessmentReportResource.ReportRows data = new GapAssessmentReportResource.ReportRows();
+        for (int i = 0; i < rows; i++) {
+            GapAssessmentReportResource.DetailRow row = new GapAssessmentReportResource.DetailRow();
+            row.clauseNo = clauseNo(i);
+            row.clauseName = "Leadership and commitment";
+            row.clauseDescription = sentence(40);
+            row.guidance = sentence(60);
+            row.description = sentence(20);
+            row.areaRequireImprovement = sentence(12);
+            row.status = pick(STATUSES);
+            row.possibleBarrier = random.nextInt(4) == 0 ? "Yes" : "No";
+            row.remarks = sentence(8);
+            data.add(row);
+        }
+        return data;
+    }
+
+    List<String> gapLabelData() {
+        List<String> data = new ArrayList<>();
+        String[] labels = {"Introduction", "Scope", "Key stakeholders interviewed", "Methodology", "Conclusion"};
+        for (String label : labels) {
+            data.add(label);
+            data.add(sentence(120));
+        }
+        return data;
+    }
+
+    /**
+     * A list response shaped like AuditPlanResource.getAuditPlanList.
+     */
+    Map<String, Object> auditPlanListResponse(int rows) {
+        List<Map<String, Object>> plans = new ArrayList<>(rows);
+        for (int i = 0; i < rows; i++) {
+            Map<String, Object> plan = new HashMap<>();
+            plan.put("id", String.valueOf(i + 1));
+            plan.put("audit_no", "AP-" + (1000 + i));
+            plan.put("audit_date", "2024-02-" + (10 + i % 18));
+            plan.put("audit_start_date", "2024-03-11");
+            plan.put("audit_end_date", "2024-03-15");
+            plan.put("status", i % 3 == 0 ? "Approved" : "Draft");
+
+            List<Map<String, String>> standards = new ArrayList<>();
+            for (int s = 0; s < 2; s++) {
+                Map<String, String> standard = new HashMap<>();
+                standard.put("standard_name", pick(STANDARDS));
+                standard.put("status", "Active");
+                standards.add(standard);
+            }
+            plan.put("standards", standards);
+
+            List<Map<String, String>> details = new ArrayList<>();
+            for (int d = 0; d < 3; d++) {
+                Map<String, String> detail = new HashMap<>();
+                detail.put("department", "Department " + d);
+                detail.put("audit_date", "2024-03-1" + d);
+                details.add(detail);
+            }
+            plan.put("details", details);
+            plans.add(plan);
+        }
+
+        Map<String, Object> response = new LinkedHashMap<>();
+        response.put("success", true);
+        response.put("data", plans);
+        return response;
+    }
+
+    private String clauseNo(int i) {
+        return (4 + i % 7) + "." + (1 + i % 5) + "." + (1 + i % 3);
+    }
+
+    private String pick(String[] values) {
+        return values[random.nextInt(values.length)];
+    }
+
+    private String sentence(int words) {
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < words; i++) {
+            if (i > 0) sb.append(' ');
+            int length = 3 + random.nextInt(7);
+            for (int c = 0; c < length; c++) {
+                sb.append((char) ('a' + random.nextInt(26)));
+            }
+        }
+        return sb.toString();
+    }
+}
@@ -0,0 +1,49 @@
+package com.example;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Jackson serialization of the {@code Map<String, Object>} list responses,
+ * using a default ObjectMapper as Jersey's Jackson feature does.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class JsonBenchmark {
+
+    /** Rows in the response's "data" list. */
+    @Param({"10", "1000", "50000"})
+    public int rows;
+
+    private ObjectMapper mapper;
+    private Map<String, Object> response;
+
+    @Setup
+    public void setUp() {
+        mapper = new ObjectMapper();
+        response = new BenchmarkData().auditPlanListResponse(rows);
+    }
+
+    @Benchmark
+    public byte[] auditPlanList() throws JsonProcessingException {
+        return mapper.writeValueAsBytes(response);
+    }
+}
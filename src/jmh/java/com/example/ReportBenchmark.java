@@ -0,0 +1,86 @@
+package com.example;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * HTML report rendering: the internal audit report, the NC document and the
+ * gap assessment report, without the database reads that feed them.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ReportBenchmark {
+
+    @State(Scope.Benchmark)
+    public static class Rows {
+
+        /** Findings / gap assessment detail rows per report. */
+        @Param({"10", "1000", "50000"})
+        public int rows;
+
+        InternalAuditResource internalAudit;
+        Map<String, Object> reportData;
+        GapAssessmentReportResource.ReportRows gapRows;
+        List<String> labelData;
+
+        @Setup
+        public void setUp() {
+            BenchmarkData data = new BenchmarkData();
+            internalAudit = new InternalAuditResource();
+            reportData = data.internalAuditReport(rows);
+            gapRows = data.gapReportRows(rows);
+            labelData = data.gapLabelData();
+        }
+    }
+
+    /**
+     * The NC document is a fixed template with no detail rows, so it has no size parameter.
+     */
+    @State(Scope.Benchmark)
+    public static class NCDocument {
+
+        InternalAuditResource internalAudit;
+        Map<String, String> company;
+        Map<String, String> audit;
+
+        @Setup
+        public void setUp() {
+            BenchmarkData data = new BenchmarkData();
+            internalAudit = new InternalAuditResource();
+            company = data.company();
+            audit = Map.of("id", "42", "audit_no", "IA-2024-0042");
+        }
+    }
+
+    @Benchmark
+    public String internalAuditHtmlReport(Rows state) {
+        return state.internalAudit.generateHtmlReport(state.reportData);
+    }
+
+    @Benchmark
+    public String gapAssessmentReport(Rows state) {
+        return GapAssessmentReportResource.buildReportHtml("Acme Textiles Pvt. Ltd.", "ISO 9001:2015", "Production",
+                state.gapRows, state.labelData);
+    }
+
+    @Benchmark
+    public String ncDocument(NCDocument state) {
+        return state.internalAudit.generateNCDocument(state.company, state.audit);
+    }
+}
@@ -0,0 +1,120 @@
+package com.example.util;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Password hashing on login, the ValidationUtil pattern checks run on
+ * every request header and form field, and TextTemplate rendering of the gap
+ * assessment report texts.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class UtilBenchmark {
+
+    /** Inputs validated per invocation, e.g. the fields of an import batch. */
+    @Param({"10", "1000", "50000"})
+    public int rows;
+
+    private String[] companyCodes;
+    private String[] emails;
+    private String[] usernames;
+    private String[] passwords;
+    private TextTemplate template;
+    private Map<String, String> templateValues;
+
+    @Setup
+    public void setUp() {
+        Random random = new Random(42);
+        companyCodes = new String[rows];
+        emails = new String[rows];
+        usernames = new String[rows];
+        passwords = new String[rows];
+        for (int i = 0; i < rows; i++) {
+            // Roughly one in ten inputs is invalid, so both outcomes are exercised
+            boolean invalid = random.nextInt(10) == 0;
+            companyCodes[i] = invalid ? "ACME-" + i + "; DROP" : "ACME" + i;
+            emails[i] = invalid ? "user" + i + "@example" : "user" + i + "@example.com";
+            usernames[i] = invalid ? "u" : "employee_" + i;
+            passwords[i] = "S3cret-pass-" + random.nextInt(1_000_000);
+        }
+
+        // Shaped like the "Key stakeholders interviewed" text, which uses every placeholder
+        template = TextTemplate.compile("-UnderDefense- carried out a gap assessment of -CLIENT- against -STANDARD-. "
+                        + "The -DEPT- department was interviewed on -M_DATE- at -M_TIME-; the contact person was -C_PERSON-. "
+                        + "The findings of -CLIENT- are listed clause by clause below, in the order of -STANDARD-.",
+                "-CLIENT-", "-STANDARD-", "-UnderDefense-", "-DEPT-", "-M_DATE-", "-M_TIME-", "-C_PERSON-");
+        templateValues = Map.of("-CLIENT-", "Acme Textiles Pvt. Ltd.", "-STANDARD-", "ISO 9001:2015",
+                "-UnderDefense-", "Niall Services Pvt. Ltd.", "-DEPT-", "Production",
+                "-M_DATE-", "2024-03-11,2024-03-12,", "-M_TIME-", "10:00,14:30,", "-C_PERSON-", "R. Sharma,A. Iyer,");
+    }
+
+    @Benchmark
+    public String hashPassword() {
+        return SecurityUtil.hashPassword(passwords[0]);
+    }
+
+    @Benchmark
+    public void hashPasswords(Blackhole bh) {
+        for (String password : passwords) {
+            bh.consume(SecurityUtil.hashPassword(password));
+        }
+    }
+
+    @Benchmark
+    public int validateCompanyCodes() {
+        int valid = 0;
+        for (String code : companyCodes) {
+            if (ValidationUtil.isValidCompanyCode(code)) valid++;
+        }
+        return valid;
+    }
+
+    @Benchmark
+    public int validateEmails() {
+        int valid = 0;
+        for (String email : emails) {
+            if (ValidationUtil.isValidEmail(email)) valid++;
+        }
+        return valid;
+    }
+
+    @Benchmark
+    public int validateUsernames() {
+        int valid = 0;
+        for (String username : usernames) {
+            if (ValidationUtil.isValidUsername(username)) valid++;
+        }
+        return valid;
+    }
+
+    @Benchmark
+    public int renderTemplates() {
+        StringBuilder out = new StringBuilder();
+        int length = 0;
+        for (int i = 0; i < rows; i++) {
+            out.setLength(0);
+            template.renderTo(out, templateValues);
+            length += out.length();
+        }
+        return length;
+    }
+}
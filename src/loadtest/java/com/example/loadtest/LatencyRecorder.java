@@ -0,0 +1,101 @@
+package com.example.loadtest;
+
+import java.util.Arrays;
+
+/**
+ * Collects the latencies of one endpoint. Every sample is kept, so the
+ * percentiles are exact; a run of a few hundred thousand requests needs a few MB.
+ */
+public class LatencyRecorder {
+
+    private long[] samples = new long[1024];
+    private int count;
+    private long errors;
+    private long dropped;
+
+    /**
+     * Records one completed request.
+     *
+     * @param nanos Latency from the request's scheduled start to its response
+     * @param error Whether the request failed or returned a 4xx/5xx status
+     */
+    public synchronized void record(long nanos, boolean error) {
+        if (count == samples.length) {
+            samples = Arrays.copyOf(samples, count * 2);
+        }
+        samples[count++] = nanos;
+        if (error) {
+            errors++;
+        }
+    }
+
+    /**
+     * Records a request that was never sent because the in-flight limit was reached.
+     */
+    public synchronized void drop() {
+        dropped++;
+    }
+
+    /**
+     * Per-endpoint totals for the report.
+     */
+    public static class Summary {
+        public String endpoint;
+        public long requests;
+        public long errors;
+        public long dropped;
+        public double throughput;
+        public double p50Millis;
+        public double p99Millis;
+        public double p999Millis;
+        public double maxMillis;
+    }
+
+    /**
+     * Summarises the samples recorded so far.
+     *
+     * @param endpoint The endpoint name for the report
+     * @param seconds The length of the measured window
+     * @return The summary
+     */
+    public synchronized Summary summarize(String endpoint, double seconds) {
+        long[] sorted = Arrays.copyOf(samples, count);
+        Arrays.sort(sorted);
+
+        Summary summary = new Summary();
+        summary.endpoint = endpoint;
+        summary.requests = count;
+        summary.errors = errors;
+        summary.dropped = dropped;
+        summary.throughput = seconds > 0 ? count / seconds : 0;
+        summary.p50Millis = percentile(sorted, 0.50);
+        summary.p99Millis = percentile(sorted, 0.99);
+        summary.p999Millis = percentile(sorted, 0.999);
+        summary.maxMillis = count == 0 ? 0 : sorted[count - 1] / 1_000_000.0;
+        return summary;
+    }
+
+    /**
+     * Adds another recorder's samples to this one, for the overall row.
+     */
+    public synchronized void addAll(LatencyRecorder other) {
+        synchronized (other) {
+            for (int i = 0; i < other.count; i++) {
+                if (count == samples.length) {
+                    samples = Arrays.copyOf(samples, count * 2);
+                }
+                samples[count++] = other.samples[i];
+            }
+            errors += other.errors;
+            dropped += other.dropped;
+        }
+    }
+
+    private static double percentile(long[] sorted, double quantile) {
+        if (sorted.length == 0) {
+            return 0;
+        }
+        int index = (int) Math.ceil(quantile * sorted.length) - 1;
+        return sorted[Math.max(0, Math.min(index, sorted.length - 1))] / 1_000_000.0;
+    }
+}
@@ -0,0 +1,222 @@
+package com.example.loadtest;
+
+import com.example.Main;
+import com.example.loadtest.TenantSeeder.Tenant;
+import com.example.util.AuditLogWriter;
+import com.example.util.ConfigUtil;
+import com.example.util.DBConfig;
+import com.example.util.QueryMetrics;
+import org.glassfish.grizzly.http.server.HttpServer;
+
+import java.io.PrintStream;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+import java.util.logging.Logger;
+
+/**
+ * End-to-end load test: seeds an embedded database with synthetic tenants,
+ * starts the server on it and drives a weighted mix of scenarios at a fixed
+ * request rate, then prints per-endpoint throughput and latency percentiles.
+ *
+ * The driver is open-loop: requests are scheduled at the target rate whether
+ * or not earlier ones have finished, and latency is measured from the scheduled
+ * start, so a stalled server shows up as queueing delay instead of a lower rate.
+ *
+ * The embedded database is H2 in MySQL mode. It accepts the SQL the resources
+ * send, but its locking and plans differ from MySQL: use the numbers to compare
+ * builds of this application, not to size production.
+ *
+ * Settings (system properties or env vars, see {@link ConfigUtil#setting}):
+ * loadtest.tenants, loadtest.rate (requests/s), loadtest.warmupSeconds,
+ * loadtest.durationSeconds, loadtest.maxInFlight, loadtest.mix
+ * (e.g. "login=5,header=10,list=25,view=25,export=10,create=15,approve=10", or a
+ * preset name from {@link #MIX_PRESETS}), loadtest.auditPlans, loadtest.auditsPerPlan,
+ * loadtest.detailsPerAudit, loadtest.ncsPerAudit, loadtest.logRows and loadtest.db.url.
+ *
+ * To compare one endpoint between two builds, run the same settings against
+ * each, e.g. the login burst: -Dloadtest.mix=login -Dloadtest.rate=300, and
+ * compare the p99 column.
+ */
+public class LoadTest {
+
+    private static final Logger logger = Logger.getLogger(LoadTest.class.getName());
+
+    private static final URI BASE_URI = URI.create("http://localhost:9000/");
+    private static final String DEFAULT_DB_URL = "jdbc:h2:mem:loadtest;MODE=MySQL;DATABASE_TO_LOWER=TRUE;"
+            + "CASE_INSENSITIVE_IDENTIFIERS=TRUE;DB_CLOSE_DELAY=-1";
+    private static final String DEFAULT_MIX = "login=5,header=10,list=25,view=25,export=10,create=15,approve=10";
+
+    /**
+     * Named mixes for loadtest.mix. "login" sends logins only; "morning" models
+     * the start-of-day burst, where each login is followed by a header load.
+     */
+    private static final Map<String, String> MIX_PRESETS = Map.of(
+            "default", DEFAULT_MIX,
+            "login", "login=1",
+            "morning", "login=1,header=1");
+
+    public static void main(String[] args) throws Exception {
+        int tenantCount = ConfigUtil.intSetting("loadtest.tenants", 10);
+        int rate = ConfigUtil.intSetting("loadtest.rate", 100);
+        int warmupSeconds = ConfigUtil.intSetting("loadtest.warmupSeconds", 10);
+        int durationSeconds = ConfigUtil.intSetting("loadtest.durationSeconds", 60);
+        int maxInFlight = ConfigUtil.intSetting("loadtest.maxInFlight", 1000);
+        Map<Scenario, Integer> mix = parseMix(ConfigUtil.setting("loadtest.mix", DEFAULT_MIX));
+
+        TenantSeeder.Volumes volumes = new TenantSeeder.Volumes();
+        volumes.auditPlans = ConfigUtil.intSetting("loadtest.auditPlans", volumes.auditPlans);
+        volumes.auditsPerPlan = ConfigUtil.intSetting("loadtest.auditsPerPlan", volumes.auditsPerPlan);
+        volumes.detailsPerAudit = ConfigUtil.intSetting("loadtest.detailsPerAudit", volumes.detailsPerAudit);
+        volumes.ncsPerAudit = ConfigUtil.intSetting("loadtest.ncsPerAudit", volumes.ncsPerAudit);
+        volumes.logRows = ConfigUtil.intSetting("loadtest.logRows", volumes.logRows);
+
+        // DBConfig reads these when it is first loaded, which must happen after this point
+        String dbUrl = ConfigUtil.setting("loadtest.db.url", DEFAULT_DB_URL);
+        System.setProperty("db.url", dbUrl);
+        System.setProperty("db.user", ConfigUtil.setting("loadtest.db.user", "sa"));
+        System.setProperty("db.password", ConfigUtil.setting("loadtest.db.password", ""));
+
+        logger.info("Seeding " + tenantCount + " tenants into " + dbUrl);
+        List<Tenant> tenants = new TenantSeeder(dbUrl, System.getProperty("db.user"), System.getProperty("db.password"), volumes)
+                .seed(tenantCount);
+
+        HttpServer server = Main.startServer();
+        HttpClient client = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_1_1)
+                .executor(Executors.newVirtualThreadPerTaskExecutor())
+                .build();
+        try {
+            logger.info("Warming up for " + warmupSeconds + " s at " + rate + " req/s");
+            drive(client, tenants, mix, rate, warmupSeconds, maxInFlight);
+            QueryMetrics.reset();
+
+            logger.info("Measuring for " + durationSeconds + " s at " + rate + " req/s");
+            Map<Scenario, LatencyRecorder> results = drive(client, tenants, mix, rate, durationSeconds, maxInFlight);
+            printReport(System.out, results, durationSeconds, rate, tenantCount);
+        } finally {
+            server.shutdownNow();
+            AuditLogWriter.shutdown();
+            DBConfig.shutdown();
+        }
+    }
+
+    /**
+     * Sends requests at the given rate for the given time and waits for the
+     * stragglers to finish.
+     */
+    private static Map<Scenario, LatencyRecorder> drive(HttpClient client, List<Tenant> tenants, Map<Scenario, Integer> mix,
+                                                       int rate, int seconds, int maxInFlight) throws InterruptedException {
+        Map<Scenario, LatencyRecorder> results = new EnumMap<>(Scenario.class);
+        for (Scenario scenario : mix.keySet()) {
+            results.put(scenario, new LatencyRecorder());
+        }
+
+        List<Scenario> weighted = new ArrayList<>();
+        for (Map.Entry<Scenario, Integer> e : mix.entrySet()) {
+            for (int i = 0; i < e.getValue(); i++) {
+                weighted.add(e.getKey());
+            }
+        }
+
+        Random random = new Random(7);
+        Semaphore inFlight = new Semaphore(maxInFlight);
+        long intervalNanos = TimeUnit.SECONDS.toNanos(1) / Math.max(1, rate);
+        long total = (long) rate * seconds;
+        long start = System.nanoTime();
+
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (long i = 0; i < total; i++) {
+                long scheduled = start + i * intervalNanos;
+                long wait = scheduled - System.nanoTime();
+                if (wait > 0) {
+                    LockSupport.parkNanos(wait);
+                }
+
+                Scenario scenario = weighted.get(random.nextInt(weighted.size()));
+                Tenant tenant = tenants.get(random.nextInt(tenants.size()));
+                HttpRequest request = scenario.build(BASE_URI, tenant, random);
+                LatencyRecorder recorder = results.get(scenario);
+
+                if (!inFlight.tryAcquire()) {
+                    recorder.drop();
+                    continue;
+                }
+                executor.execute(() -> {
+                    boolean error;
+                    try {
+                        HttpResponse<Void> response = client.send(request, HttpResponse.BodyHandlers.discarding());
+                        error = response.statusCode() >= 400;
+                    } catch (Exception e) {
+                        error = true;
+                    } finally {
+                        inFlight.release();
+                    }
+                    recorder.record(System.nanoTime() - scheduled, error);
+                });
+            }
+            // close() waits for the requests still in flight
+        }
+        return results;
+    }
+
+    private static void printReport(PrintStream out, Map<Scenario, LatencyRecorder> results,
+                                    int seconds, int rate, int tenantCount) {
+        String format = "%-32s %9s %7s %7s %9s %9s %9s %9s %9s%n";
+        String rowFormat = "%-32s %9d %7d %7d %9.1f %9.2f %9.2f %9.2f %9.2f%n";
+
+        out.println();
+        out.printf("Load test: %d tenants, target %d req/s, %d s measured%n%n", tenantCount, rate, seconds);
+        out.printf(format, "endpoint", "requests", "errors", "dropped", "req/s", "p50 ms", "p99 ms", "p99.9 ms", "max ms");
+
+        LatencyRecorder overall = new LatencyRecorder();
+        for (Map.Entry<Scenario, LatencyRecorder> e : results.entrySet()) {
+            print(out, rowFormat, e.getValue().summarize(e.getKey().endpoint, seconds));
+            overall.addAll(e.getValue());
+        }
+        print(out, rowFormat, overall.summarize("all", seconds));
+
+        out.println();
+        out.println("Top queries by total time:");
+        for (QueryMetrics.TemplateStats stats : QueryMetrics.getTemplateStats("total", 10)) {
+            out.printf("%10.1f ms %8d calls %8.2f ms p99  %s%n", stats.totalMillis, stats.calls, stats.p99Millis, stats.template);
+        }
+    }
+
+    private static void print(PrintStream out, String format, LatencyRecorder.Summary s) {
+        out.printf(format, s.endpoint, s.requests, s.errors, s.dropped, s.throughput, s.p50Millis, s.p99Millis, s.p999Millis, s.maxMillis);
+    }
+
+    private static Map<Scenario, Integer> parseMix(String value) {
+        Map<Scenario, Integer> mix = new EnumMap<>(Scenario.class);
+        String preset = MIX_PRESETS.get(value.trim().toLowerCase());
+        if (preset != null) {
+            value = preset;
+        }
+        for (String part : value.split(",")) {
+            String[] kv = part.trim().split("=");
+            if (kv.length != 2) {
+                throw new IllegalArgumentException("Invalid loadtest.mix entry: " + part);
+            }
+            int weight = Integer.parseInt(kv[1].trim());
+            if (weight > 0) {
+                mix.put(Scenario.valueOf(kv[0].trim().toUpperCase()), weight);
+            }
+        }
+        if (mix.isEmpty()) {
+            throw new IllegalArgumentException("loadtest.mix has no scenario with a positive weight");
+        }
+        return mix;
+    }
+}
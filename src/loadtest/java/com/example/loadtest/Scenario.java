@@ -0,0 +1,126 @@
+package com.example.loadtest;
+
+import com.example.loadtest.TenantSeeder.Tenant;
+
+import java.net.URI;
+import java.net.URLEncoder;
+import java.net.http.HttpRequest;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.Random;
+
+/**
+ * The request types the load test mixes, each building one request for a tenant.
+ */
+public enum Scenario {
+
+    LOGIN("POST /ValidateLogin") {
+        @Override
+        HttpRequest.Builder request(URI base, Tenant tenant, Random random) {
+            String body = "{\"username\":\"" + tenant.username + "\",\"password\":\"" + tenant.password
+                    + "\",\"companyCode\":\"" + tenant.code + "\",\"loginType\":\"Client Login\"}";
+            return post(base, "ValidateLogin", body);
+        }
+    },
+
+    HEADER("POST /Header") {
+        @Override
+        HttpRequest.Builder request(URI base, Tenant tenant, Random random) {
+            String body = "{\"employeeName\":\"" + tenant.username + "\",\"employeeId\":\"" + tenant.userId
+                    + "\",\"companyCode\":\"" + tenant.code + "\",\"actualCompanyCode\":\"" + tenant.code
+                    + "\",\"loginType\":\"Client Login\"}";
+            return post(base, "Header", body);
+        }
+    },
+
+    LIST("GET /internalaudit/list") {
+        @Override
+        HttpRequest.Builder request(URI base, Tenant tenant, Random random) {
+            return HttpRequest.newBuilder(base.resolve("internalaudit/list")).GET();
+        }
+    },
+
+    VIEW("GET /internalaudit/view") {
+        @Override
+        HttpRequest.Builder request(URI base, Tenant tenant, Random random) {
+            int auditId = pick(tenant, random);
+            String standard = TenantSeeder.STANDARDS[random.nextInt(TenantSeeder.STANDARDS.length)];
+            return HttpRequest.newBuilder(base.resolve("internalaudit/view?intr_audit_id=" + auditId
+                    + "&standard_name=" + encode(standard))).GET();
+        }
+    },
+
+    EXPORT("GET /internalaudit/export") {
+        @Override
+        HttpRequest.Builder request(URI base, Tenant tenant, Random random) {
+            int auditId = pick(tenant, random);
+            return HttpRequest.newBuilder(base.resolve("internalaudit/export?intr_audit_id=" + auditId)).GET();
+        }
+    },
+
+    CREATE("POST /internalaudit") {
+        @Override
+        HttpRequest.Builder request(URI base, Tenant tenant, Random random) {
+            int planId = tenant.auditPlanIds.get(random.nextInt(tenant.auditPlanIds.size()));
+            String standard = TenantSeeder.STANDARDS[random.nextInt(TenantSeeder.STANDARDS.length)];
+            String body = "{\"standardName\":\"" + standard + "\",\"auditPlanId\":\"" + planId
+                    + "\",\"auditNo\":\"LOAD-" + tenant.createdAudits.incrementAndGet()
+                    + "\",\"auditDate\":\"" + LocalDate.now() + "\",\"scope\":\"Load test\"}";
+            return post(base, "internalaudit", body);
+        }
+    },
+
+    APPROVE("PUT /internalaudit/{id}/status") {
+        @Override
+        HttpRequest.Builder request(URI base, Tenant tenant, Random random) {
+            // Approve consumes the seeded "In Process" audits; once they run out the
+            // requests are rejected with 400 and show up as errors in the report
+            Integer auditId = tenant.inProcessAuditIds.poll();
+            if (auditId == null) {
+                auditId = pick(tenant, random);
+            }
+            return HttpRequest.newBuilder(base.resolve("internalaudit/" + auditId + "/status"))
+                    .header("Content-Type", "application/json")
+                    .PUT(HttpRequest.BodyPublishers.ofString("{\"status\":\"Approve\"}"));
+        }
+    };
+
+    private static final Duration TIMEOUT = Duration.ofSeconds(30);
+
+    final String endpoint;
+
+    Scenario(String endpoint) {
+        this.endpoint = endpoint;
+    }
+
+    abstract HttpRequest.Builder request(URI base, Tenant tenant, Random random);
+
+    /**
+     * Builds the request with the headers the resources expect from the front end.
+     */
+    HttpRequest build(URI base, Tenant tenant, Random random) {
+        return request(base, tenant, random)
+                .timeout(TIMEOUT)
+                .header("company-code", tenant.code)
+                .header("employee-id", String.valueOf(tenant.userId))
+                .header("employee-name", tenant.username)
+                .header("use-designation-id", String.valueOf(tenant.designationId))
+                .header("user-department-id", String.valueOf(tenant.departmentId))
+                .build();
+    }
+
+    private static HttpRequest.Builder post(URI base, String path, String json) {
+        return HttpRequest.newBuilder(base.resolve(path))
+                .header("Content-Type", "application/json")
+                .POST(HttpRequest.BodyPublishers.ofString(json));
+    }
+
+    private static int pick(Tenant tenant, Random random) {
+        return tenant.auditIds.get(random.nextInt(tenant.auditIds.size()));
+    }
+
+    private static String encode(String value) {
+        return URLEncoder.encode(value, StandardCharsets.UTF_8);
+    }
+}
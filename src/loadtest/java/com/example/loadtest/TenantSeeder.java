@@ -0,0 +1,437 @@
+package com.example.loadtest;
+
+import com.example.HeaderResource;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Logger;
+
+/**
+ * Creates the shared tables and N synthetic tenants with their prefixed tables,
+ * and seeds them with the configured data volumes.
+ *
+ * Column lists follow the queries in the resources, so only the columns the
+ * load-test scenarios read or write are created. The shared tables are cleared
+ * and the LT* tenant tables recreated on every run: point this at a throwaway
+ * database only.
+ */
+public class TenantSeeder {
+
+    private static final Logger logger = Logger.getLogger(TenantSeeder.class.getName());
+
+    static final String[] STANDARDS = {"ISO 9001:2015", "ISO 14001:2015", "ISO 45001:2018"};
+    static final String[] MODULES = {"AUDIT PLAN", "INTERNAL AUDIT", "EXTERNAL AUDIT PLAN", "EXTERNAL AUDIT", "GAP ASSESSMENT"};
+    private static final String[] DESC_TYPES = {"Major", "Minor", "Observation", "Compliance"};
+    private static final int CLAUSES_PER_STANDARD = 60;
+    private static final int BATCH_SIZE = 500;
+    private static final String CREATE_TABLE = "CREATE TABLE IF NOT EXISTS ";
+
+    private static final String[] SHARED_TABLES = {
+            "CREATE TABLE IF NOT EXISTS company_registration (id INT PRIMARY KEY, company_code VARCHAR(64), "
+                    + "company_name VARCHAR(255), config_type VARCHAR(32), risk_type VARCHAR(32), company_status VARCHAR(32), "
+                    + "street1 VARCHAR(255), street2 VARCHAR(255), city VARCHAR(64), state VARCHAR(64), pincode VARCHAR(16), "
+                    + "country VARCHAR(64), person_name VARCHAR(128))",
+            "CREATE TABLE IF NOT EXISTS package_validity_detail (id INT PRIMARY KEY, company_id INT, status VARCHAR(32), validity_to DATE)",
+            "CREATE TABLE IF NOT EXISTS package_category_modules (id INT PRIMARY KEY, name VARCHAR(64))",
+            "CREATE TABLE IF NOT EXISTS package_category_modules_detail (id INT PRIMARY KEY, package_category_modules_id INT, module_name VARCHAR(64))",
+            "CREATE TABLE IF NOT EXISTS standard_master (id INT PRIMARY KEY, std_name VARCHAR(128))",
+            "CREATE TABLE IF NOT EXISTS clause_master (id INT PRIMARY KEY, std_id INT, number VARCHAR(32), name VARCHAR(255), "
+                    + "description VARCHAR(1024), guidance VARCHAR(1024), requirement VARCHAR(1024), "
+                    + "clause_required_document VARCHAR(255), main_clause_id INT)",
+            "CREATE INDEX IF NOT EXISTS idx_clause_master_std_number ON clause_master (std_id, number)",
+            // As in src/main/resources/db/id_sequence.sql
+            "CREATE TABLE IF NOT EXISTS id_sequence (table_name VARCHAR(128) NOT NULL PRIMARY KEY, next_id BIGINT NOT NULL)"
+    };
+
+    private static final String[] TENANT_TABLES = {
+            "CREATE TABLE IF NOT EXISTS {t}_user_master (user_id INT PRIMARY KEY, username VARCHAR(64), password VARCHAR(128), emp_id INT)",
+            "CREATE TABLE IF NOT EXISTS {t}_employee_detail (id INT PRIMARY KEY, name VARCHAR(128), designation_id INT, department_id INT)",
+            "CREATE TABLE IF NOT EXISTS {t}_module_master (module_id INT PRIMARY KEY, module_name VARCHAR(64))",
+            "CREATE TABLE IF NOT EXISTS {t}_user_module_access (id INT PRIMARY KEY, user_id INT, module_id INT, "
+                    + "view_access VARCHAR(8), add_access VARCHAR(8), edit_access VARCHAR(8), delete_access VARCHAR(8))",
+            "CREATE TABLE IF NOT EXISTS {t}_customer_rights (id INT PRIMARY KEY, dept_id INT, desig_id INT)",
+            "CREATE TABLE IF NOT EXISTS {t}_customer_rights_detail (id INT PRIMARY KEY, rights_id INT, standard_name VARCHAR(128), clause_no VARCHAR(32))",
+            "CREATE TABLE IF NOT EXISTS {t}_audit_plan (id INT PRIMARY KEY, audit_no VARCHAR(64), audit_date VARCHAR(16), "
+                    + "audit_start_date VARCHAR(16), audit_end_date VARCHAR(16), status VARCHAR(32))",
+            "CREATE TABLE IF NOT EXISTS {t}_audit_plan_standard (id INT PRIMARY KEY, audit_plan_id INT, standard_name VARCHAR(128), status VARCHAR(32))",
+            "CREATE TABLE IF NOT EXISTS {t}_audit_plan_detail (id INT PRIMARY KEY, audit_plan_id INT, department VARCHAR(64), audit_date VARCHAR(16))",
+            "CREATE TABLE IF NOT EXISTS {t}_audit_plan_auditors (id INT PRIMARY KEY, audit_plan_id INT, auditor_name VARCHAR(128), auditor_desig VARCHAR(64))",
+            "CREATE TABLE IF NOT EXISTS {t}_internal_audit_master (id INT PRIMARY KEY, audit_plan_id INT, audit_no VARCHAR(64), "
+                    + "std_id INT, std_name VARCHAR(128), audit_date VARCHAR(16), status VARCHAR(32), scope VARCHAR(1024))",
+            "CREATE TABLE IF NOT EXISTS {t}_internal_audit_detail (id INT PRIMARY KEY, internal_audit_id INT, std_id INT, "
+                    + "clause_no VARCHAR(32), comment VARCHAR(1024), desc_type VARCHAR(32), status VARCHAR(32), "
+                    + "workplace_requirment VARCHAR(255), sub_category VARCHAR(255), issue_title VARCHAR(255), "
+                    + "requirement VARCHAR(1024), guidance VARCHAR(1024), nc_no VARCHAR(32), action VARCHAR(255), evidence VARCHAR(1024))",
+            "CREATE TABLE IF NOT EXISTS {t}_internal_audit_document (id INT PRIMARY KEY, internal_audit_id INT, intr_audit_id INT, "
+                    + "standard_id INT, std_id INT, clause_no VARCHAR(32), file_name VARCHAR(255))",
+            "CREATE TABLE IF NOT EXISTS {t}_internal_audit_std_doc (id INT PRIMARY KEY, std_id INT, clause_no VARCHAR(32), file_name VARCHAR(255))",
+            "CREATE TABLE IF NOT EXISTS {t}_nonconformities (id INT PRIMARY KEY, nc_no VARCHAR(32), internal_audit_id INT, "
+                    + "clause_no VARCHAR(32), site VARCHAR(128), process_area VARCHAR(128), auditor VARCHAR(128), type VARCHAR(32), "
+                    + "status VARCHAR(32), correction VARCHAR(1024), correction_when VARCHAR(16), correction_whom VARCHAR(128), "
+                    + "root_cause VARCHAR(1024), corrective VARCHAR(1024), corrective_when VARCHAR(16), corrective_whom VARCHAR(128))",
+            "CREATE TABLE IF NOT EXISTS {t}_log_master (id INT PRIMARY KEY, fired_date VARCHAR(16), fired_by VARCHAR(128), "
+                    + "status VARCHAR(32), module_name VARCHAR(64), module_id VARCHAR(32))",
+            "CREATE INDEX IF NOT EXISTS idx_{t}_iad_audit ON {t}_internal_audit_detail (internal_audit_id)",
+            "CREATE INDEX IF NOT EXISTS idx_{t}_crd_rights ON {t}_customer_rights_detail (rights_id, standard_name)"
+    };
+
+    /**
+     * Seed volumes per tenant.
+     */
+    public static class Volumes {
+        public int auditPlans = 50;
+        public int auditsPerPlan = 4;
+        public int detailsPerAudit = 20;
+        public int ncsPerAudit = 2;
+        public int logRows = 1000;
+    }
+
+    /**
+     * One seeded tenant and the ids the scenarios pick from.
+     */
+    public static class Tenant {
+        public final String code;
+        public final String username;
+        public final String password;
+        public final int userId;
+        public final int designationId = 1;
+        public final int departmentId = 1;
+        public final List<Integer> auditIds = new ArrayList<>();
+        public final List<Integer> auditPlanIds = new ArrayList<>();
+        public final ConcurrentLinkedQueue<Integer> inProcessAuditIds = new ConcurrentLinkedQueue<>();
+        public final AtomicInteger createdAudits = new AtomicInteger();
+
+        Tenant(String code, String username, String password, int userId) {
+            this.code = code;
+            this.username = username;
+            this.password = password;
+            this.userId = userId;
+        }
+    }
+
+    private final String url;
+    private final String user;
+    private final String password;
+    private final Volumes volumes;
+    private final Random random = new Random(42);
+
+    public TenantSeeder(String url, String user, String password, Volumes volumes) {
+        this.url = url;
+        this.user = user;
+        this.password = password;
+        this.volumes = volumes;
+    }
+
+    /**
+     * Creates and seeds the shared tables and the given number of tenants.
+     *
+     * @param tenantCount Number of tenants, named LT1 .. LTn
+     * @return The seeded tenants
+     * @throws SQLException if the schema could not be created or seeded
+     */
+    public List<Tenant> seed(int tenantCount) throws SQLException {
+        List<Tenant> tenants = new ArrayList<>();
+        try (Connection con = DriverManager.getConnection(url, user, password)) {
+            con.setAutoCommit(false);
+            execute(con, SHARED_TABLES, null);
+            seedShared(con, tenantCount);
+            con.commit();
+
+            for (int i = 1; i <= tenantCount; i++) {
+                long start = System.nanoTime();
+                Tenant tenant = new Tenant("LT" + i, "user" + i, "secret" + i, 1);
+                dropTenantTables(con, tenant.code);
+                execute(con, TENANT_TABLES, tenant.code);
+                seedTenant(con, tenant);
+                con.commit();
+                tenants.add(tenant);
+                logger.info("Seeded tenant " + tenant.code + " in " + (System.nanoTime() - start) / 1_000_000 + " ms");
+            }
+        }
+        return tenants;
+    }
+
+    private void seedShared(Connection con, int tenantCount) throws SQLException {
+        try (Statement stmt = con.createStatement()) {
+            stmt.execute("DELETE FROM company_registration");
+            stmt.execute("DELETE FROM package_validity_detail");
+            stmt.execute("DELETE FROM package_category_modules");
+            stmt.execute("DELETE FROM package_category_modules_detail");
+            stmt.execute("DELETE FROM standard_master");
+            stmt.execute("DELETE FROM clause_master");
+        }
+
+        String validTo = LocalDate.now().plusYears(1).toString();
+        try (PreparedStatement company = con.prepareStatement("INSERT INTO company_registration (id, company_code, company_name, "
+                + "config_type, risk_type, company_status, street1, street2, city, state, pincode, country, person_name) "
+                + "VALUES (?, ?, ?, 'Standard', 'Low', 'Active', ?, 'Phase II', 'Pune', 'Maharashtra', '411026', 'India', 'Contact Person')");
+             PreparedStatement pkg = con.prepareStatement("INSERT INTO package_validity_detail (id, company_id, status, validity_to) "
+                     + "VALUES (?, ?, 'Active', ?)")) {
+            for (int i = 1; i <= tenantCount; i++) {
+                company.setInt(1, i);
+                company.setString(2, "LT" + i);
+                company.setString(3, "Load Test Company " + i);
+                company.setString(4, "Plot " + i + ", Industrial Area");
+                company.addBatch();
+                pkg.setInt(1, i);
+                pkg.setInt(2, i);
+                pkg.setDate(3, java.sql.Date.valueOf(validTo));
+                pkg.addBatch();
+            }
+            company.executeBatch();
+            pkg.executeBatch();
+        }
+
+        // HeaderResource looks up package category 0
+        try (Statement stmt = con.createStatement()) {
+            stmt.execute("INSERT INTO package_category_modules (id, name) VALUES (0, 'Default')");
+        }
+        try (PreparedStatement ps = con.prepareStatement("INSERT INTO package_category_modules_detail (id, package_category_modules_id, module_name) VALUES (?, 0, ?)")) {
+            for (int i = 0; i < MODULES.length; i++) {
+                ps.setInt(1, i + 1);
+                ps.setString(2, MODULES[i]);
+                ps.addBatch();
+            }
+            ps.executeBatch();
+        }
+
+        try (PreparedStatement std = con.prepareStatement("INSERT INTO standard_master (id, std_name) VALUES (?, ?)");
+             PreparedStatement clause = con.prepareStatement("INSERT INTO clause_master (id, std_id, number, name, description, guidance, main_clause_id) "
+                     + "VALUES (?, ?, ?, ?, ?, ?, ?)")) {
+            int clauseId = 1;
+            for (int s = 0; s < STANDARDS.length; s++) {
+                int stdId = s + 1;
+                std.setInt(1, stdId);
+                std.setString(2, STANDARDS[s]);
+                std.addBatch();
+                for (int c = 0; c < CLAUSES_PER_STANDARD; c++) {
+                    clause.setInt(1, clauseId++);
+                    clause.setInt(2, stdId);
+                    clause.setString(3, clauseNo(c));
+                    clause.setString(4, "Clause " + clauseNo(c));
+                    clause.setString(5, text(30));
+                    clause.setString(6, text(40));
+                    clause.setInt(7, clauseId - 1 - c);
+                    clause.addBatch();
+                }
+            }
+            std.executeBatch();
+            clause.executeBatch();
+        }
+    }
+
+    private void seedTenant(Connection con, Tenant tenant) throws SQLException {
+        String t = tenant.code;
+
+        try (Statement stmt = con.createStatement()) {
+            stmt.execute("INSERT INTO " + t + "_user_master (user_id, username, password, emp_id) VALUES ("
+                    + tenant.userId + ", '" + tenant.username + "', '" + tenant.password + "', 1)");
+            stmt.execute("INSERT INTO " + t + "_employee_detail (id, name, designation_id, department_id) VALUES (1, 'Load Tester', "
+                    + tenant.designationId + ", " + tenant.departmentId + ")");
+            stmt.execute("INSERT INTO " + t + "_customer_rights (id, dept_id, desig_id) VALUES (1, "
+                    + tenant.departmentId + ", " + tenant.designationId + ")");
+        }
+
+        try (PreparedStatement module = con.prepareStatement("INSERT INTO " + t + "_module_master (module_id, module_name) VALUES (?, ?)");
+             PreparedStatement access = con.prepareStatement("INSERT INTO " + t + "_user_module_access "
+                     + "(id, user_id, module_id, view_access, add_access, edit_access, delete_access) VALUES (?, ?, ?, 'Yes', 'Yes', 'Yes', 'Yes')")) {
+            for (int i = 0; i < MODULES.length; i++) {
+                module.setInt(1, i + 1);
+                module.setString(2, MODULES[i]);
+                module.addBatch();
+                access.setInt(1, i + 1);
+                access.setInt(2, tenant.userId);
+                access.setInt(3, i + 1);
+                access.addBatch();
+            }
+            module.executeBatch();
+            access.executeBatch();
+        }
+        HeaderResource.invalidateModuleAccess(t, null);
+
+        try (PreparedStatement rights = con.prepareStatement("INSERT INTO " + t + "_customer_rights_detail (id, rights_id, standard_name, clause_no) VALUES (?, 1, ?, ?)")) {
+            int id = 1;
+            for (String standard : STANDARDS) {
+                for (int c = 0; c < CLAUSES_PER_STANDARD; c++) {
+                    rights.setInt(1, id++);
+                    rights.setString(2, standard);
+                    rights.setString(3, clauseNo(c));
+                    rights.addBatch();
+                }
+            }
+            rights.executeBatch();
+        }
+
+        seedAudits(con, tenant);
+        seedLog(con, t);
+    }
+
+    private void seedAudits(Connection con, Tenant tenant) throws SQLException {
+        String t = tenant.code;
+        try (PreparedStatement plan = con.prepareStatement("INSERT INTO " + t + "_audit_plan (id, audit_no, audit_date, audit_start_date, audit_end_date, status) "
+                + "VALUES (?, ?, ?, ?, ?, 'In Process')");
+             PreparedStatement planStd = con.prepareStatement("INSERT INTO " + t + "_audit_plan_standard (id, audit_plan_id, standard_name, status) VALUES (?, ?, ?, '')");
+             PreparedStatement planDetail = con.prepareStatement("INSERT INTO " + t + "_audit_plan_detail (id, audit_plan_id, department, audit_date) VALUES (?, ?, ?, ?)");
+             PreparedStatement auditor = con.prepareStatement("INSERT INTO " + t + "_audit_plan_auditors (id, audit_plan_id, auditor_name, auditor_desig) VALUES (?, ?, ?, 'Lead Auditor')");
+             PreparedStatement audit = con.prepareStatement("INSERT INTO " + t + "_internal_audit_master (id, audit_plan_id, audit_no, std_id, std_name, audit_date, status, scope) "
+                     + "VALUES (?, ?, ?, ?, ?, ?, ?, ?)");
+             PreparedStatement detail = con.prepareStatement("INSERT INTO " + t + "_internal_audit_detail (id, internal_audit_id, std_id, clause_no, comment, desc_type, "
+                     + "status, workplace_requirment, sub_category, issue_title, requirement, guidance, nc_no, action, evidence) "
+                     + "VALUES (?, ?, ?, ?, ?, ?, 'Open', '', '', '', ?, ?, ?, '', ?)");
+             PreparedStatement nc = con.prepareStatement("INSERT INTO " + t + "_nonconformities (id, nc_no, internal_audit_id, clause_no, site, process_area, auditor, "
+                     + "type, status, correction, correction_when, correction_whom, root_cause, corrective, corrective_when, corrective_whom) "
+                     + "VALUES (?, ?, ?, ?, 'Main site', 'Production', 'Lead Auditor', ?, 'Open', ?, ?, 'Owner', ?, ?, ?, 'Owner')")) {
+
+            int auditId = 1, detailId = 1, ncId = 1, rowId = 1, pending = 0;
+            for (int p = 1; p <= volumes.auditPlans; p++) {
+                String date = LocalDate.of(2024, 1, 1).plusDays(p).toString();
+                plan.setInt(1, p);
+                plan.setString(2, "AP-" + p);
+                plan.setString(3, date);
+                plan.setString(4, date);
+                plan.setString(5, LocalDate.parse(date).plusDays(4).toString());
+                plan.addBatch();
+                tenant.auditPlanIds.add(p);
+
+                for (int s = 0; s < STANDARDS.length; s++) {
+                    planStd.setInt(1, rowId);
+                    planStd.setInt(2, p);
+                    planStd.setString(3, STANDARDS[s]);
+                    planStd.addBatch();
+                    planDetail.setInt(1, rowId);
+                    planDetail.setInt(2, p);
+                    planDetail.setString(3, "Department " + s);
+                    planDetail.setString(4, date);
+                    planDetail.addBatch();
+                    auditor.setInt(1, rowId);
+                    auditor.setInt(2, p);
+                    auditor.setString(3, "Auditor " + s);
+                    auditor.addBatch();
+                    rowId++;
+                }
+
+                for (int a = 0; a < volumes.auditsPerPlan; a++) {
+                    int stdIndex = a % STANDARDS.length;
+                    boolean inProcess = random.nextBoolean();
+                    audit.setInt(1, auditId);
+                    audit.setInt(2, p);
+                    audit.setString(3, "IA-" + p + "-" + a);
+                    audit.setInt(4, stdIndex + 1);
+                    audit.setString(5, STANDARDS[stdIndex]);
+                    audit.setString(6, date);
+                    audit.setString(7, inProcess ? "In Process" : "Complet");
+                    audit.setString(8, text(20));
+                    audit.addBatch();
+                    tenant.auditIds.add(auditId);
+                    if (inProcess) {
+                        tenant.inProcessAuditIds.add(auditId);
+                    }
+
+                    for (int d = 0; d < volumes.detailsPerAudit; d++) {
+                        detail.setInt(1, detailId++);
+                        detail.setInt(2, auditId);
+                        detail.setInt(3, stdIndex + 1);
+                        detail.setString(4, clauseNo(d % CLAUSES_PER_STANDARD));
+                        detail.setString(5, text(15));
+                        detail.setString(6, DESC_TYPES[random.nextInt(DESC_TYPES.length)]);
+                        detail.setString(7, text(25));
+                        detail.setString(8, text(25));
+                        detail.setString(9, "NC-" + auditId + "-" + d);
+                        detail.setString(10, text(30));
+                        detail.addBatch();
+                        pending++;
+                    }
+                    for (int n = 0; n < volumes.ncsPerAudit; n++) {
+                        nc.setInt(1, ncId);
+                        nc.setString(2, "NC-" + ncId);
+                        nc.setInt(3, auditId);
+                        nc.setString(4, clauseNo(n));
+                        nc.setString(5, n % 2 == 0 ? "Major" : "Minor");
+                        nc.setString(6, text(15));
+                        nc.setString(7, date);
+                        nc.setString(8, text(20));
+                        nc.setString(9, text(20));
+                        nc.setString(10, date);
+                        nc.addBatch();
+                        ncId++;
+                        pending++;
+                    }
+                    auditId++;
+
+                    if (pending >= BATCH_SIZE) {
+                        detail.executeBatch();
+                        nc.executeBatch();
+                        pending = 0;
+                    }
+                }
+            }
+            plan.executeBatch();
+            planStd.executeBatch();
+            planDetail.executeBatch();
+            auditor.executeBatch();
+            audit.executeBatch();
+            detail.executeBatch();
+            nc.executeBatch();
+        }
+    }
+
+    private void seedLog(Connection con, String t) throws SQLException {
+        try (PreparedStatement ps = con.prepareStatement("INSERT INTO " + t + "_log_master (id, fired_date, fired_by, status, module_name, module_id) "
+                + "VALUES (?, ?, 'Load Tester', 'Create', 'Internal Audit', ?)")) {
+            for (int i = 1; i <= volumes.logRows; i++) {
+                ps.setInt(1, i);
+                ps.setString(2, LocalDate.of(2024, 1, 1).plusDays(i % 365).toString());
+                ps.setString(3, String.valueOf(i));
+                ps.addBatch();
+                if (i % BATCH_SIZE == 0) {
+                    ps.executeBatch();
+                }
+            }
+            ps.executeBatch();
+        }
+    }
+
+    private static void dropTenantTables(Connection con, String tenantCode) throws SQLException {
+        try (Statement stmt = con.createStatement()) {
+            for (String sql : TENANT_TABLES) {
+                if (sql.startsWith(CREATE_TABLE)) {
+                    String table = sql.substring(CREATE_TABLE.length(), sql.indexOf(' ', CREATE_TABLE.length()));
+                    stmt.execute("DROP TABLE IF EXISTS " + table.replace("{t}", tenantCode));
+                }
+            }
+        }
+    }
+
+    private static void execute(Connection con, String[] statements, String tenantCode) throws SQLException {
+        try (Statement stmt = con.createStatement()) {
+            for (String sql : statements) {
+                stmt.execute(tenantCode == null ? sql : sql.replace("{t}", tenantCode));
+            }
+        }
+    }
+
+    private static String clauseNo(int i) {
+        return (4 + i / 10) + "." + (1 + i % 10);
+    }
+
+    private String text(int words) {
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < words; i++) {
+            if (i > 0) sb.append(' ');
+            int length = 3 + random.nextInt(7);
+            for (int c = 0; c < length; c++) {
+                sb.append((char) ('a' + random.nextInt(26)));
+            }
+        }
+        return sb.toString();
+    }
+}
@@ -0,0 +1,303 @@
+package com.example;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.logging.Logger;
+
+import jakarta.ws.rs.*;
+import jakarta.ws.rs.core.MediaType;
+import jakarta.ws.rs.core.Response;
+import com.example.util.AuditLogWriter;
+import com.example.util.ClauseCatalog;
+import com.example.util.DBConfig;
+import com.example.util.ErrorHandler;
+import com.example.util.ExpiringCache;
+import com.example.util.QueryMetrics;
+import com.example.util.SedexIndex;
+import com.example.util.StandardCatalog;
+import com.example.util.TenantRegistry;
+import com.example.util.TenantBulkhead;
+
+@Path("/admin")
+public class AdminResource {
+
+    private static final Logger logger = Logger.getLogger(AdminResource.class.getName());
+
+    @GET
+    @Path("/db-pool")
+    @Produces(MediaType.APPLICATION_JSON)
+    public Response getPoolStats() {
+        try {
+            logger.fine("Fetching connection pool statistics");
+
+            Map<String, Object> response = new HashMap<>();
+            response.put("success", true);
+            response.put("data", DBConfig.getPoolStats());
+            response.put("replica", DBConfig.getReplicaPoolStats());
+            response.put("routing", DBConfig.getRoutingStats());
+            return Response.ok(response).build();
+
+        } catch (Exception e) {
+            return ErrorHandler.serverError("Failed to read pool statistics", e);
+        }
+    }
+
+    @GET
+    @Path("/tenants")
+    @Produces(MediaType.APPLICATION_JSON)
+    public Response getTenantStats() {
+        try {
+            logger.fine("Fetching per-tenant bulkhead statistics");
+
+            Map<String, Object> response = new HashMap<>();
+            response.put("success", true);
+            response.put("data", TenantBulkhead.getStats());
+            return Response.ok(response).build();
+
+        } catch (Exception e) {
+            return ErrorHandler.serverError("Failed to read tenant statistics", e);
+        }
+    }
+
+    @GET
+    @Path("/audit-log")
+    @Produces(MediaType.APPLICATION_JSON)
+    public Response getAuditLogStats() {
+        try {
+            logger.fine("Fetching audit log writer statistics");
+
+            Map<String, Object> response = new HashMap<>();
+            response.put("success", true);
+            response.put("data", AuditLogWriter.getStats());
+            return Response.ok(response).build();
+
+        } catch (Exception e) {
+            return ErrorHandler.serverError("Failed to read audit log statistics", e);
+        }
+    }
+
+    @GET
+    @Path("/queries")
+    @Produces(MediaType.APPLICATION_JSON)
+    public Response getQueryStats(@QueryParam("sort") @DefaultValue("total") String sort,
+                                  @QueryParam("limit") @DefaultValue("50") int limit) {
+        try {
+            logger.fine("Fetching query statistics sorted by " + sort);
+
+            Map<String, Object> response = new HashMap<>();
+            response.put("success", true);
+            response.put("data", QueryMetrics.getTemplateStats(sort, limit));
+            return Response.ok(response).build();
+
+        } catch (Exception e) {
+            return ErrorHandler.serverError("Failed to read query statistics", e);
+        }
+    }
+
+    @GET
+    @Path("/queries/tenants")
+    @Produces(MediaType.APPLICATION_JSON)
+    public Response getQueryTenantStats() {
+        try {
+            logger.fine("Fetching per-tenant query statistics");
+
+            Map<String, Object> response = new HashMap<>();
+            response.put("success", true);
+            response.put("data", QueryMetrics.getTenantStats());
+            return Response.ok(response).build();
+
+        } catch (Exception e) {
+            return ErrorHandler.serverError("Failed to read tenant query statistics", e);
+        }
+    }
+
+    @GET
+    @Path("/queries/slow")
+    @Produces(MediaType.APPLICATION_JSON)
+    public Response getSlowQueries() {
+        try {
+            logger.fine("Fetching slow query log");
+
+            Map<String, Object> response = new HashMap<>();
+            response.put("success", true);
+            response.put("data", QueryMetrics.getSlowQueries());
+            return Response.ok(response).build();
+
+        } catch (Exception e) {
+            return ErrorHandler.serverError("Failed to read slow query log", e);
+        }
+    }
+
+    @DELETE
+    @Path("/queries")
+    @Produces(MediaType.APPLICATION_JSON)
+    public Response resetQueryStats() {
+        try {
+            logger.info("Resetting query statistics");
+            QueryMetrics.reset();
+
+            Map<String, Object> response = new HashMap<>();
+            response.put("success", true);
+            response.put("message", "Query statistics reset");
+            return Response.ok(response).build();
+
+        } catch (Exception e) {
+            return ErrorHandler.serverError("Failed to reset query statistics", e);
+        }
+    }
+
+    @GET
+    @Path("/caches")
+    @Produces(MediaType.APPLICATION_JSON)
+    public Response getCacheStats() {
+        try {
+            logger.fine("Fetching cache statistics");
+
+            Map<String, Object> response = new HashMap<>();
+            response.put("success", true);
+            response.put("data", ExpiringCache.getStats());
+            return Response.ok(response).build();
+
+        } catch (Exception e) {
+            return ErrorHandler.serverError("Failed to read cache statistics", e);
+        }
+    }
+
+    @DELETE
+    @Path("/caches/{name}")
+    @Produces(MediaType.APPLICATION_JSON)
+    public Response clearCache(@PathParam("name") String name) {
+        try {
+            ExpiringCache<?> cache = ExpiringCache.named(name);
+            if (cache == null) {
+                return ErrorHandler.notFound("Unknown cache: " + name, "No cache named " + name);
+            }
+            logger.info("Clearing cache " + name);
+            cache.clear();
+
+            Map<String, Object> response = new HashMap<>();
+            response.put("success", true);
+            response.put("message", "Cache " + name + " cleared");
+            return Response.ok(response).build();
+
+        } catch (Exception e) {
+            return ErrorHandler.serverError("Failed to clear cache", e);
+        }
+    }
+
+    /**
+     * Called by whatever edits user rights, so /Header stops serving the old access.
+     */
+    @DELETE
+    @Path("/module-access/{company_code}")
+    @Produces(MediaType.APPLICATION_JSON)
+    public Response invalidateModuleAccess(@PathParam("company_code") String companyCode,
+                                           @QueryParam("user_id") String userId) {
+        try {
+            HeaderResource.invalidateModuleAccess(companyCode, userId);
+
+            Map<String, Object> response = new HashMap<>();
+            response.put("success", true);
+            response.put("message", "Module access cache invalidated");
+            return Response.ok(response).build();
+
+        } catch (Exception e) {
+            return ErrorHandler.serverError("Failed to invalidate module access cache", e);
+        }
+    }
+
+    /**
+     * Called after standard_master is edited, so the next lookup reads it again.
+     */
+    @DELETE
+    @Path("/standards")
+    @Produces(MediaType.APPLICATION_JSON)
+    public Response invalidateStandards() {
+        try {
+            logger.info("Invalidating standards catalog");
+            StandardCatalog.invalidate();
+
+            Map<String, Object> response = new HashMap<>();
+            response.put("success", true);
+            response.put("message", "Standards catalog invalidated");
+            return Response.ok(response).build();
+
+        } catch (Exception e) {
+            return ErrorHandler.serverError("Failed to invalidate standards catalog", e);
+        }
+    }
+
+    /**
+     * Called after clause_master is edited; without std_id every standard is dropped.
+     */
+    @DELETE
+    @Path("/clauses")
+    @Produces(MediaType.APPLICATION_JSON)
+    public Response invalidateClauses(@QueryParam("std_id") String stdId) {
+        try {
+            if (stdId == null || stdId.trim().isEmpty()) {
+                logger.info("Invalidating clause catalog");
+                ClauseCatalog.invalidateAll();
+            } else {
+                logger.info("Invalidating clauses of standard " + stdId);
+                ClauseCatalog.invalidate(stdId);
+            }
+
+            Map<String, Object> response = new HashMap<>();
+            response.put("success", true);
+            response.put("message", "Clause catalog invalidated");
+            return Response.ok(response).build();
+
+        } catch (Exception e) {
+            return ErrorHandler.serverError("Failed to invalidate clause catalog", e);
+        }
+    }
+
+    /**
+     * Called after sedex_nonconformities is edited, so the pickers read it again.
+     */
+    @DELETE
+    @Path("/sedex")
+    @Produces(MediaType.APPLICATION_JSON)
+    public Response invalidateSedex() {
+        try {
+            logger.info("Invalidating SEDEX index");
+            SedexIndex.invalidate();
+
+            Map<String, Object> response = new HashMap<>();
+            response.put("success", true);
+            response.put("message", "SEDEX index invalidated");
+            return Response.ok(response).build();
+
+        } catch (Exception e) {
+            return ErrorHandler.serverError("Failed to invalidate SEDEX index", e);
+        }
+    }
+
+    /**
+     * Called after a company's registration is edited; without
+     * company_code every company is dropped.
+     */
+    @DELETE
+    @Path("/tenants")
+    @Produces(MediaType.APPLICATION_JSON)
+    public Response invalidateTenants(@QueryParam("company_code") String companyCode) {
+        try {
+            if (companyCode == null || companyCode.trim().isEmpty()) {
+                logger.info("Invalidating tenant registry");
+                TenantRegistry.invalidateAll();
+            } else {
+                logger.info("Invalidating tenant " + companyCode);
+                TenantRegistry.invalidate(companyCode.trim());
+            }
+
+            Map<String, Object> response = new HashMap<>();
+            response.put("success", true);
+            response.put("message", "Tenant registry invalidated");
+            return Response.ok(response).build();
+
+        } catch (Exception e) {
+            return ErrorHandler.serverError("Failed to invalidate tenant registry", e);
+        }
+    }
+}
@@ -0,0 +1,50 @@
+package com.example;
+
+import com.example.util.ConfigUtil;
+import com.example.util.ErrorHandler;
+import jakarta.ws.rs.container.ContainerRequestContext;
+import jakarta.ws.rs.container.ContainerRequestFilter;
+import jakarta.ws.rs.container.ResourceInfo;
+import jakarta.ws.rs.core.Context;
+import jakarta.ws.rs.ext.Provider;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+
+/**
+ * Guards the {@link AdminResource} endpoints, which expose pool, tenant, cache
+ * and query metrics. A request must carry an {@code admin-token} header equal
+ * to the {@code admin.token} setting (or ADMIN_TOKEN). While the setting is
+ * unset or blank every admin request is refused.
+ */
+@Provider
+public class AdminTokenFilter implements ContainerRequestFilter {
+
+    static final String HEADER = "admin-token";
+
+    private static final byte[] TOKEN = ConfigUtil.setting("admin.token", "").trim().getBytes(StandardCharsets.UTF_8);
+
+    @Context
+    private ResourceInfo resourceInfo;
+
+    @Override
+    public void filter(ContainerRequestContext requestContext) throws IOException {
+        if (resourceInfo.getResourceClass() != AdminResource.class) {
+            return;
+        }
+
+        if (TOKEN.length == 0) {
+            requestContext.abortWith(ErrorHandler.unauthorized("Admin endpoints are disabled",
+                    "Admin request refused, admin.token is not set: " + requestContext.getUriInfo().getPath()));
+            return;
+        }
+
+        String token = requestContext.getHeaderString(HEADER);
+        // Constant-time comparison, so the token cannot be guessed byte by byte from response times
+        if (token == null || !MessageDigest.isEqual(TOKEN, token.getBytes(StandardCharsets.UTF_8))) {
+            requestContext.abortWith(ErrorHandler.unauthorized("Invalid admin token",
+                    "Admin request with a missing or wrong token: " + requestContext.getUriInfo().getPath()));
+        }
+    }
+}
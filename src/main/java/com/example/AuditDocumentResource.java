@@ -14,8 +14,11 @@ import org.glassfish.jersey.media.multipart.FormDataParam;
 import org.glassfish.jersey.media.multipart.FormDataContentDisposition;
 import java.io.*;
 
+import com.example.util.ClauseCatalog;
 import com.example.util.DBConfig;
 import com.example.util.ErrorHandler;
+import com.example.util.IdAllocator;
+import com.example.util.StandardCatalog;
 import com.example.util.ValidationUtil;
 
 @Path("/audit-document")
@@ -67,51 +70,25 @@ public class AuditDocumentResource {
                 "Invalid parameters: stdName=" + stdName + ", clauseNo=" + clauseNo);
         }
 
-        Connection con = null;
-        PreparedStatement ps = null;
-        ResultSet rs = null;
-
-        try {
-
-            con = DBConfig.getConnection();
-            
+        try (Connection con = DBConfig.getConnection()) {
             // First get the standard ID
-            String standardQuery = "SELECT id FROM standard_master WHERE std_name = ?";
-            ps = con.prepareStatement(standardQuery);
-            ps.setString(1, stdName);
-            rs = ps.executeQuery();
-            
-            if (!rs.next()) {
+            String stdId = StandardCatalog.getId(con, stdName);
+            if (stdId == null) {
                 return ErrorHandler.notFound("Standard not found", 
                     "Standard not found for name: " + stdName);
             }
             
-            String stdId = rs.getString("id");
-            
-            // Close previous result set and prepared statement
-            rs.close();
-            ps.close();
-            
             // Now get the clause requirement
-            String requirementQuery = "SELECT requirement FROM clause_master WHERE number = ? AND std_id = ?";
-            ps = con.prepareStatement(requirementQuery);
-            ps.setString(1, clauseNo);
-            ps.setString(2, stdId);
-            rs = ps.executeQuery();
-            
-            if (!rs.next()) {
+            ClauseCatalog.Clause clause = ClauseCatalog.get(con, stdId).get(clauseNo);
+            if (clause == null) {
                 return ErrorHandler.notFound("Clause requirement not found", 
                     "Clause requirement not found for clause: " + clauseNo + " and standard: " + stdName);
             }
             
-            String requirement = rs.getString("requirement");
-            
-            return Response.ok(new ClauseRequirementResponse(requirement)).build();
+            return Response.ok(new ClauseRequirementResponse(clause.requirement)).build();
 
         } catch (SQLException e) {
             return ErrorHandler.serverError("Database error occurred", e);
-        } finally {
-            closeResources(rs, ps, con);
         }
     }
 
@@ -158,21 +135,13 @@ public class AuditDocumentResource {
             con = DBConfig.getConnection();
             
             // Get standard ID
-            String standardQuery = "SELECT id FROM standard_master WHERE std_name = ?";
-            ps = con.prepareStatement(standardQuery);
-            ps.setString(1, stdName);
-            rs = ps.executeQuery();
-            
-            if (!rs.next()) {
+            String stdId = StandardCatalog.getId(con, stdName);
+            if (stdId == null) {
                 return ErrorHandler.notFound("Standard not found", 
                     "Standard not found for name: " + stdName);
             }
             
-            String stdId = rs.getString("id");
-            
             // Get company code from internal audit
-            rs.close();
-            ps.close();
             String companyQuery = "SELECT company_code FROM internal_audit WHERE id = ?";
             ps = con.prepareStatement(companyQuery);
             ps.setString(1, intrAuditId);
@@ -213,17 +182,9 @@ public class AuditDocumentResource {
             // Insert document record
             rs.close();
             ps.close();
-            String maxIdQuery = "SELECT COALESCE(MAX(id), 0) as max_id FROM " + companyCode + "_internal_audit_document";
-            ps = con.prepareStatement(maxIdQuery);
-            rs = ps.executeQuery();
-            
-            int newId = 1;
-            if (rs.next()) {
-                newId = rs.getInt("max_id") + 1;
-            }
+            int newId = IdAllocator.nextId(con, companyCode + "_internal_audit_document");
             
             String insertQuery = "INSERT INTO " + companyCode + "_internal_audit_document (id, internal_audit_id, standard_id, clause_no, file_name) VALUES (?, ?, ?, ?, ?)";
-            ps.close();
             ps = con.prepareStatement(insertQuery);
             ps.setInt(1, newId);
             ps.setString(2, intrAuditId);
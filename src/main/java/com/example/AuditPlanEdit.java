@@ -1,7 +1,12 @@
 package com.example;
 
+import com.example.util.AuditLogWriter;
 import com.example.util.DBConfig;
 import com.example.util.ErrorHandler;
+import com.example.util.IdAllocator;
+import com.example.util.Projection;
+import com.example.util.ReadOnly;
+import com.example.util.StandardCatalog;
 import com.example.util.ValidationUtil;
 import jakarta.servlet.ServletException;
 import jakarta.servlet.http.HttpServletRequest;
@@ -296,16 +301,8 @@ public class AuditPlanEdit {
                         .build();
             }
 
-            int maxAuditPlanId = 0;
-            String query = "SELECT MAX(id) as max_id FROM " + companyCode + "_audit_plan";
-            ps = con.prepareStatement(query);
-            rs = ps.executeQuery();
-            if (rs.next()) {
-                maxAuditPlanId = rs.getInt("max_id");
-            }
-            maxAuditPlanId++;
-
-            query = "INSERT INTO " + companyCode + "_audit_plan " +
+            int maxAuditPlanId = IdAllocator.nextId(con, companyCode + "_audit_plan");
+            String query = "INSERT INTO " + companyCode + "_audit_plan " +
                     "(id, audit_no, audit_date, audit_start_date, audit_end_date, report_submit_date,status) " +
                     "VALUES (?, ?, ?, ?, ?, ?,?)";
             ps = con.prepareStatement(query);
@@ -318,37 +315,11 @@ public class AuditPlanEdit {
             ps.setString(7, "Draft");
             ps.executeUpdate();
 
-            int maxAuditorId = 0;
-            int maxStandardId = 0;
-            int maxDetailId = 0;
-
-            query = "SELECT MAX(id) as max_id FROM " + companyCode + "_audit_plan_auditors";
-            ps = con.prepareStatement(query);
-            rs = ps.executeQuery();
-            if (rs.next()) {
-                maxAuditorId = rs.getInt("max_id");
-            }
-
-            query = "SELECT MAX(id) as max_id FROM " + companyCode + "_audit_plan_standard";
-            ps = con.prepareStatement(query);
-            rs = ps.executeQuery();
-            if (rs.next()) {
-                maxStandardId = rs.getInt("max_id");
-            }
-
-            query = "SELECT MAX(id) as max_id FROM " + companyCode + "_audit_plan_detail";
-            ps = con.prepareStatement(query);
-            rs = ps.executeQuery();
-            if (rs.next()) {
-                maxDetailId = rs.getInt("max_id");
-            }
-
             if (request.auditors != null && !request.auditors.isEmpty()) {
                 query = "INSERT INTO " + companyCode + "_audit_plan_auditors (id, audit_plan_id, auditor_name, auditor_desig) VALUES (?, ?, ?, ?)";
                 ps = con.prepareStatement(query);
                 for (Auditor auditor : request.auditors) {
-                    maxAuditorId++;
-                    ps.setInt(1, maxAuditorId);
+                    ps.setInt(1, IdAllocator.nextId(con, companyCode + "_audit_plan_auditors"));
                     ps.setInt(2, maxAuditPlanId);
                     ps.setString(3, auditor.name);
                     ps.setString(4, auditor.designation);
@@ -361,8 +332,7 @@ public class AuditPlanEdit {
                 query = "INSERT INTO " + companyCode + "_audit_plan_standard (id, audit_plan_id, standard_name) VALUES (?, ?, ?)";
                 ps = con.prepareStatement(query);
                 for (Standard standard : request.standards) {
-                    maxStandardId++;
-                    ps.setInt(1, maxStandardId);
+                    ps.setInt(1, IdAllocator.nextId(con, companyCode + "_audit_plan_standard"));
                     ps.setInt(2, maxAuditPlanId);
                     ps.setString(3, standard.name);
                     ps.addBatch();
@@ -376,8 +346,7 @@ public class AuditPlanEdit {
                         "VALUES (?, ?, ?, ?, ?, ?, ?, ?)";
                 ps = con.prepareStatement(query);
                 for (AuditDetail detail : request.details) {
-                    maxDetailId++;
-                    ps.setInt(1, maxDetailId);
+                    ps.setInt(1, IdAllocator.nextId(con, companyCode + "_audit_plan_detail"));
                     ps.setInt(2, maxAuditPlanId);
                     ps.setString(3, detail.department);
                     ps.setString(4, detail.auditDate);
@@ -393,27 +362,8 @@ public class AuditPlanEdit {
             DateTimeFormatter dtf = DateTimeFormatter.ofPattern("yyyy-MM-dd");
             String todayDate = LocalDateTime.now().format(dtf);
 
-            int maxLogId = 0;
-            query = "SELECT MAX(id) as max_id FROM " + companyCode + "_log_master";
-            ps = con.prepareStatement(query);
-            rs = ps.executeQuery();
-            if (rs.next()) {
-                maxLogId = rs.getInt("max_id");
-            }
-            maxLogId++;
-
-            query = "INSERT INTO " + companyCode + "_log_master (id, fired_date, fired_by, status, module_name, module_id) " +
-                    "VALUES (?, ?, ?, ?, ?, ?)";
-            ps = con.prepareStatement(query);
-            ps.setInt(1, maxLogId);
-            ps.setString(2, todayDate);
-            ps.setString(3, employeeName);
-            ps.setString(4, "Add");
-            ps.setString(5, "Audit Plan");
-            ps.setString(6, String.valueOf(maxAuditPlanId));
-            ps.executeUpdate();
-
             con.commit();
+            AuditLogWriter.log(companyCode, todayDate, employeeName, "Add", "Audit Plan", String.valueOf(maxAuditPlanId));
 
             AuditPlanResponse response = new AuditPlanResponse(true, "Audit plan created successfully");
             response.data.put("auditPlanId", maxAuditPlanId);
@@ -507,37 +457,11 @@ public class AuditPlanEdit {
             ps.setString(1, auditPlanId);
             ps.executeUpdate();
 
-            int maxAuditorId = 0;
-            int maxStandardId = 0;
-            int maxDetailId = 0;
-
-            query = "SELECT MAX(id) as max_id FROM " + companyCode + "_audit_plan_auditors";
-            ps = con.prepareStatement(query);
-            rs = ps.executeQuery();
-            if (rs.next()) {
-                maxAuditorId = rs.getInt("max_id");
-            }
-
-            query = "SELECT MAX(id) as max_id FROM " + companyCode + "_audit_plan_standard";
-            ps = con.prepareStatement(query);
-            rs = ps.executeQuery();
-            if (rs.next()) {
-                maxStandardId = rs.getInt("max_id");
-            }
-
-            query = "SELECT MAX(id) as max_id FROM " + companyCode + "_audit_plan_detail";
-            ps = con.prepareStatement(query);
-            rs = ps.executeQuery();
-            if (rs.next()) {
-                maxDetailId = rs.getInt("max_id");
-            }
-
             if (request.auditors != null && !request.auditors.isEmpty()) {
                 query = "INSERT INTO " + companyCode + "_audit_plan_auditors (id, audit_plan_id, auditor_name, auditor_desig) VALUES (?, ?, ?, ?)";
                 ps = con.prepareStatement(query);
                 for (Auditor auditor : request.auditors) {
-                    maxAuditorId++;
-                    ps.setInt(1, maxAuditorId);
+                    ps.setInt(1, IdAllocator.nextId(con, companyCode + "_audit_plan_auditors"));
                     ps.setInt(2, auditPlanId);
                     ps.setString(3, auditor.name);
                     ps.setString(4, auditor.designation);
@@ -550,8 +474,7 @@ public class AuditPlanEdit {
                 query = "INSERT INTO " + companyCode + "_audit_plan_standard (id, audit_plan_id, standard_name) VALUES (?, ?, ?)";
                 ps = con.prepareStatement(query);
                 for (Standard standard : request.standards) {
-                    maxStandardId++;
-                    ps.setInt(1, maxStandardId);
+                    ps.setInt(1, IdAllocator.nextId(con, companyCode + "_audit_plan_standard"));
                     ps.setString(2, auditPlanId);
                     ps.setString(3, standard.name);
                     ps.addBatch();
@@ -565,8 +488,7 @@ public class AuditPlanEdit {
                         "VALUES (?, ?, ?, ?, ?, ?, ?, ?)";
                 ps = con.prepareStatement(query);
                 for (AuditDetail detail : request.details) {
-                    maxDetailId++;
-                    ps.setInt(1, maxDetailId);
+                    ps.setInt(1, IdAllocator.nextId(con, companyCode + "_audit_plan_detail"));
                     ps.setInt(2, auditPlanId);
                     ps.setString(3, detail.department);
                     ps.setString(4, detail.auditDate);
@@ -582,27 +504,8 @@ public class AuditPlanEdit {
             DateTimeFormatter dtf = DateTimeFormatter.ofPattern("yyyy-MM-dd");
             String todayDate = LocalDateTime.now().format(dtf);
 
-            int maxLogId = 0;
-            query = "SELECT MAX(id) as max_id FROM " + companyCode + "_log_master";
-            ps = con.prepareStatement(query);
-            rs = ps.executeQuery();
-            if (rs.next()) {
-                maxLogId = rs.getInt("max_id");
-            }
-            maxLogId++;
-
-            query = "INSERT INTO " + companyCode + "_log_master (id, fired_date, fired_by, status, module_name, module_id) " +
-                    "VALUES (?, ?, ?, ?, ?, ?)";
-            ps = con.prepareStatement(query);
-            ps.setInt(1, maxLogId);
-            ps.setString(2, todayDate);
-            ps.setString(3, employeeName);
-            ps.setString(4, "Edit");
-            ps.setString(5, "Audit Plan");
-            ps.setString(6, auditPlanId);
-            ps.executeUpdate();
-
             con.commit();
+            AuditLogWriter.log(companyCode, todayDate, employeeName, "Edit", "Audit Plan", auditPlanId);
 
             return Response.ok(new AuditPlanResponse(true, "Audit plan updated successfully")).build();
 
@@ -623,10 +526,22 @@ public class AuditPlanEdit {
         }
     }
 
+    // Columns the list can return, selected with fields=; the full plan is read from GET /{id}
+    private static final Projection LIST_FIELDS = new Projection("id", "id")
+            .summary("auditNo", "audit_no")
+            .summary("auditDate", "audit_date")
+            .summary("auditStartDate", "audit_start_date")
+            .summary("auditEndDate", "audit_end_date")
+            .summary("reportSubmitDate", "report_submit_date")
+            .summary("status", "status")
+            .summary("approvedDate", "approved_date");
+
+    @ReadOnly
     @GET
     @Produces(MediaType.APPLICATION_JSON)
     public Response getAllAuditPlans(@HeaderParam("company-code") String companyCode,
-                                     @HeaderParam("employee-id") String employeeId) {
+                                     @HeaderParam("employee-id") String employeeId,
+                                     @QueryParam("fields") String fields) {
 
         if (!isValidAuth(employeeId, companyCode)) {
             return Response.status(Status.UNAUTHORIZED)
@@ -640,6 +555,15 @@ public class AuditPlanEdit {
                     .build();
         }
 
+        Projection.Selection selection;
+        try {
+            selection = LIST_FIELDS.select(fields);
+        } catch (IllegalArgumentException e) {
+            return Response.status(Status.BAD_REQUEST)
+                    .entity(new AuditPlanResponse(false, e.getMessage()))
+                    .build();
+        }
+
         Connection con = null;
         PreparedStatement ps = null;
         ResultSet rs = null;
@@ -649,22 +573,12 @@ public class AuditPlanEdit {
             AuditPlanResponse response = new AuditPlanResponse(true, "Audit plans retrieved successfully");
             List<Map<String, Object>> auditPlans = new ArrayList<>();
 
-            String query = "SELECT * FROM " + companyCode + "_audit_plan ORDER BY id DESC";
+            String query = "SELECT " + selection.columns() + " FROM " + companyCode + "_audit_plan ORDER BY id DESC";
             ps = con.prepareStatement(query);
             rs = ps.executeQuery();
 
             while (rs.next()) {
-                Map<String, Object> plan = new HashMap<>();
-                plan.put("id", rs.getString("id"));
-                plan.put("reportSubmitDate",rs.getString("report_submit_date"));
-                plan.put("status", rs.getString("status"));
-                plan.put("approvedDate",rs.getString("approved_date"));
-                plan.put("auditNo", rs.getString("audit_no"));
-                plan.put("auditDate", rs.getString("audit_date"));
-                plan.put("auditStartDate", rs.getString("audit_start_date"));
-                plan.put("auditEndDate", rs.getString("audit_end_date"));
-                plan.put("reportSubmitDate", rs.getString("report_submit_date"));
-                auditPlans.add(plan);
+                auditPlans.add(selection.read(rs));
             }
 
             response.data.put("auditPlans", auditPlans);
@@ -738,27 +652,8 @@ public class AuditPlanEdit {
             DateTimeFormatter dtf = DateTimeFormatter.ofPattern("yyyy-MM-dd");
             String todayDate = LocalDateTime.now().format(dtf);
 
-            int maxLogId = 0;
-            query = "SELECT MAX(id) as max_id FROM " + companyCode + "_log_master";
-            ps = con.prepareStatement(query);
-            rs = ps.executeQuery();
-            if (rs.next()) {
-                maxLogId = rs.getInt("max_id");
-            }
-            maxLogId++;
-
-            query = "INSERT INTO " + companyCode + "_log_master (id, fired_date, fired_by, status, module_name, module_id) " +
-                    "VALUES (?, ?, ?, ?, ?, ?)";
-            ps = con.prepareStatement(query);
-            ps.setInt(1, maxLogId);
-            ps.setString(2, todayDate);
-            ps.setString(3, employeeName);
-            ps.setString(4, "Delete");
-            ps.setString(5, "Audit Plan");
-            ps.setString(6, auditPlanId);
-            ps.executeUpdate();
-
             con.commit();
+            AuditLogWriter.log(companyCode, todayDate, employeeName, "Delete", "Audit Plan", auditPlanId);
 
             return Response.ok(new AuditPlanResponse(true, "Audit plan deleted successfully")).build();
 
@@ -975,29 +870,11 @@ public class AuditPlanEdit {
                         .build();
             }
 
-            // Log the action
-            int maxLogId = 0;
-            query = "SELECT MAX(id) as max_id FROM " + companyCode + "_log_master";
-            ps = con.prepareStatement(query);
-            rs = ps.executeQuery();
-            if (rs.next()) {
-                maxLogId = rs.getInt("max_id");
-            }
-            maxLogId++;
-
-            query = "INSERT INTO " + companyCode + "_log_master (id, fired_date, fired_by, status, module_name, module_id) " +
-                    "VALUES (?, ?, ?, ?, ?, ?)";
-            ps = con.prepareStatement(query);
-            ps.setInt(1, maxLogId);
-            ps.setString(2, currentDate);
-            ps.setString(3, employeeName);
-            ps.setString(4, request.status);
-            ps.setString(5, "Audit Plan");
-            ps.setString(6, auditPlanId);
-            ps.executeUpdate();
-
             con.commit();
 
+            // Log the action
+            AuditLogWriter.log(companyCode, currentDate, employeeName, request.status, "Audit Plan", auditPlanId);
+
             return Response.ok(new AuditPlanResponse(true, "Audit plan status updated successfully")).build();
 
         } catch (SQLException e) {
@@ -1139,28 +1016,15 @@ public class AuditPlanEdit {
             con.setAutoCommit(false);
 
             // Get standard ID
-            String standardId = null;
-            String query = "SELECT id FROM standard_master WHERE std_name = ?";
-            ps = con.prepareStatement(query);
-            ps.setString(1, stdName);
-            rs = ps.executeQuery();
-            if (rs.next()) {
-                standardId = rs.getString("id");
-            } else {
+            String standardId = StandardCatalog.getId(con, stdName);
+            if (standardId == null) {
                 return Response.status(Status.BAD_REQUEST)
                         .entity(new AuditPlanResponse(false, "Standard not found"))
                         .build();
             }
 
-            // Get max document ID
-            int maxDocId = 0;
-            query = "SELECT MAX(id) as max_id FROM " + companyCode + "_internal_audit_document";
-            ps = con.prepareStatement(query);
-            rs = ps.executeQuery();
-            if (rs.next()) {
-                maxDocId = rs.getInt("max_id");
-            }
-            maxDocId++;
+            // Get next document ID
+            int maxDocId = IdAllocator.nextId(con, companyCode + "_internal_audit_document");
 
             // Create directory structure
             String basePath = "C:\\Installation\\ManagementERP";
@@ -1177,7 +1041,7 @@ public class AuditPlanEdit {
             }
 
             // Save file metadata to database
-            query = "INSERT INTO " + companyCode + "_internal_audit_document (id, intr_audit_id, std_id, clause_no, file_name) VALUES (?, ?, ?, ?, ?)";
+            String query = "INSERT INTO " + companyCode + "_internal_audit_document (id, intr_audit_id, std_id, clause_no, file_name) VALUES (?, ?, ?, ?, ?)";
             ps = con.prepareStatement(query);
             ps.setInt(1, maxDocId);
             ps.setString(2, intrAuditId);
@@ -9,13 +9,16 @@ import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.logging.Logger;
+import com.example.util.ChildLoader;
 import com.example.util.DBConfig;
 import com.example.util.ErrorHandler;
+import com.example.util.ReadOnly;
 
 @Path("/auditplan")
 public class AuditPlanResource {
     private static final Logger logger = Logger.getLogger(AuditPlanResource.class.getName());
 
+    @ReadOnly
     @GET
     @Path("/list")
     @Produces(MediaType.APPLICATION_JSON)
@@ -210,45 +213,26 @@ public class AuditPlanResource {
                 plan.put("audit_start_date", rs.getString("audit_start_date"));
                 plan.put("audit_end_date", rs.getString("audit_end_date"));
                 plan.put("status", rs.getString("status"));
-
-                // Get standards for this audit plan
-                List<Map<String, String>> standards = new ArrayList<>();
-                String standardsQuery = "SELECT standard_name, status FROM " + companyCode +
-                        "_audit_plan_standard WHERE audit_plan_id = ?";
-                try (PreparedStatement ps2 = con.prepareStatement(standardsQuery)) {
-                    ps2.setString(1, rs.getString("id"));
-                    try (ResultSet rs2 = ps2.executeQuery()) {
-                        while (rs2.next()) {
-                            Map<String, String> standard = new HashMap<>();
-                            standard.put("standard_name", rs2.getString("standard_name"));
-                            standard.put("status", rs2.getString("status"));
-                            standards.add(standard);
-                        }
-                    }
-                }
-                plan.put("standards", standards);
-
-                // Get details for this audit plan
-                List<Map<String, String>> details = new ArrayList<>();
-                String detailsQuery = "SELECT department, audit_date FROM " + companyCode +
-                        "_audit_plan_detail WHERE audit_plan_id = ?";
-                try (PreparedStatement ps3 = con.prepareStatement(detailsQuery)) {
-                    ps3.setString(1, rs.getString("id"));
-                    try (ResultSet rs3 = ps3.executeQuery()) {
-                        while (rs3.next()) {
-                            Map<String, String> detail = new HashMap<>();
-                            detail.put("department", rs3.getString("department"));
-                            detail.put("audit_date", rs3.getString("audit_date"));
-                            details.add(detail);
-                        }
-                    }
-                }
-                plan.put("details", details);
-
                 auditPlans.add(plan);
             }
         }
 
+        // Standards and details for all plans, one query per child table
+        ChildLoader.attach(con, auditPlans, "id", "standards",
+                companyCode + "_audit_plan_standard", "standard_name, status", "audit_plan_id", rs -> {
+                    Map<String, String> standard = new HashMap<>();
+                    standard.put("standard_name", rs.getString("standard_name"));
+                    standard.put("status", rs.getString("status"));
+                    return standard;
+                });
+        ChildLoader.attach(con, auditPlans, "id", "details",
+                companyCode + "_audit_plan_detail", "department, audit_date", "audit_plan_id", rs -> {
+                    Map<String, String> detail = new HashMap<>();
+                    detail.put("department", rs.getString("department"));
+                    detail.put("audit_date", rs.getString("audit_date"));
+                    return detail;
+                });
+
         return auditPlans;
     }
 
@@ -11,6 +11,7 @@ import jakarta.ws.rs.core.MediaType;
 import jakarta.ws.rs.core.Response;
 import com.example.util.DBConfig;
 import com.example.util.ErrorHandler;
+import com.example.util.TenantRegistry;
 import com.example.util.ValidationUtil;
 
 @Path("/GetCompanyId")
@@ -62,13 +63,9 @@ public class CompanyResource {
             con = DBConfig.getConnection();
             
             // Get company ID
-            String query = "SELECT id FROM company_registration WHERE company_code = ?";
-            ps = con.prepareStatement(query);
-            ps.setString(1, request.companyCode);
-            res = ps.executeQuery();
-            
-            if (res.next()) {
-                String companyId = res.getString("id");
+            TenantRegistry.Tenant tenant = TenantRegistry.get(con, request.companyCode);
+            if (tenant != null) {
+                String companyId = tenant.id;
                 logger.info("Found company ID: " + companyId + " for company code: " + request.companyCode);
                 return Response.ok(new CompanyResponse(companyId)).build();
             } else {
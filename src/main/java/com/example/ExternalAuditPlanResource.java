@@ -1,6 +1,11 @@
 package com.example;
 
+import com.example.util.AuditLogWriter;
+import com.example.util.ChildLoader;
 import com.example.util.DBConfig;
+import com.example.util.IdAllocator;
+import com.example.util.Projection;
+import com.example.util.ReadOnly;
 import jakarta.ws.rs.*;
 import jakarta.ws.rs.core.MediaType;
 import jakarta.ws.rs.core.Response;
@@ -68,18 +73,6 @@ public class ExternalAuditPlanResource {
         }
     }
 
-    public static class ExternalAudit {
-        public String id;
-        public String auditPlanId;
-        public String internalAuditNo;
-        public String auditNo;
-        public String standardName;
-        public String auditDate;
-        public String status;
-        public String draftCount;
-        public String allClauseDone;
-    }
-
     public static class ExternalAuditDetail {
         public String clauseNo;
         public String ncNo;
@@ -102,10 +95,23 @@ public class ExternalAuditPlanResource {
         }
     }
 
+    // Columns the search can return, selected with fields=; the full plan is read from GET /{id}
+    private static final Projection SEARCH_FIELDS = new Projection("id", "id")
+            .summary("auditPlanId", "audit_plan_id")
+            .summary("internalAuditNo", "intr_audit_no")
+            .summary("auditNo", "audit_no")
+            .summary("standardName", "standard_name")
+            .summary("auditDate", "audit_date")
+            .summary("status", "status")
+            .summary("draftCount", "Draft_count")
+            .summary("allClauseDone", "all_clause_done");
+
+    @ReadOnly
     @GET
     @Path("/search")
     @Produces(MediaType.APPLICATION_JSON)
     public Response searchExternalAudits(@QueryParam("query") String searchQuery,
+                                         @QueryParam("fields") String fields,
                                          @HeaderParam("company-code") String companyCode,
                                          @HeaderParam("employee-id") String employeeId) {
         if (!isValidAuth(employeeId, companyCode)) {
@@ -114,12 +120,21 @@ public class ExternalAuditPlanResource {
                     .build();
         }
 
+        Projection.Selection selection;
+        try {
+            selection = SEARCH_FIELDS.select(fields);
+        } catch (IllegalArgumentException e) {
+            return Response.status(Status.BAD_REQUEST)
+                    .entity(new ExternalAuditResponse(false, e.getMessage()))
+                    .build();
+        }
+
         try (Connection con = DBConfig.getConnection()) {
-            String query = "SELECT * FROM " + companyCode + "_external_audit_plan " +
+            String query = "SELECT " + selection.columns() + " FROM " + companyCode + "_external_audit_plan " +
                     "WHERE audit_no LIKE ? OR standard_name LIKE ? OR audit_date LIKE ? " +
                     "ORDER BY id DESC";
 
-            List<ExternalAudit> audits = new ArrayList<>();
+            List<Map<String, Object>> audits = new ArrayList<>();
             try (PreparedStatement ps = con.prepareStatement(query)) {
                 String searchPattern = "%" + searchQuery + "%";
                 ps.setString(1, searchPattern);
@@ -128,17 +143,7 @@ public class ExternalAuditPlanResource {
 
                 try (ResultSet rs = ps.executeQuery()) {
                     while (rs.next()) {
-                        ExternalAudit audit = new ExternalAudit();
-                        audit.id = rs.getString("id");
-                        audit.auditPlanId = rs.getString("audit_plan_id");
-                        audit.internalAuditNo = rs.getString("intr_audit_no");
-                        audit.auditNo = rs.getString("audit_no");
-                        audit.standardName = rs.getString("standard_name");
-                        audit.auditDate = rs.getString("audit_date");
-                        audit.status = rs.getString("status");
-                        audit.draftCount = rs.getString("Draft_count");
-                        audit.allClauseDone = rs.getString("all_clause_done");
-                        audits.add(audit);
+                        audits.add(selection.read(rs));
                     }
                 }
             }
@@ -273,12 +278,11 @@ public class ExternalAuditPlanResource {
 
             // Insert new auditors
             if (request.auditors != null && !request.auditors.isEmpty()) {
-                int maxAuditorId = getMaxId(con, companyCode + "_external_audit_plan_auditors");
                 query = "INSERT INTO " + companyCode + "_external_audit_plan_auditors " +
                         "(id, audit_plan_id, auditor_name, auditor_desig) VALUES (?, ?, ?, ?)";
                 try (PreparedStatement ps = con.prepareStatement(query)) {
                     for (AuditorDetail auditor : request.auditors) {
-                        ps.setInt(1, ++maxAuditorId);
+                        ps.setInt(1, IdAllocator.nextId(con, companyCode + "_external_audit_plan_auditors"));
                         ps.setInt(2, id);
                         ps.setString(3, auditor.name);
                         ps.setString(4, auditor.designation);
@@ -290,12 +294,11 @@ public class ExternalAuditPlanResource {
 
             // Insert new standards
             if (request.standards != null && !request.standards.isEmpty()) {
-                int maxStandardId = getMaxId(con, companyCode + "_external_audit_plan_standard");
                 query = "INSERT INTO " + companyCode + "_external_audit_plan_standard " +
                         "(id, audit_plan_id, standard_name, status) VALUES (?, ?, ?, ?)";
                 try (PreparedStatement ps = con.prepareStatement(query)) {
                     for (StandardDetail standard : request.standards) {
-                        ps.setInt(1, ++maxStandardId);
+                        ps.setInt(1, IdAllocator.nextId(con, companyCode + "_external_audit_plan_standard"));
                         ps.setInt(2, id);
                         ps.setString(3, standard.standardName);
                         ps.setString(4, standard.status);
@@ -307,13 +310,12 @@ public class ExternalAuditPlanResource {
 
             // Insert new details
             if (request.details != null && !request.details.isEmpty()) {
-                int maxDetailId = getMaxId(con, companyCode + "_external_audit_plan_detail");
                 query = "INSERT INTO " + companyCode + "_external_audit_plan_detail " +
                         "(id, audit_plan_id, department, audit_date, audit_start_time, " +
                         "audit_end_time, auditor_name, audit_criteria) VALUES (?, ?, ?, ?, ?, ?, ?, ?)";
                 try (PreparedStatement ps = con.prepareStatement(query)) {
                     for (AuditDetail detail : request.details) {
-                        ps.setInt(1, ++maxDetailId);
+                        ps.setInt(1, IdAllocator.nextId(con, companyCode + "_external_audit_plan_detail"));
                         ps.setInt(2, id);
                         ps.setString(3, detail.department);
                         ps.setString(4, detail.auditDate);
@@ -329,12 +331,11 @@ public class ExternalAuditPlanResource {
 
             // Insert new audit types
             if (request.auditTypes != null && !request.auditTypes.isEmpty()) {
-                int maxAuditTypeId = getMaxId(con, companyCode + "_external_audit_type_detail");
                 query = "INSERT INTO " + companyCode + "_external_audit_type_detail " +
                         "(id, external_audit_plan_id, audit_type_id) VALUES (?, ?, ?)";
                 try (PreparedStatement ps = con.prepareStatement(query)) {
                     for (String auditTypeId : request.auditTypes) {
-                        ps.setInt(1, ++maxAuditTypeId);
+                        ps.setInt(1, IdAllocator.nextId(con, companyCode + "_external_audit_type_detail"));
                         ps.setInt(2, id);
                         ps.setString(3, auditTypeId);
                         ps.addBatch();
@@ -343,10 +344,10 @@ public class ExternalAuditPlanResource {
                 }
             }
 
-            // Log the action
-            logAction(con, companyCode, employeeName, "Update", "External Audit Plan", String.valueOf(id));
-
             con.commit();
+
+            // Log the action
+            logAction(companyCode, employeeName, "Update", "External Audit Plan", String.valueOf(id));
             return Response.ok(new ExternalAuditPlanResponse(true, "Audit plan updated successfully")).build();
 
         } catch (SQLException e) {
@@ -359,32 +360,12 @@ public class ExternalAuditPlanResource {
 
 
 
-    private int getMaxId(Connection con, String table) throws SQLException {
-        String query = "SELECT MAX(id) as max_id FROM " + table;
-        try (PreparedStatement ps = con.prepareStatement(query);
-             ResultSet rs = ps.executeQuery()) {
-            return rs.next() ? rs.getInt("max_id") : 0;
-        }
-    }
-
-    private void logAction(Connection con, String companyCode, String employeeName,
-                           String action, String moduleName, String moduleId) throws SQLException {
+    private void logAction(String companyCode, String employeeName,
+                           String action, String moduleName, String moduleId) {
         DateTimeFormatter dtf = DateTimeFormatter.ofPattern("yyyy-MM-dd");
         String todayDate = LocalDateTime.now().format(dtf);
 
-        int maxLogId = getMaxId(con, companyCode + "_log_master");
-        String query = "INSERT INTO " + companyCode + "_log_master " +
-                "(id, fired_date, fired_by, status, module_name, module_id) " +
-                "VALUES (?, ?, ?, ?, ?, ?)";
-        try (PreparedStatement ps = con.prepareStatement(query)) {
-            ps.setInt(1, ++maxLogId);
-            ps.setString(2, todayDate);
-            ps.setString(3, employeeName);
-            ps.setString(4, action);
-            ps.setString(5, moduleName);
-            ps.setString(6, moduleId);
-            ps.executeUpdate();
-        }
+        AuditLogWriter.log(companyCode, todayDate, employeeName, action, moduleName, moduleId);
     }
 
     @GET
@@ -499,6 +480,7 @@ public class ExternalAuditPlanResource {
 
 
 
+    @ReadOnly
     @GET
     @Path("/list")
     @Produces(MediaType.APPLICATION_JSON)
@@ -524,43 +506,26 @@ public class ExternalAuditPlanResource {
                     plan.put("startDate", rs.getString("audit_start_date"));
                     plan.put("endDate", rs.getString("audit_end_date"));
                     plan.put("status", rs.getString("status"));
-
-                    // Get standards
-                    List<Map<String, String>> standards = new ArrayList<>();
-                    String standardsQuery = "SELECT * FROM " + companyCode + "_external_audit_plan_standard WHERE audit_plan_id = ?";
-                    try (PreparedStatement standardsPs = con.prepareStatement(standardsQuery)) {
-                        standardsPs.setInt(1, rs.getInt("id"));
-                        try (ResultSet standardsRs = standardsPs.executeQuery()) {
-                            while (standardsRs.next()) {
-                                Map<String, String> standard = new HashMap<>();
-                                standard.put("standardName", standardsRs.getString("standard_name"));
-                                standard.put("status", standardsRs.getString("status"));
-                                standards.add(standard);
-                            }
-                        }
-                    }
-                    plan.put("standards", standards);
-
-                    // Get details
-                    List<Map<String, String>> details = new ArrayList<>();
-                    String detailsQuery = "SELECT * FROM " + companyCode + "_external_audit_plan_detail WHERE audit_plan_id = ?";
-                    try (PreparedStatement detailsPs = con.prepareStatement(detailsQuery)) {
-                        detailsPs.setInt(1, rs.getInt("id"));
-                        try (ResultSet detailsRs = detailsPs.executeQuery()) {
-                            while (detailsRs.next()) {
-                                Map<String, String> detail = new HashMap<>();
-                                detail.put("department", detailsRs.getString("department"));
-                                detail.put("auditDate", detailsRs.getString("audit_date"));
-                                details.add(detail);
-                            }
-                        }
-                    }
-                    plan.put("details", details);
-
                     auditPlans.add(plan);
                 }
             }
 
+            // Standards and details for all plans, one query per child table
+            ChildLoader.attach(con, auditPlans, "id", "standards",
+                    companyCode + "_external_audit_plan_standard", "standard_name, status", "audit_plan_id", rs -> {
+                        Map<String, String> standard = new HashMap<>();
+                        standard.put("standardName", rs.getString("standard_name"));
+                        standard.put("status", rs.getString("status"));
+                        return standard;
+                    });
+            ChildLoader.attach(con, auditPlans, "id", "details",
+                    companyCode + "_external_audit_plan_detail", "department, audit_date", "audit_plan_id", rs -> {
+                        Map<String, String> detail = new HashMap<>();
+                        detail.put("department", rs.getString("department"));
+                        detail.put("auditDate", rs.getString("audit_date"));
+                        return detail;
+                    });
+
             Map<String, Object> responseData = new HashMap<>();
             responseData.put("data", auditPlans);
             ExternalAuditPlanResponse response = new ExternalAuditPlanResponse(true, "Audit plans retrieved successfully");
@@ -631,30 +596,8 @@ public class ExternalAuditPlanResource {
             DateTimeFormatter dtf = DateTimeFormatter.ofPattern("yyyy-MM-dd");
             String todayDate = LocalDateTime.now().format(dtf);
 
-            int maxLogId = 0;
-            String maxLogIdQuery = "SELECT MAX(id) as max_id FROM " + companyCode + "_log_master";
-            try (PreparedStatement ps = con.prepareStatement(maxLogIdQuery);
-                 ResultSet rs = ps.executeQuery()) {
-                if (rs.next()) {
-                    maxLogId = rs.getInt("max_id");
-                }
-            }
-            maxLogId++;
-
-            String logQuery = "INSERT INTO " + companyCode + "_log_master " +
-                    "(id, fired_date, fired_by, status, module_name, module_id) " +
-                    "VALUES (?, ?, ?, ?, ?, ?)";
-            try (PreparedStatement ps = con.prepareStatement(logQuery)) {
-                ps.setInt(1, maxLogId);
-                ps.setString(2, todayDate);
-                ps.setString(3, employeeName);
-                ps.setString(4, "Delete");
-                ps.setString(5, "External Audit Plan");
-                ps.setString(6, String.valueOf(id));
-                ps.executeUpdate();
-            }
-
             con.commit();
+            AuditLogWriter.log(companyCode, todayDate, employeeName, "Delete", "External Audit Plan", String.valueOf(id));
             return Response.ok(new ExternalAuditPlanResponse(true, "Audit plan deleted successfully")).build();
 
         } catch (SQLException e) {
@@ -689,28 +632,7 @@ public class ExternalAuditPlanResource {
             DateTimeFormatter dtf = DateTimeFormatter.ofPattern("yyyy-MM-dd");
             String todayDate = LocalDateTime.now().format(dtf);
 
-            int maxLogId = 0;
-            String maxLogIdQuery = "SELECT MAX(id) as max_id FROM " + companyCode + "_log_master";
-            try (PreparedStatement ps = con.prepareStatement(maxLogIdQuery);
-                 ResultSet rs = ps.executeQuery()) {
-                if (rs.next()) {
-                    maxLogId = rs.getInt("max_id");
-                }
-            }
-            maxLogId++;
-
-            String logQuery = "INSERT INTO " + companyCode + "_log_master " +
-                    "(id, fired_date, fired_by, status, module_name, module_id) " +
-                    "VALUES (?, ?, ?, ?, ?, ?)";
-            try (PreparedStatement ps = con.prepareStatement(logQuery)) {
-                ps.setInt(1, maxLogId);
-                ps.setString(2, todayDate);
-                ps.setString(3, employeeName);
-                ps.setString(4, "Approve");
-                ps.setString(5, "External Audit Plan");
-                ps.setString(6, String.valueOf(id));
-                ps.executeUpdate();
-            }
+            AuditLogWriter.log(companyCode, todayDate, employeeName, "Approve", "External Audit Plan", String.valueOf(id));
 
             return Response.ok(new ExternalAuditPlanResponse(true, "Audit plan approved successfully")).build();
 
@@ -746,28 +668,7 @@ public class ExternalAuditPlanResource {
             DateTimeFormatter dtf = DateTimeFormatter.ofPattern("yyyy-MM-dd");
             String todayDate = LocalDateTime.now().format(dtf);
 
-            int maxLogId = 0;
-            String maxLogIdQuery = "SELECT MAX(id) as max_id FROM " + companyCode + "_log_master";
-            try (PreparedStatement ps = con.prepareStatement(maxLogIdQuery);
-                 ResultSet rs = ps.executeQuery()) {
-                if (rs.next()) {
-                    maxLogId = rs.getInt("max_id");
-                }
-            }
-            maxLogId++;
-
-            String logQuery = "INSERT INTO " + companyCode + "_log_master " +
-                    "(id, fired_date, fired_by, status, module_name, module_id) " +
-                    "VALUES (?, ?, ?, ?, ?, ?)";
-            try (PreparedStatement ps = con.prepareStatement(logQuery)) {
-                ps.setInt(1, maxLogId);
-                ps.setString(2, todayDate);
-                ps.setString(3, employeeName);
-                ps.setString(4, "Back Status");
-                ps.setString(5, "External Audit Plan");
-                ps.setString(6, String.valueOf(id));
-                ps.executeUpdate();
-            }
+            AuditLogWriter.log(companyCode, todayDate, employeeName, "Back Status", "External Audit Plan", String.valueOf(id));
 
             return Response.ok(new ExternalAuditPlanResponse(true, "Status reverted successfully")).build();
 
@@ -950,18 +851,10 @@ public class ExternalAuditPlanResource {
             con.setAutoCommit(false);
 
             // Get next ID for main table
-            int maxId = 0;
-            String query = "SELECT MAX(id) as max_id FROM " + companyCode + "_external_audit_plan";
-            try (PreparedStatement ps = con.prepareStatement(query);
-                 ResultSet rs = ps.executeQuery()) {
-                if (rs.next()) {
-                    maxId = rs.getInt("max_id");
-                }
-            }
-            maxId++;
+            int maxId = IdAllocator.nextId(con, companyCode + "_external_audit_plan");
 
             // Insert main record
-            query = "INSERT INTO " + companyCode + "_external_audit_plan " +
+            String query = "INSERT INTO " + companyCode + "_external_audit_plan " +
                     "(id, audit_no, audit_type, audit_date, audit_start_date, audit_end_date, report_submit_date, status, approved_by, approved_date) " +
                     "VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?)";
             try (PreparedStatement ps = con.prepareStatement(query)) {
@@ -980,22 +873,11 @@ public class ExternalAuditPlanResource {
 
             // Insert auditors
             if (request.auditors != null && !request.auditors.isEmpty()) {
-                // Get next ID for auditors
-                int maxAuditorId = 0;
-                String maxAuditorIdQuery = "SELECT MAX(id) as max_id FROM " + companyCode + "_external_audit_plan_auditors";
-                try (PreparedStatement ps = con.prepareStatement(maxAuditorIdQuery);
-                     ResultSet rs = ps.executeQuery()) {
-                    if (rs.next()) {
-                        maxAuditorId = rs.getInt("max_id");
-                    }
-                }
-                maxAuditorId++;
-
                 query = "INSERT INTO " + companyCode + "_external_audit_plan_auditors " +
                         "(id, audit_plan_id, auditor_name, auditor_desig) VALUES (?, ?, ?, ?)";
                 try (PreparedStatement ps = con.prepareStatement(query)) {
                     for (AuditorDetail auditor : request.auditors) {
-                        ps.setInt(1, maxAuditorId++);
+                        ps.setInt(1, IdAllocator.nextId(con, companyCode + "_external_audit_plan_auditors"));
                         ps.setInt(2, maxId);
                         ps.setString(3, auditor.name);
                         ps.setString(4, auditor.designation);
@@ -1007,22 +889,11 @@ public class ExternalAuditPlanResource {
 
             // Insert standards
             if (request.standards != null && !request.standards.isEmpty()) {
-                // Get next ID for standards
-                int maxStandardId = 0;
-                String maxStandardIdQuery = "SELECT MAX(id) as max_id FROM " + companyCode + "_external_audit_plan_standard";
-                try (PreparedStatement ps = con.prepareStatement(maxStandardIdQuery);
-                     ResultSet rs = ps.executeQuery()) {
-                    if (rs.next()) {
-                        maxStandardId = rs.getInt("max_id");
-                    }
-                }
-                maxStandardId++;
-
                 query = "INSERT INTO " + companyCode + "_external_audit_plan_standard " +
                         "(id, audit_plan_id, standard_name, status) VALUES (?, ?, ?, ?)";
                 try (PreparedStatement ps = con.prepareStatement(query)) {
                     for (StandardDetail standard : request.standards) {
-                        ps.setInt(1, maxStandardId++);
+                        ps.setInt(1, IdAllocator.nextId(con, companyCode + "_external_audit_plan_standard"));
                         ps.setInt(2, maxId);
                         ps.setString(3, standard.standardName);
                         ps.setString(4, standard.status);
@@ -1034,23 +905,12 @@ public class ExternalAuditPlanResource {
 
             // Insert details
             if (request.details != null && !request.details.isEmpty()) {
-                // Get next ID for details
-                int maxDetailId = 0;
-                String maxDetailIdQuery = "SELECT MAX(id) as max_id FROM " + companyCode + "_external_audit_plan_detail";
-                try (PreparedStatement ps = con.prepareStatement(maxDetailIdQuery);
-                     ResultSet rs = ps.executeQuery()) {
-                    if (rs.next()) {
-                        maxDetailId = rs.getInt("max_id");
-                    }
-                }
-                maxDetailId++;
-
                 query = "INSERT INTO " + companyCode + "_external_audit_plan_detail " +
                         "(id, audit_plan_id, department, audit_date, audit_start_time, audit_end_time, auditor_name, audit_criteria) " +
                         "VALUES (?, ?, ?, ?, ?, ?, ?, ?)";
                 try (PreparedStatement ps = con.prepareStatement(query)) {
                     for (AuditDetail detail : request.details) {
-                        ps.setInt(1, maxDetailId++);
+                        ps.setInt(1, IdAllocator.nextId(con, companyCode + "_external_audit_plan_detail"));
                         ps.setInt(2, maxId);
                         ps.setString(3, detail.department);
                         ps.setString(4, detail.auditDate);
@@ -1066,22 +926,11 @@ public class ExternalAuditPlanResource {
 
             // Insert audit types
             if (request.auditTypes != null && !request.auditTypes.isEmpty()) {
-                // Get next ID for audit types
-                int maxAuditTypeId = 0;
-                String maxAuditTypeIdQuery = "SELECT MAX(id) as max_id FROM " + companyCode + "_external_audit_type_detail";
-                try (PreparedStatement ps = con.prepareStatement(maxAuditTypeIdQuery);
-                     ResultSet rs = ps.executeQuery()) {
-                    if (rs.next()) {
-                        maxAuditTypeId = rs.getInt("max_id");
-                    }
-                }
-                maxAuditTypeId++;
-
                 query = "INSERT INTO " + companyCode + "_external_audit_type_detail " +
                         "(id, external_audit_plan_id, audit_type_id) VALUES (?, ?, ?)";
                 try (PreparedStatement ps = con.prepareStatement(query)) {
                     for (String auditTypeId : request.auditTypes) {
-                        ps.setInt(1, maxAuditTypeId++);
+                        ps.setInt(1, IdAllocator.nextId(con, companyCode + "_external_audit_type_detail"));
                         ps.setInt(2, maxId);
                         ps.setString(3, auditTypeId);
                         ps.addBatch();
@@ -1094,30 +943,8 @@ public class ExternalAuditPlanResource {
             DateTimeFormatter dtf = DateTimeFormatter.ofPattern("yyyy-MM-dd");
             String todayDate = LocalDateTime.now().format(dtf);
 
-            int maxLogId = 0;
-            query = "SELECT MAX(id) as max_id FROM " + companyCode + "_log_master";
-            try (PreparedStatement ps = con.prepareStatement(query);
-                 ResultSet rs = ps.executeQuery()) {
-                if (rs.next()) {
-                    maxLogId = rs.getInt("max_id");
-                }
-            }
-            maxLogId++;
-
-            query = "INSERT INTO " + companyCode + "_log_master " +
-                    "(id, fired_date, fired_by, status, module_name, module_id) " +
-                    "VALUES (?, ?, ?, ?, ?, ?)";
-            try (PreparedStatement ps = con.prepareStatement(query)) {
-                ps.setInt(1, maxLogId);
-                ps.setString(2, todayDate);
-                ps.setString(3, employeeName);
-                ps.setString(4, "Add");
-                ps.setString(5, "External Audit Plan");
-                ps.setString(6, String.valueOf(maxId));
-                ps.executeUpdate();
-            }
-
             con.commit();
+            AuditLogWriter.log(companyCode, todayDate, employeeName, "Add", "External Audit Plan", String.valueOf(maxId));
 
             ExternalAuditPlanResponse response = new ExternalAuditPlanResponse(true, "Audit plan created successfully");
             response.data.put("auditPlanId", maxId);
@@ -1,6 +1,13 @@
 package com.example;
 
+import com.example.util.AuditLogWriter;
+import com.example.util.ClauseCatalog;
 import com.example.util.DBConfig;
+import com.example.util.IdAllocator;
+import com.example.util.ParallelQueries;
+import com.example.util.ReadOnly;
+import com.example.util.StandardCatalog;
+import com.example.util.TenantRegistry;
 import jakarta.ws.rs.*;
 import jakarta.ws.rs.core.MediaType;
 import jakarta.ws.rs.core.Response;
@@ -84,19 +91,10 @@ public class ExternalAuditResource {
             con.setAutoCommit(false);
 
             // Get standard ID
-            String stdId = null;
-            String query = "SELECT id FROM standard_master WHERE std_name = ?";
-            try (PreparedStatement ps = con.prepareStatement(query)) {
-                ps.setString(1, request.standardName);
-                try (ResultSet rs = ps.executeQuery()) {
-                    if (rs.next()) {
-                        stdId = rs.getString("id");
-                    }
-                }
-            }
+            String stdId = StandardCatalog.getId(con, request.standardName);
 
             // Check for duplicate
-            query = "SELECT id FROM " + companyCode +
+            String query = "SELECT id FROM " + companyCode +
                     "_external_audit_master WHERE audit_no = ? AND std_id = ? AND audit_plan_id = ?";
             try (PreparedStatement ps = con.prepareStatement(query)) {
                 ps.setString(1, request.auditNo);
@@ -112,24 +110,7 @@ public class ExternalAuditResource {
             }
 
             // Get next ID for external audit
-            int externalAuditId = 0;
-            query = "SELECT MAX(id) as max_id FROM " + companyCode + "_external_audit_master";
-            try (PreparedStatement ps = con.prepareStatement(query);
-                 ResultSet rs = ps.executeQuery()) {
-                if (rs.next()) {
-                    externalAuditId = rs.getInt("max_id") + 1;
-                }
-            }
-
-            // Get next ID for log
-            int logId = 0;
-            query = "SELECT MAX(id) as max_id FROM " + companyCode + "_log_master";
-            try (PreparedStatement ps = con.prepareStatement(query);
-                 ResultSet rs = ps.executeQuery()) {
-                if (rs.next()) {
-                    logId = rs.getInt("max_id") + 1;
-                }
-            }
+            int externalAuditId = IdAllocator.nextId(con, companyCode + "_external_audit_master");
 
             // Insert audit
             query = "INSERT INTO " + companyCode + "_external_audit_master " +
@@ -179,24 +160,13 @@ public class ExternalAuditResource {
                 ps.executeUpdate();
             }
 
+            con.commit();
+
             // Log the action
             DateTimeFormatter dtf = DateTimeFormatter.ofPattern("yyyy-MM-dd");
             String todayDate = LocalDateTime.now().format(dtf);
+            AuditLogWriter.log(companyCode, todayDate, employeeName, "Create", "External Audit", String.valueOf(externalAuditId));
 
-            query = "INSERT INTO " + companyCode + "_log_master " +
-                    "(id, fired_date, fired_by, status, module_name, module_id) " +
-                    "VALUES (?, ?, ?, ?, ?, ?)";
-            try (PreparedStatement ps = con.prepareStatement(query)) {
-                ps.setInt(1, logId);
-                ps.setString(2, todayDate);
-                ps.setString(3, employeeName);
-                ps.setString(4, "Create");
-                ps.setString(5, "External Audit");
-                ps.setString(6, String.valueOf(externalAuditId));
-                ps.executeUpdate();
-            }
-
-            con.commit();
             ExternalAuditResponse response = new ExternalAuditResponse(true, "External audit created successfully");
             response.data.put("auditId", externalAuditId);
             response.data.put("standardName", request.standardName);
@@ -297,6 +267,7 @@ public class ExternalAuditResource {
 
 
 
+    @ReadOnly
     @GET
     @Path("/list")
     @Produces(MediaType.APPLICATION_JSON)
@@ -433,30 +404,8 @@ public class ExternalAuditResource {
             DateTimeFormatter dtf = DateTimeFormatter.ofPattern("yyyy-MM-dd");
             String todayDate = LocalDateTime.now().format(dtf);
 
-            int maxLogId = 0;
-            query = "SELECT MAX(id) as max_id FROM " + companyCode + "_log_master";
-            try (PreparedStatement ps = con.prepareStatement(query);
-                 ResultSet rs = ps.executeQuery()) {
-                if (rs.next()) {
-                    maxLogId = rs.getInt("max_id");
-                }
-            }
-            maxLogId++;
-
-            query = "INSERT INTO " + companyCode + "_log_master " +
-                    "(id, fired_date, fired_by, status, module_name, module_id) " +
-                    "VALUES (?, ?, ?, ?, ?, ?)";
-            try (PreparedStatement ps = con.prepareStatement(query)) {
-                ps.setInt(1, maxLogId);
-                ps.setString(2, todayDate);
-                ps.setString(3, employeeName);
-                ps.setString(4, "Delete");
-                ps.setString(5, "External Audit");
-                ps.setString(6, auditId);
-                ps.executeUpdate();
-            }
-
             con.commit();
+            AuditLogWriter.log(companyCode, todayDate, employeeName, "Delete", "External Audit", auditId);
             return Response.ok(new ExternalAuditResponse(true, "Audit deleted successfully")).build();
 
         } catch (SQLException e) {
@@ -502,30 +451,8 @@ public class ExternalAuditResource {
             DateTimeFormatter dtf = DateTimeFormatter.ofPattern("yyyy-MM-dd");
             String todayDate = LocalDateTime.now().format(dtf);
 
-            int maxLogId = 0;
-            query = "SELECT MAX(id) as max_id FROM " + companyCode + "_log_master";
-            try (PreparedStatement ps = con.prepareStatement(query);
-                 ResultSet rs = ps.executeQuery()) {
-                if (rs.next()) {
-                    maxLogId = rs.getInt("max_id");
-                }
-            }
-            maxLogId++;
-
-            query = "INSERT INTO " + companyCode + "_log_master " +
-                    "(id, fired_date, fired_by, status, module_name, module_id) " +
-                    "VALUES (?, ?, ?, ?, ?, ?)";
-            try (PreparedStatement ps = con.prepareStatement(query)) {
-                ps.setInt(1, maxLogId);
-                ps.setString(2, todayDate);
-                ps.setString(3, employeeName);
-                ps.setString(4, "Approve");
-                ps.setString(5, "External Audit");
-                ps.setString(6, auditId);
-                ps.executeUpdate();
-            }
-
             con.commit();
+            AuditLogWriter.log(companyCode, todayDate, employeeName, "Approve", "External Audit", auditId);
             return Response.ok(new ExternalAuditResponse(true, "Audit approved successfully")).build();
 
         } catch (SQLException e) {
@@ -573,30 +500,8 @@ public class ExternalAuditResource {
             DateTimeFormatter dtf = DateTimeFormatter.ofPattern("yyyy-MM-dd");
             String todayDate = LocalDateTime.now().format(dtf);
 
-            int maxLogId = 0;
-            query = "SELECT MAX(id) as max_id FROM " + companyCode + "_log_master";
-            try (PreparedStatement ps = con.prepareStatement(query);
-                 ResultSet rs = ps.executeQuery()) {
-                if (rs.next()) {
-                    maxLogId = rs.getInt("max_id");
-                }
-            }
-            maxLogId++;
-
-            query = "INSERT INTO " + companyCode + "_log_master " +
-                    "(id, fired_date, fired_by, status, module_name, module_id) " +
-                    "VALUES (?, ?, ?, ?, ?, ?)";
-            try (PreparedStatement ps = con.prepareStatement(query)) {
-                ps.setInt(1, maxLogId);
-                ps.setString(2, todayDate);
-                ps.setString(3, employeeName);
-                ps.setString(4, "Back Status");
-                ps.setString(5, "External Audit");
-                ps.setString(6, auditId);
-                ps.executeUpdate();
-            }
-
             con.commit();
+            AuditLogWriter.log(companyCode, todayDate, employeeName, "Back Status", "External Audit", auditId);
             return Response.ok(new ExternalAuditResponse(true, "Status reverted successfully")).build();
 
         } catch (SQLException e) {
@@ -607,6 +512,7 @@ public class ExternalAuditResource {
         }
     }
 
+    @ReadOnly
     @GET
     @Path("/{id}/export")
     @Produces("application/msword")
@@ -621,54 +527,91 @@ public class ExternalAuditResource {
                     .build();
         }
 
-        try (Connection con = DBConfig.getConnection()) {
-            // Get company details
-            String companyName = null;
-            String street1 = null;
-            String street2 = null;
-            String city = null;
-            String pincode = null;
-            String country = null;
-            String personName = null;
+        // The company is usually cached; only a miss is worth a connection of its own
+        TenantRegistry.Tenant cachedTenant = TenantRegistry.getIfPresent(companyCode);
 
-            String query = "SELECT * FROM company_registration WHERE company_code = ?";
-            try (PreparedStatement ps = con.prepareStatement(query)) {
-                ps.setString(1, companyCode);
-                try (ResultSet rs = ps.executeQuery()) {
-                    if (rs.next()) {
-                        companyName = rs.getString("company_name");
-                        street1 = rs.getString("street1");
-                        street2 = rs.getString("street2");
-                        city = rs.getString("city");
-                        pincode = rs.getString("pincode");
-                        country = rs.getString("country");
-                        personName = rs.getString("person_name");
+        try (ParallelQueries lookups = new ParallelQueries()) {
+            // The lookups are independent and run in parallel on their own connections
+            ParallelQueries.Subtask<Map<String, String>> companyTask = cachedTenant == null
+                    ? lookups.fork(con -> exportCompany(TenantRegistry.get(con, companyCode))) : null;
+
+            ParallelQueries.Subtask<Map<String, String>> auditTask = lookups.fork(con -> {
+                Map<String, String> audit = new HashMap<>();
+                String query = "SELECT * FROM " + companyCode + "_external_audit_master WHERE id = ?";
+                try (PreparedStatement ps = con.prepareStatement(query)) {
+                    ps.setString(1, auditId);
+                    try (ResultSet rs = ps.executeQuery()) {
+                        if (rs.next()) {
+                            audit.put("audit_no", rs.getString("audit_no"));
+                            audit.put("audit_date", rs.getString("audit_date"));
+                            audit.put("scope", rs.getString("scope"));
+                        }
+                    }
+                }
+                return audit;
+            });
+
+            // Audit types of the audit's plan, reached through the master so this need not wait for it
+            ParallelQueries.Subtask<List<String>> auditTypesTask = lookups.fork(con -> {
+                List<String> auditTypes = new ArrayList<>();
+                String query = "SELECT at.audit_type FROM " + companyCode + "_external_audit_type_detail eatd " +
+                        "JOIN audit_type at ON eatd.audit_type_id = at.id " +
+                        "JOIN " + companyCode + "_external_audit_master eam ON eatd.external_audit_plan_id = eam.audit_plan_id " +
+                        "WHERE eam.id = ?";
+                try (PreparedStatement ps = con.prepareStatement(query)) {
+                    ps.setString(1, auditId);
+                    try (ResultSet rs = ps.executeQuery()) {
+                        while (rs.next()) {
+                            auditTypes.add(rs.getString("audit_type"));
+                        }
+                    }
+                }
+                return auditTypes;
+            });
+
+            ParallelQueries.Subtask<List<String[]>> clausesTask = lookups.fork(con -> {
+                // Clause names and order come from the clause catalog; details without
+                // a clause_master entry are left out, as the old join did
+                List<String[]> details = new ArrayList<>();
+                String query = "SELECT std_id, clause_no, evidence, comment " +
+                        "FROM " + companyCode + "_external_audit_detail WHERE external_audit_id = ?";
+                try (PreparedStatement ps = con.prepareStatement(query)) {
+                    ps.setString(1, auditId);
+                    try (ResultSet rs = ps.executeQuery()) {
+                        while (rs.next()) {
+                            details.add(new String[]{rs.getString("std_id"), rs.getString("clause_no"),
+                                    rs.getString("evidence"), rs.getString("comment")});
+                        }
                     }
                 }
-            }
-
-            // Get audit details
-            String auditNo = null;
-            String auditDate = null;
-            String scope = null;
-            int auditPlanId = 0;
-            String standardName = null;
-            String stdId = null;
 
-            query = "SELECT * FROM " + companyCode + "_external_audit_master WHERE id = ?";
-            try (PreparedStatement ps = con.prepareStatement(query)) {
-                ps.setString(1, auditId);
-                try (ResultSet rs = ps.executeQuery()) {
-                    if (rs.next()) {
-                        auditPlanId = rs.getInt("audit_plan_id");
-                        auditNo = rs.getString("audit_no");
-                        auditDate = rs.getString("audit_date");
-                        scope = rs.getString("scope");
-                        standardName = rs.getString("std_name");
-                        stdId = rs.getString("std_id");
+                List<String[]> clauses = new ArrayList<>();
+                for (String[] detail : details) {
+                    ClauseCatalog.Clause clause = ClauseCatalog.get(con, detail[0]).get(detail[1]);
+                    if (clause != null) {
+                        clauses.add(new String[]{clause.number, clause.name, detail[2], detail[3]});
                     }
                 }
-            }
+                clauses.sort((a, b) -> ClauseCatalog.NUMBER_ORDER.compare(a[0], b[0]));
+                return clauses;
+            });
+
+            lookups.join();
+
+            // Get company details
+            Map<String, String> company = companyTask != null ? companyTask.get() : exportCompany(cachedTenant);
+            String companyName = company.get("company_name");
+            String street1 = company.get("street1");
+            String street2 = company.get("street2");
+            String city = company.get("city");
+            String pincode = company.get("pincode");
+            String country = company.get("country");
+
+            // Get audit details
+            Map<String, String> audit = auditTask.get();
+            String auditNo = audit.get("audit_no");
+            String auditDate = audit.get("audit_date");
+            String scope = audit.get("scope");
 
             // Generate Word document content
             StringBuilder content = new StringBuilder();
@@ -703,20 +646,7 @@ public class ExternalAuditResource {
 
             // Get audit type details
             content.append("<tr><th align='left'>TYPE OF AUDIT</th><td colspan='3'>");
-            query = "SELECT at.audit_type FROM " + companyCode + "_external_audit_type_detail eatd " +
-                    "JOIN audit_type at ON eatd.audit_type_id = at.id " +
-                    "WHERE eatd.external_audit_plan_id = ?";
-            try (PreparedStatement ps = con.prepareStatement(query)) {
-                ps.setInt(1, auditPlanId);
-                try (ResultSet rs = ps.executeQuery()) {
-                    boolean first = true;
-                    while (rs.next()) {
-                        if (!first) content.append(", ");
-                        content.append(rs.getString("audit_type"));
-                        first = false;
-                    }
-                }
-            }
+            content.append(String.join(", ", auditTypesTask.get()));
             content.append("</td></tr>");
 
             // Audit details table
@@ -727,22 +657,13 @@ public class ExternalAuditResource {
             content.append("<th width='10%'>Remarks</th></tr>");
 
             // Get clause details
-            query = "SELECT cm.number, cm.name, ead.evidence, ead.comment " +
-                    "FROM " + companyCode + "_external_audit_detail ead " +
-                    "JOIN clause_master cm ON ead.clause_no = cm.number AND ead.std_id = cm.std_id " +
-                    "WHERE ead.external_audit_id = ? ORDER BY cm.number + 0 ASC";
-            try (PreparedStatement ps = con.prepareStatement(query)) {
-                ps.setString(1, auditId);
-                try (ResultSet rs = ps.executeQuery()) {
-                    while (rs.next()) {
-                        content.append("<tr>");
-                        content.append("<th>").append(rs.getString("number")).append("</th>");
-                        content.append("<td>").append(rs.getString("name")).append("</td>");
-                        content.append("<td>").append(rs.getString("evidence") != null ? rs.getString("evidence") : "&nbsp;").append("</td>");
-                        content.append("<td>").append(rs.getString("comment") != null ? rs.getString("comment") : "&nbsp;").append("</td>");
-                        content.append("</tr>");
-                    }
-                }
+            for (String[] clause : clausesTask.get()) {
+                content.append("<tr>");
+                content.append("<th>").append(clause[0]).append("</th>");
+                content.append("<td>").append(clause[1]).append("</td>");
+                content.append("<td>").append(clause[2] != null ? clause[2] : "&nbsp;").append("</td>");
+                content.append("<td>").append(clause[3] != null ? clause[3] : "&nbsp;").append("</td>");
+                content.append("</tr>");
             }
 
             content.append("</table></body></html>");
@@ -761,6 +682,22 @@ public class ExternalAuditResource {
         }
     }
 
+    // Company fields used by the audit export; empty when there is no such company
+    private static Map<String, String> exportCompany(TenantRegistry.Tenant tenant) {
+        Map<String, String> company = new HashMap<>();
+        if (tenant != null) {
+            company.put("company_name", tenant.name);
+            company.put("street1", tenant.street1);
+            company.put("street2", tenant.street2);
+            company.put("city", tenant.city);
+            company.put("pincode", tenant.pincode);
+            company.put("country", tenant.country);
+            company.put("person_name", tenant.personName);
+        }
+        return company;
+    }
+
+    @ReadOnly
     @GET
     @Path("/{id}/export-nc")
     @Produces("application/msword")
@@ -827,20 +764,15 @@ public class ExternalAuditResource {
             String personName = null;
             String country = null;
 
-            query = "SELECT * FROM company_registration WHERE company_code = ?";
-            try (PreparedStatement ps = con.prepareStatement(query)) {
-                ps.setString(1, companyCode);
-                try (ResultSet rs = ps.executeQuery()) {
-                    if (rs.next()) {
-                        companyName = rs.getString("company_name");
-                        street1 = rs.getString("street1");
-                        street2 = rs.getString("street2");
-                        city = rs.getString("city");
-                        pincode = rs.getString("pincode");
-                        personName = rs.getString("person_name");
-                        country = rs.getString("country");
-                    }
-                }
+            TenantRegistry.Tenant tenant = TenantRegistry.get(con, companyCode);
+            if (tenant != null) {
+                companyName = tenant.name;
+                street1 = tenant.street1;
+                street2 = tenant.street2;
+                city = tenant.city;
+                pincode = tenant.pincode;
+                personName = tenant.personName;
+                country = tenant.country;
             }
 
             // Calculate audit duration
@@ -1108,32 +1040,12 @@ public class ExternalAuditResource {
         }
     }
 
-    private void logAction(Connection con, String companyCode, String employeeName,
-                           String action, String moduleName, String moduleId) throws SQLException {
+    private void logAction(String companyCode, String employeeName,
+                           String action, String moduleName, String moduleId) {
         DateTimeFormatter dtf = DateTimeFormatter.ofPattern("yyyy-MM-dd");
         String todayDate = LocalDateTime.now().format(dtf);
 
-        int maxLogId = getMaxId(con, companyCode + "_log_master");
-        String query = "INSERT INTO " + companyCode + "_log_master " +
-                "(id, fired_date, fired_by, status, module_name, module_id) " +
-                "VALUES (?, ?, ?, ?, ?, ?)";
-        try (PreparedStatement ps = con.prepareStatement(query)) {
-            ps.setInt(1, ++maxLogId);
-            ps.setString(2, todayDate);
-            ps.setString(3, employeeName);
-            ps.setString(4, action);
-            ps.setString(5, moduleName);
-            ps.setString(6, moduleId);
-            ps.executeUpdate();
-        }
-    }
-
-    private int getMaxId(Connection con, String table) throws SQLException {
-        String query = "SELECT MAX(id) as max_id FROM " + table;
-        try (PreparedStatement ps = con.prepareStatement(query);
-             ResultSet rs = ps.executeQuery()) {
-            return rs.next() ? rs.getInt("max_id") : 0;
-        }
+        AuditLogWriter.log(companyCode, todayDate, employeeName, action, moduleName, moduleId);
     }
 
 
@@ -1,11 +1,16 @@
 package com.example;
 
+import com.example.util.AuditLogWriter;
 import com.example.util.DBConfig;
+import com.example.util.IdAllocator;
+import com.example.util.ReadOnly;
+import com.example.util.TenantRegistry;
 import jakarta.ws.rs.*;
 import jakarta.ws.rs.core.MediaType;
 import jakarta.ws.rs.core.Response;
 import jakarta.ws.rs.core.Response.Status;
 import java.sql.*;
+import java.time.LocalDate;
 import java.util.*;
 import java.util.logging.Level;
 import java.util.logging.Logger;
@@ -77,6 +82,7 @@ public class ExternalNonconformitiesResource {
     }
 
     // GET all nonconformities
+    @ReadOnly
     @GET
     @Produces(MediaType.APPLICATION_JSON)
     public Response getNonconformities(
@@ -187,30 +193,17 @@ public class ExternalNonconformitiesResource {
                 }
             }
 
-            String query = "SELECT * FROM company_registration WHERE company_code = ?";
-            try (PreparedStatement ps = con.prepareStatement(query)) {
-                ps.setString(1, companyCode); // assuming 'companyCode' is set properly
-
-                try (ResultSet rs = ps.executeQuery()) {
-                    if (rs.next()) {
-                        ResultSetMetaData metaData = rs.getMetaData();
-                        int columnCount = metaData.getColumnCount();
-
-                        for (int i = 1; i <= columnCount; i++) {
-                            String columnName = metaData.getColumnName(i);
-                            String value = rs.getString(i);
-                            details.put(columnName, value);
-                        }
-
-                        // Optional: Add custom 'site' field
-                        String site = String.format("%s%s-%s-%s",
-                                rs.getString("street1"),
-                                rs.getString("street2"),
-                                rs.getString("village"),
-                                rs.getString("pincode"));
-                        details.put("site", site);
-                    }
-                }
+            TenantRegistry.Tenant company = TenantRegistry.get(con, companyCode);
+            if (company != null) {
+                details.putAll(company.columns);
+
+                // Optional: Add custom 'site' field
+                String site = String.format("%s%s-%s-%s",
+                        company.street1,
+                        company.street2,
+                        company.village,
+                        company.pincode);
+                details.put("site", site);
             }
 
             return Response.ok(details).build();
@@ -257,7 +250,7 @@ public class ExternalNonconformitiesResource {
             }
 
             // Get next ID
-            int ncId = getNextId(con, companyCode + "_external_nonconformities");
+            int ncId = IdAllocator.nextId(con, companyCode + "_external_nonconformities");
 
             // Insert nonconformity
             String insertQuery = "INSERT INTO " + companyCode + "_external_nonconformities " +
@@ -285,10 +278,10 @@ public class ExternalNonconformitiesResource {
                 ps.executeUpdate();
             }
 
-            // Log action
-            logAction(con, companyCode, employeeName, "Create", MODULE_NAME, String.valueOf(ncId));
-
             con.commit();
+
+            // Log action
+            logAction(companyCode, employeeName, "Create", MODULE_NAME, String.valueOf(ncId));
             return Response.ok(new NonconformityResponse<>(true, "Nonconformity created successfully"))
                     .build();
 
@@ -355,10 +348,10 @@ public class ExternalNonconformitiesResource {
             // Delete NC
             deleteNonconformityFromDB(con, companyCode, ncId);
 
-            // Log action
-            logAction(con, companyCode, employeeName, "Delete", MODULE_NAME, ncId);
-
             con.commit();
+
+            // Log action
+            logAction(companyCode, employeeName, "Delete", MODULE_NAME, ncId);
             return Response.ok(new NonconformityResponse<>(true, "Nonconformity deleted successfully"))
                     .build();
 
@@ -401,10 +394,10 @@ public class ExternalNonconformitiesResource {
                 return buildErrorResponse(Status.NOT_FOUND, "Nonconformity not found");
             }
 
-            // Log action
-            logAction(con, companyCode, employeeName, "Approve", MODULE_NAME, ncId);
-
             con.commit();
+
+            // Log action
+            logAction(companyCode, employeeName, "Approve", MODULE_NAME, ncId);
             return Response.ok(new NonconformityResponse<>(true, "Nonconformity approved successfully"))
                     .build();
 
@@ -447,10 +440,10 @@ public class ExternalNonconformitiesResource {
                 return buildErrorResponse(Status.NOT_FOUND, "Nonconformity not found");
             }
 
-            // Log action
-            logAction(con, companyCode, employeeName, "Revert Status", MODULE_NAME, ncId);
-
             con.commit();
+
+            // Log action
+            logAction(companyCode, employeeName, "Revert Status", MODULE_NAME, ncId);
             return Response.ok(new NonconformityResponse<>(true, "Status reverted successfully"))
                     .build();
 
@@ -535,19 +528,17 @@ public class ExternalNonconformitiesResource {
     private ClauseDetails getClauseDetailsFromDB(Connection con, String companyCode,
                                                  String externalAuditId, String externalNcNo) throws SQLException {
         String query = "SELECT m.std_name, m.audit_no, p.process_area, a.auditor_name, " +
-                "d.clause_no, d.type, d.audit_findings, d.audit_evidence, " +
-                "c.street1, c.street2, c.village, c.pincode " +
+                "d.clause_no, d.type, d.audit_findings, d.audit_evidence " +
                 "FROM " + companyCode + "_external_audit_master m " +
                 "LEFT JOIN " + companyCode + "_external_audit_plan_detail p ON m.audit_plan_id = p.audit_plan_id " +
                 "LEFT JOIN " + companyCode + "_external_audit_plan_auditors a ON m.audit_plan_id = a.audit_plan_id " +
                 "LEFT JOIN " + companyCode + "_external_audit_detail d ON m.id = d.external_audit_id " +
-                "LEFT JOIN company_registration c ON c.company_code = ? " +
                 "WHERE m.id = ? AND d.nc_no = ?";
 
+        TenantRegistry.Tenant company = TenantRegistry.get(con, companyCode);
         try (PreparedStatement ps = con.prepareStatement(query)) {
-            ps.setString(1, companyCode);
-            ps.setString(2, externalAuditId);
-            ps.setString(3, externalNcNo);
+            ps.setString(1, externalAuditId);
+            ps.setString(2, externalNcNo);
             try (ResultSet rs = ps.executeQuery()) {
                 if (rs.next()) {
                     ClauseDetails details = new ClauseDetails();
@@ -560,10 +551,10 @@ public class ExternalNonconformitiesResource {
                     details.auditFindings = rs.getString("audit_findings");
                     details.auditEvidence = rs.getString("audit_evidence");
                     details.site = String.format("%s %s - %s - %s",
-                            rs.getString("street1"),
-                            rs.getString("street2"),
-                            rs.getString("village"),
-                            rs.getString("pincode"));
+                            company != null ? company.street1 : null,
+                            company != null ? company.street2 : null,
+                            company != null ? company.village : null,
+                            company != null ? company.pincode : null);
                     return details;
                 }
                 return null;
@@ -573,7 +564,7 @@ public class ExternalNonconformitiesResource {
 
     private int insertNonconformity(Connection con, String companyCode, Map<String, String> formData)
             throws SQLException {
-        int ncId = getNextId(con, companyCode + "_external_nonconformities");
+        int ncId = IdAllocator.nextId(con, companyCode + "_external_nonconformities");
 
         String sql = "INSERT INTO " + companyCode + "_external_nonconformities " +
                 "(id, external_audit_id, nc_no, site, clause_no, type, process_area, auditor, " +
@@ -630,28 +621,9 @@ public class ExternalNonconformitiesResource {
         }
     }
 
-    private void logAction(Connection con, String companyCode, String employeeName,
-                           String action, String moduleName, String moduleId) throws SQLException {
-        String query = "INSERT INTO " + companyCode + "_log_master " +
-                "(id, fired_date, fired_by, status, module_name, module_id) " +
-                "VALUES (?, CURRENT_DATE, ?, ?, ?, ?)";
-
-        try (PreparedStatement ps = con.prepareStatement(query)) {
-            ps.setInt(1, getNextId(con, companyCode + "_log_master"));
-            ps.setString(2, employeeName);
-            ps.setString(3, action);
-            ps.setString(4, moduleName);
-            ps.setString(5, moduleId);
-            ps.executeUpdate();
-        }
-    }
-
-    private int getNextId(Connection con, String table) throws SQLException {
-        String query = "SELECT COALESCE(MAX(id), 0) + 1 FROM " + table;
-        try (Statement stmt = con.createStatement();
-             ResultSet rs = stmt.executeQuery(query)) {
-            return rs.next() ? rs.getInt(1) : 1;
-        }
+    private void logAction(String companyCode, String employeeName,
+                           String action, String moduleName, String moduleId) {
+        AuditLogWriter.log(companyCode, LocalDate.now().toString(), employeeName, action, moduleName, moduleId);
     }
 
     private Response buildErrorResponse(Status status, String message) {
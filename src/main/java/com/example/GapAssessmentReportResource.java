@@ -8,16 +8,33 @@ import java.sql.*;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
+import java.util.Locale;
 import java.util.Map;
 import java.util.logging.Logger;
 
+import com.example.util.ChildLoader;
+import com.example.util.ClauseCatalog;
 import com.example.util.DBConfig;
+import com.example.util.ExpiringCache;
+import com.example.util.ReadOnly;
+import com.example.util.StandardCatalog;
+import com.example.util.TenantRegistry;
+import com.example.util.TextTemplate;
 
 @Path("/gap-assessment-report")
 public class GapAssessmentReportResource {
 
     private static final Logger logger = Logger.getLogger(GapAssessmentResource.class.getName());
 
+    // Maturity levels of a detail row's status, in report order
+    static final String[] STATUSES = {"nonexistent", "initial", "limited", "defined", "managed", "optimized", "not applicable"};
+
+    // Placeholders of gap_assessment_template texts
+    static final String[] PLACEHOLDERS = {"-CLIENT-", "-STANDARD-", "-UnderDefense-", "-DEPT-", "-M_DATE-", "-M_TIME-", "-C_PERSON-"};
+
+    // Compiled templates by std_name and label; templates change only when the table is edited
+    private static final ExpiringCache<List<LabelTemplate>> TEMPLATES = new ExpiringCache<>("gapTemplates", 3600, 2000);
+
     // Response class
     public static class ApiResponse<T> {
         private boolean success;
@@ -254,26 +271,19 @@ public class GapAssessmentReportResource {
     }
 
 
+    @ReadOnly
     @POST
     @Path("/generate")
     @Consumes(MediaType.APPLICATION_JSON)
     @Produces(MediaType.TEXT_HTML)
     public Response generateReport(@HeaderParam("company-code") String companyCode, @HeaderParam("employee-id") String userId, Map<String, Object> request) {
         Connection con = null;
-        PreparedStatement ps = null;
-        ResultSet res = null, res1 = null, res2 = null;
 
         String actualCompanyCode = companyCode; // Assume same as company_code
         String loginType = "Client Login"; // Default, can be dynamic
         String parentCompanyCode = companyCode; // Assume same as company_code
         String actualCompanyName = "";
         String stdId = "";
-        String clauseName, description, guidance, templateText, newTemplateText;
-        String mergeMeetingDate = "", mergeMeetingTime = "", mergeContactPerson = "";
-        int nonexistentCount = 0, initialCount = 0, limitedCount = 0, definedCount = 0, managedCount = 0, optimizedCount = 0, notApplicableCount = 0;
-        int nonexistentPossible = 0, initialPossible = 0, limitedPossible = 0, definedPossible = 0, managedPossible = 0, optimizedPossible = 0, notApplicablePossible = 0;
-        List<String> clauseData = new ArrayList<>();
-        List<String> clauseData2 = new ArrayList<>();
         List<String> labelData = new ArrayList<>();
 
         try {
@@ -290,9 +300,6 @@ public class GapAssessmentReportResource {
             List<String> meetingDates = (List<String>) request.get("meeting_dates");
             List<String> labels = (List<String>) request.get("labels");
 
-            int meetingCount = (meetingDates == null) ? 0 : meetingDates.size();
-            int labelCount = (labels == null) ? 0 : labels.size();
-
             if (!ValidationUtil.isNotEmpty(stdName) || !ValidationUtil.isNotEmpty(department)) {
                 return Response.status(Response.Status.BAD_REQUEST)
                         .entity("<html><body><h1>Error: Standard name and department are required</h1></body></html>")
@@ -302,263 +309,24 @@ public class GapAssessmentReportResource {
             con = DBConfig.getConnection();
 
             // Fetch company name based on login_type
-            String query;
-            if (loginType.equalsIgnoreCase("Certification body Client")) {
-                query = "SELECT company_name FROM CB_" + parentCompanyCode + "_company_registration WHERE company_code = ?";
-            } else if (loginType.equalsIgnoreCase("Consultant Client")) {
-                query = "SELECT company_name FROM CS_" + parentCompanyCode + "_company_registration WHERE company_code = ?";
-            } else if (loginType.equalsIgnoreCase("CPA Client")) {
-                query = "SELECT company_name FROM CPA_" + parentCompanyCode + "_company_registration WHERE company_code = ?";
-            } else {
-                query = "SELECT company_name FROM company_registration WHERE company_code = ?";
-            }
-            ps = con.prepareStatement(query);
-            ps.setString(1, actualCompanyCode);
-            res = ps.executeQuery();
-            if (res.next()) {
-                actualCompanyName = res.getString("company_name");
-            } else {
-                actualCompanyName = "Unknown Company";
-            }
-            res.close();
-            ps.close();
+            TenantRegistry.Tenant tenant = TenantRegistry.get(con, actualCompanyCode, loginType, parentCompanyCode);
+            actualCompanyName = tenant != null ? tenant.name : "Unknown Company";
 
             // Fetch std_id
-            query = "SELECT id FROM standard_master WHERE std_name = ?";
-            ps = con.prepareStatement(query);
-            ps.setString(1, stdName);
-            res = ps.executeQuery();
-            if (res.next()) {
-                stdId = res.getString("id");
-            } else {
+            stdId = StandardCatalog.getId(con, stdName);
+            if (stdId == null) {
                 return Response.status(Response.Status.BAD_REQUEST)
                         .entity("<html><body><h1>Error: Standard not found</h1></body></html>")
                         .build();
             }
-            res.close();
-            ps.close();
-
-            // Process gap assessment headers and details
-            for (int j = 0; j < meetingCount; j++) {
-                query = "SELECT * FROM " + companyCode + "_gap_assessment_header WHERE std_id = ? AND department_name = ? AND meeting_date = ?";
-                ps = con.prepareStatement(query);
-                ps.setString(1, stdId);
-                ps.setString(2, department);
-                ps.setString(3, meetingDates.get(j));
-                res = ps.executeQuery();
-                if (res.next()) {
-                    mergeMeetingDate += res.getString("meeting_date") + ",";
-                    mergeMeetingTime += res.getString("meeting_time") + ",";
-                    mergeContactPerson += res.getString("contact_person") + ",";
-
-                    String headerId = res.getString("id");
-                    query = "SELECT * FROM " + companyCode + "_gap_assessment_detail WHERE gap_assessment_header_id = ?";
-                    ps = con.prepareStatement(query);
-                    ps.setString(1, headerId);
-                    res1 = ps.executeQuery();
-                    while (res1.next()) {
-                        query = "SELECT name FROM clause_master WHERE std_id = ? AND number = ?";
-                        ps = con.prepareStatement(query);
-                        ps.setString(1, stdId);
-                        ps.setString(2, res1.getString("clause_no").replaceAll(" ", ""));
-                        res2 = ps.executeQuery();
-                        clauseName = res2.next() ? res2.getString("name") : "";
-
-                        clauseData.add(res1.getString("clause_no"));
-                        clauseData.add(clauseName);
-                        clauseData.add(res1.getString("description"));
-                        clauseData.add(res1.getString("area_require_improvement"));
-                        clauseData.add(res1.getString("status"));
-                        clauseData.add(res1.getString("possible_barrier_to_certification"));
-                        clauseData.add(res1.getString("remarks"));
-
-                        String status = res1.getString("status");
-                        boolean isPossibleBarrier = res1.getString("possible_barrier_to_certification").equalsIgnoreCase("Yes");
-                        switch (status.toLowerCase()) {
-                            case "nonexistent":
-                                nonexistentCount++;
-                                if (isPossibleBarrier) nonexistentPossible++;
-                                break;
-                            case "initial":
-                                initialCount++;
-                                if (isPossibleBarrier) initialPossible++;
-                                break;
-                            case "limited":
-                                limitedCount++;
-                                if (isPossibleBarrier) limitedPossible++;
-                                break;
-                            case "defined":
-                                definedCount++;
-                                if (isPossibleBarrier) definedPossible++;
-                                break;
-                            case "managed":
-                                managedCount++;
-                                if (isPossibleBarrier) managedPossible++;
-                                break;
-                            case "optimized":
-                                optimizedCount++;
-                                if (isPossibleBarrier) optimizedPossible++;
-                                break;
-                            case "not applicable":
-                                notApplicableCount++;
-                                if (isPossibleBarrier) notApplicablePossible++;
-                                break;
-                        }
-                    }
-                    res1.close();
-                }
-                res.close();
-                ps.close();
-            }
-
-            // Process labels
-            for (int j = 0; j < labelCount; j++) {
-                query = "SELECT label, template_text FROM gap_assessment_template WHERE std_name = ? AND label = ?";
-                ps = con.prepareStatement(query);
-                ps.setString(1, stdName);
-                ps.setString(2, labels.get(j));
-                res1 = ps.executeQuery();
-                while (res1.next()) {
-                    labelData.add(res1.getString("label"));
-                    templateText = res1.getString("template_text");
-                    newTemplateText = templateText.replaceAll("-CLIENT-", actualCompanyName)
-                            .replaceAll("-STANDARD-", stdName)
-                            .replaceAll("-UnderDefense-", "Niall Services Pvt. Ltd.");
-                    if (labels.get(j).equalsIgnoreCase("Key stakeholders interviewed")) {
-                        newTemplateText = newTemplateText.replaceAll("-DEPT-", department)
-                                .replaceAll("-M_DATE-", mergeMeetingDate)
-                                .replaceAll("-M_TIME-", mergeMeetingTime)
-                                .replaceAll("-C_PERSON-", mergeContactPerson);
-                    }
-                    labelData.add(newTemplateText);
-                }
-                res1.close();
-                ps.close();
-            }
 
-            // Process clause data with master details
-            for (int j = 0; j < meetingCount; j++) {
-                query = "SELECT * FROM " + companyCode + "_gap_assessment_header WHERE std_id = ? AND department_name = ? AND meeting_date = ?";
-                ps = con.prepareStatement(query);
-                ps.setString(1, stdId);
-                ps.setString(2, department);
-                ps.setString(3, meetingDates.get(j));
-                res = ps.executeQuery();
-                if (res.next()) {
-                    String headerId = res.getString("id");
-                    query = "SELECT * FROM " + companyCode + "_gap_assessment_detail WHERE gap_assessment_header_id = ?";
-                    ps = con.prepareStatement(query);
-                    ps.setString(1, headerId);
-                    res1 = ps.executeQuery();
-                    while (res1.next()) {
-                        query = "SELECT name, description, guidance FROM clause_master WHERE std_id = ? AND number = ?";
-                        ps = con.prepareStatement(query);
-                        ps.setString(1, stdId);
-                        ps.setString(2, res1.getString("clause_no").replaceAll(" ", ""));
-                        res2 = ps.executeQuery();
-                        if (res2.next()) {
-                            clauseName = res2.getString("name");
-                            description = res2.getString("description");
-                            guidance = res2.getString("guidance");
-                        } else {
-                            clauseName = "";
-                            description = "";
-                            guidance = "";
-                        }
-                        res2.close();
-
-                        clauseData2.add(res1.getString("clause_no"));
-                        clauseData2.add(clauseName);
-                        clauseData2.add(description);
-                        clauseData2.add(guidance);
-                        clauseData2.add(res1.getString("description"));
-                        clauseData2.add(res1.getString("area_require_improvement"));
-                        clauseData2.add(res1.getString("status"));
-                        clauseData2.add(res1.getString("possible_barrier_to_certification"));
-                        clauseData2.add(res1.getString("remarks"));
-                    }
-                    res1.close();
-                }
-                res.close();
-                ps.close();
-            }
-
-            // Build HTML response
-            StringBuilder html = new StringBuilder();
-            html.append("<!DOCTYPE html><html><head><title>Gap Assessment Report</title>")
-                    .append("<style>")
-                    .append("body { font-family: Arial, sans-serif; margin: 20px; }")
-                    .append("h1, h2 { color: #333; }")
-                    .append("table { width: 100%; border-collapse: collapse; margin-bottom: 20px; }")
-                    .append("th, td { border: 1px solid #ddd; padding: 8px; text-align: left; }")
-                    .append("th { background-color: #f2f2f2; }")
-                    .append("</style></head><body>");
-
-            html.append("<h1>Gap Assessment Report</h1>")
-                    .append("<p><strong>Company:</strong> ").append(actualCompanyName).append("</p>")
-                    .append("<p><strong>Standard:</strong> ").append(stdName).append("</p>")
-                    .append("<p><strong>Department:</strong> ").append(department).append("</p>");
-
-            // Clause Data Table
-            html.append("<h2>Clause Data</h2><table>")
-                    .append("<tr><th>Clause No</th><th>Clause Name</th><th>Description</th><th>Area Requiring Improvement</th><th>Status</th><th>Possible Barrier</th><th>Remarks</th></tr>");
-            for (int i = 0; i < clauseData.size(); i += 7) {
-                html.append("<tr>")
-                        .append("<td>").append(clauseData.get(i)).append("</td>")
-                        .append("<td>").append(clauseData.get(i + 1)).append("</td>")
-                        .append("<td>").append(clauseData.get(i + 2)).append("</td>")
-                        .append("<td>").append(clauseData.get(i + 3)).append("</td>")
-                        .append("<td>").append(clauseData.get(i + 4)).append("</td>")
-                        .append("<td>").append(clauseData.get(i + 5)).append("</td>")
-                        .append("<td>").append(clauseData.get(i + 6)).append("</td>")
-                        .append("</tr>");
-            }
-            html.append("</table>");
-
-            // Label Data Table
-            html.append("<h2>Label Data</h2><table>")
-                    .append("<tr><th>Label</th><th>Template Text</th></tr>");
-            for (int i = 0; i < labelData.size(); i += 2) {
-                html.append("<tr>")
-                        .append("<td>").append(labelData.get(i)).append("</td>")
-                        .append("<td>").append(labelData.get(i + 1)).append("</td>")
-                        .append("</tr>");
-            }
-            html.append("</table>");
-
-            // Clause Data with Master Details
-            html.append("<h2>Clause Data with Master Details</h2><table>")
-                    .append("<tr><th>Clause No</th><th>Clause Name</th><th>Master Description</th><th>Guidance</th><th>Description</th><th>Area Requiring Improvement</th><th>Status</th><th>Possible Barrier</th><th>Remarks</th></tr>");
-            for (int i = 0; i < clauseData2.size(); i += 9) {
-                html.append("<tr>")
-                        .append("<td>").append(clauseData2.get(i)).append("</td>")
-                        .append("<td>").append(clauseData2.get(i + 1)).append("</td>")
-                        .append("<td>").append(clauseData2.get(i + 2)).append("</td>")
-                        .append("<td>").append(clauseData2.get(i + 3)).append("</td>")
-                        .append("<td>").append(clauseData2.get(i + 4)).append("</td>")
-                        .append("<td>").append(clauseData2.get(i + 5)).append("</td>")
-                        .append("<td>").append(clauseData2.get(i + 6)).append("</td>")
-                        .append("<td>").append(clauseData2.get(i + 7)).append("</td>")
-                        .append("<td>").append(clauseData2.get(i + 8)).append("</td>")
-                        .append("</tr>");
-            }
-            html.append("</table>");
-
-            // Status Counts
-            html.append("<h2>Status Summary</h2><table>")
-                    .append("<tr><th>Status</th><th>Count</th><th>Possible Barriers</th></tr>")
-                    .append("<tr><td>Nonexistent</td><td>").append(nonexistentCount).append("</td><td>").append(nonexistentPossible).append("</td></tr>")
-                    .append("<tr><td>Initial</td><td>").append(initialCount).append("</td><td>").append(initialPossible).append("</td></tr>")
-                    .append("<tr><td>Limited</td><td>").append(limitedCount).append("</td><td>").append(limitedPossible).append("</td></tr>")
-                    .append("<tr><td>Defined</td><td>").append(definedCount).append("</td><td>").append(definedPossible).append("</td></tr>")
-                    .append("<tr><td>Managed</td><td>").append(managedCount).append("</td><td>").append(managedPossible).append("</td></tr>")
-                    .append("<tr><td>Optimized</td><td>").append(optimizedCount).append("</td><td>").append(optimizedPossible).append("</td></tr>")
-                    .append("<tr><td>Not Applicable</td><td>").append(notApplicableCount).append("</td><td>").append(notApplicablePossible).append("</td></tr>")
-                    .append("</table>");
+            // Headers, details and clause names of all meeting dates, with the counts
+            ReportRows rows = loadReportRows(con, companyCode, stdId, department, meetingDates);
 
-            html.append("</body></html>");
+            // Process labels
+            labelData.addAll(loadLabelData(con, actualCompanyName, stdName, department, labels, rows));
 
-            return Response.ok(html.toString()).build();
+            return Response.ok(buildReportHtml(actualCompanyName, stdName, department, rows, labelData)).build();
 
         } catch (SQLException e) {
             logger.severe("Database error: " + e.getMessage());
@@ -567,13 +335,7 @@ public class GapAssessmentReportResource {
                     .build();
         } finally {
             try {
-                clauseData.clear();
-                clauseData2.clear();
                 labelData.clear();
-                if (res != null) res.close();
-                if (res1 != null) res1.close();
-                if (res2 != null) res2.close();
-                if (ps != null) ps.close();
                 if (con != null) con.close();
             } catch (SQLException e) {
                 logger.warning("Error closing resources: " + e.getMessage());
@@ -581,25 +343,124 @@ public class GapAssessmentReportResource {
         }
     }
 
+    /**
+     * Fills in the templates of the given labels, 2 values per template: its label and its text.
+     */
+    List<String> loadLabelData(Connection con, String companyName, String stdName, String department,
+                               List<String> labels, ReportRows rows) throws SQLException {
+        List<String> labelData = new ArrayList<>();
+        if (labels == null) {
+            return labelData;
+        }
+        Map<String, List<LabelTemplate>> templates = loadTemplates(con, stdName, labels);
+        StringBuilder text = new StringBuilder();
+        for (String label : labels) {
+            Map<String, String> values = templateValues(label, companyName, stdName, department, rows);
+            for (LabelTemplate template : templates.getOrDefault(key(label), new ArrayList<>())) {
+                text.setLength(0);
+                template.text.renderTo(text, values);
+                labelData.add(template.label);
+                labelData.add(text.toString());
+            }
+        }
+        return labelData;
+    }
+
+    /**
+     * Renders the gap assessment report from the rows gathered by {@link #generateReport}.
+     * labelData holds 2 values per label: the label and its filled-in template text.
+     */
+    static String buildReportHtml(String companyName, String stdName, String department,
+                                  ReportRows rows, List<String> labelData) {
+        StringBuilder html = new StringBuilder();
+        html.append("<!DOCTYPE html><html><head><title>Gap Assessment Report</title>")
+                .append("<style>")
+                .append("body { font-family: Arial, sans-serif; margin: 20px; }")
+                .append("h1, h2 { color: #333; }")
+                .append("table { width: 100%; border-collapse: collapse; margin-bottom: 20px; }")
+                .append("th, td { border: 1px solid #ddd; padding: 8px; text-align: left; }")
+                .append("th { background-color: #f2f2f2; }")
+                .append("</style></head><body>");
+
+        html.append("<h1>Gap Assessment Report</h1>")
+                .append("<p><strong>Company:</strong> ").append(companyName).append("</p>")
+                .append("<p><strong>Standard:</strong> ").append(stdName).append("</p>")
+                .append("<p><strong>Department:</strong> ").append(department).append("</p>");
+
+        // Clause Data Table
+        html.append("<h2>Clause Data</h2><table>")
+                .append("<tr><th>Clause No</th><th>Clause Name</th><th>Description</th><th>Area Requiring Improvement</th><th>Status</th><th>Possible Barrier</th><th>Remarks</th></tr>");
+        for (DetailRow row : rows.details) {
+            html.append("<tr>")
+                    .append("<td>").append(row.clauseNo).append("</td>")
+                    .append("<td>").append(row.clauseName).append("</td>")
+                    .append("<td>").append(row.description).append("</td>")
+                    .append("<td>").append(row.areaRequireImprovement).append("</td>")
+                    .append("<td>").append(row.status).append("</td>")
+                    .append("<td>").append(row.possibleBarrier).append("</td>")
+                    .append("<td>").append(row.remarks).append("</td>")
+                    .append("</tr>");
+        }
+        html.append("</table>");
+
+        // Label Data Table
+        html.append("<h2>Label Data</h2><table>")
+                .append("<tr><th>Label</th><th>Template Text</th></tr>");
+        for (int i = 0; i < labelData.size(); i += 2) {
+            html.append("<tr>")
+                    .append("<td>").append(labelData.get(i)).append("</td>")
+                    .append("<td>").append(labelData.get(i + 1)).append("</td>")
+                    .append("</tr>");
+        }
+        html.append("</table>");
+
+        // Clause Data with Master Details
+        html.append("<h2>Clause Data with Master Details</h2><table>")
+                .append("<tr><th>Clause No</th><th>Clause Name</th><th>Master Description</th><th>Guidance</th><th>Description</th><th>Area Requiring Improvement</th><th>Status</th><th>Possible Barrier</th><th>Remarks</th></tr>");
+        for (DetailRow row : rows.details) {
+            html.append("<tr>")
+                    .append("<td>").append(row.clauseNo).append("</td>")
+                    .append("<td>").append(row.clauseName).append("</td>")
+                    .append("<td>").append(row.clauseDescription).append("</td>")
+                    .append("<td>").append(row.guidance).append("</td>")
+                    .append("<td>").append(row.description).append("</td>")
+                    .append("<td>").append(row.areaRequireImprovement).append("</td>")
+                    .append("<td>").append(row.status).append("</td>")
+                    .append("<td>").append(row.possibleBarrier).append("</td>")
+                    .append("<td>").append(row.remarks).append("</td>")
+                    .append("</tr>");
+        }
+        html.append("</table>");
+
+        // Status Counts
+        String[] statusNames = {"Nonexistent", "Initial", "Limited", "Defined", "Managed", "Optimized", "Not Applicable"};
+        html.append("<h2>Status Summary</h2><table>")
+                .append("<tr><th>Status</th><th>Count</th><th>Possible Barriers</th></tr>");
+        for (int i = 0; i < statusNames.length; i++) {
+            html.append("<tr><td>").append(statusNames[i]).append("</td><td>").append(rows.statusCounts[i])
+                    .append("</td><td>").append(rows.barrierCounts[i]).append("</td></tr>");
+        }
+        html.append("</table>");
+
+        html.append("</body></html>");
+
+        return html.toString();
+    }
+
     // POST Generate DOC Report
+    @ReadOnly
     @POST
     @Path("/generate-doc")
     @Consumes(MediaType.APPLICATION_JSON)
     @Produces("application/msword")
     public Response generateDocReport(@HeaderParam("company-code") String companyCode, @HeaderParam("employee-id") String userId, Map<String, Object> request) {
         Connection con = null;
-        PreparedStatement ps = null;
-        ResultSet res = null, res1 = null, res2 = null;
 
         String actualCompanyCode = companyCode;
         String loginType = "Client Login";
         String parentCompanyCode = companyCode;
         String actualCompanyName = "";
         String stdId = "";
-        String clauseName, description, guidance, templateText, newTemplateText;
-        String mergeMeetingDate = "", mergeMeetingTime = "", mergeContactPerson = "";
-        int nonexistentCount = 0, initialCount = 0, limitedCount = 0, definedCount = 0, managedCount = 0, optimizedCount = 0, notApplicableCount = 0;
-        int nonexistentPossible = 0, initialPossible = 0, limitedPossible = 0, definedPossible = 0, managedPossible = 0, optimizedPossible = 0, notApplicablePossible = 0;
 
         try {
             logger.info("Generating gap assessment DOC report for company_code: " + companyCode);
@@ -616,9 +477,6 @@ public class GapAssessmentReportResource {
             List<String> meetingDates = (List<String>) request.get("meeting_dates");
             List<String> labels = (List<String>) request.get("labels");
 
-            int meetingCount = (meetingDates == null) ? 0 : meetingDates.size();
-            int labelCount = (labels == null) ? 0 : labels.size();
-
             if (!ValidationUtil.isNotEmpty(stdName) || !ValidationUtil.isNotEmpty(department)) {
                 return Response.status(Response.Status.BAD_REQUEST)
                         .entity("<html><body><h1>Error: Standard name and department are required</h1></body></html>")
@@ -629,100 +487,21 @@ public class GapAssessmentReportResource {
             con = DBConfig.getConnection();
 
             // Fetch company name
-            String query;
-            if (loginType.equalsIgnoreCase("Certification body Client")) {
-                query = "SELECT company_name FROM CB_" + parentCompanyCode + "_company_registration WHERE company_code = ?";
-            } else if (loginType.equalsIgnoreCase("Consultant Client")) {
-                query = "SELECT company_name FROM CS_" + parentCompanyCode + "_company_registration WHERE company_code = ?";
-            } else if (loginType.equalsIgnoreCase("CPA Client")) {
-                query = "SELECT company_name FROM CPA_" + parentCompanyCode + "_company_registration WHERE company_code = ?";
-            } else {
-                query = "SELECT company_name FROM company_registration WHERE company_code = ?";
-            }
-            ps = con.prepareStatement(query);
-            ps.setString(1, actualCompanyCode);
-            res = ps.executeQuery();
-            if (res.next()) {
-                actualCompanyName = res.getString("company_name");
-            } else {
-                actualCompanyName = "Unknown Company";
-            }
-            res.close();
-            ps.close();
+            TenantRegistry.Tenant tenant = TenantRegistry.get(con, actualCompanyCode, loginType, parentCompanyCode);
+            actualCompanyName = tenant != null ? tenant.name : "Unknown Company";
 
             // Fetch std_id
-            query = "SELECT id FROM standard_master WHERE std_name = ?";
-            ps = con.prepareStatement(query);
-            ps.setString(1, stdName);
-            res = ps.executeQuery();
-            if (res.next()) {
-                stdId = res.getString("id");
-            } else {
+            stdId = StandardCatalog.getId(con, stdName);
+            if (stdId == null) {
                 return Response.status(Response.Status.BAD_REQUEST)
                         .entity("<html><body><h1>Error: Standard not found</h1></body></html>")
                         .type(MediaType.TEXT_HTML)
                         .build();
             }
-            res.close();
-            ps.close();
-
-            // Process gap assessment headers and details for counts
-            for (int j = 0; j < meetingCount; j++) {
-                query = "SELECT * FROM " + companyCode + "_gap_assessment_header WHERE std_id = ? AND department_name = ? AND meeting_date = ?";
-                ps = con.prepareStatement(query);
-                ps.setString(1, stdId);
-                ps.setString(2, department);
-                ps.setString(3, meetingDates.get(j));
-                res = ps.executeQuery();
-                if (res.next()) {
-                    mergeMeetingDate += res.getString("meeting_date") + ",";
-                    mergeMeetingTime += res.getString("meeting_time") + ",";
-                    mergeContactPerson += res.getString("contact_person") + ",";
-
-                    String headerId = res.getString("id");
-                    query = "SELECT * FROM " + companyCode + "_gap_assessment_detail WHERE gap_assessment_header_id = ?";
-                    ps = con.prepareStatement(query);
-                    ps.setString(1, headerId);
-                    res1 = ps.executeQuery();
-                    while (res1.next()) {
-                        String status = res1.getString("status");
-                        boolean isPossibleBarrier = res1.getString("possible_barrier_to_certification").equalsIgnoreCase("Yes");
-                        switch (status.toLowerCase()) {
-                            case "nonexistent":
-                                nonexistentCount++;
-                                if (isPossibleBarrier) nonexistentPossible++;
-                                break;
-                            case "initial":
-                                initialCount++;
-                                if (isPossibleBarrier) initialPossible++;
-                                break;
-                            case "limited":
-                                limitedCount++;
-                                if (isPossibleBarrier) limitedPossible++;
-                                break;
-                            case "defined":
-                                definedCount++;
-                                if (isPossibleBarrier) definedPossible++;
-                                break;
-                            case "managed":
-                                managedCount++;
-                                if (isPossibleBarrier) managedPossible++;
-                                break;
-                            case "optimized":
-                                optimizedCount++;
-                                if (isPossibleBarrier) optimizedPossible++;
-                                break;
-                            case "not applicable":
-                                notApplicableCount++;
-                                if (isPossibleBarrier) notApplicablePossible++;
-                                break;
-                        }
-                    }
-                    res1.close();
-                }
-                res.close();
-                ps.close();
-            }
+
+            // Headers, details and clause names of all meeting dates, with the counts
+            ReportRows rows = loadReportRows(con, companyCode, stdId, department, meetingDates);
+            Map<String, List<LabelTemplate>> templates = loadTemplates(con, stdName, labels);
 
             // Build DOC-compatible HTML
             StringBuilder html = new StringBuilder();
@@ -734,44 +513,30 @@ public class GapAssessmentReportResource {
                     .append("</table><br><br><br>");
 
             // Labels
-            for (int j = 0; j < labelCount; j++) {
-                query = "SELECT label, template_text FROM gap_assessment_template WHERE std_name = ? AND label = ?";
-                ps = con.prepareStatement(query);
-                ps.setString(1, stdName);
-                ps.setString(2, labels.get(j));
-                res1 = ps.executeQuery();
-                while (res1.next()) {
-                    templateText = res1.getString("template_text");
-                    newTemplateText = templateText.replaceAll("-CLIENT-", actualCompanyName)
-                            .replaceAll("-STANDARD-", stdName)
-                            .replaceAll("-UnderDefense-", "Niall Services Pvt. Ltd.");
-                    if (labels.get(j).equalsIgnoreCase("Key stakeholders interviewed")) {
-                        newTemplateText = newTemplateText.replaceAll("-DEPT-", department)
-                                .replaceAll("-M_DATE-", mergeMeetingDate)
-                                .replaceAll("-M_TIME-", mergeMeetingTime)
-                                .replaceAll("-C_PERSON-", mergeContactPerson);
+            if (labels != null) {
+                for (String label : labels) {
+                    Map<String, String> values = templateValues(label, actualCompanyName, stdName, department, rows);
+                    for (LabelTemplate template : templates.getOrDefault(key(label), new ArrayList<>())) {
+                        html.append("<h2>").append(template.label).append("</h2>")
+                                .append("<hr style=\"border: 1px solid black;\"><br>")
+                                .append("<span style=\"font-family: Calibri;\">");
+                        template.text.renderTo(html, values);
+                        html.append("</span><br><br>");
                     }
-                    html.append("<h2>").append(res1.getString("label")).append("</h2>")
-                            .append("<hr style=\"border: 1px solid black;\"><br>")
-                            .append("<span style=\"font-family: Calibri;\">").append(newTemplateText).append("</span><br><br>");
                 }
-                res1.close();
-                ps.close();
             }
 
             // Summary
+            String[] statusNames = {"Nonexistent", "Initial", "Limited", "Defined", "Managed", "Optimized", "Not applicable"};
             html.append("<h2>Summary</h2><hr style=\"border: 1px solid black;\"><br>")
                     .append("<table class=\"table1\" style=\"width:100%;border-width: 1px solid black;border-collapse: collapse\" border=\"1\">")
                     .append("<tbody>")
-                    .append("<tr><td><b>Status</b></td><td><b>No of findings</b></td><td><b>Possible barriers to certification</b></td></tr>")
-                    .append("<tr><td>Nonexistent</td><td>").append(nonexistentCount).append("</td><td>").append(nonexistentPossible).append("</td></tr>")
-                    .append("<tr><td>Initial</td><td>").append(initialCount).append("</td><td>").append(initialPossible).append("</td></tr>")
-                    .append("<tr><td>Limited</td><td>").append(limitedCount).append("</td><td>").append(limitedPossible).append("</td></tr>")
-                    .append("<tr><td>Defined</td><td>").append(definedCount).append("</td><td>").append(definedPossible).append("</td></tr>")
-                    .append("<tr><td>Managed</td><td>").append(managedCount).append("</td><td>").append(managedPossible).append("</td></tr>")
-                    .append("<tr><td>Optimized</td><td>").append(optimizedCount).append("</td><td>").append(optimizedPossible).append("</td></tr>")
-                    .append("<tr><td>Not applicable</td><td>").append(notApplicableCount).append("</td><td>").append(notApplicablePossible).append("</td></tr>")
-                    .append("</tbody></table>");
+                    .append("<tr><td><b>Status</b></td><td><b>No of findings</b></td><td><b>Possible barriers to certification</b></td></tr>");
+            for (int i = 0; i < statusNames.length; i++) {
+                html.append("<tr><td>").append(statusNames[i]).append("</td><td>").append(rows.statusCounts[i])
+                        .append("</td><td>").append(rows.barrierCounts[i]).append("</td></tr>");
+            }
+            html.append("</tbody></table>");
 
             // Roadmap
             html.append("<br><br><h2>RoadMap</h2><hr style=\"border: 1px solid black;\"><br>")
@@ -791,94 +556,34 @@ public class GapAssessmentReportResource {
                     .append("<td><b>Areas requiring improvement</b></td><td><b>Status/level of work required</b></td>")
                     .append("<td><b>Possible barrier to certification?</b></td><td><b>Remarks</b></td></tr>");
 
-            for (int j = 0; j < meetingCount; j++) {
-                query = "SELECT * FROM " + companyCode + "_gap_assessment_header WHERE std_id = ? AND department_name = ? AND meeting_date = ?";
-                ps = con.prepareStatement(query);
-                ps.setString(1, stdId);
-                ps.setString(2, department);
-                ps.setString(3, meetingDates.get(j));
-                res = ps.executeQuery();
-                if (res.next()) {
-                    String headerId = res.getString("id");
-                    query = "SELECT * FROM " + companyCode + "_gap_assessment_detail WHERE gap_assessment_header_id = ?";
-                    ps = con.prepareStatement(query);
-                    ps.setString(1, headerId);
-                    res1 = ps.executeQuery();
-                    while (res1.next()) {
-                        query = "SELECT name FROM clause_master WHERE std_id = ? AND number = ?";
-                        ps = con.prepareStatement(query);
-                        ps.setString(1, stdId);
-                        ps.setString(2, res1.getString("clause_no").replaceAll(" ", ""));
-                        res2 = ps.executeQuery();
-                        clauseName = res2.next() ? res2.getString("name") : "";
-                        res2.close();
-
-                        html.append("<tr>")
-                                .append("<td>").append(res1.getString("clause_no")).append(" ").append(clauseName).append("</td>")
-                                .append("<td>").append(res1.getString("description")).append("</td>")
-                                .append("<td>").append(res1.getString("area_require_improvement")).append("</td>")
-                                .append("<td>").append(res1.getString("status")).append("</td>")
-                                .append("<td>").append(res1.getString("possible_barrier_to_certification")).append("</td>")
-                                .append("<td>").append(res1.getString("remarks")).append("</td>")
-                                .append("</tr>");
-                    }
-                    res1.close();
-                }
-                res.close();
-                ps.close();
+            for (DetailRow row : rows.details) {
+                html.append("<tr>")
+                        .append("<td>").append(row.clauseNo).append(" ").append(row.clauseName).append("</td>")
+                        .append("<td>").append(row.description).append("</td>")
+                        .append("<td>").append(row.areaRequireImprovement).append("</td>")
+                        .append("<td>").append(row.status).append("</td>")
+                        .append("<td>").append(row.possibleBarrier).append("</td>")
+                        .append("<td>").append(row.remarks).append("</td>")
+                        .append("</tr>");
             }
             html.append("</tbody></table>");
 
             // Clause Detail Report
             html.append("<br><br><h2>Clause Detail Report</h2><hr style=\"border: 1px solid black;\"><br>");
 
-            for (int j = 0; j < meetingCount; j++) {
-                query = "SELECT * FROM " + companyCode + "_gap_assessment_header WHERE std_id = ? AND department_name = ? AND meeting_date = ?";
-                ps = con.prepareStatement(query);
-                ps.setString(1, stdId);
-                ps.setString(2, department);
-                ps.setString(3, meetingDates.get(j));
-                res = ps.executeQuery();
-                if (res.next()) {
-                    String headerId = res.getString("id");
-                    query = "SELECT * FROM " + companyCode + "_gap_assessment_detail WHERE gap_assessment_header_id = ?";
-                    ps = con.prepareStatement(query);
-                    ps.setString(1, headerId);
-                    res1 = ps.executeQuery();
-                    while (res1.next()) {
-                        query = "SELECT name, description, guidance FROM clause_master WHERE std_id = ? AND number = ?";
-                        ps = con.prepareStatement(query);
-                        ps.setString(1, stdId);
-                        ps.setString(2, res1.getString("clause_no").replaceAll(" ", ""));
-                        res2 = ps.executeQuery();
-                        if (res2.next()) {
-                            clauseName = res2.getString("name");
-                            description = res2.getString("description");
-                            guidance = res2.getString("guidance");
-                        } else {
-                            clauseName = "";
-                            description = "";
-                            guidance = "";
-                        }
-                        res2.close();
-
-                        html.append("<br><br>")
-                                .append("<table class=\"table1\" style=\"width:100%;border-width: 1px solid black;border-collapse: collapse\" border=\"1\">")
-                                .append("<tbody>")
-                                .append("<tr><td style=\"width: 15%\"><b>Clause</b></td><td>").append(res1.getString("clause_no")).append(" ").append(clauseName).append("</td></tr>")
-                                .append("<tr><td><b>Clause Description</b></td><td>").append(description).append("</td></tr>")
-                                .append("<tr><td><b>Clause Guidance</b></td><td>").append(guidance).append("</td></tr>")
-                                .append("<tr><td><b>What's already in place/working well</b></td><td>").append(res1.getString("description")).append("</td></tr>")
-                                .append("<tr><td><b>Areas requiring improvement</b></td><td>").append(res1.getString("area_require_improvement")).append("</td></tr>")
-                                .append("<tr><td><b>Status/level of work required</b></td><td>").append(res1.getString("status")).append("</td></tr>")
-                                .append("<tr><td><b>Possible barrier to certification?</b></td><td>").append(res1.getString("possible_barrier_to_certification")).append("</td></tr>")
-                                .append("<tr><td><b>Remarks</b></td><td>").append(res1.getString("remarks")).append("</td></tr>")
-                                .append("</tbody></table>");
-                    }
-                    res1.close();
-                }
-                res.close();
-                ps.close();
+            for (DetailRow row : rows.details) {
+                html.append("<br><br>")
+                        .append("<table class=\"table1\" style=\"width:100%;border-width: 1px solid black;border-collapse: collapse\" border=\"1\">")
+                        .append("<tbody>")
+                        .append("<tr><td style=\"width: 15%\"><b>Clause</b></td><td>").append(row.clauseNo).append(" ").append(row.clauseName).append("</td></tr>")
+                        .append("<tr><td><b>Clause Description</b></td><td>").append(row.clauseDescription).append("</td></tr>")
+                        .append("<tr><td><b>Clause Guidance</b></td><td>").append(row.guidance).append("</td></tr>")
+                        .append("<tr><td><b>What's already in place/working well</b></td><td>").append(row.description).append("</td></tr>")
+                        .append("<tr><td><b>Areas requiring improvement</b></td><td>").append(row.areaRequireImprovement).append("</td></tr>")
+                        .append("<tr><td><b>Status/level of work required</b></td><td>").append(row.status).append("</td></tr>")
+                        .append("<tr><td><b>Possible barrier to certification?</b></td><td>").append(row.possibleBarrier).append("</td></tr>")
+                        .append("<tr><td><b>Remarks</b></td><td>").append(row.remarks).append("</td></tr>")
+                        .append("</tbody></table>");
             }
 
             html.append("</body></html>");
@@ -897,10 +602,6 @@ public class GapAssessmentReportResource {
                     .build();
         } finally {
             try {
-                if (res != null) res.close();
-                if (res1 != null) res1.close();
-                if (res2 != null) res2.close();
-                if (ps != null) ps.close();
                 if (con != null) con.close();
             } catch (SQLException e) {
                 logger.warning("Error closing resources: " + e.getMessage());
@@ -908,6 +609,221 @@ public class GapAssessmentReportResource {
         }
     }
 
+    /**
+     * One gap assessment detail row joined with its clause_master entry.
+     */
+    static class DetailRow {
+        String clauseNo;
+        String clauseName = "";
+        String clauseDescription = "";
+        String guidance = "";
+        String description;
+        String areaRequireImprovement;
+        String status;
+        String possibleBarrier;
+        String remarks;
+    }
+
+    /**
+     * The report data of all requested meeting dates: the merged header fields,
+     * the detail rows in meeting date order and the status and barrier counts,
+     * indexed like {@link #STATUSES}.
+     */
+    static class ReportRows {
+        String mergeMeetingDate = "";
+        String mergeMeetingTime = "";
+        String mergeContactPerson = "";
+        final List<DetailRow> details = new ArrayList<>();
+        final int[] statusCounts = new int[STATUSES.length];
+        final int[] barrierCounts = new int[STATUSES.length];
+
+        /**
+         * Adds a detail row and counts its status and barrier.
+         */
+        void add(DetailRow row) {
+            details.add(row);
+            String status = row.status == null ? "" : row.status.toLowerCase(Locale.ROOT);
+            for (int i = 0; i < STATUSES.length; i++) {
+                if (STATUSES[i].equals(status)) {
+                    statusCounts[i]++;
+                    if ("Yes".equalsIgnoreCase(row.possibleBarrier)) barrierCounts[i]++;
+                    break;
+                }
+            }
+        }
+    }
+
+    /**
+     * Reads the report rows of the given meeting dates with two queries however
+     * many dates are requested: the headers of all dates and the details of those
+     * headers. Clause names come from the {@link ClauseCatalog}.
+     */
+    ReportRows loadReportRows(Connection con, String companyCode, String stdId, String department,
+                              List<String> meetingDates) throws SQLException {
+        ReportRows rows = new ReportRows();
+        if (meetingDates == null || meetingDates.isEmpty()) {
+            return rows;
+        }
+
+        // Headers of all dates; like the per-date lookup this keeps the first header of a date
+        Map<String, String[]> headersByDate = new HashMap<>();
+        String query = "SELECT id, meeting_date, meeting_time, contact_person FROM " + companyCode + "_gap_assessment_header " +
+                "WHERE std_id = ? AND department_name = ? AND meeting_date IN (" + placeholders(meetingDates.size()) + ") ORDER BY id";
+        try (PreparedStatement ps = con.prepareStatement(query)) {
+            ps.setString(1, stdId);
+            ps.setString(2, department);
+            for (int i = 0; i < meetingDates.size(); i++) {
+                ps.setString(i + 3, meetingDates.get(i));
+            }
+            try (ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) {
+                    headersByDate.putIfAbsent(key(rs.getString("meeting_date")), new String[]{
+                            rs.getString("id"), rs.getString("meeting_date"),
+                            rs.getString("meeting_time"), rs.getString("contact_person")});
+                }
+            }
+        }
+
+        List<String> headerIds = new ArrayList<>();
+        for (String meetingDate : meetingDates) {
+            String[] header = headersByDate.get(key(meetingDate));
+            if (header != null) {
+                rows.mergeMeetingDate += header[1] + ",";
+                rows.mergeMeetingTime += header[2] + ",";
+                rows.mergeContactPerson += header[3] + ",";
+                headerIds.add(header[0]);
+            }
+        }
+        if (headerIds.isEmpty()) {
+            return rows;
+        }
+
+        Map<String, List<DetailRow>> detailsByHeader = ChildLoader.load(con, companyCode + "_gap_assessment_detail",
+                "clause_no, description, area_require_improvement, status, possible_barrier_to_certification, remarks",
+                "gap_assessment_header_id", headerIds, rs -> {
+                    DetailRow row = new DetailRow();
+                    row.clauseNo = rs.getString("clause_no");
+                    row.description = rs.getString("description");
+                    row.areaRequireImprovement = rs.getString("area_require_improvement");
+                    row.status = rs.getString("status");
+                    row.possibleBarrier = rs.getString("possible_barrier_to_certification");
+                    row.remarks = rs.getString("remarks");
+                    return row;
+                });
+
+        // Clause names of the whole standard; details store clause_no with spaces, clause_master without
+        ClauseCatalog.ClauseTree clauses = ClauseCatalog.get(con, stdId);
+
+        for (String headerId : headerIds) {
+            for (DetailRow row : detailsByHeader.getOrDefault(headerId, new ArrayList<>())) {
+                ClauseCatalog.Clause clause = row.clauseNo == null ? null : clauses.get(row.clauseNo.replaceAll(" ", ""));
+                if (clause != null) {
+                    row.clauseName = clause.name;
+                    row.clauseDescription = clause.description;
+                    row.guidance = clause.guidance;
+                }
+                rows.add(row);
+            }
+        }
+        return rows;
+    }
+
+    /**
+     * A gap_assessment_template row with its text compiled.
+     */
+    static class LabelTemplate {
+        final String label;
+        final TextTemplate text;
+
+        LabelTemplate(String label, String templateText) {
+            this.label = label;
+            this.text = TextTemplate.compile(templateText, PLACEHOLDERS);
+        }
+    }
+
+    /**
+     * Returns the compiled templates of the given labels, keyed by {@link #key} of the label.
+     * Labels not cached yet are read together in one query.
+     */
+    private Map<String, List<LabelTemplate>> loadTemplates(Connection con, String stdName, List<String> labels) throws SQLException {
+        Map<String, List<LabelTemplate>> templates = new HashMap<>();
+        if (labels == null || labels.isEmpty()) {
+            return templates;
+        }
+
+        List<String> missing = new ArrayList<>();
+        for (String label : labels) {
+            List<LabelTemplate> cached = TEMPLATES.getIfPresent(templateKey(stdName, label));
+            if (cached != null) {
+                templates.put(key(label), cached);
+            } else if (!missing.contains(label)) {
+                missing.add(label);
+            }
+        }
+        if (missing.isEmpty()) {
+            return templates;
+        }
+
+        Map<String, List<LabelTemplate>> loaded = new HashMap<>();
+        String query = "SELECT label, template_text FROM gap_assessment_template WHERE std_name = ? AND label IN (" +
+                placeholders(missing.size()) + ")";
+        try (PreparedStatement ps = con.prepareStatement(query)) {
+            ps.setString(1, stdName);
+            for (int i = 0; i < missing.size(); i++) {
+                ps.setString(i + 2, missing.get(i));
+            }
+            try (ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) {
+                    loaded.computeIfAbsent(key(rs.getString("label")), k -> new ArrayList<>())
+                            .add(new LabelTemplate(rs.getString("label"), rs.getString("template_text")));
+                }
+            }
+        }
+
+        // Labels without templates are cached as empty so they are not queried again
+        for (String label : missing) {
+            List<LabelTemplate> found = loaded.getOrDefault(key(label), new ArrayList<>());
+            templates.put(key(label), TEMPLATES.get(templateKey(stdName, label), () -> found));
+        }
+        return templates;
+    }
+
+    /**
+     * The placeholder values of a label. Meeting details are filled in only for
+     * "Key stakeholders interviewed"; other labels keep those placeholders as written.
+     */
+    private static Map<String, String> templateValues(String label, String companyName, String stdName,
+                                                      String department, ReportRows rows) {
+        Map<String, String> values = new HashMap<>();
+        values.put("-CLIENT-", companyName);
+        values.put("-STANDARD-", stdName);
+        values.put("-UnderDefense-", "Niall Services Pvt. Ltd.");
+        if (label.equalsIgnoreCase("Key stakeholders interviewed")) {
+            values.put("-DEPT-", department);
+            values.put("-M_DATE-", rows.mergeMeetingDate);
+            values.put("-M_TIME-", rows.mergeMeetingTime);
+            values.put("-C_PERSON-", rows.mergeContactPerson);
+        }
+        return values;
+    }
+
+    private static String templateKey(String stdName, String label) {
+        return key(stdName) + "\n" + key(label);
+    }
+
+    // Lookup key matching MySQL's case-insensitive comparison that ignores trailing spaces
+    private static String key(String value) {
+        return value == null ? "" : value.stripTrailing().toLowerCase(Locale.ROOT);
+    }
+
+    private static String placeholders(int count) {
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < count; i++) {
+            sb.append(i == 0 ? "?" : ", ?");
+        }
+        return sb.toString();
+    }
+
     // Helper method to get rights ID
     private String getRightsId(Connection con, String companyCode, String deptId, String desigId) throws SQLException {
         String query = "SELECT id FROM " + companyCode + "_customer_rights WHERE dept_id = ? AND desig_id = ?";
@@ -925,16 +841,11 @@ public class GapAssessmentReportResource {
 
     // Helper method to get standard ID
     private String getStandardId(Connection con, String standardName) throws SQLException {
-        String query = "SELECT id FROM standard_master WHERE std_name = ?";
-        try (PreparedStatement pstmt = con.prepareStatement(query)) {
-            pstmt.setString(1, standardName);
-
-            ResultSet rs = pstmt.executeQuery();
-            if (rs.next()) {
-                return rs.getString("id");
-            }
+        String stdId = StandardCatalog.getId(con, standardName);
+        if (stdId == null) {
             throw new SQLException("Standard not found: " + standardName);
         }
+        return stdId;
     }
 
     // Helper method to generate PDF report
@@ -1,23 +1,36 @@
 package com.example;
 
+import com.example.util.ChildLoader;
 import com.example.util.DBConfig;
+import com.example.util.IdAllocator;
+import com.example.util.ReadOnly;
+import com.fasterxml.jackson.annotation.JsonInclude;
 import jakarta.ws.rs.*;
 import jakarta.ws.rs.core.MediaType;
 import jakarta.ws.rs.core.Response;
 import java.sql.*;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
+import java.util.Map;
 import java.util.logging.Logger;
 
 @Path("/gap-assessment")
 public class GapAssessmentResource {
     private static final Logger logger = Logger.getLogger(GapAssessmentResource.class.getName());
 
+    /** The _gap_assessment_detail columns read by {@link #mapDetail}. */
+    private static final String DETAIL_COLUMNS =
+            "clause_no, description, area_require_improvement, status, possible_barrier_to_certification";
+
+    // List all gap assessments with their details; ?include=none returns the header rows only
+    @ReadOnly
     @GET
     @Produces(MediaType.APPLICATION_JSON)
     public Response getGapAssessments(
             @HeaderParam("company-code") String companyCode,
-            @HeaderParam("employee-id") String userId) {
+            @HeaderParam("employee-id") String userId,
+            @QueryParam("include") @DefaultValue("details") String include) {
 
         try (Connection con = DBConfig.getConnection()) {
             String moduleId = getModuleId(con, companyCode);
@@ -28,7 +41,8 @@ public class GapAssessmentResource {
                         .build();
             }
 
-            List<GapAssessment> assessments = getGapAssessments(con, companyCode);
+            boolean includeDetails = Arrays.asList(include.trim().toLowerCase().split("\\s*,\\s*")).contains("details");
+            List<GapAssessment> assessments = getGapAssessments(con, companyCode, includeDetails);
             return Response.ok(assessments).build();
 
         } catch (SQLException e) {
@@ -175,7 +189,7 @@ public class GapAssessmentResource {
         }
     }
 
-    private List<GapAssessment> getGapAssessments(Connection con, String companyCode) throws SQLException {
+    private List<GapAssessment> getGapAssessments(Connection con, String companyCode, boolean includeDetails) throws SQLException {
         List<GapAssessment> assessments = new ArrayList<>();
         String query = "SELECT * FROM " + companyCode + "_gap_assessment_header";
 
@@ -191,10 +205,24 @@ public class GapAssessmentResource {
                 assessment.meetingTime = rs.getString("meeting_time");
                 assessment.contactPerson = rs.getString("contact_person");
                 assessment.remarks = rs.getString("remarks");
-                assessment.details = getGapAssessmentDetailsList(con, companyCode, assessment.id);
                 assessments.add(assessment);
             }
         }
+
+        if (!includeDetails || assessments.isEmpty()) {
+            return assessments;
+        }
+
+        // Details of every header in one pass instead of one query per header
+        List<String> headerIds = new ArrayList<>(assessments.size());
+        for (GapAssessment assessment : assessments) {
+            headerIds.add(assessment.id);
+        }
+        Map<String, List<GapAssessmentDetail>> details = ChildLoader.load(con, companyCode + "_gap_assessment_detail",
+                DETAIL_COLUMNS, "gap_assessment_header_id", headerIds, GapAssessmentResource::mapDetail);
+        for (GapAssessment assessment : assessments) {
+            assessment.details = details.getOrDefault(assessment.id, new ArrayList<>());
+        }
         return assessments;
     }
 
@@ -206,19 +234,23 @@ public class GapAssessmentResource {
             ps.setString(1, headerId);
             try (ResultSet rs = ps.executeQuery()) {
                 while (rs.next()) {
-                    GapAssessmentDetail detail = new GapAssessmentDetail();
-                    detail.clauseNo = rs.getString("clause_no");
-                    detail.description = rs.getString("description");
-                    detail.areaRequireImprovement = rs.getString("area_require_improvement");
-                    detail.status = rs.getString("status");
-                    detail.possibleBarrierToCertification = rs.getString("possible_barrier_to_certification");
-                    details.add(detail);
+                    details.add(mapDetail(rs));
                 }
             }
         }
         return details;
     }
 
+    private static GapAssessmentDetail mapDetail(ResultSet rs) throws SQLException {
+        GapAssessmentDetail detail = new GapAssessmentDetail();
+        detail.clauseNo = rs.getString("clause_no");
+        detail.description = rs.getString("description");
+        detail.areaRequireImprovement = rs.getString("area_require_improvement");
+        detail.status = rs.getString("status");
+        detail.possibleBarrierToCertification = rs.getString("possible_barrier_to_certification");
+        return detail;
+    }
+
     private GapAssessmentDetails getGapAssessmentDetails(Connection con, String companyCode, String id) throws SQLException {
         GapAssessmentDetails details = new GapAssessmentDetails();
         String query = "SELECT * FROM " + companyCode + "_gap_assessment_header WHERE id = ?";
@@ -242,16 +274,8 @@ public class GapAssessmentResource {
     }
 
     private String createGapAssessment(Connection con, String companyCode, GapAssessmentRequest request) throws SQLException {
-        String headerId = null;
-
-        // First, get the next available ID for header
-        String getNextIdQuery = "SELECT MAX(id) + 1 as next_id FROM " + companyCode + "_gap_assessment_header";
-        try (PreparedStatement ps = con.prepareStatement(getNextIdQuery);
-             ResultSet rs = ps.executeQuery()) {
-            if (rs.next()) {
-                headerId = String.valueOf(rs.getInt("next_id"));
-            }
-        }
+        // First, reserve the ID for the header
+        String headerId = String.valueOf(IdAllocator.nextId(con, companyCode + "_gap_assessment_header"));
 
         // Now insert with the explicit ID
         String headerQuery = "INSERT INTO " + companyCode + "_gap_assessment_header " +
@@ -260,11 +284,7 @@ public class GapAssessmentResource {
 
         try (PreparedStatement ps = con.prepareStatement(headerQuery)) {
             // Set the ID explicitly
-            if (headerId != null) {
-                ps.setInt(1, Integer.parseInt(headerId));
-            } else {
-                ps.setInt(1, 2); // Since we already have 0 and 1
-            }
+            ps.setInt(1, Integer.parseInt(headerId));
 
             // Handle null values for std_id
             if (request.std_id != 0) {
@@ -287,24 +307,13 @@ public class GapAssessmentResource {
         }
 
         if (headerId != null && request.details != null && !request.details.isEmpty()) {
-            // Get the next available ID for detail
-            String getNextDetailIdQuery = "SELECT MAX(id) + 1 as next_id FROM " + companyCode + "_gap_assessment_detail";
-            int nextDetailId = 1; // Default to 1 if no records exist
-
-            try (PreparedStatement ps = con.prepareStatement(getNextDetailIdQuery);
-                 ResultSet rs = ps.executeQuery()) {
-                if (rs.next()) {
-                    nextDetailId = rs.getInt("next_id");
-                }
-            }
-
             String detailQuery = "INSERT INTO " + companyCode + "_gap_assessment_detail " +
                     "(id, gap_assessment_header_id, clause_no, description, area_require_improvement, status, possible_barrier_to_certification) " +
                     "VALUES (?, ?, ?, ?, ?, ?, ?)";
 
             try (PreparedStatement ps = con.prepareStatement(detailQuery)) {
                 for (GapAssessmentDetail detail : request.details) {
-                    ps.setInt(1, nextDetailId++);
+                    ps.setInt(1, IdAllocator.nextId(con, companyCode + "_gap_assessment_detail"));
                     ps.setInt(2, Integer.parseInt(headerId));
                     ps.setString(3, detail.clauseNo);
                     ps.setString(4, detail.description);
@@ -352,24 +361,13 @@ public class GapAssessmentResource {
 
         // Insert new details
         if (request.details != null && !request.details.isEmpty()) {
-            // Get the next available ID for detail
-            String getNextDetailIdQuery = "SELECT MAX(id) + 1 as next_id FROM " + companyCode + "_gap_assessment_detail";
-            int nextDetailId = 1; // Default to 1 if no records exist
-
-            try (PreparedStatement ps = con.prepareStatement(getNextDetailIdQuery);
-                 ResultSet rs = ps.executeQuery()) {
-                if (rs.next()) {
-                    nextDetailId = rs.getInt("next_id");
-                }
-            }
-
             String detailQuery = "INSERT INTO " + companyCode + "_gap_assessment_detail " +
                     "(id, gap_assessment_header_id, clause_no, description, area_require_improvement, status, possible_barrier_to_certification) " +
                     "VALUES (?, ?, ?, ?, ?, ?, ?)";
 
             try (PreparedStatement ps = con.prepareStatement(detailQuery)) {
                 for (GapAssessmentDetail detail : request.details) {
-                    ps.setInt(1, nextDetailId++);
+                    ps.setInt(1, IdAllocator.nextId(con, companyCode + "_gap_assessment_detail"));
                     ps.setInt(2, Integer.parseInt(id));
                     ps.setString(3, detail.clauseNo);
                     ps.setString(4, detail.description);
@@ -406,6 +404,8 @@ public class GapAssessmentResource {
         public String meetingTime;
         public String contactPerson;
         public String remarks;
+        // Left out of the JSON with ?include=none
+        @JsonInclude(JsonInclude.Include.NON_NULL)
         public List<GapAssessmentDetail> details;
     }
 
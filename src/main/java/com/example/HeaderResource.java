@@ -6,13 +6,17 @@ import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
 import jakarta.ws.rs.*;
 import jakarta.ws.rs.core.MediaType;
 import jakarta.ws.rs.core.Response;
-import com.example.util.DBConfig;
 import com.example.util.ErrorHandler;
+import com.example.util.ExpiringCache;
+import com.example.util.ParallelQueries;
+import com.example.util.TenantRegistry;
 import com.example.util.ValidationUtil;
 
 @Path("/Header")
@@ -20,6 +24,20 @@ public class HeaderResource {
 
     private static final Logger logger = Logger.getLogger(HeaderResource.class.getName());
 
+    // Modules shown in the header menu, in display order
+    private static final List<String> HEADER_MODULES = List.of(
+            "AUDIT PLAN", "INTERNAL AUDIT", "EXTERNAL AUDIT PLAN", "EXTERNAL AUDIT", "GAP ASSESSMENT");
+
+    // /Header runs on every page navigation while access rows rarely change. The
+    // rows are edited outside this service, which should call DELETE
+    // /admin/module-access; the short expiry bounds how long a revoked right
+    // is still shown when it does not
+    private static final ExpiringCache<List<ModuleAccess>> MODULE_ACCESS = new ExpiringCache<>("moduleAccess", 60, 10000);
+    private static final ExpiringCache<List<String>> PACKAGE_MODULES = new ExpiringCache<>("packageModules", 300, 100);
+
+    // The package lookup from _package_validity is disabled, so every company uses category 0
+    private static final int PACKAGE_CATEGORY_ID = 0;
+
     public static class HeaderRequest {
         public String employeeName;
         public String employeeId;
@@ -77,11 +95,6 @@ public class HeaderResource {
     @Consumes(MediaType.APPLICATION_JSON)
     @Produces(MediaType.APPLICATION_JSON)
     public Response getHeaderData(HeaderRequest request) {
-        Connection con = null;
-        PreparedStatement ps = null;
-        ResultSet res = null;
-        ResultSet res1 = null;
-
         try {
             logger.info("Received header data request for employee: " + (request.employeeName != null ? request.employeeName : "null"));
 
@@ -100,31 +113,35 @@ public class HeaderResource {
                         "Invalid company code format: " + request.companyCode);
             }
 
-            con = DBConfig.getConnection();
-            
-            // Get user ID
-            String userId = "";
-            String query = "SELECT user_id FROM " + request.companyCode + "_user_master WHERE username = ?";
-            ps = con.prepareStatement(query);
-            ps.setString(1, request.employeeName);
-            res = ps.executeQuery();
-            
-            if (res.next()) {
-                userId = res.getString("user_id");
-                logger.info("Found user ID: " + userId + " for employee: " + request.employeeName);
-            } else {
-                return ErrorHandler.notFound("User not found", 
-                        "No user found with name: " + request.employeeName);
-            }
+            String userId;
+            String companyId;
+            List<ModuleAccess> moduleAccess;
+            List<String> modulesList = PACKAGE_MODULES.getIfPresent(packageKey());
 
-            // Get company ID based on login type
-            String companyId = getCompanyId(con, ps, res, request);
-            
-            // Get module access information
-            List<ModuleAccess> moduleAccess = getModuleAccess(con, ps, res, res1, request.companyCode, userId);
+            // The lookups are independent apart from module access needing the user ID,
+            // so they run in parallel on their own connections
+            try (ParallelQueries lookups = new ParallelQueries()) {
+                ParallelQueries.Subtask<Map.Entry<String, List<ModuleAccess>>> userTask = lookups.fork(con -> {
+                    String id = getUserId(con, request.companyCode, request.employeeName);
+                    return id == null ? null : Map.entry(id, getModuleAccess(con, request.companyCode, id));
+                });
+                ParallelQueries.Subtask<String> companyTask = lookups.fork(con -> getCompanyId(con, request));
+                ParallelQueries.Subtask<List<String>> modulesTask = modulesList != null ? null
+                        : lookups.fork(con -> getModulesList(con, request.actualCompanyCode));
+                lookups.join();
 
-            // Get package modules list
-            List<String> modulesList = getModulesList(con, ps, res, request.actualCompanyCode);
+                if (userTask.get() == null) {
+                    return ErrorHandler.notFound("User not found", 
+                            "No user found with name: " + request.employeeName);
+                }
+                userId = userTask.get().getKey();
+                moduleAccess = userTask.get().getValue();
+                companyId = companyTask.get();
+                if (modulesTask != null) {
+                    modulesList = modulesTask.get();
+                }
+            }
+            logger.info("Found user ID: " + userId + " for employee: " + request.employeeName);
 
             // Create HeaderData object
             HeaderData headerData = new HeaderData(userId, companyId, moduleAccess, modulesList);
@@ -136,158 +153,82 @@ public class HeaderResource {
             return ErrorHandler.serverError("Database error occurred: " + e.getMessage(), e);
         } catch (Exception e) {
             return ErrorHandler.serverError("An unexpected error occurred: " + e.getMessage(), e);
-        } finally {
-            closeResources(res, res1, ps, con);
         }
     }
-    
-    private String getCompanyId(Connection con, PreparedStatement ps, ResultSet res, HeaderRequest request) throws SQLException {
-        String companyId = "";
-        String query;
-        
-        if (request.loginType.equalsIgnoreCase("Certification body Client")) {
-            query = "SELECT * FROM CB_" + request.parentCompanyCode + "_company_registration WHERE company_code = ?";
-            ps = con.prepareStatement(query);
-            ps.setString(1, request.actualCompanyCode);
-            res = ps.executeQuery();
-            if (res.next()) {
-                companyId = res.getString("id");
-            }
-        } else if (request.loginType.equalsIgnoreCase("Consultant Client")) {
-            query = "SELECT * FROM CS_" + request.parentCompanyCode + "_company_registration WHERE company_code = ?";
-            ps = con.prepareStatement(query);
-            ps.setString(1, request.actualCompanyCode);
-            res = ps.executeQuery();
-            if (res.next()) {
-                companyId = res.getString("id");
-            }
-        } else if (request.loginType.equalsIgnoreCase("CPA Client")) {
-            query = "SELECT * FROM CPA_" + request.parentCompanyCode + "_company_registration WHERE company_code = ?";
-            ps = con.prepareStatement(query);
-            ps.setString(1, request.actualCompanyCode);
-            res = ps.executeQuery();
-            if (res.next()) {
-                companyId = res.getString("id");
-            }
-        } else if (request.loginType.equalsIgnoreCase("Client Login")) {
-            query = "SELECT * FROM company_registration WHERE company_code = ?";
-            ps = con.prepareStatement(query);
-            ps.setString(1, request.actualCompanyCode);
-            res = ps.executeQuery();
-            if (res.next()) {
-                companyId = res.getString("id");
+
+    private String getUserId(Connection con, String companyCode, String employeeName) throws SQLException {
+        String query = "SELECT user_id FROM " + companyCode + "_user_master WHERE username = ?";
+        try (PreparedStatement ps = con.prepareStatement(query)) {
+            ps.setString(1, employeeName);
+            try (ResultSet res = ps.executeQuery()) {
+                return res.next() ? res.getString("user_id") : null;
             }
         }
-        
-        return companyId;
     }
     
-    private List<ModuleAccess> getModuleAccess(Connection con, PreparedStatement ps, ResultSet res, ResultSet res1, 
-            String companyCode, String userId) throws SQLException {
-        
-        List<ModuleAccess> moduleAccess = new ArrayList<>();
-        String moduleId;
-        String query;
-        
-        // Get module access for Audit Plan
-        query = "SELECT module_id FROM " + companyCode + "_module_master WHERE module_name = 'AUDIT PLAN'";
-        ps = con.prepareStatement(query);
-        res = ps.executeQuery();
-        if (res.next()) {
-            moduleId = res.getString("module_id");
-            
-            query = "SELECT * FROM " + companyCode + "_user_module_access WHERE user_id = ? AND module_id = ?";
-            ps = con.prepareStatement(query);
-            ps.setString(1, userId);
-            ps.setString(2, moduleId);
-            res1 = ps.executeQuery();
-            if (res1.next()) {
-                boolean viewAccess = "Yes".equalsIgnoreCase(res1.getString("view_access"));
-                moduleAccess.add(new ModuleAccess(moduleId, "AUDIT PLAN", viewAccess));
-            }
+    private String getCompanyId(Connection con, HeaderRequest request) throws SQLException {
+        // Only client login types have a company id in the header
+        if (!request.loginType.equalsIgnoreCase("Client Login")
+                && !request.loginType.equalsIgnoreCase("Certification body Client")
+                && !request.loginType.equalsIgnoreCase("Consultant Client")
+                && !request.loginType.equalsIgnoreCase("CPA Client")) {
+            return "";
         }
-        
-        // Get module access for Internal Audit
-        query = "SELECT module_id FROM " + companyCode + "_module_master WHERE module_name = 'INTERNAL AUDIT'";
-        ps = con.prepareStatement(query);
-        res = ps.executeQuery();
-        if (res.next()) {
-            moduleId = res.getString("module_id");
-            
-            query = "SELECT * FROM " + companyCode + "_user_module_access WHERE user_id = ? AND module_id = ?";
-            ps = con.prepareStatement(query);
-            ps.setString(1, userId);
-            ps.setString(2, moduleId);
-            res1 = ps.executeQuery();
-            if (res1.next()) {
-                boolean viewAccess = "Yes".equalsIgnoreCase(res1.getString("view_access"));
-                moduleAccess.add(new ModuleAccess(moduleId, "INTERNAL AUDIT", viewAccess));
-            }
+        TenantRegistry.Tenant tenant = TenantRegistry.get(con, request.actualCompanyCode, request.loginType,
+                request.parentCompanyCode);
+        return tenant != null ? tenant.id : "";
+    }
+    
+    /**
+     * Returns the user's access to the header modules, from the cache when the
+     * matrix was read recently.
+     */
+    private List<ModuleAccess> getModuleAccess(Connection con, String companyCode, String userId) throws SQLException {
+        return MODULE_ACCESS.get(companyCode + "|" + userId, () -> loadModuleAccess(con, companyCode, userId));
+    }
+
+    /**
+     * Reads the user's access to every header module with one join, in the
+     * order of {@link #HEADER_MODULES}. Modules without an access row are left out.
+     */
+    private List<ModuleAccess> loadModuleAccess(Connection con, String companyCode, String userId) throws SQLException {
+        StringBuilder query = new StringBuilder("SELECT mm.module_id, mm.module_name, uma.view_access ")
+                .append("FROM ").append(companyCode).append("_module_master mm ")
+                .append("JOIN ").append(companyCode).append("_user_module_access uma ON uma.module_id = mm.module_id ")
+                .append("WHERE uma.user_id = ? AND mm.module_name IN (");
+        for (int i = 0; i < HEADER_MODULES.size(); i++) {
+            query.append(i == 0 ? "?" : ", ?");
         }
-        
-        // Get module access for External Audit Plan
-        query = "SELECT module_id FROM " + companyCode + "_module_master WHERE module_name = 'EXTERNAL AUDIT PLAN'";
-        ps = con.prepareStatement(query);
-        res = ps.executeQuery();
-        if (res.next()) {
-            moduleId = res.getString("module_id");
-            
-            query = "SELECT * FROM " + companyCode + "_user_module_access WHERE user_id = ? AND module_id = ?";
-            ps = con.prepareStatement(query);
+        query.append(") ORDER BY mm.module_id");
+
+        Map<String, ModuleAccess> byName = new HashMap<>();
+        try (PreparedStatement ps = con.prepareStatement(query.toString())) {
             ps.setString(1, userId);
-            ps.setString(2, moduleId);
-            res1 = ps.executeQuery();
-            if (res1.next()) {
-                boolean viewAccess = "Yes".equalsIgnoreCase(res1.getString("view_access"));
-                moduleAccess.add(new ModuleAccess(moduleId, "EXTERNAL AUDIT PLAN", viewAccess));
+            for (int i = 0; i < HEADER_MODULES.size(); i++) {
+                ps.setString(i + 2, HEADER_MODULES.get(i));
             }
-        }
-        
-        // Get module access for External Audit
-        query = "SELECT module_id FROM " + companyCode + "_module_master WHERE module_name = 'EXTERNAL AUDIT'";
-        ps = con.prepareStatement(query);
-        res = ps.executeQuery();
-        if (res.next()) {
-            moduleId = res.getString("module_id");
-            
-            query = "SELECT * FROM " + companyCode + "_user_module_access WHERE user_id = ? AND module_id = ?";
-            ps = con.prepareStatement(query);
-            ps.setString(1, userId);
-            ps.setString(2, moduleId);
-            res1 = ps.executeQuery();
-            if (res1.next()) {
-                boolean viewAccess = "Yes".equalsIgnoreCase(res1.getString("view_access"));
-                moduleAccess.add(new ModuleAccess(moduleId, "EXTERNAL AUDIT", viewAccess));
+            try (ResultSet res = ps.executeQuery()) {
+                while (res.next()) {
+                    String moduleName = res.getString("module_name").trim().toUpperCase();
+                    byName.putIfAbsent(moduleName, new ModuleAccess(res.getString("module_id"), moduleName,
+                            "Yes".equalsIgnoreCase(res.getString("view_access"))));
+                }
             }
         }
-        
-        // Get module access for Gap Assessment
-        query = "SELECT module_id FROM " + companyCode + "_module_master WHERE module_name = 'GAP ASSESSMENT'";
-        ps = con.prepareStatement(query);
-        res = ps.executeQuery();
-        if (res.next()) {
-            moduleId = res.getString("module_id");
-            
-            query = "SELECT * FROM " + companyCode + "_user_module_access WHERE user_id = ? AND module_id = ?";
-            ps = con.prepareStatement(query);
-            ps.setString(1, userId);
-            ps.setString(2, moduleId);
-            res1 = ps.executeQuery();
-            if (res1.next()) {
-                boolean viewAccess = "Yes".equalsIgnoreCase(res1.getString("view_access"));
-                moduleAccess.add(new ModuleAccess(moduleId, "GAP ASSESSMENT", viewAccess));
+
+        List<ModuleAccess> moduleAccess = new ArrayList<>();
+        for (String moduleName : HEADER_MODULES) {
+            ModuleAccess access = byName.get(moduleName);
+            if (access != null) {
+                moduleAccess.add(access);
             }
         }
-        
-        return moduleAccess;
+        return List.copyOf(moduleAccess);
     }
-    
-    private List<String> getModulesList(Connection con, PreparedStatement ps, ResultSet res, String actualCompanyCode) throws SQLException {
-        List<String> modulesList = new ArrayList<>();
-        int packageCategoryId = 0;
-        int packageCategoryModuleId = 0;
-        String query;
-        
+
+    private List<String> getModulesList(Connection con, String actualCompanyCode) throws SQLException {
+        int packageCategoryId = PACKAGE_CATEGORY_ID;
+
         /*
         query = "SELECT package_category_id FROM " + actualCompanyCode + "_package_validity";
         ps = con.prepareStatement(query);
@@ -296,34 +237,41 @@ public class HeaderResource {
             packageCategoryId = res.getInt("package_category_id");
         }
         */
-        
-        query = "SELECT id FROM package_category_modules WHERE id = ?";
-        ps = con.prepareStatement(query);
-        ps.setInt(1, packageCategoryId);
-        res = ps.executeQuery();
-        if (res.next()) {
-            packageCategoryModuleId = res.getInt("id");
-        }
-        
-        query = "SELECT * FROM package_category_modules_detail WHERE package_category_modules_id = ?";
-        ps = con.prepareStatement(query);
-        ps.setInt(1, packageCategoryModuleId);
-        res = ps.executeQuery();
-        while (res.next()) {
-            modulesList.add(res.getString("module_name"));
-        }
-        
-        return modulesList;
+
+        // The package row only echoed its own id back, so the details are read directly
+        return PACKAGE_MODULES.get(packageKey(), () -> {
+            List<String> modulesList = new ArrayList<>();
+            String query = "SELECT module_name FROM package_category_modules_detail WHERE package_category_modules_id = ?";
+            try (PreparedStatement ps = con.prepareStatement(query)) {
+                ps.setInt(1, packageCategoryId);
+                try (ResultSet res = ps.executeQuery()) {
+                    while (res.next()) {
+                        modulesList.add(res.getString("module_name"));
+                    }
+                }
+            }
+            return List.copyOf(modulesList);
+        });
     }
 
-    private void closeResources(ResultSet res, ResultSet res1, PreparedStatement ps, Connection con) {
-        try {
-            if (res != null) res.close();
-            if (res1 != null) res1.close();
-            if (ps != null) ps.close();
-            if (con != null) con.close();
-        } catch (SQLException e) {
-            logger.warning("Error closing resources: " + e.getMessage());
+    private static String packageKey() {
+        return String.valueOf(PACKAGE_CATEGORY_ID);
+    }
+
+    /**
+     * Drops the cached module access of one user, or of every user of the
+     * company when userId is null. Call after changing _user_module_access or
+     * _module_master rows.
+     *
+     * @param companyCode The company code
+     * @param userId The user, or null for the whole company
+     */
+    public static void invalidateModuleAccess(String companyCode, String userId) {
+        if (userId == null) {
+            MODULE_ACCESS.invalidatePrefix(companyCode + "|");
+        } else {
+            MODULE_ACCESS.invalidate(companyCode + "|" + userId);
         }
+        logger.info("Invalidated module access cache for " + companyCode + (userId == null ? "" : " user " + userId));
     }
 }
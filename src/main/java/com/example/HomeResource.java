@@ -13,6 +13,7 @@ import jakarta.ws.rs.core.MediaType;
 import jakarta.ws.rs.core.Response;
 import com.example.util.DBConfig;
 import com.example.util.ErrorHandler;
+import com.example.util.TenantRegistry;
 import com.example.util.ValidationUtil;
 
 @Path("/Home")
@@ -76,19 +77,13 @@ public class HomeResource {
             con = DBConfig.getConnection();
             
             // Get company ID
-            String companyId = "";
-            String query = "SELECT id FROM company_registration WHERE company_code = ?";
-            ps = con.prepareStatement(query);
-            ps.setString(1, request.companyCode);
-            res = ps.executeQuery();
-            
-            if (res.next()) {
-                companyId = res.getString("id");
-                logger.info("Found company ID: " + companyId + " for company code: " + request.companyCode);
-            } else {
+            TenantRegistry.Tenant tenant = TenantRegistry.get(con, request.companyCode);
+            if (tenant == null) {
                 return ErrorHandler.notFound("Company not found", 
                         "No company found with code: " + request.companyCode);
             }
+            String companyId = tenant.id;
+            logger.info("Found company ID: " + companyId + " for company code: " + request.companyCode);
 
             // Initialize lists for standard names and categories
             List<String> stdNameList = new ArrayList<>();
@@ -1,6 +1,14 @@
 package com.example;
 
+import com.example.util.AuditLogWriter;
+import com.example.util.ClauseCatalog;
 import com.example.util.DBConfig;
+import com.example.util.IdAllocator;
+import com.example.util.ParallelQueries;
+import com.example.util.ReadOnly;
+import com.example.util.SedexIndex;
+import com.example.util.StandardCatalog;
+import com.example.util.TenantRegistry;
 import com.itextpdf.text.*;
 import com.itextpdf.text.pdf.PdfPCell;
 import com.itextpdf.text.pdf.PdfPTable;
@@ -13,6 +21,7 @@ import jakarta.ws.rs.core.Response.Status;
 import java.io.ByteArrayOutputStream;
 import java.sql.*;
 import java.text.SimpleDateFormat;
+import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
 import java.util.*;
@@ -225,24 +234,16 @@ public class InternalAuditResource {
             String scope = (String) request.get("scope");
 
             // Get standard ID
-            String stdId = "";
-            String query = "SELECT id FROM standard_master WHERE std_name = ?";
-            try (PreparedStatement ps = con.prepareStatement(query)) {
-                ps.setString(1, standardName);
-                try (ResultSet rs = ps.executeQuery()) {
-                    if (rs.next()) {
-                        stdId = rs.getString("id");
-                    } else {
-                        con.rollback();
-                        return Response.status(Status.BAD_REQUEST)
-                                .entity(new InternalAuditResponse(false, "Invalid standard name"))
-                                .build();
-                    }
-                }
+            String stdId = StandardCatalog.getId(con, standardName);
+            if (stdId == null) {
+                con.rollback();
+                return Response.status(Status.BAD_REQUEST)
+                        .entity(new InternalAuditResponse(false, "Invalid standard name"))
+                        .build();
             }
 
             // Check for duplicate audit
-            query = "SELECT * FROM " + companyCode + "_internal_audit_master WHERE audit_no = ? AND std_id = ? AND audit_plan_id = ?";
+            String query = "SELECT * FROM " + companyCode + "_internal_audit_master WHERE audit_no = ? AND std_id = ? AND audit_plan_id = ?";
             try (PreparedStatement ps = con.prepareStatement(query)) {
                 ps.setString(1, auditNo);
                 ps.setString(2, stdId);
@@ -258,15 +259,7 @@ public class InternalAuditResource {
             }
 
             // Get next internal audit ID
-            int maxInternalAuditId = 0;
-            query = "SELECT MAX(id) as max_id FROM " + companyCode + "_internal_audit_master";
-            try (PreparedStatement ps = con.prepareStatement(query);
-                 ResultSet rs = ps.executeQuery()) {
-                if (rs.next()) {
-                    maxInternalAuditId = rs.getInt("max_id");
-                }
-            }
-            maxInternalAuditId++;
+            int maxInternalAuditId = IdAllocator.nextId(con, companyCode + "_internal_audit_master");
 
             // Insert internal audit
             query = "INSERT INTO " + companyCode + "_internal_audit_master " +
@@ -318,32 +311,11 @@ public class InternalAuditResource {
             }
 
             // Log the action
-            int maxLogId = 0;
             DateTimeFormatter dtf = DateTimeFormatter.ofPattern("yyyy-MM-dd");
             String todayDate = LocalDateTime.now().format(dtf);
 
-            query = "SELECT MAX(id) as max_id FROM " + companyCode + "_log_master";
-            try (PreparedStatement ps = con.prepareStatement(query);
-                 ResultSet rs = ps.executeQuery()) {
-                if (rs.next()) {
-                    maxLogId = rs.getInt("max_id");
-                }
-            }
-            maxLogId++;
-
-            query = "INSERT INTO " + companyCode + "_log_master " +
-                    "(id, fired_date, fired_by, status, module_name, module_id) VALUES (?, ?, ?, ?, ?, ?)";
-            try (PreparedStatement logStmt = con.prepareStatement(query)) {
-                logStmt.setInt(1, maxLogId);
-                logStmt.setString(2, todayDate);
-                logStmt.setString(3, employeeName);
-                logStmt.setString(4, "Create");
-                logStmt.setString(5, "Internal Audit");
-                logStmt.setString(6, String.valueOf(maxInternalAuditId));
-                logStmt.executeUpdate();
-            }
-
             con.commit();
+            AuditLogWriter.log(companyCode, todayDate, employeeName, "Create", "Internal Audit", String.valueOf(maxInternalAuditId));
 
 
             // Create response with redirect information
@@ -377,33 +349,21 @@ public class InternalAuditResource {
 
         try (Connection con = DBConfig.getConnection()) {
             // Get standard ID
-            String stdId = "";
-            String query = "SELECT id FROM standard_master WHERE std_name = ?";
-            try (PreparedStatement ps = con.prepareStatement(query)) {
-                ps.setString(1, standardName);
-                try (ResultSet rs = ps.executeQuery()) {
-                    if (rs.next()) {
-                        stdId = rs.getString("id");
-                    }
-                }
+            String stdId = StandardCatalog.getId(con, standardName);
+            if (stdId == null) {
+                stdId = "";
             }
 
             // Get clause details
             List<Map<String, Object>> clauseDetailsList = new ArrayList<>();
-            query = "SELECT * FROM clause_master WHERE std_id= ? ";
-            try (PreparedStatement ps = con.prepareStatement(query)) {
-                ps.setString(1, stdId);
-                try (ResultSet rs = ps.executeQuery()) {
-                    while (rs.next()) {
-                        Map<String, Object> clauseDetails = new HashMap<>();
-                        clauseDetails.put("name", rs.getString("name"));
-                        clauseDetails.put("description", rs.getString("description"));
-                        clauseDetails.put("requirement", rs.getString("requirement"));
-                        clauseDetails.put("guidance", rs.getString("guidance"));
-                        clauseDetails.put("clauseRequiredDocument", rs.getString("clause_required_document"));
-                        clauseDetailsList.add(clauseDetails);
-                    }
-                }
+            for (ClauseCatalog.Clause clause : ClauseCatalog.get(con, stdId).getClauses()) {
+                Map<String, Object> clauseDetails = new HashMap<>();
+                clauseDetails.put("name", clause.name);
+                clauseDetails.put("description", clause.description);
+                clauseDetails.put("requirement", clause.requirement);
+                clauseDetails.put("guidance", clause.guidance);
+                clauseDetails.put("clauseRequiredDocument", clause.requiredDocument);
+                clauseDetailsList.add(clauseDetails);
             }
 
             return Response.ok(clauseDetailsList).build();
@@ -618,18 +578,9 @@ public class InternalAuditResource {
             }
 
             // 2. Get standard ID with null check
-            String stdId = "";
-            query = "SELECT id FROM standard_master WHERE std_name = ?";
-            try (PreparedStatement ps = con.prepareStatement(query)) {
-                ps.setString(1, standardName);
-                try (ResultSet rs = ps.executeQuery()) {
-                    if (rs.next()) {
-                        stdId = rs.getString("id");
-                    }
-                }
-            }
+            String stdId = StandardCatalog.getId(con, standardName);
 
-            if (stdId.isEmpty()) {
+            if (stdId == null || stdId.isEmpty()) {
                 return Response.status(Response.Status.BAD_REQUEST)
                         .entity(Map.of("success", false, "message", "Invalid standard name"))
                         .build();
@@ -663,15 +614,7 @@ public class InternalAuditResource {
             }
 
             // 5. Get next ID
-            int nextId = 1;
-            query = "SELECT MAX(id) FROM " + companyCode + "_internal_audit_detail";
-            try (PreparedStatement ps = con.prepareStatement(query)) {
-                try (ResultSet rs = ps.executeQuery()) {
-                    if (rs.next()) {
-                        nextId = rs.getInt(1) + 1;
-                    }
-                }
-            }
+            int nextId = IdAllocator.nextId(con, companyCode + "_internal_audit_detail");
 
             // 6. Insert audit info
             query = "INSERT INTO " + companyCode + "_internal_audit_detail " +
@@ -744,29 +687,10 @@ public class InternalAuditResource {
             return Response.status(Response.Status.BAD_REQUEST).entity(response).build();
         }
 
-        try (Connection conn = DBConfig.getConnection()) {
-            String sql = "SELECT DISTINCT Subcategory AS label, Subcategory AS value " +
-                    "FROM sedex_nonconformities " +
-                    "WHERE workplace_requirement = ? " +
-                    "ORDER BY Subcategory";
-
-            List<Map<String, String>> subCategories = new ArrayList<>();
-
-            try (PreparedStatement pstmt = conn.prepareStatement(sql)) {
-                pstmt.setString(1, workplace);
-                ResultSet rs = pstmt.executeQuery();
-
-                while (rs.next()) {
-                    Map<String, String> subCategory = new HashMap<>();
-                    subCategory.put("label", rs.getString("label"));
-                    subCategory.put("value", rs.getString("value"));
-                    subCategories.add(subCategory);
-                }
-            }
-
+        try {
             response.put("success", true);
             response.put("message", "Sub categories retrieved successfully");
-            response.put("data", subCategories);
+            response.put("data", labelValues(SedexIndex.getSubCategories(workplace)));
             return Response.ok(response).build();
 
         } catch (SQLException e) {
@@ -802,30 +726,58 @@ public class InternalAuditResource {
             return Response.status(Response.Status.BAD_REQUEST).entity(response).build();
         }
 
-        try (Connection conn = DBConfig.getConnection()) {
-            String sql = "SELECT DISTINCT New_Issue_Title AS label, New_Issue_Title AS value " +
-                    "FROM sedex_nonconformities " +
-                    "WHERE workplace_requirement = ? AND Subcategory = ? " +
-                    "ORDER BY New_Issue_Title";
+        try {
+            response.put("success", true);
+            response.put("message", "Issue titles retrieved successfully");
+            response.put("data", labelValues(SedexIndex.getIssueTitles(workplace, subCategory)));
+            return Response.ok(response).build();
+
+        } catch (SQLException e) {
+            e.printStackTrace();
+            response.put("success", false);
+            response.put("message", "Database error occurred");
+            return Response.status(Response.Status.INTERNAL_SERVER_ERROR).entity(response).build();
+        }
+    }
 
-            List<Map<String, String>> issueTitles = new ArrayList<>();
+    /**
+     * Finds issue titles starting with the typed text, across all workplace
+     * requirements, for the title autocomplete.
+     */
+    @GET
+    @Path("/issue-titles/search")
+    @Produces(MediaType.APPLICATION_JSON)
+    public Response searchIssueTitles(
+            @HeaderParam("company-code") String companyCode,
+            @QueryParam("q") String prefix,
+            @QueryParam("limit") @DefaultValue("20") int limit) {
 
-            try (PreparedStatement pstmt = conn.prepareStatement(sql)) {
-                pstmt.setString(1, workplace);
-                pstmt.setString(2, subCategory);
-                ResultSet rs = pstmt.executeQuery();
+        Map<String, Object> response = new HashMap<>();
+        if (companyCode == null || companyCode.trim().isEmpty()) {
+            response.put("success", false);
+            response.put("message", "Company code is required");
+            return Response.status(Response.Status.BAD_REQUEST).entity(response).build();
+        }
+        if (prefix == null || prefix.trim().isEmpty()) {
+            response.put("success", false);
+            response.put("message", "Search text is required");
+            return Response.status(Response.Status.BAD_REQUEST).entity(response).build();
+        }
 
-                while (rs.next()) {
-                    Map<String, String> title = new HashMap<>();
-                    title.put("label", rs.getString("label"));
-                    title.put("value", rs.getString("value"));
-                    issueTitles.add(title);
-                }
+        try {
+            List<Map<String, String>> matches = new ArrayList<>();
+            for (SedexIndex.Issue issue : SedexIndex.searchIssueTitles(prefix.trim(), Math.max(1, Math.min(limit, 100)))) {
+                Map<String, String> match = new HashMap<>();
+                match.put("label", issue.title);
+                match.put("value", issue.title);
+                match.put("workplace", issue.workplace);
+                match.put("subCategory", issue.subCategory);
+                matches.add(match);
             }
 
             response.put("success", true);
             response.put("message", "Issue titles retrieved successfully");
-            response.put("data", issueTitles);
+            response.put("data", matches);
             return Response.ok(response).build();
 
         } catch (SQLException e) {
@@ -867,24 +819,12 @@ public class InternalAuditResource {
             return Response.status(Response.Status.BAD_REQUEST).entity(response).build();
         }
 
-        try (Connection conn = DBConfig.getConnection()) {
-            String sql = "SELECT verification_method, Recomended_Completion " +
-                    "FROM sedex_nonconformities " +
-                    "WHERE  workplace_requirement = ? " +
-                    "AND Subcategory = ? AND New_Issue_Title = ? LIMIT 1";
-
+        try {
             Map<String, String> details = new HashMap<>();
-
-            try (PreparedStatement pstmt = conn.prepareStatement(sql)) {
-                pstmt.setString(1, workplace);
-                pstmt.setString(2, subCategory);
-                pstmt.setString(3, issueTitle);
-                ResultSet rs = pstmt.executeQuery();
-
-                if (rs.next()) {
-                    details.put("verificationMethod", rs.getString("verification_method"));
-                    details.put("timeScale", rs.getString("time_scale"));
-                }
+            SedexIndex.Issue issue = SedexIndex.getIssue(workplace, subCategory, issueTitle);
+            if (issue != null) {
+                details.put("verificationMethod", issue.verificationMethod);
+                details.put("timeScale", issue.completion);
             }
 
             response.put("success", true);
@@ -907,25 +847,11 @@ public class InternalAuditResource {
     public Response getWorkplaceRequirements(
             @HeaderParam("company-code") String companyCode) {
 
-        try (Connection con = DBConfig.getConnection()) {
-            List<Map<String, String>> requirements = new ArrayList<>();
-            String query = "SELECT DISTINCT Workplace_Requirement FROM sedex_nonconformities WHERE id > 0";
-
-            try (PreparedStatement ps = con.prepareStatement(query);
-                 ResultSet rs = ps.executeQuery()) {
-                while (rs.next()) {
-                    Map<String, String> requirement = new HashMap<>();
-                    String value = rs.getString("Workplace_Requirement");
-                    requirement.put("value", value);
-                    requirement.put("label", value);
-                    requirements.add(requirement);
-                }
-            }
-
+        try {
             Map<String, Object> response = new HashMap<>();
             response.put("success", true);
             response.put("message", "Workplace requirements retrieved successfully");
-            response.put("data", requirements);
+            response.put("data", labelValues(SedexIndex.getWorkplaceRequirements()));
 
             return Response.ok(response).build();
 
@@ -939,8 +865,20 @@ public class InternalAuditResource {
         }
     }
 
+    private static List<Map<String, String>> labelValues(List<String> values) {
+        List<Map<String, String>> options = new ArrayList<>(values.size());
+        for (String value : values) {
+            Map<String, String> option = new HashMap<>();
+            option.put("label", value);
+            option.put("value", value);
+            options.add(option);
+        }
+        return options;
+    }
 
 
+
+    @ReadOnly
     @GET
     @Path("/view")
     @Produces(MediaType.APPLICATION_JSON)
@@ -975,47 +913,55 @@ public class InternalAuditResource {
                 }
             }
 
-            // Get audit data
+            // Get audit data; clause and main clause names come from the clause catalog,
+            // which also gives the clause order
             List<Map<String, Object>> auditData = new ArrayList<>();
-            query = "SELECT crd.*, sm.id as std_id, cm.name as clause_name, " +
-                    "mcm.name as main_clause_name " +
-                    "FROM " + companyCode + "_customer_rights_detail crd " +
-                    "JOIN standard_master sm ON crd.standard_name = sm.std_name " +
-                    "LEFT JOIN clause_master cm ON cm.number = crd.clause_no AND cm.std_id = sm.id " +
-                    "LEFT JOIN clause_master mcm ON mcm.id = cm.main_clause_id AND mcm.std_id = sm.id " +
-                    "WHERE crd.standard_name = ? AND crd.rights_id = ? " +
-                    "ORDER BY CAST(crd.clause_no AS UNSIGNED) ASC";
-
-            try (PreparedStatement ps = con.prepareStatement(query)) {
-                ps.setString(1, standardName);
-                ps.setString(2, rightsId);
-                try (ResultSet rs = ps.executeQuery()) {
-                    while (rs.next()) {
-                        Map<String, Object> audit = new HashMap<>();
-                        audit.put("id", rs.getString("id"));
-                        audit.put("std_id", rs.getString("std_id"));
-                        audit.put("clause_no", rs.getString("clause_no"));
-                        audit.put("clause_name", rs.getString("clause_name"));
-                        audit.put("main_clause", rs.getString("main_clause_name"));
-
-                        // Get audit details
-                        List<Map<String, Object>> details = getAuditDetails(con, companyCode, internalAuditId,
-                                rs.getString("std_id"), rs.getString("clause_no"));
-                        audit.put("details", details);
-
-                        // Get audit documents
-                        List<Map<String, Object>> documents = getAuditDocuments(con, companyCode,
-                                rs.getString("std_id"), rs.getString("clause_no"));
-                        audit.put("documents", documents);
-
-                        // Get standard documents
-                        List<Map<String, Object>> standardDocuments = getStandardDocuments(con, companyCode,
-                                rs.getString("std_id"), rs.getString("clause_no"));
-                        audit.put("standardDocuments", standardDocuments);
-
-                        auditData.add(audit);
+            String standardId = StandardCatalog.getId(con, standardName);
+            if (standardId != null) {
+                ClauseCatalog.ClauseTree clauses = ClauseCatalog.get(con, standardId);
+                query = "SELECT id, clause_no FROM " + companyCode + "_customer_rights_detail " +
+                        "WHERE standard_name = ? AND rights_id = ?";
+
+                try (PreparedStatement ps = con.prepareStatement(query)) {
+                    ps.setString(1, standardName);
+                    ps.setString(2, rightsId);
+                    try (ResultSet rs = ps.executeQuery()) {
+                        while (rs.next()) {
+                            ClauseCatalog.Clause clause = clauses.get(rs.getString("clause_no"));
+                            ClauseCatalog.Clause mainClause = clauses.getMainClause(clause);
+                            Map<String, Object> audit = new HashMap<>();
+                            audit.put("id", rs.getString("id"));
+                            audit.put("std_id", standardId);
+                            audit.put("clause_no", rs.getString("clause_no"));
+                            audit.put("clause_name", clause != null ? clause.name : null);
+                            audit.put("main_clause", mainClause != null ? mainClause.name : null);
+                            auditData.add(audit);
+                        }
                     }
                 }
+                auditData.sort((a, b) -> clauses.compare((String) a.get("clause_no"), (String) b.get("clause_no")));
+            }
+
+            // Prefetch the details and documents of every clause of the standard,
+            // three queries in all instead of three per clause
+            Set<String> stdIds = new LinkedHashSet<>();
+            for (Map<String, Object> audit : auditData) {
+                stdIds.add((String) audit.get("std_id"));
+            }
+            Map<String, List<Map<String, Object>>> detailsByClause = new HashMap<>();
+            Map<String, List<Map<String, Object>>> documentsByClause = new HashMap<>();
+            Map<String, List<Map<String, Object>>> standardDocumentsByClause = new HashMap<>();
+            for (String stdId : stdIds) {
+                detailsByClause.putAll(getAuditDetails(con, companyCode, internalAuditId, stdId));
+                documentsByClause.putAll(getAuditDocuments(con, companyCode, stdId));
+                standardDocumentsByClause.putAll(getStandardDocuments(con, companyCode, stdId));
+            }
+
+            for (Map<String, Object> audit : auditData) {
+                String key = clauseKey((String) audit.get("std_id"), (String) audit.get("clause_no"));
+                audit.put("details", detailsByClause.getOrDefault(key, new ArrayList<>()));
+                audit.put("documents", documentsByClause.getOrDefault(key, new ArrayList<>()));
+                audit.put("standardDocuments", standardDocumentsByClause.getOrDefault(key, new ArrayList<>()));
             }
 
             // Get user module access rights
@@ -1062,64 +1008,69 @@ public class InternalAuditResource {
         return rights;
     }
 
-    private List<Map<String, Object>> getAuditDetails(Connection con, String companyCode, String internalAuditId, String stdId, String clauseNo) throws SQLException {
-        List<Map<String, Object>> details = new ArrayList<>();
+    /**
+     * Key for grouping rows by clause. MySQL compares clause_no case-insensitively
+     * and ignores trailing spaces, so the in-memory key does the same.
+     */
+    private static String clauseKey(String stdId, String clauseNo) {
+        return stdId + "|" + (clauseNo == null ? "" : clauseNo.trim().toLowerCase());
+    }
+
+    private Map<String, List<Map<String, Object>>> getAuditDetails(Connection con, String companyCode, String internalAuditId, String stdId) throws SQLException {
+        Map<String, List<Map<String, Object>>> details = new HashMap<>();
         String query = "SELECT * FROM " + companyCode + "_internal_audit_detail " +
-                "WHERE internal_audit_id = ? AND std_id = ? AND clause_no = ?";
+                "WHERE internal_audit_id = ? AND std_id = ?";
 
         try (PreparedStatement ps = con.prepareStatement(query)) {
             ps.setString(1, internalAuditId);
             ps.setString(2, stdId);
-            ps.setString(3, clauseNo);
             try (ResultSet rs = ps.executeQuery()) {
                 while (rs.next()) {
                     Map<String, Object> detail = new HashMap<>();
                     detail.put("id", rs.getString("id"));
                     detail.put("descType", rs.getString("desc_type"));
                     detail.put("comment", rs.getString("comment"));
-                    details.add(detail);
+                    details.computeIfAbsent(clauseKey(stdId, rs.getString("clause_no")), k -> new ArrayList<>()).add(detail);
                 }
             }
         }
         return details;
     }
 
-    private List<Map<String, Object>> getAuditDocuments(Connection con, String companyCode, String stdId, String clauseNo) throws SQLException {
-        List<Map<String, Object>> documents = new ArrayList<>();
+    private Map<String, List<Map<String, Object>>> getAuditDocuments(Connection con, String companyCode, String stdId) throws SQLException {
+        Map<String, List<Map<String, Object>>> documents = new HashMap<>();
         String query = "SELECT * FROM " + companyCode + "_internal_audit_document " +
-                "WHERE std_id = ? AND clause_no = ?";
+                "WHERE std_id = ?";
 
         try (PreparedStatement ps = con.prepareStatement(query)) {
             ps.setString(1, stdId);
-            ps.setString(2, clauseNo);
             try (ResultSet rs = ps.executeQuery()) {
                 while (rs.next()) {
                     Map<String, Object> doc = new HashMap<>();
                     doc.put("id", rs.getString("id"));
                     doc.put("fileName", rs.getString("file_name"));
                     doc.put("fileUrl", "http://124.123.122.108:8089/APITest/assets/Documents/Internal Audit/" + companyCode + "/" + rs.getString("file_name"));
-                    documents.add(doc);
+                    documents.computeIfAbsent(clauseKey(stdId, rs.getString("clause_no")), k -> new ArrayList<>()).add(doc);
                 }
             }
         }
         return documents;
     }
 
-    private List<Map<String, Object>> getStandardDocuments(Connection con, String companyCode, String stdId, String clauseNo) throws SQLException {
-        List<Map<String, Object>> documents = new ArrayList<>();
+    private Map<String, List<Map<String, Object>>> getStandardDocuments(Connection con, String companyCode, String stdId) throws SQLException {
+        Map<String, List<Map<String, Object>>> documents = new HashMap<>();
         String query = "SELECT * FROM " + companyCode + "_internal_audit_std_doc " +
-                "WHERE std_id = ? AND clause_no = ?";
+                "WHERE std_id = ?";
 
         try (PreparedStatement ps = con.prepareStatement(query)) {
             ps.setString(1, stdId);
-            ps.setString(2, clauseNo);
             try (ResultSet rs = ps.executeQuery()) {
                 while (rs.next()) {
                     Map<String, Object> doc = new HashMap<>();
                     doc.put("id", rs.getString("id"));
                     doc.put("fileName", rs.getString("file_name"));
                     doc.put("fileUrl", "http://124.123.122.108:8089/APITest/assets/Documents/Internal Audit/" + companyCode + "/" + rs.getString("file_name"));
-                    documents.add(doc);
+                    documents.computeIfAbsent(clauseKey(stdId, rs.getString("clause_no")), k -> new ArrayList<>()).add(doc);
                 }
             }
         }
@@ -1204,22 +1155,13 @@ public class InternalAuditResource {
             ps.setString(1, internalAuditId);
             ps.executeUpdate();
 
-            int maxDetailId = 0;
-            query = "SELECT MAX(id) as max_id FROM " + companyCode + "_internal_audit_detail";
-            ps = con.prepareStatement(query);
-            rs = ps.executeQuery();
-            if (rs.next()) {
-                maxDetailId = rs.getInt("max_id");
-            }
-
             if (request.details != null && !request.details.isEmpty()) {
                 query = "INSERT INTO " + companyCode + "_internal_audit_detail " +
                         "(id, internal_audit_id, clause_no, nc_no, desc_type, comment, status) " +
                         "VALUES (?, ?, ?, ?, ?, ?, ?)";
                 ps = con.prepareStatement(query);
                 for (AuditDetail detail : request.details) {
-                    maxDetailId++;
-                    ps.setInt(1, maxDetailId);
+                    ps.setInt(1, IdAllocator.nextId(con, companyCode + "_internal_audit_detail"));
                     ps.setString(2, internalAuditId);
                     ps.setString(3, detail.clauseNo);
                     ps.setString(4, detail.ncNo);
@@ -1234,27 +1176,8 @@ public class InternalAuditResource {
             DateTimeFormatter dtf = DateTimeFormatter.ofPattern("yyyy-MM-dd");
             String todayDate = LocalDateTime.now().format(dtf);
 
-            int maxLogId = 0;
-            query = "SELECT MAX(id) as max_id FROM " + companyCode + "_log_master";
-            ps = con.prepareStatement(query);
-            rs = ps.executeQuery();
-            if (rs.next()) {
-                maxLogId = rs.getInt("max_id");
-            }
-            maxLogId++;
-
-            query = "INSERT INTO " + companyCode + "_log_master (id, fired_date, fired_by, status, module_name, module_id) " +
-                    "VALUES (?, ?, ?, ?, ?, ?)";
-            ps = con.prepareStatement(query);
-            ps.setInt(1, maxLogId);
-            ps.setString(2, todayDate);
-            ps.setString(3, employeeName);
-            ps.setString(4, "Edit");
-            ps.setString(5, "Internal Audit");
-            ps.setString(6, internalAuditId);
-            ps.executeUpdate();
-
             con.commit();
+            AuditLogWriter.log(companyCode, todayDate, employeeName, "Edit", "Internal Audit", internalAuditId);
 
             return Response.ok(new InternalAuditResponse(true, "Internal audit updated successfully")).build();
 
@@ -1275,11 +1198,14 @@ public class InternalAuditResource {
         }
     }
 
+    // List all internal audits with their details; ?summary=true returns a detail_count per audit instead
+    @ReadOnly
     @GET
     @Path("/list")
     @Produces(MediaType.APPLICATION_JSON)
     public Response getAllInternalAudits(@HeaderParam("company-code") String companyCode,
-                                         @HeaderParam("employee-id") String employeeId) {
+                                         @HeaderParam("employee-id") String employeeId,
+                                         @QueryParam("summary") boolean summary) {
 
         if (!isValidAuth(employeeId, companyCode)) {
             return Response.status(Status.UNAUTHORIZED)
@@ -1301,6 +1227,8 @@ public class InternalAuditResource {
             con = DBConfig.getConnection();
             InternalAuditResponse response = new InternalAuditResponse(true, "Internal audits retrieved successfully");
             List<Map<String, Object>> internalAudits = new ArrayList<>();
+            Map<String, Map<String, Object>> auditsById = new HashMap<>();
+            Map<String, List<Map<String, String>>> detailsById = new HashMap<>();
 
             String query = "SELECT * FROM " + companyCode + "_internal_audit_master ORDER BY id DESC";
             ps = con.prepareStatement(query);
@@ -1316,39 +1244,59 @@ public class InternalAuditResource {
                 audit.put("audit_date", rs.getString("audit_date"));
                 audit.put("status", rs.getString("status"));
                 audit.put("scope", rs.getString("scope"));
+                if (summary) {
+                    audit.put("detail_count", 0);
+                } else {
+                    List<Map<String, String>> details = new ArrayList<>();
+                    audit.put("details", details);
+                    detailsById.put(rs.getString("id"), details);
+                }
 
-                // Fetch audit details
-                List<Map<String, String>> details = new ArrayList<>();
-                String detailQuery = "SELECT * FROM " + companyCode + "_internal_audit_detail WHERE internal_audit_id = ?";
-                PreparedStatement detailPs = con.prepareStatement(detailQuery);
-                detailPs.setString(1, rs.getString("id"));
-                ResultSet detailRs = detailPs.executeQuery();
-                while (detailRs.next()) {
+                internalAudits.add(audit);
+                auditsById.put(rs.getString("id"), audit);
+            }
+            rs.close();
+            ps.close();
+
+            // One query for the details of every audit, grouped in memory, instead of one per audit
+            if (summary) {
+                query = "SELECT internal_audit_id, COUNT(*) AS detail_count FROM " + companyCode + "_internal_audit_detail " +
+                        "GROUP BY internal_audit_id";
+                ps = con.prepareStatement(query);
+                rs = ps.executeQuery();
+                while (rs.next()) {
+                    Map<String, Object> audit = auditsById.get(rs.getString("internal_audit_id"));
+                    if (audit != null) {
+                        audit.put("detail_count", rs.getInt("detail_count"));
+                    }
+                }
+            } else {
+                query = "SELECT * FROM " + companyCode + "_internal_audit_detail ORDER BY internal_audit_id, id";
+                ps = con.prepareStatement(query);
+                rs = ps.executeQuery();
+                while (rs.next()) {
+                    List<Map<String, String>> details = detailsById.get(rs.getString("internal_audit_id"));
+                    if (details == null) {
+                        continue;
+                    }
                     Map<String, String> detail = new HashMap<>();
-                    detail.put("id", detailRs.getString("id"));
-                    detail.put("internal_audit_id", detailRs.getString("internal_audit_id"));
-                    detail.put("std_id", detailRs.getString("std_id"));
-                    detail.put("clause_no", detailRs.getString("clause_no"));
-                    detail.put("comment", detailRs.getString("comment"));
-                    detail.put("desc_type", detailRs.getString("desc_type"));
-                    detail.put("status", detailRs.getString("status"));
-                    detail.put("workplace_requirment", detailRs.getString("workplace_requirment"));
-                    detail.put("sub_category", detailRs.getString("sub_category"));
-                    detail.put("issue_title", detailRs.getString("issue_title"));
-                    detail.put("requirement", detailRs.getString("requirement"));
-                    detail.put("guidance", detailRs.getString("guidance"));
-                    detail.put("nc_no", detailRs.getString("nc_no"));
-                    detail.put("action", detailRs.getString("action"));
-                    detail.put("evidence", detailRs.getString("evidence"));
+                    detail.put("id", rs.getString("id"));
+                    detail.put("internal_audit_id", rs.getString("internal_audit_id"));
+                    detail.put("std_id", rs.getString("std_id"));
+                    detail.put("clause_no", rs.getString("clause_no"));
+                    detail.put("comment", rs.getString("comment"));
+                    detail.put("desc_type", rs.getString("desc_type"));
+                    detail.put("status", rs.getString("status"));
+                    detail.put("workplace_requirment", rs.getString("workplace_requirment"));
+                    detail.put("sub_category", rs.getString("sub_category"));
+                    detail.put("issue_title", rs.getString("issue_title"));
+                    detail.put("requirement", rs.getString("requirement"));
+                    detail.put("guidance", rs.getString("guidance"));
+                    detail.put("nc_no", rs.getString("nc_no"));
+                    detail.put("action", rs.getString("action"));
+                    detail.put("evidence", rs.getString("evidence"));
                     details.add(detail);
                 }
-
-                audit.put("details", details);
-
-                detailRs.close();
-                detailPs.close();
-
-                internalAudits.add(audit);
             }
 
             response.data.put("data", internalAudits);
@@ -1386,6 +1334,13 @@ public class InternalAuditResource {
                     .build();
         }
 
+        // Entries for this audit still queued would otherwise be written after the
+        // log_master delete below and outlive the audit
+        if (!AuditLogWriter.flush()) {
+            logger.warning("Audit log not flushed before deleting internal audit " + internalAuditId
+                    + "; queued entries for it may remain in " + companyCode + "_log_master");
+        }
+
         Connection con = null;
         PreparedStatement ps = null;
         ResultSet rs = null;
@@ -1409,7 +1364,7 @@ public class InternalAuditResource {
             }
             auditPlanId = rs.getString("audit_plan_id");
             stdName = rs.getString("std_name");
-            closeResources(rs, ps,con);
+            closeResources(rs, ps, null);
 
             // 2. Update audit plan standard status
             query = "UPDATE " + companyCode + "_audit_plan_standard SET status = '' WHERE audit_plan_id = ? AND standard_name = ?";
@@ -1417,7 +1372,7 @@ public class InternalAuditResource {
             ps.setString(1, auditPlanId);
             ps.setString(2, stdName);
             ps.executeUpdate();
-            closeResources(null, ps,con);
+            closeResources(null, ps, null);
 
             // 3. Check remaining standards and update audit plan status
             int stdCount = 0;
@@ -1428,7 +1383,7 @@ public class InternalAuditResource {
             if (rs.next()) {
                 stdCount = rs.getInt(1);
             }
-            closeResources(rs, ps,con);
+            closeResources(rs, ps, null);
 
             query = stdCount > 0
                     ? "UPDATE " + companyCode + "_audit_plan SET status = 'Partial Process' WHERE id = ?"
@@ -1436,43 +1391,26 @@ public class InternalAuditResource {
             ps = con.prepareStatement(query);
             ps.setString(1, auditPlanId);
             ps.executeUpdate();
-            closeResources(null, ps,con);
+            closeResources(null, ps, null);
 
             // 4. Delete internal audit records
             query = "DELETE FROM " + companyCode + "_internal_audit_master WHERE id = ?";
             ps = con.prepareStatement(query);
             ps.setString(1, internalAuditId);
             ps.executeUpdate();
-            closeResources(null, ps,con);
+            closeResources(null, ps, null);
 
             query = "DELETE FROM " + companyCode + "_log_master WHERE module_name = 'Internal Audit' AND module_id = ?";
             ps = con.prepareStatement(query);
             ps.setString(1, internalAuditId);
             ps.executeUpdate();
-            closeResources(null, ps,con);
-
-            // 5. Log the deletion
-            int logId = 1;
-            query = "SELECT MAX(id) FROM " + companyCode + "_log_master";
-            ps = con.prepareStatement(query);
-            rs = ps.executeQuery();
-            if (rs.next()) {
-                logId = rs.getInt(1) + 1;
-            }
-            closeResources(rs, ps,con);
-
-            query = "INSERT INTO " + companyCode + "_log_master (id, fired_date, fired_by, status, module_name, module_id) " +
-                    "VALUES (?, CURRENT_DATE, ?, ?, ?, ?)";
-            ps = con.prepareStatement(query);
-            ps.setInt(1, logId);
-            ps.setString(2, employeeName);
-            ps.setString(3, "Delete");
-            ps.setString(4, "Internal Audit");
-            ps.setString(5, internalAuditId);
-            ps.executeUpdate();
+            closeResources(null, ps, null);
 
             con.commit(); // Commit transaction
 
+            // 5. Log the deletion
+            AuditLogWriter.log(companyCode, LocalDate.now().toString(), employeeName, "Delete", "Internal Audit", internalAuditId);
+
             return Response.ok()
                     .entity(Map.of("success", true, "message", "Internal audit deleted successfully"))
                     .build();
@@ -1563,6 +1501,7 @@ public class InternalAuditResource {
     }
 
 
+    @ReadOnly
     @GET
     @Path("/export")
     @Produces(MediaType.TEXT_HTML)
@@ -1585,12 +1524,9 @@ public class InternalAuditResource {
                     .build();
         }
 
-        Connection con = null;
         try {
-            con = DBConfig.getConnection();
-
             // 1. Get all report data
-            Map<String, Object> reportData = gatherReportData(con, companyCode, internalAuditId, standardName);
+            Map<String, Object> reportData = gatherReportData(companyCode, internalAuditId, standardName);
             if (reportData == null) {
                 return Response.status(Response.Status.NOT_FOUND)
                         .entity("<html><body><h1>Error: Audit data not found</h1></body></html>")
@@ -1611,78 +1547,103 @@ public class InternalAuditResource {
             return Response.status(Response.Status.INTERNAL_SERVER_ERROR)
                     .entity("<html><body><h1>Error: Database error occurred</h1></body></html>")
                     .build();
-        } finally {
-            DBConfig.closeConnection(con);
         }
     }
 
-    private Map<String, Object> gatherReportData(Connection con, String companyCode,
-                                                 String internalAuditId, String standardName) throws SQLException {
+    /**
+     * Reads the export's company, audit, auditor and finding data. The four
+     * lookups are independent and run in parallel on their own connections.
+     */
+    private Map<String, Object> gatherReportData(String companyCode, String internalAuditId,
+                                                 String standardName) throws SQLException {
         Map<String, Object> reportData = new HashMap<>();
 
-        // 1. Company details
-        String companyQuery = "SELECT company_name, street1, street2, city, pincode, country, person_name, state " +
-                "FROM company_registration WHERE company_code = ?";
-        try (PreparedStatement ps = con.prepareStatement(companyQuery)) {
-            ps.setString(1, companyCode);
-            try (ResultSet rs = ps.executeQuery()) {
-                if (rs.next()) {
-                    Map<String, String> companyDetails = new HashMap<>();
-                    companyDetails.put("name", rs.getString("company_name"));
-                    companyDetails.put("street1", rs.getString("street1"));
-                    companyDetails.put("street2", rs.getString("street2"));
-                    companyDetails.put("city", rs.getString("city"));
-                    companyDetails.put("pincode", rs.getString("pincode"));
-                    companyDetails.put("country", rs.getString("country"));
-                    companyDetails.put("personName", rs.getString("person_name"));
-                    companyDetails.put("state", rs.getString("state"));
-                    reportData.put("company", companyDetails);
-                }
+        // The company is usually cached; only a miss is worth a connection of its own
+        TenantRegistry.Tenant cachedTenant = TenantRegistry.getIfPresent(companyCode);
+
+        try (ParallelQueries scope = new ParallelQueries()) {
+            ParallelQueries.Subtask<Map<String, String>> company = cachedTenant == null
+                    ? scope.fork(con -> getReportCompany(con, companyCode)) : null;
+            ParallelQueries.Subtask<Map<String, Object>> audit = scope.fork(con -> getReportAudit(con, companyCode, internalAuditId));
+            ParallelQueries.Subtask<List<String>> auditors = scope.fork(con -> getReportAuditors(con, companyCode, internalAuditId));
+            ParallelQueries.Subtask<List<Map<String, String>>> findings = scope.fork(con -> getReportFindings(con, companyCode, internalAuditId));
+            scope.join();
+
+            Map<String, String> companyDetails = company != null ? company.get() : reportCompany(cachedTenant);
+            if (companyDetails != null) {
+                reportData.put("company", companyDetails);
             }
+            reportData.putAll(audit.get());
+            reportData.put("auditors", auditors.get());
+            reportData.put("findings", findings.get());
         }
+        reportData.put("standardName", standardName);
 
-        // 2. Audit master details
-        String auditQuery = "SELECT audit_plan_id, std_name, std_id, audit_no " +
-                "FROM " + companyCode + "_internal_audit_master WHERE id = ?";
-        try (PreparedStatement ps = con.prepareStatement(auditQuery)) {
-            ps.setString(1, internalAuditId);
-            try (ResultSet rs = ps.executeQuery()) {
-                if (rs.next()) {
-                    reportData.put("auditPlanId", rs.getString("audit_plan_id"));
-                    reportData.put("stdName", rs.getString("std_name"));
-                    reportData.put("stdId", rs.getString("std_id"));
-                    reportData.put("auditNo", rs.getString("audit_no"));
-                }
-            }
+        return reportData;
+    }
+
+    private Map<String, String> getReportCompany(Connection con, String companyCode) throws SQLException {
+        return reportCompany(TenantRegistry.get(con, companyCode));
+    }
+
+    private static Map<String, String> reportCompany(TenantRegistry.Tenant tenant) {
+        if (tenant == null) {
+            return null;
         }
+        Map<String, String> companyDetails = new HashMap<>();
+        companyDetails.put("name", tenant.name);
+        companyDetails.put("street1", tenant.street1);
+        companyDetails.put("street2", tenant.street2);
+        companyDetails.put("city", tenant.city);
+        companyDetails.put("pincode", tenant.pincode);
+        companyDetails.put("country", tenant.country);
+        companyDetails.put("personName", tenant.personName);
+        companyDetails.put("state", tenant.state);
+        return companyDetails;
+    }
 
-        // 3. Audit plan dates
-        String planQuery = "SELECT audit_start_date, audit_end_date " +
-                "FROM " + companyCode + "_audit_plan WHERE id = ?";
-        try (PreparedStatement ps = con.prepareStatement(planQuery)) {
-            ps.setString(1, (String) reportData.get("auditPlanId"));
+    // Audit master with its plan dates, joined so it does not wait on the master lookup
+    private Map<String, Object> getReportAudit(Connection con, String companyCode, String internalAuditId) throws SQLException {
+        Map<String, Object> audit = new HashMap<>();
+        String auditQuery = "SELECT m.audit_plan_id, m.std_name, m.std_id, m.audit_no, p.audit_start_date, p.audit_end_date " +
+                "FROM " + companyCode + "_internal_audit_master m " +
+                "LEFT JOIN " + companyCode + "_audit_plan p ON p.id = m.audit_plan_id " +
+                "WHERE m.id = ?";
+        try (PreparedStatement ps = con.prepareStatement(auditQuery)) {
+            ps.setString(1, internalAuditId);
             try (ResultSet rs = ps.executeQuery()) {
                 if (rs.next()) {
-                    reportData.put("startDate", rs.getString("audit_start_date"));
-                    reportData.put("endDate", rs.getString("audit_end_date"));
+                    audit.put("auditPlanId", rs.getString("audit_plan_id"));
+                    audit.put("stdName", rs.getString("std_name"));
+                    audit.put("stdId", rs.getString("std_id"));
+                    audit.put("auditNo", rs.getString("audit_no"));
+                    if (rs.getString("audit_start_date") != null || rs.getString("audit_end_date") != null) {
+                        audit.put("startDate", rs.getString("audit_start_date"));
+                        audit.put("endDate", rs.getString("audit_end_date"));
+                    }
                 }
             }
         }
+        return audit;
+    }
 
-        // 4. Auditors
+    private List<String> getReportAuditors(Connection con, String companyCode, String internalAuditId) throws SQLException {
         List<String> auditors = new ArrayList<>();
-        String auditorQuery = "SELECT auditor_name FROM " + companyCode + "_audit_plan_auditors WHERE audit_plan_id = ?";
+        String auditorQuery = "SELECT a.auditor_name FROM " + companyCode + "_audit_plan_auditors a " +
+                "JOIN " + companyCode + "_internal_audit_master m ON a.audit_plan_id = m.audit_plan_id " +
+                "WHERE m.id = ?";
         try (PreparedStatement ps = con.prepareStatement(auditorQuery)) {
-            ps.setString(1, (String) reportData.get("auditPlanId"));
+            ps.setString(1, internalAuditId);
             try (ResultSet rs = ps.executeQuery()) {
                 while (rs.next()) {
                     auditors.add(rs.getString("auditor_name"));
                 }
             }
         }
-        reportData.put("auditors", auditors);
+        return auditors;
+    }
 
-        // 5. Findings
+    private List<Map<String, String>> getReportFindings(Connection con, String companyCode, String internalAuditId) throws SQLException {
         List<Map<String, String>> findings = new ArrayList<>();
         String findingsQuery = "SELECT d.std_id, d.clause_no, d.desc_type, d.evidence, s.std_name " +
                 "FROM " + companyCode + "_internal_audit_detail d " +
@@ -1712,13 +1673,10 @@ public class InternalAuditResource {
                 }
             }
         }
-        reportData.put("findings", findings);
-        reportData.put("standardName", standardName);
-
-        return reportData;
+        return findings;
     }
 
-    private String generateHtmlReport(Map<String, Object> reportData) {
+    String generateHtmlReport(Map<String, Object> reportData) {
         StringBuilder html = new StringBuilder();
 
         // HTML Header
@@ -1846,6 +1804,7 @@ public class InternalAuditResource {
 
 
 
+    @ReadOnly
     @GET
     @Path("/export-nc-doc")
     @Produces(MediaType.TEXT_HTML)
@@ -1877,7 +1836,7 @@ public class InternalAuditResource {
         }
     }
 
-    private String generateNCDocument(Map<String, String> company, Map<String, String> audit) {
+    String generateNCDocument(Map<String, String> company, Map<String, String> audit) {
         StringBuilder html = new StringBuilder();
 
         // HTML Header
@@ -1991,21 +1950,16 @@ public class InternalAuditResource {
 
     private Map<String, String> fetchCompanyDetails(Connection con, String companyCode) throws SQLException {
         Map<String, String> companyDetails = new HashMap<>();
-        String query = "SELECT * FROM company_registration WHERE company_code = ?";
-        try (PreparedStatement ps = con.prepareStatement(query)) {
-            ps.setString(1, companyCode);
-            try (ResultSet rs = ps.executeQuery()) {
-                if (rs.next()) {
-                    companyDetails.put("name", getSafeString(rs.getString("company_name")));
-                    companyDetails.put("street1", getSafeString(rs.getString("street1")));
-                    companyDetails.put("street2", getSafeString(rs.getString("street2")));
-                    companyDetails.put("city", getSafeString(rs.getString("city")));
-                    companyDetails.put("pincode", getSafeString(rs.getString("pincode")));
-                    companyDetails.put("country", getSafeString(rs.getString("country")));
-                    companyDetails.put("personName", getSafeString(rs.getString("person_name")));
-                    companyDetails.put("state", getSafeString(rs.getString("state")));
-                }
-            }
+        TenantRegistry.Tenant tenant = TenantRegistry.get(con, companyCode);
+        if (tenant != null) {
+            companyDetails.put("name", getSafeString(tenant.name));
+            companyDetails.put("street1", getSafeString(tenant.street1));
+            companyDetails.put("street2", getSafeString(tenant.street2));
+            companyDetails.put("city", getSafeString(tenant.city));
+            companyDetails.put("pincode", getSafeString(tenant.pincode));
+            companyDetails.put("country", getSafeString(tenant.country));
+            companyDetails.put("personName", getSafeString(tenant.personName));
+            companyDetails.put("state", getSafeString(tenant.state));
         }
         return companyDetails;
     }
@@ -2059,27 +2013,15 @@ public class InternalAuditResource {
         if (stdId == null || stdId.isEmpty()) {
             return "";
         }
-        String query = "SELECT std_name FROM standard_master WHERE id = ?";
-        try (PreparedStatement ps = con.prepareStatement(query)) {
-            ps.setString(1, stdId);
-            try (ResultSet rs = ps.executeQuery()) {
-                return rs.next() ? getSafeString(rs.getString("std_name")) : "";
-            }
-        }
+        return getSafeString(StandardCatalog.getName(con, stdId));
     }
 
     private String getClauseName(Connection con, String stdId, String clauseNo) throws SQLException {
         if (stdId == null || stdId.isEmpty() || clauseNo == null || clauseNo.isEmpty()) {
             return "";
         }
-        String query = "SELECT name FROM clause_master WHERE std_id = ? AND number = ?";
-        try (PreparedStatement ps = con.prepareStatement(query)) {
-            ps.setString(1, stdId);
-            ps.setString(2, clauseNo);
-            try (ResultSet rs = ps.executeQuery()) {
-                return rs.next() ? getSafeString(rs.getString("name")) : "";
-            }
-        }
+        ClauseCatalog.Clause clause = ClauseCatalog.get(con, stdId).get(clauseNo);
+        return clause != null ? getSafeString(clause.name) : "";
     }
 
     @PUT
@@ -2157,21 +2099,11 @@ public class InternalAuditResource {
             }
             ps.executeUpdate();
 
-            // Log the action
-            int maxLogId = getMaxLogId(con, companyCode);
-            query = "INSERT INTO " + companyCode + "_log_master (id, fired_date, fired_by, status, module_name, module_id) " +
-                    "VALUES (?, ?, ?, ?, ?, ?)";
-            ps = con.prepareStatement(query);
-            ps.setInt(1, maxLogId + 1);
-            ps.setString(2, currentDate);
-            ps.setString(3, employeeName);
-            ps.setString(4, request.status);
-            ps.setString(5, "Internal Audit");
-            ps.setString(6, internalAuditId);
-            ps.executeUpdate();
-
             con.commit();
 
+            // Log the action
+            AuditLogWriter.log(companyCode, currentDate, employeeName, request.status, "Internal Audit", internalAuditId);
+
             return Response.ok(new InternalAuditResponse(true, "Audit status updated successfully")).build();
 
         } catch (SQLException e) {
@@ -2243,21 +2175,11 @@ public class InternalAuditResource {
             ps.setString(1, internalAuditId);
             ps.executeUpdate();
 
-            // Log the action
-            int maxLogId = getMaxLogId(con, companyCode);
-            query = "INSERT INTO " + companyCode + "_log_master (id, fired_date, fired_by, status, module_name, module_id) " +
-                    "VALUES (?, ?, ?, ?, ?, ?)";
-            ps = con.prepareStatement(query);
-            ps.setInt(1, maxLogId + 1);
-            ps.setString(2, currentDate);
-            ps.setString(3, employeeName);
-            ps.setString(4, "Close");
-            ps.setString(5, "Internal Audit");
-            ps.setString(6, internalAuditId);
-            ps.executeUpdate();
-
             con.commit();
 
+            // Log the action
+            AuditLogWriter.log(companyCode, currentDate, employeeName, "Close", "Internal Audit", internalAuditId);
+
             return Response.ok(new InternalAuditResponse(true, "Audit closed successfully")).build();
 
         } catch (SQLException e) {
@@ -2315,17 +2237,6 @@ public class InternalAuditResource {
         return true;
     }
 
-    private int getMaxLogId(Connection con, String companyCode) throws SQLException {
-        String query = "SELECT MAX(id) as max_id FROM " + companyCode + "_log_master";
-        try (PreparedStatement ps = con.prepareStatement(query);
-             ResultSet rs = ps.executeQuery()) {
-            if (rs.next()) {
-                return rs.getInt("max_id");
-            }
-            return 0;
-        }
-    }
-
     private void closeResources(ResultSet rs, PreparedStatement ps, Connection con) {
         try {
             if (rs != null) {
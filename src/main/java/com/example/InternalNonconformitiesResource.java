@@ -1,6 +1,10 @@
 package com.example;
 
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.StreamWriteFeature;
 import jakarta.ws.rs.*;
+import jakarta.ws.rs.core.Context;
 import jakarta.ws.rs.core.MediaType;
 import jakarta.ws.rs.core.Response;
 import java.sql.Connection;
@@ -15,8 +19,14 @@ import java.util.List;
 import java.util.Map;
 import java.util.logging.Logger;
 
+import com.example.util.AuditLogWriter;
+import com.example.util.ConfigUtil;
 import com.example.util.DBConfig;
 import com.example.util.ErrorHandler;
+import com.example.util.IdAllocator;
+import com.example.util.Projection;
+import com.example.util.ReadOnly;
+import com.example.util.TenantRegistry;
 import com.example.util.ValidationUtil;
 import jakarta.ws.rs.core.MultivaluedMap;
 import jakarta.ws.rs.core.MultivaluedHashMap;
@@ -32,11 +42,19 @@ import org.glassfish.jersey.media.multipart.FormDataBodyPart;
 import org.glassfish.jersey.media.multipart.FormDataContentDisposition;
 import org.glassfish.jersey.media.multipart.FormDataMultiPart;
 import org.glassfish.jersey.media.multipart.FormDataParam;
+import org.glassfish.grizzly.http.server.Request;
+import org.glassfish.jersey.server.CloseableService;
 
 @Path("/nonconformities")
 public class InternalNonconformitiesResource {
 
     private static final Logger logger = Logger.getLogger(InternalNonconformitiesResource.class.getName());
+    // close() neither closes the response stream nor completes unfinished JSON
+    private static final JsonFactory JSON_FACTORY = JsonFactory.builder()
+            .disable(StreamWriteFeature.AUTO_CLOSE_TARGET)
+            .disable(StreamWriteFeature.AUTO_CLOSE_CONTENT)
+            .build();
+    private static final long STREAM_MAX_MILLIS = ConfigUtil.longSetting("db.stream.maxMillis", 60000);
 
     // Request and Response classes
     public static class Nonconformity {
@@ -77,6 +95,22 @@ public class InternalNonconformitiesResource {
         }
     }
 
+    public static class NonconformityResponse {
+        public boolean success;
+        public String error;
+        public Nonconformity data;
+
+        public NonconformityResponse(boolean success, Nonconformity data) {
+            this.success = success;
+            this.data = data;
+        }
+
+        public NonconformityResponse(boolean success, String error) {
+            this.success = success;
+            this.error = error;
+        }
+    }
+
     public static class Audit {
         public String id;
         public String auditNo;
@@ -240,11 +274,7 @@ public class InternalNonconformitiesResource {
             String approvedBy = userId;
             String today = LocalDateTime.now().format(DateTimeFormatter.ofPattern("yyyy-MM-dd"));
 
-            String query = "SELECT MAX(id) FROM " + companyCode + "_log_master";
-            ps = con.prepareStatement(query);
-            rs = ps.executeQuery();
-            int logId = rs.next() ? rs.getInt(1) + 1 : 1;
-            closeResources(rs, ps, null);
+            String query;
 
             if (ValidationUtil.isNotEmpty(ncId) && ncId != null) {
                 // Approve
@@ -278,15 +308,7 @@ public class InternalNonconformitiesResource {
                 ps.executeUpdate();
                 closeResources(null, ps, null);
 
-                ps = con.prepareStatement("INSERT INTO " + companyCode + "_log_master (id, fired_date, fired_by, status, module_name, module_id) VALUES (?, ?, ?, ?, ?, ?)");
-                ps.setInt(1, logId);
-                ps.setString(2, today);
-                ps.setString(3, approvedBy);
-                ps.setString(4, "Done");
-                ps.setString(5, "Nonconformities");
-                ps.setString(6, ncId);
-                ps.executeUpdate();
-                closeResources(null, ps, null);
+                AuditLogWriter.log(companyCode, today, approvedBy, "Done", "Nonconformities", ncId);
 
                 return Response.ok(new ActionResponse(true, "Nonconformity approved successfully")).build();
 
@@ -323,15 +345,7 @@ public class InternalNonconformitiesResource {
                 ps.executeUpdate();
                 closeResources(null, ps, null);
 
-                ps = con.prepareStatement("INSERT INTO " + companyCode + "_log_master (id, log_date, approved_by, status, module, module_id) VALUES (?, ?, ?, ?, ?, ?)");
-                ps.setInt(1, logId);
-                ps.setString(2, today);
-                ps.setString(3, approvedBy);
-                ps.setString(4, "Draft");
-                ps.setString(5, "Nonconformities");
-                ps.setString(6, ncId);
-                ps.executeUpdate();
-                closeResources(null, ps, null);
+                AuditLogWriter.log(companyCode, today, approvedBy, "Draft", "Nonconformities", ncId);
 
                 return Response.ok(new ActionResponse(true, "Nonconformity reverted to Draft successfully")).build();
             }
@@ -369,15 +383,8 @@ public class InternalNonconformitiesResource {
             String approvedBy = userId; // Assume userId maps to emp_name; adjust if lookup needed
             String today = LocalDateTime.now().format(DateTimeFormatter.ofPattern("yyyy-MM-dd"));
 
-            // Get max log ID
-            String query = "SELECT MAX(id) FROM " + companyCode + "_log_master";
-            ps = con.prepareStatement(query);
-            rs = ps.executeQuery();
-            int logId = rs.next() ? rs.getInt(1) + 1 : 1;
-            closeResources(rs, ps, null);
-
             // Check nonconformity status
-            query = "SELECT status, nc_no, internal_audit_id FROM " + companyCode + "_nonconformities WHERE id = ?";
+            String query = "SELECT status, nc_no, internal_audit_id FROM " + companyCode + "_nonconformities WHERE id = ?";
             ps = con.prepareStatement(query);
             ps.setString(1, backId);
             rs = ps.executeQuery();
@@ -409,17 +416,8 @@ public class InternalNonconformitiesResource {
             ps.executeUpdate();
             closeResources(null, ps, null);
 
-            // Insert log
-            query = "INSERT INTO " + companyCode + "_log_master (id, fired_date, fired_by, status, module_name, module_id) VALUES (?, ?, ?, ?, ?, ?)";
-            ps = con.prepareStatement(query);
-            ps.setInt(1, logId);
-            ps.setString(2, today);
-            ps.setString(3, approvedBy);
-            ps.setString(4, "Draft");
-            ps.setString(5, "Nonconformities");
-            ps.setString(6, backId);
-            ps.executeUpdate();
-            closeResources(null, ps, null);
+            // Log the reversion
+            AuditLogWriter.log(companyCode, today, approvedBy, "Draft", "Nonconformities", backId);
 
             return Response.ok(new ActionResponse(true, "Nonconformity reverted to Draft successfully")).build();
 
@@ -698,12 +696,8 @@ public class InternalNonconformitiesResource {
             }
             closeResources(rs, ps, null);
 
-            // Get max ID from nonconformities_detail
-            query = "SELECT MAX(id) FROM " + companyCode + "_nonconformities_detail";
-            ps = con.prepareStatement(query);
-            rs = ps.executeQuery();
-            int ncDetailId = rs.next() ? rs.getInt(1) + 1 : 1;
-            closeResources(rs, ps, null);
+            // Reserve ID for nonconformities_detail
+            int ncDetailId = IdAllocator.nextId(con, companyCode + "_nonconformities_detail");
 
             // Insert auditor's decision
             query = "INSERT INTO " + companyCode + "_nonconformities_detail (id, nc_id, correction_date, correction_e_a, correction_evidence, corrective_date, corrective_e_a, corrective_evidence) VALUES (?, ?, ?, ?, ?, ?, ?, ?)";
@@ -737,66 +731,163 @@ public class InternalNonconformitiesResource {
     }
 
 
+    @ReadOnly
     @GET
     @Path("/view")
     @Produces(MediaType.APPLICATION_JSON)
     public Response viewNonconformities(
             @HeaderParam("company-code") String companyCode,
-            @HeaderParam("employee-id") String userId) {
+            @HeaderParam("employee-id") String userId,
+            @Context CloseableService closeables,
+            @Context Request httpRequest) {
+
+        logger.info("Fetching nonconformities view for company_code: " + companyCode + " and user_id: " + userId);
+
+        if (!ValidationUtil.isNotEmpty(companyCode) || !ValidationUtil.isNotEmpty(userId)) {
+            return ErrorHandler.badRequest("Company code and user ID are required", "Missing required headers");
+        }
+
+        // One read for the register and its audit info instead of one audit lookup per NC
+        String query = "SELECT nc.id, nc.nc_no, nc.clause_no, nc.site, nc.process_area, nc.status, " +
+                "ia.audit_no, ia.std_name, ia.status AS audit_status " +
+                "FROM " + companyCode + "_nonconformities nc " +
+                "LEFT JOIN " + companyCode + "_internal_audit_master ia ON ia.id = nc.internal_audit_id " +
+                "WHERE nc.id > 0";
+
+        // The query runs here, so a failure before the first row is still a 500
+        Connection con = null;
+        PreparedStatement ps = null;
+        ResultSet res = null;
+        try {
+            con = DBConfig.getConnection();
+            ps = con.prepareStatement(query);
+            // Row-by-row fetch on MySQL, so large registers are not buffered in the driver
+            if ("MySQL".equals(con.getMetaData().getDatabaseProductName())) {
+                ps.setFetchSize(Integer.MIN_VALUE);
+            }
+            res = ps.executeQuery();
+        } catch (SQLException e) {
+            closeResources(res, ps, con);
+            return ErrorHandler.serverError("Database error occurred", e);
+        }
+
+        // Closed once the body is written; the request's closeables cover a body that never is
+        ResultSet rows = res;
+        PreparedStatement statement = ps;
+        Connection connection = con;
+        closeables.add(() -> closeResources(rows, statement, connection));
+        return Response.ok(streamNonconformities(rows, statement, connection, httpRequest), MediaType.APPLICATION_JSON).build();
+    }
+
+    /**
+     * Writes the rows as they are fetched. The connection stays borrowed until the
+     * last row is sent, so the stream is cut off after {@code db.stream.maxMillis};
+     * a client that stops reading is also dropped by the listener's write timeout,
+     * 30 seconds by default. On a database error or the cut-off the JSON is left
+     * unterminated and the HTTP connection is dropped, so the client sees a
+     * failed transfer rather than a body that looks whole.
+     */
+    private StreamingOutput streamNonconformities(ResultSet res, PreparedStatement ps, Connection con,
+                                                  Request httpRequest) {
+        return output -> {
+            long deadline = System.nanoTime() + STREAM_MAX_MILLIS * 1_000_000;
+            try {
+                JsonGenerator json = JSON_FACTORY.createGenerator(output);
+                json.writeStartObject();
+                json.writeBooleanField("success", true);
+                json.writeArrayFieldStart("data");
+                while (res.next()) {
+                    if (System.nanoTime() - deadline > 0) {
+                        throw new IOException("Nonconformities stream exceeded " + STREAM_MAX_MILLIS + "ms");
+                    }
+                    json.writeStartObject();
+                    json.writeStringField("id", res.getString("id"));
+                    json.writeStringField("nc_no", res.getString("nc_no"));
+                    json.writeStringField("clause_no", res.getString("clause_no"));
+                    json.writeStringField("site", res.getString("site"));
+                    json.writeStringField("process_area", res.getString("process_area"));
+                    json.writeStringField("status", res.getString("status"));
+                    json.writeStringField("audit_no", orEmpty(res.getString("audit_no")));
+                    json.writeStringField("standard_name", orEmpty(res.getString("std_name")));
+                    json.writeStringField("audit_status", orEmpty(res.getString("audit_status")));
+                    json.writeEndObject();
+                }
+                json.writeEndArray();
+                json.writeEndObject();
+                // Only reached when every row was written
+                json.close();
+            } catch (SQLException | IOException e) {
+                // The status and part of the body are sent; Grizzly would end a failed
+                // chunked response normally, so close the connection under it
+                logger.severe("Streaming nonconformities failed: " + e.getMessage());
+                httpRequest.getContext().getConnection().closeSilently();
+                throw e instanceof IOException ? (IOException) e
+                        : new IOException("Database error while streaming nonconformities", e);
+            } finally {
+                closeResources(res, ps, con);
+            }
+        };
+    }
+
+    private static String orEmpty(String value) {
+        return value != null ? value : "";
+    }
+
+
+    // Columns the list can return; the free-text answers are large and only
+    // selected with fields=, or read per record from GET /{id}
+    private static final Projection LIST_FIELDS = new Projection("id", "id")
+            .summary("ncNo", "nc_no")
+            .summary("internalAuditNo", "internal_audit_id")
+            .summary("clauseNo", "clause_no")
+            .summary("site", "site")
+            .summary("processArea", "process_area")
+            .summary("auditor", "auditor")
+            .summary("type", "type")
+            .summary("status", "status")
+            .summary("correctionWhen", "correction_when")
+            .summary("correctionWhom", "correction_whom")
+            .summary("correctiveWhen", "corrective_when")
+            .summary("correctiveWhom", "corrective_whom")
+            .large("correction", "correction")
+            .large("rootCause", "root_cause")
+            .large("corrective", "corrective");
 
+    // Get all nonconformities
+    @ReadOnly
+    @GET
+    @Produces(MediaType.APPLICATION_JSON)
+    public Response getNonconformities(@HeaderParam("company-code") String companyCode,
+                                       @QueryParam("fields") String fields) {
         Connection con = null;
         PreparedStatement ps = null;
-        PreparedStatement ps2 = null;
         ResultSet res = null;
-        ResultSet res2 = null;
-        List<Map<String, Object>> nonconformities = new ArrayList<>();
+        List<Nonconformity> nonconformities = new ArrayList<>();
 
         try {
-            logger.info("Fetching nonconformities view for company_code: " + companyCode + " and user_id: " + userId);
+            logger.info("Fetching nonconformities for company_code: " + companyCode);
 
-            if (!ValidationUtil.isNotEmpty(companyCode) || !ValidationUtil.isNotEmpty(userId)) {
-                return ErrorHandler.badRequest("Company code and user ID are required", "Missing required headers");
+            if (!ValidationUtil.isNotEmpty(companyCode)) {
+                return ErrorHandler.badRequest("Company code is required", "Missing company_code header");
             }
 
-            con = DBConfig.getConnection();
+            Projection.Selection selection;
+            try {
+                selection = LIST_FIELDS.select(fields);
+            } catch (IllegalArgumentException e) {
+                return ErrorHandler.badRequest(e.getMessage(), "Invalid fields parameter: " + fields);
+            }
 
-            String query = "SELECT * FROM " + companyCode + "_nonconformities WHERE id > 0";
+            con = DBConfig.getConnection();
+            String query = "SELECT " + selection.columns() + " FROM " + companyCode + "_nonconformities";
             ps = con.prepareStatement(query);
             res = ps.executeQuery();
 
             while (res.next()) {
-                Map<String, Object> nc = new HashMap<>();
-                nc.put("id", res.getString("id"));
-                nc.put("nc_no", res.getString("nc_no"));
-                nc.put("clause_no", res.getString("clause_no"));
-                nc.put("site", res.getString("site"));
-                nc.put("process_area", res.getString("process_area"));
-                nc.put("status", res.getString("status"));
-
-                // Fetch audit info
-                String auditQuery = "SELECT audit_no, std_name, status FROM " + companyCode + "_internal_audit_master WHERE id = ?";
-                ps2 = con.prepareStatement(auditQuery);
-                ps2.setString(1, res.getString("internal_audit_id"));
-                res2 = ps2.executeQuery();
-
-                if (res2.next()) {
-                    nc.put("audit_no", res2.getString("audit_no"));
-                    nc.put("standard_name", res2.getString("std_name"));
-                    nc.put("audit_status", res2.getString("status"));
-                } else {
-                    nc.put("audit_no", "");
-                    nc.put("standard_name", "");
-                    nc.put("audit_status", "");
-                }
-
-                nonconformities.add(nc);
-                closeResources(res2, ps2, null);
+                nonconformities.add(readNonconformity(res, selection));
             }
 
-            Map<String, Object> response = new HashMap<>();
-            response.put("success", true);
-            response.put("data", nonconformities);
-            return Response.ok(response).build();
+            return Response.ok(new NonconformitiesResponse(true, nonconformities)).build();
 
         } catch (SQLException e) {
             return ErrorHandler.serverError("Database error occurred", e);
@@ -807,50 +898,58 @@ public class InternalNonconformitiesResource {
         }
     }
 
+    // Fields left out of the selection stay null
+    private static Nonconformity readNonconformity(ResultSet res, Projection.Selection selection) throws SQLException {
+        Nonconformity nc = new Nonconformity();
+        nc.id = selection.getString(res, "id");
+        nc.ncNo = selection.getString(res, "ncNo");
+        nc.internalAuditNo = selection.getString(res, "internalAuditNo");
+        nc.clauseNo = selection.getString(res, "clauseNo");
+        nc.site = selection.getString(res, "site");
+        nc.processArea = selection.getString(res, "processArea");
+        nc.auditor = selection.getString(res, "auditor");
+        nc.type = selection.getString(res, "type");
+        nc.status = selection.getString(res, "status");
+        nc.correction = selection.getString(res, "correction");
+        nc.correctionWhen = selection.getString(res, "correctionWhen");
+        nc.correctionWhom = selection.getString(res, "correctionWhom");
+        nc.rootCause = selection.getString(res, "rootCause");
+        nc.corrective = selection.getString(res, "corrective");
+        nc.correctiveWhen = selection.getString(res, "correctiveWhen");
+        nc.correctiveWhom = selection.getString(res, "correctiveWhom");
+        return nc;
+    }
 
-    // Get all nonconformities
+    // Get one nonconformity with all of its text
+    @ReadOnly
     @GET
+    @Path("/{id}")
     @Produces(MediaType.APPLICATION_JSON)
-    public Response getNonconformities(@HeaderParam("company-code") String companyCode) {
+    public Response getNonconformity(@HeaderParam("company-code") String companyCode,
+                                     @PathParam("id") String id) {
         Connection con = null;
         PreparedStatement ps = null;
         ResultSet res = null;
-        List<Nonconformity> nonconformities = new ArrayList<>();
 
         try {
-            logger.info("Fetching nonconformities for company_code: " + companyCode);
+            logger.info("Fetching nonconformity id: " + id + " for company_code: " + companyCode);
 
-            if (!ValidationUtil.isNotEmpty(companyCode)) {
-                return ErrorHandler.badRequest("Company code is required", "Missing company_code header");
+            if (!ValidationUtil.isNotEmpty(companyCode) || !ValidationUtil.isNotEmpty(id)) {
+                return ErrorHandler.badRequest("Company code and nonconformity ID are required", "Missing required headers or parameters");
             }
 
+            Projection.Selection selection = LIST_FIELDS.select("all");
             con = DBConfig.getConnection();
-            String query = "SELECT * FROM " + companyCode + "_nonconformities";
+            String query = "SELECT " + selection.columns() + " FROM " + companyCode + "_nonconformities WHERE id = ?";
             ps = con.prepareStatement(query);
+            ps.setString(1, id);
             res = ps.executeQuery();
 
-            while (res.next()) {
-                Nonconformity nc = new Nonconformity();
-                nc.id = res.getString("id");
-                nc.ncNo = res.getString("nc_no");
-                nc.internalAuditNo = res.getString("internal_audit_id");
-                nc.clauseNo = res.getString("clause_no");
-                nc.site = res.getString("site");
-                nc.processArea = res.getString("process_area");
-                nc.auditor = res.getString("auditor");
-                nc.type = res.getString("type");
-                nc.status = res.getString("status");
-                nc.correction = res.getString("correction");
-                nc.correctionWhen = res.getString("correction_when");
-                nc.correctionWhom = res.getString("correction_whom");
-                nc.rootCause = res.getString("root_cause");
-                nc.corrective = res.getString("corrective");
-                nc.correctiveWhen = res.getString("corrective_when");
-                nc.correctiveWhom = res.getString("corrective_whom");
-                nonconformities.add(nc);
+            if (!res.next()) {
+                return ErrorHandler.notFound("Nonconformity not found", "ID: " + id);
             }
 
-            return Response.ok(new NonconformitiesResponse(true, nonconformities)).build();
+            return Response.ok(new NonconformityResponse(true, readNonconformity(res, selection))).build();
 
         } catch (SQLException e) {
             return ErrorHandler.serverError("Database error occurred", e);
@@ -887,13 +986,9 @@ public class InternalNonconformitiesResource {
 
             con = DBConfig.getConnection();
             // Generate new ID
-            String query = "SELECT MAX(id) FROM " + companyCode + "_nonconformities";
-            ps = con.prepareStatement(query);
-            ResultSet rs = ps.executeQuery();
-            int ncId = rs.next() ? rs.getInt(1) + 1 : 1;
-            closeResources(rs, ps, null);
+            int ncId = IdAllocator.nextId(con, companyCode + "_nonconformities");
 
-            query = "INSERT INTO " + companyCode + "_nonconformities (id, nc_no, internal_audit_id, clause_no, site, process_area, auditor, type, status, correction, correction_when, correction_whom, root_cause, corrective, corrective_when, corrective_whom) VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)";
+            String query = "INSERT INTO " + companyCode + "_nonconformities (id, nc_no, internal_audit_id, clause_no, site, process_area, auditor, type, status, correction, correction_when, correction_whom, root_cause, corrective, corrective_when, corrective_whom) VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)";
             ps = con.prepareStatement(query);
             ps.setInt(1, ncId);
             ps.setString(2, request.ncNo);
@@ -1258,32 +1353,21 @@ public class InternalNonconformitiesResource {
                 return ErrorHandler.badRequest("Company code, actual company code, and login type are required", "Missing parameters");
             }
 
-            con = DBConfig.getConnection();
-            String tablePrefix = "";
-            if (loginType.equalsIgnoreCase("Certification body Client")) {
-                tablePrefix = "CB_" + parentCompanyCode + "_";
-            } else if (loginType.equalsIgnoreCase("Consultant Client")) {
-                tablePrefix = "CS_" + parentCompanyCode + "_";
-            } else if (loginType.equalsIgnoreCase("CPA Client")) {
-                tablePrefix = "CPA_" + parentCompanyCode + "_";
-            } else if (loginType.equalsIgnoreCase("Client Login")) {
-                tablePrefix = "";
-            } else {
+            if (!loginType.equalsIgnoreCase("Certification body Client") && !loginType.equalsIgnoreCase("Consultant Client")
+                    && !loginType.equalsIgnoreCase("CPA Client") && !loginType.equalsIgnoreCase("Client Login")) {
                 return ErrorHandler.badRequest("Invalid login type", "Login type: " + loginType);
             }
 
-            String query = "SELECT street1, street2, village, pincode FROM " + tablePrefix + "company_registration WHERE company_code = ?";
-            ps = con.prepareStatement(query);
-            ps.setString(1, actualCompanyCode);
-            res = ps.executeQuery();
+            con = DBConfig.getConnection();
+            TenantRegistry.Tenant tenant = TenantRegistry.get(con, actualCompanyCode, loginType, parentCompanyCode);
 
-            if (res.next()) {
+            if (tenant != null) {
                 SiteDetails details = new SiteDetails();
                 StringBuilder site = new StringBuilder();
-                if (res.getString("street1") != null) site.append(res.getString("street1"));
-                if (res.getString("street2") != null) site.append(res.getString("street2"));
-                if (res.getString("village") != null) site.append("-").append(res.getString("village"));
-                if (res.getString("pincode") != null) site.append("-").append(res.getString("pincode"));
+                if (tenant.street1 != null) site.append(tenant.street1);
+                if (tenant.street2 != null) site.append(tenant.street2);
+                if (tenant.village != null) site.append("-").append(tenant.village);
+                if (tenant.pincode != null) site.append("-").append(tenant.pincode);
                 details.site = site.toString();
                 return Response.ok(new SiteResponse(true, details)).build();
             } else {
@@ -6,7 +6,6 @@ import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.time.LocalDate;
-import java.util.Date;
 
 import jakarta.ws.rs.*;
 import jakarta.ws.rs.core.MediaType;
@@ -14,6 +13,7 @@ import jakarta.ws.rs.core.Response;
 import com.example.util.DBConfig;
 import com.example.util.ErrorHandler;
 import com.example.util.SecurityUtil;
+import com.example.util.TenantRegistry;
 import com.example.util.ValidationUtil;
 
 @Path("/ValidateLogin")
@@ -85,12 +85,6 @@ public class LoginResource {
     @Consumes(MediaType.APPLICATION_JSON)
     @Produces(MediaType.APPLICATION_JSON)
     public Response validateLogin(LoginRequest request) {
-        Connection con = null;
-        PreparedStatement ps = null;
-        ResultSet res = null;
-        ResultSet res1 = null;
-        ResultSet res2 = null;
-
         try {
             logger.info("Received login request for username: " + (request.username != null ? request.username : "null"));
 
@@ -126,14 +120,12 @@ public class LoginResource {
                         "Invalid username format: " + request.username);
             }
 
-            con = DBConfig.getConnection();
             String actualCompanyCode = request.companyCode;
             String actualParentCompanyCode = request.parentCompanyCode != null ? request.parentCompanyCode : "";
-            String companyCode = request.companyCode.replaceAll(" ", "_");
             String parentCompanyCode = request.parentCompanyCode != null ? request.parentCompanyCode.replaceAll(" ", "_") : "";
 
             // Format company code based on login type
-            companyCode = formatCompanyCode(companyCode, parentCompanyCode, request.loginType);
+            String companyCode = TenantRegistry.tableCode(request.companyCode, request.loginType, parentCompanyCode);
 
             // Prepare login query
             String query;
@@ -142,45 +134,47 @@ public class LoginResource {
             } catch (IllegalArgumentException e) {
                 return ErrorHandler.badRequest("Invalid company code", e.getMessage());
             }
-            
-            ps = con.prepareStatement(query);
-            ps.setString(1, request.username);
-            
-            // In a real implementation, we would hash the password and compare with stored hash
-            // For now, we'll just use the plain password for compatibility with existing data
-            ps.setString(2, request.password);
-            
-            res = ps.executeQuery();
-
-            String employeeId = null;
-            String employeeName = null;
-            String empId = null;
-
-            if (res.next()) {
-                employeeId = res.getString("user_id");
-                employeeName = res.getString("username");
-                empId = res.getString("emp_id");
 
-                logger.info("Login successful for user: " + employeeName);
+            // Credentials and employee are read in one round trip, the company in a second:
+            // its status and package always from the database, the rest from the registry
+            // when cached
+            LoginRow row;
+            try (Connection con = DBConfig.getConnection()) {
+                try (PreparedStatement ps = con.prepareStatement(query)) {
+                    ps.setString(1, request.username);
+
+                    // In a real implementation, we would hash the password and compare with stored hash
+                    // For now, we'll just use the plain password for compatibility with existing data
+                    ps.setString(2, request.password);
+
+                    try (ResultSet res = ps.executeQuery()) {
+                        row = res.next() ? readLoginRow(res, request.loginType) : null;
+                    }
+                }
+
+                if (row == null || row.employeeId == null) {
+                    return ErrorHandler.unauthorized("Invalid username or password",
+                            "Invalid login attempt for username: " + request.username);
+                }
+                if ("Client Login".equalsIgnoreCase(request.loginType)) {
+                    TenantRegistry.Registration registration = TenantRegistry.getWithStatus(con, actualCompanyCode);
+                    if (registration != null) {
+                        readTenant(row, registration.tenant, registration.status);
+                    }
+                } else {
+                    readTenant(row, TenantRegistry.get(con, actualCompanyCode, request.loginType, parentCompanyCode), null);
+                }
             }
-
-            if (employeeId == null) {
-                return ErrorHandler.unauthorized("Invalid username or password", 
-                        "Invalid login attempt for username: " + request.username);
-            }
-
-            // Fetch company details and employee data
-            CompanyData companyData = fetchCompanyData(con, ps, res1, res2, request.loginType, 
-                    actualCompanyCode, actualParentCompanyCode, parentCompanyCode, companyCode, empId);
+            logger.info("Login successful for user: " + row.employeeName);
 
             // Create UserData object
-            UserData userData = new UserData(employeeId, employeeName, companyCode, actualCompanyCode,
-                    companyData.loginCompanyName, request.loginType, companyData.configType, companyData.riskType, 
-                    parentCompanyCode, actualParentCompanyCode, companyData.companyId, 
-                    companyData.useDesignationId, companyData.userDepartmentId);
+            UserData userData = new UserData(row.employeeId, row.employeeName, companyCode, actualCompanyCode,
+                    row.loginCompanyName, request.loginType, row.configType, row.riskType, 
+                    parentCompanyCode, actualParentCompanyCode, row.companyId, 
+                    row.useDesignationId, row.userDepartmentId);
 
             // Determine redirect path
-            String redirectPath = getRedirectPath(request.loginType, companyData.packageStatus, companyData.companyStatus);
+            String redirectPath = getRedirectPath(request.loginType, row.packageStatus, row.companyStatus);
             
             logger.info("Redirecting to: " + redirectPath);
             return Response.ok(new LoginResponse(redirectPath, userData)).build();
@@ -189,38 +183,35 @@ public class LoginResource {
             return ErrorHandler.serverError("Database error occurred", e);
         } catch (Exception e) {
             return ErrorHandler.serverError("An unexpected error occurred", e);
-        } finally {
-            closeResources(res, res1, res2, ps, con);
         }
     }
     
-    private String formatCompanyCode(String companyCode, String parentCompanyCode, String loginType) {
-        if ("Certification body".equalsIgnoreCase(loginType)) {
-            return "CB_" + companyCode;
-        } else if ("Consultant".equalsIgnoreCase(loginType)) {
-            return "CS_" + companyCode;
-        } else if ("CPA".equalsIgnoreCase(loginType)) {
-            return "CPA_" + companyCode;
-        } else if ("Certification body Client".equalsIgnoreCase(loginType)) {
-            return "CB_" + parentCompanyCode + "_" + companyCode;
-        } else if ("Consultant Client".equalsIgnoreCase(loginType)) {
-            return "CS_" + parentCompanyCode + "_" + companyCode;
-        } else if ("CPA Client".equalsIgnoreCase(loginType)) {
-            return "CPA_" + parentCompanyCode + "_" + companyCode;
-        }
-        return companyCode;
-    }
-
+    /**
+     * Builds the login query: the user row, LEFT JOINed with the employee row
+     * for client login types. Every variant returns the same columns, NULL
+     * where the type has none. Username and password are its parameters.
+     */
     private String prepareLoginQuery(String companyCode, String loginType) {
         if (!ValidationUtil.isValidCompanyCode(companyCode)) {
             logger.warning("Invalid company code received: " + companyCode);
             throw new IllegalArgumentException("Invalid company code");
         }
-        if ("Niall Login".equalsIgnoreCase(loginType)) {
-            return "SELECT * FROM niall_user_master WHERE username = ? AND password = ?";
-        } else {
-            return "SELECT * FROM " + companyCode + "_user_master WHERE username = ? AND password = ?";
+
+        String userTable = "Niall Login".equalsIgnoreCase(loginType) ? "niall_user_master" : companyCode + "_user_master";
+        boolean employee = "Client Login".equalsIgnoreCase(loginType)
+                || "Certification body Client".equalsIgnoreCase(loginType)
+                || "Consultant Client".equalsIgnoreCase(loginType)
+                || "CPA Client".equalsIgnoreCase(loginType);
+
+        StringBuilder sql = new StringBuilder("SELECT u.user_id, u.username, u.emp_id, ");
+        sql.append(employee ? "e.designation_id, e.department_id"
+                : "NULL AS designation_id, NULL AS department_id");
+        sql.append(" FROM ").append(userTable).append(" u");
+        if (employee) {
+            sql.append(" LEFT JOIN ").append(companyCode).append("_employee_detail e ON e.id = u.emp_id");
         }
+        sql.append(" WHERE u.username = ? AND u.password = ?");
+        return sql.toString();
     }
 
     private String getRedirectPath(String loginType, String packageStatus, String companyStatus) {
@@ -238,7 +229,9 @@ public class LoginResource {
         }
     }
     
-    private static class CompanyData {
+    private static class LoginRow {
+        String employeeId;
+        String employeeName;
         String loginCompanyName = "";
         String configType = null;
         String riskType = null;
@@ -248,150 +241,38 @@ public class LoginResource {
         String companyStatus = null;
         String packageStatus = "Expired";
     }
-    
-    private CompanyData fetchCompanyData(Connection con, PreparedStatement ps, ResultSet res1, ResultSet res2, 
-            String loginType, String actualCompanyCode, String actualParentCompanyCode, 
-            String parentCompanyCode, String companyCode, String empId) throws SQLException {
-        
-        CompanyData data = new CompanyData();
-        String query;
-        int companyIdInt = 0;
-        Date validityTo = null;
 
-        if ("Certification body".equalsIgnoreCase(loginType)) {
-            query = "SELECT * FROM certification_body WHERE company_code = ?";
-            ps = con.prepareStatement(query);
-            ps.setString(1, actualCompanyCode);
-            res2 = ps.executeQuery();
-            if (res2.next()) {
-                data.loginCompanyName = res2.getString("company_name");
-            }
-        } else if ("Consultant".equalsIgnoreCase(loginType)) {
-            query = "SELECT * FROM consultant WHERE company_code = ?";
-            ps = con.prepareStatement(query);
-            ps.setString(1, actualCompanyCode);
-            res2 = ps.executeQuery();
-            if (res2.next()) {
-                data.loginCompanyName = res2.getString("company_name");
-            }
-        } else if ("CPA".equalsIgnoreCase(loginType)) {
-            query = "SELECT * FROM cpa WHERE company_code = ?";
-            ps = con.prepareStatement(query);
-            ps.setString(1, actualCompanyCode);
-            res2 = ps.executeQuery();
-            if (res2.next()) {
-                data.loginCompanyName = res2.getString("company_name");
-            }
-        } else if ("Niall Login".equalsIgnoreCase(loginType)) {
-            data.loginCompanyName = "Niall Services";
-        } else if ("Client Login".equalsIgnoreCase(loginType)) {
-            query = "SELECT * FROM company_registration WHERE company_code = ?";
-            ps = con.prepareStatement(query);
-            ps.setString(1, actualCompanyCode);
-            res2 = ps.executeQuery();
-            if (res2.next()) {
-                data.loginCompanyName = res2.getString("company_name");
-                data.configType = res2.getString("config_type");
-                data.riskType = res2.getString("risk_type");
-                data.companyId = res2.getString("id");
-                data.companyStatus = res2.getString("company_status");
-                companyIdInt = res2.getInt("id");
-            }
+    private LoginRow readLoginRow(ResultSet res, String loginType) throws SQLException {
+        LoginRow row = new LoginRow();
+        row.employeeId = res.getString("user_id");
+        row.employeeName = res.getString("username");
+        row.useDesignationId = res.getString("designation_id");
+        row.userDepartmentId = res.getString("department_id");
 
-            query = "SELECT * FROM " + companyCode + "_employee_detail WHERE id = ?";
-            ps = con.prepareStatement(query);
-            ps.setString(1, empId);
-            res1 = ps.executeQuery();
-            if (res1.next()) {
-                data.useDesignationId = res1.getString("designation_id");
-                data.userDepartmentId = res1.getString("department_id");
-            }
-        } else if ("Certification body Client".equalsIgnoreCase(loginType)) {
-            query = "SELECT * FROM CB_" + parentCompanyCode + "_company_registration WHERE company_code = ?";
-            ps = con.prepareStatement(query);
-            ps.setString(1, actualCompanyCode);
-            res2 = ps.executeQuery();
-            if (res2.next()) {
-                data.loginCompanyName = res2.getString("company_name");
-            }
-
-            query = "SELECT * FROM " + companyCode + "_employee_detail WHERE id = ?";
-            ps = con.prepareStatement(query);
-            ps.setString(1, empId);
-            res1 = ps.executeQuery();
-            if (res1.next()) {
-                data.useDesignationId = res1.getString("designation_id");
-                data.userDepartmentId = res1.getString("department_id");
-            }
-        } else if ("Consultant Client".equalsIgnoreCase(loginType)) {
-            query = "SELECT * FROM CS_" + parentCompanyCode + "_company_registration WHERE company_code = ?";
-            ps = con.prepareStatement(query);
-            ps.setString(1, actualCompanyCode);
-            res2 = ps.executeQuery();
-            if (res2.next()) {
-                data.loginCompanyName = res2.getString("company_name");
-            }
-
-            query = "SELECT * FROM " + companyCode + "_employee_detail WHERE id = ?";
-            ps = con.prepareStatement(query);
-            ps.setString(1, empId);
-            res1 = ps.executeQuery();
-            if (res1.next()) {
-                data.useDesignationId = res1.getString("designation_id");
-                data.userDepartmentId = res1.getString("department_id");
-            }
-        } else if ("CPA Client".equalsIgnoreCase(loginType)) {
-            query = "SELECT * FROM CPA_" + parentCompanyCode + "_company_registration WHERE company_code = ?";
-            ps = con.prepareStatement(query);
-            ps.setString(1, actualCompanyCode);
-            res2 = ps.executeQuery();
-            if (res2.next()) {
-                data.loginCompanyName = res2.getString("company_name");
-            }
-
-            query = "SELECT * FROM " + companyCode + "_employee_detail WHERE id = ?";
-            ps = con.prepareStatement(query);
-            ps.setString(1, empId);
-            res1 = ps.executeQuery();
-            if (res1.next()) {
-                data.useDesignationId = res1.getString("designation_id");
-                data.userDepartmentId = res1.getString("department_id");
-            }
+        if ("Niall Login".equalsIgnoreCase(loginType)) {
+            row.loginCompanyName = "Niall Services";
         }
+        return row;
+    }
 
-        // Check package validity
-        if (companyIdInt > 0) {
-            query = "SELECT * FROM package_validity_detail WHERE status = 'Active' AND company_id = ?";
-            ps = con.prepareStatement(query);
-            ps.setInt(1, companyIdInt);
-            res1 = ps.executeQuery();
-            if (res1.next()) {
-                data.packageStatus = res1.getString("status");
-                validityTo = res1.getDate("validity_to");
-            }
+    /**
+     * Copies the company fields the login type reports. Only direct clients
+     * report their id, types, status and package, and only they come with a
+     * status, read on every login rather than from the registry's cache.
+     */
+    private void readTenant(LoginRow row, TenantRegistry.Tenant tenant, TenantRegistry.Status status) {
+        if (tenant == null) {
+            return;
         }
-
-        // Check if package is expired based on validity_to date
-        if (validityTo != null) {
-            LocalDate todaysDate = LocalDate.now();
-            LocalDate validityDate = new java.sql.Date(validityTo.getTime()).toLocalDate();
-            if (validityDate.isBefore(todaysDate)) {
-                data.packageStatus = "Expired";
-            }
+        if (tenant.name != null) {
+            row.loginCompanyName = tenant.name;
         }
-        
-        return data;
-    }
-
-    private void closeResources(ResultSet res, ResultSet res1, ResultSet res2, PreparedStatement ps, Connection con) {
-        try {
-            if (res != null) res.close();
-            if (res1 != null) res1.close();
-            if (res2 != null) res2.close();
-            if (ps != null) ps.close();
-            if (con != null) con.close();
-        } catch (SQLException e) {
-            logger.warning("Error closing resources: " + e.getMessage());
+        if (status != null) {
+            row.companyId = tenant.id;
+            row.configType = tenant.configType;
+            row.riskType = tenant.riskType;
+            row.companyStatus = status.companyStatus;
+            row.packageStatus = status.getPackageStatus(LocalDate.now());
         }
     }
 }
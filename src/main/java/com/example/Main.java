@@ -1,44 +1,87 @@
 package com.example;
 
+import com.example.util.AuditLogWriter;
+import com.example.util.DBConfig;
+import com.example.util.VirtualThreadExecutor;
 import org.glassfish.grizzly.http.server.HttpServer;
+import org.glassfish.grizzly.http.server.NetworkListener;
+import org.glassfish.grizzly.nio.transport.TCPNIOTransport;
+import org.glassfish.grizzly.strategies.WorkerThreadIOStrategy;
 import org.glassfish.jersey.grizzly2.httpserver.GrizzlyHttpServerFactory;
 import org.glassfish.jersey.server.ResourceConfig;
 import org.glassfish.jersey.media.multipart.MultiPartFeature;
 
 import java.io.IOException;
 import java.net.URI;
+import java.util.logging.Logger;
 
 public class Main {
 
+    private static final Logger logger = Logger.getLogger(Main.class.getName());
+
     private static final URI BASE_URI = URI.create("http://localhost:9000/");
     private static final int MAX_FILE_SIZE = 20 * 1024 * 1024; // 20MB
     private static final int MAX_REQUEST_SIZE = 50 * 1024 * 1024; // 50MB
 
-    public static HttpServer startServer() {
+    // "virtual" runs each request on a virtual thread; anything else keeps the default Grizzly worker pool
+    private static final String THREAD_MODE = System.getProperty("server.threads", "pool");
+    private static final int MAX_IN_FLIGHT = Integer.getInteger("server.maxInFlight", 1000);
+    private static final int MAX_QUEUED = Integer.getInteger("server.maxQueued", 100);
+    private static final int MAX_PENDING_BYTES = Integer.getInteger("server.maxPendingBytes", 1024 * 1024); // 1MB per connection
+
+    public static HttpServer startServer() throws IOException {
         // Create ResourceConfig and scan the "com.example" package for resources
         final ResourceConfig config = new ResourceConfig()
                 .packages("com.example")
                 .register(CORSFilter.class)
+                .register(AdminTokenFilter.class)
+                .register(ReadOnlyRoutingFilter.class)
+                .register(QueryMetricsFilter.class)
+                .register(TenantBulkheadFilter.class)
                 .register(MultiPartFeature.class);
 
-        // Create and start the Grizzly HTTP server
-        HttpServer server = GrizzlyHttpServerFactory.createHttpServer(BASE_URI, config);
+        // Create the Grizzly HTTP server; it is started once the listeners are configured
+        HttpServer server = GrizzlyHttpServerFactory.createHttpServer(BASE_URI, config, false);
         
         // Configure file upload limits
         for (NetworkListener listener : server.getListeners()) {
             listener.getFileUploadProperties().setMaxFileSize(MAX_FILE_SIZE);
             listener.getFileUploadProperties().setMaxPostSize(MAX_REQUEST_SIZE);
+
+            if ("virtual".equalsIgnoreCase(THREAD_MODE)) {
+                useVirtualThreads(listener);
+            }
         }
 
+        server.start();
         return server;
     }
 
+    /**
+     * Keeps the selector threads on I/O only and hands every request to its own
+     * virtual thread, so blocking JDBC calls no longer tie up a platform worker.
+     * Requests beyond maxInFlight plus maxQueued are rejected, which drops the
+     * connection. Each connection's write queue is capped at maxPendingBytes;
+     * a response writer over the cap waits for the client to drain it.
+     */
+    private static void useVirtualThreads(NetworkListener listener) {
+        TCPNIOTransport transport = listener.getTransport();
+        transport.setSelectorRunnersCount(Runtime.getRuntime().availableProcessors());
+        transport.setIOStrategy(WorkerThreadIOStrategy.getInstance());
+        transport.setWorkerThreadPool(new VirtualThreadExecutor("http-" + listener.getName(), MAX_IN_FLIGHT, MAX_QUEUED));
+        listener.setMaxPendingBytes(MAX_PENDING_BYTES);
+        logger.info("Listener " + listener.getName() + " dispatching requests to virtual threads (max in flight: "
+                + MAX_IN_FLIGHT + ", max queued: " + MAX_QUEUED + ", max pending bytes: " + MAX_PENDING_BYTES + ")");
+    }
+
     public static void main(String[] args) throws IOException {
         final HttpServer server = startServer();
         System.out.println("Jersey app started. Visit: " + BASE_URI);
         System.out.println("Press ENTER to stop the server...");
         System.in.read();
         server.shutdownNow();
+        AuditLogWriter.shutdown();
+        DBConfig.shutdown();
     }
 
 }
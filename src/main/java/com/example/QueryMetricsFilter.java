@@ -0,0 +1,30 @@
+package com.example;
+
+import com.example.util.QueryMetrics;
+import com.example.util.ValidationUtil;
+import jakarta.ws.rs.container.ContainerRequestContext;
+import jakarta.ws.rs.container.ContainerRequestFilter;
+import jakarta.ws.rs.container.ContainerResponseContext;
+import jakarta.ws.rs.container.ContainerResponseFilter;
+import jakarta.ws.rs.ext.Provider;
+
+import java.io.IOException;
+
+/**
+ * Tells {@link QueryMetrics} which company the current request belongs to, so
+ * its table prefix can be recognised in the SQL the resource runs.
+ */
+@Provider
+public class QueryMetricsFilter implements ContainerRequestFilter, ContainerResponseFilter {
+
+    @Override
+    public void filter(ContainerRequestContext requestContext) throws IOException {
+        String companyCode = requestContext.getHeaderString("company-code");
+        QueryMetrics.setTenant(ValidationUtil.isValidCompanyCode(companyCode) ? companyCode : null);
+    }
+
+    @Override
+    public void filter(ContainerRequestContext requestContext, ContainerResponseContext responseContext) throws IOException {
+        QueryMetrics.clearTenant();
+    }
+}
@@ -0,0 +1,39 @@
+package com.example;
+
+import com.example.util.ReadOnly;
+import com.example.util.ReplicaRouter;
+import jakarta.ws.rs.container.ContainerRequestContext;
+import jakarta.ws.rs.container.ContainerRequestFilter;
+import jakarta.ws.rs.container.ContainerResponseContext;
+import jakarta.ws.rs.container.ContainerResponseFilter;
+import jakarta.ws.rs.container.ResourceInfo;
+import jakarta.ws.rs.core.Context;
+import jakarta.ws.rs.ext.Provider;
+
+import java.io.IOException;
+import java.lang.reflect.Method;
+
+@Provider
+public class ReadOnlyRoutingFilter implements ContainerRequestFilter, ContainerResponseFilter {
+
+    @Context
+    private ResourceInfo resourceInfo;
+
+    @Override
+    public void filter(ContainerRequestContext requestContext) throws IOException {
+        // Worker threads are reused, so never inherit a mark from an earlier request
+        ReplicaRouter.clear();
+
+        Method method = resourceInfo.getResourceMethod();
+        Class<?> resourceClass = resourceInfo.getResourceClass();
+        if ((method != null && method.isAnnotationPresent(ReadOnly.class))
+                || (resourceClass != null && resourceClass.isAnnotationPresent(ReadOnly.class))) {
+            ReplicaRouter.markReadOnly();
+        }
+    }
+
+    @Override
+    public void filter(ContainerRequestContext requestContext, ContainerResponseContext responseContext) throws IOException {
+        ReplicaRouter.clear();
+    }
+}
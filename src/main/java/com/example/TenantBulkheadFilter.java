@@ -0,0 +1,61 @@
+package com.example;
+
+import com.example.util.ErrorHandler;
+import com.example.util.TenantBulkhead;
+import com.example.util.ValidationUtil;
+import jakarta.ws.rs.container.ContainerRequestContext;
+import jakarta.ws.rs.container.ContainerRequestFilter;
+import jakarta.ws.rs.core.Response;
+import jakarta.ws.rs.ext.Provider;
+import org.glassfish.jersey.server.monitoring.ApplicationEvent;
+import org.glassfish.jersey.server.monitoring.ApplicationEventListener;
+import org.glassfish.jersey.server.monitoring.RequestEvent;
+import org.glassfish.jersey.server.monitoring.RequestEventListener;
+
+import java.io.IOException;
+
+/**
+ * Admits each request carrying a {@code company-code} header through that
+ * company's {@link TenantBulkhead} compartment. The slot is released when
+ * Jersey reports the request finished, whether or not it completed normally.
+ */
+@Provider
+public class TenantBulkheadFilter implements ContainerRequestFilter, ApplicationEventListener {
+
+    private static final String PERMIT_PROPERTY = TenantBulkheadFilter.class.getName() + ".permit";
+    private static final String RETRY_AFTER_SECONDS = "1";
+
+    @Override
+    public void filter(ContainerRequestContext requestContext) throws IOException {
+        String companyCode = requestContext.getHeaderString("company-code");
+        if (!ValidationUtil.isValidCompanyCode(companyCode)) {
+            // Resources reject these themselves; don't create compartments for junk values
+            return;
+        }
+
+        try {
+            requestContext.setProperty(PERMIT_PROPERTY, TenantBulkhead.acquire(companyCode));
+        } catch (TenantBulkhead.RejectedException e) {
+            Response rejection = e.getReason() == TenantBulkhead.Rejection.QUEUE_FULL
+                    ? ErrorHandler.tooManyRequests("Too many concurrent requests for this company, please retry", e.getMessage())
+                    : ErrorHandler.serviceUnavailable("Service busy, please retry", e.getMessage());
+            requestContext.abortWith(Response.fromResponse(rejection).header("Retry-After", RETRY_AFTER_SECONDS).build());
+        }
+    }
+
+    @Override
+    public void onEvent(ApplicationEvent event) {
+    }
+
+    @Override
+    public RequestEventListener onRequest(RequestEvent requestEvent) {
+        return event -> {
+            if (event.getType() == RequestEvent.Type.FINISHED) {
+                Object permit = event.getContainerRequest().getProperty(PERMIT_PROPERTY);
+                if (permit instanceof TenantBulkhead.Permit) {
+                    ((TenantBulkhead.Permit) permit).release();
+                }
+            }
+        };
+    }
+}
@@ -0,0 +1,321 @@
+package com.example.util;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Utility class for writing the {@code <companyCode>_log_master} audit trail off the request thread.
+ *
+ * Entries go into a bounded in-memory queue drained by one background writer,
+ * which groups them per company into multi-row INSERTs of up to
+ * {@code db.auditLog.batchSize} rows, at least every
+ * {@code db.auditLog.flushIntervalMillis}. When the queue is full the caller
+ * waits up to {@code db.auditLog.maxWaitMillis} and then writes its entry
+ * itself, so the trail is never dropped to keep latency down. If a
+ * multi-row INSERT fails, its entries are retried one at a time so one bad
+ * row does not take the rest of the batch with it.
+ *
+ * Entries are only durable once written; {@link #flush()} waits for the
+ * entries queued so far, and {@link #shutdown()} flushes whatever is still
+ * queued and must run before the connection pool is closed.
+ */
+public class AuditLogWriter {
+
+    private static final Logger logger = Logger.getLogger(AuditLogWriter.class.getName());
+
+    private static final int QUEUE_CAPACITY = ConfigUtil.intSetting("db.auditLog.queueCapacity", 10000);
+    private static final int BATCH_SIZE = Math.max(1, ConfigUtil.intSetting("db.auditLog.batchSize", 100));
+    private static final long FLUSH_INTERVAL_MILLIS = ConfigUtil.longSetting("db.auditLog.flushIntervalMillis", 200);
+    private static final long MAX_WAIT_MILLIS = ConfigUtil.longSetting("db.auditLog.maxWaitMillis", 50);
+    private static final long FLUSH_TIMEOUT_MILLIS = ConfigUtil.longSetting("db.auditLog.flushTimeoutMillis", 5000);
+    private static final long SHUTDOWN_TIMEOUT_MILLIS = ConfigUtil.longSetting("db.auditLog.shutdownTimeoutMillis", 10000);
+
+    private static final String COLUMNS = " (id, fired_date, fired_by, status, module_name, module_id) VALUES ";
+    private static final String ROW_PLACEHOLDERS = "(?, ?, ?, ?, ?, ?)";
+
+    private static final BlockingQueue<Entry> QUEUE = new ArrayBlockingQueue<>(QUEUE_CAPACITY);
+    private static final Thread WRITER;
+    private static volatile boolean running = true;
+
+    private static final LongAdder enqueued = new LongAdder();
+    private static final LongAdder written = new LongAdder();
+    private static final LongAdder batches = new LongAdder();
+    private static final LongAdder failed = new LongAdder();
+    private static final LongAdder callerWrites = new LongAdder();
+
+    static {
+        WRITER = new Thread(AuditLogWriter::drain, "audit-log-writer");
+        WRITER.setDaemon(true);
+        WRITER.start();
+    }
+
+    /**
+     * One row of the audit trail, or a flush marker: the writer releases a
+     * marker once everything queued ahead of it has been written.
+     */
+    private static class Entry {
+        final String companyCode;
+        final String firedDate;
+        final String firedBy;
+        final String status;
+        final String moduleName;
+        final String moduleId;
+        final CountDownLatch flushed;
+
+        Entry(String companyCode, String firedDate, String firedBy, String status, String moduleName, String moduleId) {
+            this.companyCode = companyCode;
+            this.firedDate = firedDate;
+            this.firedBy = firedBy;
+            this.status = status;
+            this.moduleName = moduleName;
+            this.moduleId = moduleId;
+            this.flushed = null;
+        }
+
+        Entry() {
+            this.companyCode = null;
+            this.firedDate = null;
+            this.firedBy = null;
+            this.status = null;
+            this.moduleName = null;
+            this.moduleId = null;
+            this.flushed = new CountDownLatch(1);
+        }
+
+        @Override
+        public String toString() {
+            return companyCode + "[" + firedDate + ", " + firedBy + ", " + status + ", " + moduleName + ", " + moduleId + "]";
+        }
+    }
+
+    /**
+     * Queue depth and throughput counters.
+     */
+    public static class WriterStats {
+        public int queued;
+        public int queueCapacity;
+        public int batchSize;
+        public long flushIntervalMillis;
+        public long enqueued;
+        public long written;
+        public long batches;
+        public double avgBatchSize;
+        public long failed;
+        public long callerWrites;
+    }
+
+    /**
+     * Records an action in the company's log_master table. Returns as soon as
+     * the entry is queued; the row is written by the background writer.
+     *
+     * Call this after the action's own transaction has committed, so a rolled
+     * back action is never logged.
+     *
+     * @param companyCode The company code (table prefix)
+     * @param firedDate The action date, yyyy-MM-dd
+     * @param firedBy The employee who performed the action
+     * @param status The action or new status, e.g. "Approve"
+     * @param moduleName The module, e.g. "Internal Audit"
+     * @param moduleId The id of the record acted on
+     */
+    public static void log(String companyCode, String firedDate, String firedBy,
+                           String status, String moduleName, String moduleId) {
+        Entry entry = new Entry(companyCode, firedDate, firedBy, status, moduleName, moduleId);
+        enqueued.increment();
+
+        if (running) {
+            try {
+                if (QUEUE.offer(entry, MAX_WAIT_MILLIS, TimeUnit.MILLISECONDS)) {
+                    return;
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+
+        // Queue full (or writer stopped): write on the caller's thread rather than lose the entry
+        callerWrites.increment();
+        List<Entry> single = new ArrayList<>(1);
+        single.add(entry);
+        write(companyCode, single);
+    }
+
+    /**
+     * Waits until every entry queued before this call has been written (or
+     * has failed). Call it before deleting a record's trail rows, so entries
+     * still in the queue are not inserted after the delete.
+     *
+     * @return true if the queue was flushed within {@code db.auditLog.flushTimeoutMillis}
+     */
+    public static boolean flush() {
+        if (!running) {
+            // Entries are written on the caller's thread once the writer has stopped
+            return true;
+        }
+        Entry marker = new Entry();
+        try {
+            long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(FLUSH_TIMEOUT_MILLIS);
+            return QUEUE.offer(marker, FLUSH_TIMEOUT_MILLIS, TimeUnit.MILLISECONDS)
+                    && marker.flushed.await(deadline - System.nanoTime(), TimeUnit.NANOSECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+
+    /**
+     * Stops the writer after flushing every queued entry. Called on server
+     * shutdown, before {@link DBConfig#shutdown()}.
+     */
+    public static void shutdown() {
+        // No interrupt: the writer notices within one flush interval, and an
+        // interrupt could abort a batch that is being written
+        running = false;
+        try {
+            WRITER.join(SHUTDOWN_TIMEOUT_MILLIS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+
+        // Anything the writer did not get to before the timeout
+        List<Entry> remaining = new ArrayList<>();
+        QUEUE.drainTo(remaining);
+        if (!remaining.isEmpty()) {
+            process(remaining);
+        }
+        logger.info("Audit log writer stopped (" + written.sum() + " entries written, " + failed.sum() + " failed)");
+    }
+
+    /**
+     * Returns the current queue depth and throughput counters.
+     *
+     * @return The writer statistics
+     */
+    public static WriterStats getStats() {
+        WriterStats stats = new WriterStats();
+        stats.queued = QUEUE.size();
+        stats.queueCapacity = QUEUE_CAPACITY;
+        stats.batchSize = BATCH_SIZE;
+        stats.flushIntervalMillis = FLUSH_INTERVAL_MILLIS;
+        stats.enqueued = enqueued.sum();
+        stats.written = written.sum();
+        stats.batches = batches.sum();
+        stats.avgBatchSize = stats.batches == 0 ? 0 : (double) stats.written / stats.batches;
+        stats.failed = failed.sum();
+        stats.callerWrites = callerWrites.sum();
+        return stats;
+    }
+
+    private static void drain() {
+        List<Entry> pending = new ArrayList<>(BATCH_SIZE);
+        while (running || !QUEUE.isEmpty()) {
+            try {
+                Entry first = QUEUE.poll(FLUSH_INTERVAL_MILLIS, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    continue;
+                }
+                pending.add(first);
+                QUEUE.drainTo(pending, BATCH_SIZE - pending.size());
+
+                // Wait for more entries until the batch is full or the flush interval has passed
+                long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(FLUSH_INTERVAL_MILLIS);
+                while (running && pending.size() < BATCH_SIZE) {
+                    long waitNanos = deadline - System.nanoTime();
+                    if (waitNanos <= 0) {
+                        break;
+                    }
+                    Entry next = QUEUE.poll(waitNanos, TimeUnit.NANOSECONDS);
+                    if (next != null) {
+                        pending.add(next);
+                        QUEUE.drainTo(pending, BATCH_SIZE - pending.size());
+                    }
+                }
+            } catch (InterruptedException e) {
+                logger.warning("Audit log writer interrupted; continuing to drain the queue");
+            }
+
+            if (!pending.isEmpty()) {
+                process(pending);
+                pending.clear();
+            }
+        }
+    }
+
+    /**
+     * Writes the entries in queue order, releasing each flush marker once the
+     * entries ahead of it are written.
+     */
+    private static void process(List<Entry> entries) {
+        int from = 0;
+        for (int i = 0; i < entries.size(); i++) {
+            Entry entry = entries.get(i);
+            if (entry.flushed != null) {
+                writeGrouped(entries.subList(from, i));
+                entry.flushed.countDown();
+                from = i + 1;
+            }
+        }
+        writeGrouped(entries.subList(from, entries.size()));
+    }
+
+    private static void writeGrouped(List<Entry> entries) {
+        Map<String, List<Entry>> byCompany = new LinkedHashMap<>();
+        for (Entry entry : entries) {
+            byCompany.computeIfAbsent(entry.companyCode, k -> new ArrayList<>()).add(entry);
+        }
+        for (Map.Entry<String, List<Entry>> e : byCompany.entrySet()) {
+            List<Entry> rows = e.getValue();
+            for (int from = 0; from < rows.size(); from += BATCH_SIZE) {
+                write(e.getKey(), rows.subList(from, Math.min(from + BATCH_SIZE, rows.size())));
+            }
+        }
+    }
+
+    private static void write(String companyCode, List<Entry> rows) {
+        String table = companyCode + "_log_master";
+
+        StringBuilder query = new StringBuilder("INSERT INTO ").append(table).append(COLUMNS);
+        for (int i = 0; i < rows.size(); i++) {
+            query.append(i == 0 ? "" : ", ").append(ROW_PLACEHOLDERS);
+        }
+
+        try (Connection con = DBConfig.getPrimaryConnection();
+             PreparedStatement ps = con.prepareStatement(query.toString())) {
+            int index = 1;
+            for (Entry row : rows) {
+                ps.setInt(index++, IdAllocator.nextId(con, table));
+                ps.setString(index++, row.firedDate);
+                ps.setString(index++, row.firedBy);
+                ps.setString(index++, row.status);
+                ps.setString(index++, row.moduleName);
+                ps.setString(index++, row.moduleId);
+            }
+            ps.executeUpdate();
+            written.add(rows.size());
+            batches.increment();
+        } catch (SQLException e) {
+            if (rows.size() > 1) {
+                logger.log(Level.WARNING, "Failed to write " + rows.size() + " audit log entries to " + table
+                        + " in one batch, retrying them one at a time", e);
+                for (Entry row : rows) {
+                    write(companyCode, List.of(row));
+                }
+                return;
+            }
+            failed.add(rows.size());
+            logger.log(Level.SEVERE, "Failed to write audit log entry to " + table + ": " + rows, e);
+        }
+    }
+}
@@ -0,0 +1,126 @@
+package com.example.util;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.logging.Logger;
+
+/**
+ * Utility class for loading the child rows of many parents at once.
+ *
+ * Instead of one query per parent, the parent ids are collected and each child
+ * table is read once per chunk of {@code db.childLoader.chunkSize} ids with
+ * {@code WHERE <foreignKey> IN (...)}; the rows are then grouped by parent in
+ * memory. Only the columns the caller maps are selected, plus the foreign key.
+ * The IN list is padded to a power of two so a table produces only a handful
+ * of distinct statements for the statement cache.
+ */
+public class ChildLoader {
+
+    private static final Logger logger = Logger.getLogger(ChildLoader.class.getName());
+
+    private static final int CHUNK_SIZE = Math.max(1, ConfigUtil.intSetting("db.childLoader.chunkSize", 500));
+
+    /**
+     * Maps the current row of a child result set.
+     *
+     * @param <T> The mapped type
+     */
+    @FunctionalInterface
+    public interface RowMapper<T> {
+        T map(ResultSet rs) throws SQLException;
+    }
+
+    /**
+     * Reads the rows of a child table belonging to the given parents.
+     *
+     * @param con The connection to use
+     * @param table The full child table name, e.g. {@code companyCode + "_audit_plan_detail"}
+     * @param columns The columns the mapper reads, e.g. {@code "department, audit_date"};
+     *                the foreign key is selected as well
+     * @param foreignKey The child column holding the parent id
+     * @param parentIds The parent ids
+     * @param mapper Maps one child row
+     * @return Parent id to its children, in the order the database returned them;
+     *         parents without children are absent
+     * @throws SQLException if a query fails
+     */
+    public static <T> Map<String, List<T>> load(Connection con, String table, String columns, String foreignKey,
+                                                Collection<String> parentIds, RowMapper<T> mapper) throws SQLException {
+        Map<String, List<T>> children = new HashMap<>();
+        List<String> ids = new ArrayList<>(new LinkedHashSet<>(parentIds));
+        int queries = 0;
+
+        for (int from = 0; from < ids.size(); from += CHUNK_SIZE) {
+            List<String> chunk = ids.subList(from, Math.min(from + CHUNK_SIZE, ids.size()));
+            int placeholders = paddedSize(chunk.size());
+
+            StringBuilder query = new StringBuilder("SELECT ").append(foreignKey).append(", ").append(columns)
+                    .append(" FROM ").append(table)
+                    .append(" WHERE ").append(foreignKey).append(" IN (");
+            for (int i = 0; i < placeholders; i++) {
+                query.append(i == 0 ? "?" : ", ?");
+            }
+            query.append(")");
+
+            try (PreparedStatement ps = con.prepareStatement(query.toString())) {
+                for (int i = 0; i < placeholders; i++) {
+                    // Padding repeats the last id, which matches nothing new
+                    ps.setString(i + 1, chunk.get(Math.min(i, chunk.size() - 1)));
+                }
+                try (ResultSet rs = ps.executeQuery()) {
+                    while (rs.next()) {
+                        children.computeIfAbsent(rs.getString(foreignKey), k -> new ArrayList<>()).add(mapper.map(rs));
+                    }
+                }
+            }
+            queries++;
+        }
+
+        logger.fine("Loaded " + table + " for " + ids.size() + " parents in " + queries + " queries");
+        return children;
+    }
+
+    /**
+     * Loads a child table for a list of parent maps and stores each parent's
+     * children under {@code childKey}; parents without children get an empty list.
+     *
+     * @param con The connection to use
+     * @param parents The parent rows
+     * @param idKey The parent map key holding its id
+     * @param childKey The parent map key to store the children under
+     * @param table The full child table name
+     * @param columns The columns the mapper reads
+     * @param foreignKey The child column holding the parent id
+     * @param mapper Maps one child row
+     * @throws SQLException if a query fails
+     */
+    public static <T> void attach(Connection con, List<Map<String, Object>> parents, String idKey, String childKey,
+                                  String table, String columns, String foreignKey, RowMapper<T> mapper) throws SQLException {
+        List<String> ids = new ArrayList<>(parents.size());
+        for (Map<String, Object> parent : parents) {
+            ids.add(String.valueOf(parent.get(idKey)));
+        }
+
+        Map<String, List<T>> children = ids.isEmpty() ? new HashMap<>() : load(con, table, columns, foreignKey, ids, mapper);
+        for (Map<String, Object> parent : parents) {
+            List<T> list = children.get(String.valueOf(parent.get(idKey)));
+            parent.put(childKey, list != null ? list : new ArrayList<T>());
+        }
+    }
+
+    private static int paddedSize(int size) {
+        int padded = Integer.highestOneBit(size);
+        if (padded < size) {
+            padded <<= 1;
+        }
+        return Math.min(padded, Math.max(size, CHUNK_SIZE));
+    }
+}
@@ -0,0 +1,221 @@
+package com.example.util;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.logging.Logger;
+
+/**
+ * Utility class holding the clause_master rows of each standard in memory.
+ *
+ * A standard's clauses are read with one query the first time they are needed
+ * and kept as an immutable {@link ClauseTree} in an {@link ExpiringCache} named
+ * "clauses" ({@code cache.clauses.ttlSeconds}, one hour by default). A reload
+ * builds a new tree and replaces the old one, so readers never see a partly
+ * loaded standard. The admin endpoints invalidate one standard or all of them.
+ */
+public class ClauseCatalog {
+
+    private static final Logger logger = Logger.getLogger(ClauseCatalog.class.getName());
+
+    private static final ExpiringCache<ClauseTree> CACHE = new ExpiringCache<>("clauses", 3600, 200);
+
+    /**
+     * Orders clause numbers naturally: "4.2" before "4.10" before "10".
+     * Runs of digits compare as numbers, everything else ignoring case.
+     */
+    public static final Comparator<String> NUMBER_ORDER = ClauseCatalog::compareNumbers;
+
+    /**
+     * One clause_master row.
+     */
+    public static class Clause {
+        public final String id;
+        public final String number;
+        public final String name;
+        public final String description;
+        public final String guidance;
+        public final String requirement;
+        public final String requiredDocument;
+        public final String mainClauseId;
+        int order;
+
+        Clause(ResultSet rs) throws SQLException {
+            this.id = rs.getString("id");
+            this.number = rs.getString("number");
+            this.name = rs.getString("name");
+            this.description = rs.getString("description");
+            this.guidance = rs.getString("guidance");
+            this.requirement = rs.getString("requirement");
+            this.requiredDocument = rs.getString("clause_required_document");
+            this.mainClauseId = rs.getString("main_clause_id");
+        }
+    }
+
+    /**
+     * The clauses of one standard, sorted by number, with lookups by number
+     * and id.
+     */
+    public static class ClauseTree {
+        private final List<Clause> clauses;
+        private final Map<String, Clause> byNumber = new HashMap<>();
+        private final Map<String, Clause> byId = new HashMap<>();
+
+        ClauseTree(List<Clause> rows) {
+            List<Clause> sorted = new ArrayList<>(rows);
+            sorted.sort(Comparator.comparing((Clause c) -> c.number, NUMBER_ORDER));
+            for (int i = 0; i < sorted.size(); i++) {
+                Clause clause = sorted.get(i);
+                clause.order = i;
+                // The first row wins, as with the old single-row lookups
+                byNumber.putIfAbsent(numberKey(clause.number), clause);
+                if (clause.id != null) {
+                    byId.putIfAbsent(clause.id, clause);
+                }
+            }
+            this.clauses = Collections.unmodifiableList(sorted);
+        }
+
+        /**
+         * @return Every clause in natural number order
+         */
+        public List<Clause> getClauses() {
+            return clauses;
+        }
+
+        /**
+         * Looks up a clause by number, ignoring case and trailing spaces as
+         * MySQL's comparison did.
+         *
+         * @return The clause, or null
+         */
+        public Clause get(String number) {
+            return number == null ? null : byNumber.get(numberKey(number));
+        }
+
+        /**
+         * @return The main clause the given clause belongs to, or null
+         */
+        public Clause getMainClause(Clause clause) {
+            return clause == null || clause.mainClauseId == null ? null : byId.get(clause.mainClauseId);
+        }
+
+        /**
+         * Compares two clause numbers by their precomputed position, falling back
+         * to {@link #NUMBER_ORDER} for numbers that are not in this standard.
+         */
+        public int compare(String a, String b) {
+            Clause first = get(a);
+            Clause second = get(b);
+            if (first != null && second != null) {
+                return Integer.compare(first.order, second.order);
+            }
+            return compareNumbers(a, b);
+        }
+    }
+
+    /**
+     * Returns the clauses of a standard, loading them on first use.
+     *
+     * @param con Connection used if the standard has to be loaded
+     * @param stdId The standard id
+     * @return The tree; empty if the standard has no clauses
+     * @throws SQLException if loading fails
+     */
+    public static ClauseTree get(Connection con, String stdId) throws SQLException {
+        if (stdId == null || stdId.trim().isEmpty()) {
+            return new ClauseTree(new ArrayList<>());
+        }
+        String key = stdId.trim();
+        return CACHE.get(key, () -> load(con, key));
+    }
+
+    /**
+     * Drops one standard; its next use reads clause_master again.
+     */
+    public static void invalidate(String stdId) {
+        CACHE.invalidate(stdId.trim());
+    }
+
+    /**
+     * Drops every standard.
+     */
+    public static void invalidateAll() {
+        CACHE.clear();
+    }
+
+    private static ClauseTree load(Connection con, String stdId) throws SQLException {
+        List<Clause> rows = new ArrayList<>();
+        String query = "SELECT id, number, name, description, guidance, requirement, clause_required_document, main_clause_id " +
+                "FROM clause_master WHERE std_id = ?";
+        try (PreparedStatement ps = con.prepareStatement(query)) {
+            ps.setString(1, stdId);
+            try (ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) {
+                    rows.add(new Clause(rs));
+                }
+            }
+        }
+        logger.fine("Loaded " + rows.size() + " clauses of standard " + stdId);
+        return new ClauseTree(rows);
+    }
+
+    private static String numberKey(String number) {
+        return number == null ? "" : number.stripTrailing().toLowerCase(Locale.ROOT);
+    }
+
+    private static int compareNumbers(String a, String b) {
+        if (a == null || b == null) {
+            return a == null ? (b == null ? 0 : -1) : 1;
+        }
+        int i = 0;
+        int j = 0;
+        while (i < a.length() && j < b.length()) {
+            char ca = a.charAt(i);
+            char cb = b.charAt(j);
+            if (Character.isDigit(ca) && Character.isDigit(cb)) {
+                int endA = digitsEnd(a, i);
+                int endB = digitsEnd(b, j);
+                int cmp = compareDigits(a.substring(i, endA), b.substring(j, endB));
+                if (cmp != 0) {
+                    return cmp;
+                }
+                i = endA;
+                j = endB;
+            } else {
+                int cmp = Character.compare(Character.toLowerCase(ca), Character.toLowerCase(cb));
+                if (cmp != 0) {
+                    return cmp;
+                }
+                i++;
+                j++;
+            }
+        }
+        return Integer.compare(a.length() - i, b.length() - j);
+    }
+
+    private static int digitsEnd(String s, int from) {
+        int end = from;
+        while (end < s.length() && Character.isDigit(s.charAt(end))) {
+            end++;
+        }
+        return end;
+    }
+
+    private static int compareDigits(String a, String b) {
+        String x = a.replaceFirst("^0+(?=\\d)", "");
+        String y = b.replaceFirst("^0+(?=\\d)", "");
+        if (x.length() != y.length()) {
+            return Integer.compare(x.length(), y.length());
+        }
+        return x.compareTo(y);
+    }
+}
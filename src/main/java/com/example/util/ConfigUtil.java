@@ -0,0 +1,89 @@
+package com.example.util;
+
+import java.util.Locale;
+import java.util.logging.Logger;
+
+/**
+ * Utility class for reading settings.
+ *
+ * A setting such as "db.pool.maxSize" is read from the system property of
+ * that name, or else from the environment variable DB_POOL_MAXSIZE. Numeric
+ * settings that are blank or do not parse fall back to their default with a
+ * warning.
+ */
+public class ConfigUtil {
+
+    private static final Logger logger = Logger.getLogger(ConfigUtil.class.getName());
+
+    /**
+     * Reads a setting.
+     *
+     * @param key The setting name, e.g. "db.url"
+     * @param defaultValue Value used when the setting is not set
+     * @return The setting value, or the default
+     */
+    public static String setting(String key, String defaultValue) {
+        String value = System.getProperty(key);
+        if (value == null) {
+            value = System.getenv(key.replace('.', '_').toUpperCase(Locale.ROOT));
+        }
+        return value != null ? value : defaultValue;
+    }
+
+    /**
+     * Reads an int setting.
+     *
+     * @param key The setting name
+     * @param defaultValue Value used when the setting is not set or not a number
+     * @return The setting value, or the default
+     */
+    public static int intSetting(String key, int defaultValue) {
+        long value = longSetting(key, defaultValue);
+        if (value < Integer.MIN_VALUE || value > Integer.MAX_VALUE) {
+            logger.warning("Ignoring out of range value for " + key + ": " + value);
+            return defaultValue;
+        }
+        return (int) value;
+    }
+
+    /**
+     * Reads a long setting.
+     *
+     * @param key The setting name
+     * @param defaultValue Value used when the setting is not set or not a number
+     * @return The setting value, or the default
+     */
+    public static long longSetting(String key, long defaultValue) {
+        String value = setting(key, null);
+        if (value == null || value.trim().isEmpty()) {
+            return defaultValue;
+        }
+        try {
+            return Long.parseLong(value.trim());
+        } catch (NumberFormatException e) {
+            logger.warning("Ignoring invalid value for " + key + ": " + value);
+            return defaultValue;
+        }
+    }
+
+    /**
+     * Reads a boolean setting: "true" or "false", ignoring case.
+     *
+     * @param key The setting name
+     * @param defaultValue Value used when the setting is not set or not a boolean
+     * @return The setting value, or the default
+     */
+    public static boolean booleanSetting(String key, boolean defaultValue) {
+        String value = setting(key, null);
+        if (value == null || value.trim().isEmpty()) {
+            return defaultValue;
+        }
+        if ("true".equalsIgnoreCase(value.trim())) {
+            return true;
+        } else if ("false".equalsIgnoreCase(value.trim())) {
+            return false;
+        }
+        logger.warning("Ignoring invalid value for " + key + ": " + value);
+        return defaultValue;
+    }
+}
@@ -0,0 +1,685 @@
+package com.example.util;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.SQLTransientConnectionException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingDeque;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Bounded JDBC connection pool used behind {@link DBConfig#getConnection()}.
+ *
+ * Connections handed out are proxies: calling {@code close()} returns the
+ * physical connection to the pool instead of closing it, so existing
+ * {@code closeResources(...)} helpers keep working unchanged.
+ *
+ * Each physical connection also keeps a bounded LRU cache of prepared
+ * statements keyed by the final SQL text (tenant prefix included), so
+ * repeated {@code prepareStatement(sql)} calls on a reused connection skip
+ * re-preparing the same statement. Statements that are not cached are
+ * closed when the connection is returned, if the borrower has not.
+ */
+public class ConnectionPool {
+
+    private static final Logger logger = Logger.getLogger(ConnectionPool.class.getName());
+
+    private final String name;
+    private final String url;
+    private final String user;
+    private final String password;
+    private final Settings settings;
+
+    private final Semaphore permits;
+    private final LinkedBlockingDeque<PooledEntry> idle = new LinkedBlockingDeque<>();
+    private final Set<PooledEntry> borrowed = ConcurrentHashMap.newKeySet();
+    private final ScheduledExecutorService housekeeper;
+    private volatile boolean closed;
+
+    private final AtomicInteger waiting = new AtomicInteger();
+    private final AtomicInteger totalConnections = new AtomicInteger();
+    private final LongAdder borrowCount = new LongAdder();
+    private final LongAdder borrowNanos = new LongAdder();
+    private final AtomicLong maxBorrowNanos = new AtomicLong();
+    private final LongAdder timeoutCount = new LongAdder();
+    private final LongAdder leakCount = new LongAdder();
+    private final LongAdder createdCount = new LongAdder();
+    private final LongAdder evictedCount = new LongAdder();
+    private final LongAdder statementHits = new LongAdder();
+    private final LongAdder statementMisses = new LongAdder();
+    private final LongAdder statementEvictions = new LongAdder();
+
+    /**
+     * Pool sizing and timing settings.
+     */
+    public static class Settings {
+        public int maxSize = 20;
+        public int minIdle = 2;
+        public long maxWaitMillis = 5000;
+        public long idleTimeoutMillis = 10 * 60 * 1000L;
+        public long maxLifetimeMillis = 30 * 60 * 1000L;
+        public long leakThresholdMillis = 60 * 1000L;
+        /** Record the borrowing stack for leak reports; costs a stack walk per borrow. */
+        public boolean leakStackTraces = false;
+        public long validationBypassMillis = 500;
+        public int validationTimeoutSeconds = 2;
+        public long housekeepingIntervalMillis = 30 * 1000L;
+        public int statementCacheSize = 64;
+
+        /**
+         * Reads settings from system properties (or environment variables) using the given prefix,
+         * e.g. {@code db.pool.maxSize} or {@code DB_POOL_MAXSIZE}.
+         *
+         * @param prefix The property prefix
+         * @return The settings with any overrides applied
+         */
+        public static Settings fromProperties(String prefix) {
+            Settings s = new Settings();
+            s.maxSize = ConfigUtil.intSetting(prefix + ".maxSize", s.maxSize);
+            s.minIdle = ConfigUtil.intSetting(prefix + ".minIdle", s.minIdle);
+            s.maxWaitMillis = ConfigUtil.longSetting(prefix + ".maxWaitMillis", s.maxWaitMillis);
+            s.idleTimeoutMillis = ConfigUtil.longSetting(prefix + ".idleTimeoutMillis", s.idleTimeoutMillis);
+            s.maxLifetimeMillis = ConfigUtil.longSetting(prefix + ".maxLifetimeMillis", s.maxLifetimeMillis);
+            s.leakThresholdMillis = ConfigUtil.longSetting(prefix + ".leakThresholdMillis", s.leakThresholdMillis);
+            s.leakStackTraces = ConfigUtil.booleanSetting(prefix + ".leakStackTraces", s.leakStackTraces);
+            s.validationBypassMillis = ConfigUtil.longSetting(prefix + ".validationBypassMillis", s.validationBypassMillis);
+            s.validationTimeoutSeconds = ConfigUtil.intSetting(prefix + ".validationTimeoutSeconds", s.validationTimeoutSeconds);
+            s.housekeepingIntervalMillis = ConfigUtil.longSetting(prefix + ".housekeepingIntervalMillis", s.housekeepingIntervalMillis);
+            s.statementCacheSize = ConfigUtil.intSetting(prefix + ".statementCacheSize", s.statementCacheSize);
+            return s;
+        }
+    }
+
+    /**
+     * Point-in-time snapshot of the pool counters.
+     */
+    public static class PoolStats {
+        public String name;
+        public int maxSize;
+        public int total;
+        public int active;
+        public int idle;
+        public int waiting;
+        public long borrowCount;
+        public long timeoutCount;
+        public long leakCount;
+        public long createdCount;
+        public long evictedCount;
+        public double avgBorrowMillis;
+        public double maxBorrowMillis;
+        public long statementCacheHits;
+        public long statementCacheMisses;
+        public long statementCacheEvictions;
+        public double statementCacheHitRatio;
+    }
+
+    public ConnectionPool(String name, String url, String user, String password, Settings settings) {
+        this.name = name;
+        this.url = url;
+        this.user = user;
+        this.password = password;
+        this.settings = settings;
+        this.permits = new Semaphore(settings.maxSize, true);
+        this.housekeeper = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "db-pool-" + name + "-housekeeper");
+            t.setDaemon(true);
+            return t;
+        });
+        this.housekeeper.scheduleWithFixedDelay(this::housekeep,
+                settings.housekeepingIntervalMillis, settings.housekeepingIntervalMillis, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Borrows a connection, waiting at most {@code maxWaitMillis} for a free slot.
+     *
+     * @return A pooled connection; closing it returns it to the pool
+     * @throws SQLException if no connection is available in time or the database is unreachable
+     */
+    public Connection getConnection() throws SQLException {
+        if (closed) {
+            throw new SQLException("Connection pool " + name + " is closed");
+        }
+
+        long start = System.nanoTime();
+        waiting.incrementAndGet();
+        boolean acquired;
+        try {
+            acquired = permits.tryAcquire(settings.maxWaitMillis, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SQLException("Interrupted while waiting for a connection from pool " + name, e);
+        } finally {
+            waiting.decrementAndGet();
+        }
+
+        if (!acquired) {
+            timeoutCount.increment();
+            throw new SQLTransientConnectionException("Timed out after " + settings.maxWaitMillis
+                    + "ms waiting for a connection from pool " + name
+                    + " (active=" + borrowed.size() + ", max=" + settings.maxSize + ")");
+        }
+
+        PooledEntry entry;
+        try {
+            entry = takeValidEntry();
+        } catch (SQLException | RuntimeException e) {
+            permits.release();
+            throw e;
+        }
+
+        entry.borrowedAt = System.currentTimeMillis();
+        entry.borrowThread = Thread.currentThread().getName();
+        entry.borrowStack = settings.leakThresholdMillis > 0 && settings.leakStackTraces
+                ? new Exception("Connection borrowed by " + entry.borrowThread)
+                : null;
+        entry.leakReported = false;
+        borrowed.add(entry);
+
+        long elapsed = System.nanoTime() - start;
+        borrowCount.increment();
+        borrowNanos.add(elapsed);
+        maxBorrowNanos.accumulateAndGet(elapsed, Math::max);
+
+        return entry.newProxy();
+    }
+
+    private PooledEntry takeValidEntry() throws SQLException {
+        PooledEntry entry;
+        while ((entry = idle.pollFirst()) != null) {
+            if (isUsable(entry)) {
+                return entry;
+            }
+            discard(entry);
+        }
+        return createEntry();
+    }
+
+    private boolean isUsable(PooledEntry entry) {
+        long now = System.currentTimeMillis();
+        if (settings.maxLifetimeMillis > 0 && now - entry.createdAt > settings.maxLifetimeMillis) {
+            return false;
+        }
+        if (now - entry.lastReturnedAt < settings.validationBypassMillis) {
+            return true;
+        }
+        try {
+            return entry.physical.isValid(settings.validationTimeoutSeconds);
+        } catch (SQLException e) {
+            logger.fine("Pooled connection failed validation: " + e.getMessage());
+            return false;
+        }
+    }
+
+    private PooledEntry createEntry() throws SQLException {
+        Connection physical = DriverManager.getConnection(url, user, password);
+        totalConnections.incrementAndGet();
+        createdCount.increment();
+        return new PooledEntry(physical);
+    }
+
+    private void discard(PooledEntry entry) {
+        totalConnections.decrementAndGet();
+        evictedCount.increment();
+        try {
+            entry.physical.close();
+        } catch (SQLException e) {
+            logger.fine("Error closing pooled connection: " + e.getMessage());
+        }
+    }
+
+    private void release(PooledEntry entry) {
+        borrowed.remove(entry);
+        boolean reusable = !closed;
+        try {
+            if (entry.physical.isClosed()) {
+                reusable = false;
+            } else {
+                entry.reclaimStatements();
+                entry.closeUncachedStatements();
+                // The proxy tracks both flags, so resetting costs no round trip when they were not touched
+                if (!entry.autoCommit) {
+                    entry.physical.rollback();
+                    entry.physical.setAutoCommit(true);
+                    entry.autoCommit = true;
+                }
+                if (entry.readOnly) {
+                    entry.physical.setReadOnly(false);
+                    entry.readOnly = false;
+                }
+                entry.physical.clearWarnings();
+            }
+        } catch (SQLException e) {
+            logger.warning("Discarding connection that could not be reset: " + e.getMessage());
+            reusable = false;
+        }
+
+        if (reusable) {
+            entry.lastReturnedAt = System.currentTimeMillis();
+            idle.offerFirst(entry);
+        } else {
+            discard(entry);
+        }
+        permits.release();
+    }
+
+    private void housekeep() {
+        try {
+            long now = System.currentTimeMillis();
+
+            if (settings.leakThresholdMillis > 0) {
+                for (PooledEntry entry : borrowed) {
+                    if (!entry.leakReported && now - entry.borrowedAt > settings.leakThresholdMillis) {
+                        entry.leakReported = true;
+                        leakCount.increment();
+                        logger.log(Level.WARNING, "Possible connection leak in pool " + name + ": connection held for "
+                                + (now - entry.borrowedAt) + "ms by " + entry.borrowThread
+                                + (entry.borrowStack == null ? " (enable leakStackTraces to log where it was borrowed)" : ""),
+                                entry.borrowStack);
+                    }
+                }
+            }
+
+            // Oldest idle connections sit at the tail of the deque
+            int idleCount = idle.size();
+            Iterator<PooledEntry> it = idle.descendingIterator();
+            while (it.hasNext() && idleCount > settings.minIdle) {
+                PooledEntry entry = it.next();
+                boolean expired = settings.maxLifetimeMillis > 0 && now - entry.createdAt > settings.maxLifetimeMillis;
+                if ((now - entry.lastReturnedAt > settings.idleTimeoutMillis || expired) && idle.remove(entry)) {
+                    discard(entry);
+                    idleCount--;
+                }
+            }
+        } catch (RuntimeException e) {
+            logger.log(Level.WARNING, "Connection pool housekeeping failed", e);
+        }
+    }
+
+    /**
+     * Returns a snapshot of the current pool metrics.
+     *
+     * @return The pool statistics
+     */
+    public PoolStats getStats() {
+        PoolStats stats = new PoolStats();
+        stats.name = name;
+        stats.maxSize = settings.maxSize;
+        stats.total = totalConnections.get();
+        stats.active = borrowed.size();
+        stats.idle = idle.size();
+        stats.waiting = waiting.get();
+        stats.borrowCount = borrowCount.sum();
+        stats.timeoutCount = timeoutCount.sum();
+        stats.leakCount = leakCount.sum();
+        stats.createdCount = createdCount.sum();
+        stats.evictedCount = evictedCount.sum();
+        stats.avgBorrowMillis = stats.borrowCount == 0 ? 0 : borrowNanos.sum() / 1_000_000.0 / stats.borrowCount;
+        stats.maxBorrowMillis = maxBorrowNanos.get() / 1_000_000.0;
+        stats.statementCacheHits = statementHits.sum();
+        stats.statementCacheMisses = statementMisses.sum();
+        stats.statementCacheEvictions = statementEvictions.sum();
+        long lookups = stats.statementCacheHits + stats.statementCacheMisses;
+        stats.statementCacheHitRatio = lookups == 0 ? 0 : (double) stats.statementCacheHits / lookups;
+        return stats;
+    }
+
+    /**
+     * Closes all idle connections and stops housekeeping. Borrowed connections
+     * are closed when they are returned.
+     */
+    public void close() {
+        closed = true;
+        housekeeper.shutdownNow();
+        PooledEntry entry;
+        while ((entry = idle.pollFirst()) != null) {
+            discard(entry);
+        }
+    }
+
+    /**
+     * A physical connection owned by the pool.
+     */
+    private final class PooledEntry {
+        final Connection physical;
+        final long createdAt = System.currentTimeMillis();
+        volatile long lastReturnedAt = createdAt;
+        volatile long borrowedAt;
+        volatile String borrowThread;
+        volatile Exception borrowStack;
+        volatile boolean leakReported;
+        final StatementCache statements = new StatementCache(settings.statementCacheSize, this);
+        // Statements of the current borrow that are not in the cache, and cached ones evicted while in use
+        final List<Statement> uncached = new ArrayList<>();
+        final List<CachedStatement> evictedInUse = new ArrayList<>();
+        // Current flags as set through the proxy; a new connection starts in autocommit, read-write
+        boolean autoCommit = true;
+        boolean readOnly;
+
+        PooledEntry(Connection physical) {
+            this.physical = physical;
+        }
+
+        /**
+         * Returns a cached statement for the SQL text, preparing (and caching) it on a miss.
+         * A statement still open from earlier in the same borrow is never shared; the
+         * caller gets an uncached statement instead.
+         */
+        PreparedStatement prepare(Connection owner, String sql) throws SQLException {
+            if (settings.statementCacheSize <= 0) {
+                statementMisses.increment();
+                return track(physical.prepareStatement(sql));
+            }
+            CachedStatement cached = statements.get(sql);
+            if (cached != null && !cached.inUse) {
+                statementHits.increment();
+                cached.lend(owner);
+                return cached.proxy;
+            }
+            statementMisses.increment();
+            PreparedStatement ps = physical.prepareStatement(sql);
+            if (cached != null) {
+                return track(ps);
+            }
+            cached = new CachedStatement(ps);
+            cached.lend(owner);
+            statements.put(sql, cached);
+            return cached.proxy;
+        }
+
+        /**
+         * Remembers a statement that bypasses the cache so it is closed with the borrow.
+         */
+        <T extends Statement> T track(T statement) throws SQLException {
+            if (uncached.size() >= 64) {
+                // A long borrow that closes its statements should not pile them up
+                Iterator<Statement> it = uncached.iterator();
+                while (it.hasNext()) {
+                    if (it.next().isClosed()) {
+                        it.remove();
+                    }
+                }
+            }
+            uncached.add(statement);
+            return statement;
+        }
+
+        /**
+         * Called when the connection comes back to the pool: statements the borrower
+         * forgot to close are reset and made available again.
+         */
+        void reclaimStatements() {
+            for (CachedStatement cached : statements.values()) {
+                if (cached.inUse) {
+                    cached.recycle();
+                }
+            }
+            for (CachedStatement cached : evictedInUse) {
+                if (cached.inUse) {
+                    cached.recycle();
+                }
+                cached.closePhysical();
+            }
+            evictedInUse.clear();
+        }
+
+        /**
+         * Closes the statements of the borrow that were never cached.
+         */
+        void closeUncachedStatements() {
+            for (Statement statement : uncached) {
+                try {
+                    statement.close();
+                } catch (SQLException e) {
+                    logger.fine("Error closing statement: " + e.getMessage());
+                }
+            }
+            uncached.clear();
+        }
+
+        Connection newProxy() {
+            return (Connection) Proxy.newProxyInstance(ConnectionPool.class.getClassLoader(),
+                    new Class<?>[] { Connection.class }, new LogicalConnection(this));
+        }
+    }
+
+    /**
+     * Per-connection LRU of prepared statements. Only touched by the thread
+     * currently holding the connection, so it needs no locking.
+     */
+    private final class StatementCache extends LinkedHashMap<String, CachedStatement> {
+        private static final long serialVersionUID = 1L;
+
+        private final int maxSize;
+        private final transient PooledEntry entry;
+
+        StatementCache(int maxSize, PooledEntry entry) {
+            super(16, 0.75f, true);
+            this.maxSize = maxSize;
+            this.entry = entry;
+        }
+
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, CachedStatement> eldest) {
+            if (size() <= maxSize) {
+                return false;
+            }
+            statementEvictions.increment();
+            CachedStatement cached = eldest.getValue();
+            if (cached.inUse) {
+                // Closed by its borrower, or when the connection is returned
+                cached.evicted = true;
+                entry.evictedInUse.add(cached);
+            } else {
+                cached.closePhysical();
+            }
+            return true;
+        }
+    }
+
+    /**
+     * A cached physical statement. Its proxy turns {@code close()} into a reset
+     * so the statement can be handed out again for the same SQL.
+     */
+    private final class CachedStatement implements InvocationHandler {
+        private final PreparedStatement physical;
+        final PreparedStatement proxy;
+        boolean inUse;
+        boolean evicted;
+        // The connection of the borrow currently using the statement
+        private Connection owner;
+        private ResultSet lastResultSet;
+        // Set when the borrower changed a per-use setting that recycle() must put back
+        private boolean settingsChanged;
+
+        CachedStatement(PreparedStatement physical) {
+            this.physical = physical;
+            this.proxy = (PreparedStatement) Proxy.newProxyInstance(ConnectionPool.class.getClassLoader(),
+                    new Class<?>[] { PreparedStatement.class }, this);
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            switch (method.getName()) {
+                case "close":
+                    if (inUse) {
+                        recycle();
+                        if (evicted) {
+                            closePhysical();
+                        }
+                    }
+                    return null;
+                case "isClosed":
+                    return !inUse || physical.isClosed();
+                case "getConnection":
+                    return owner;
+                case "unwrap":
+                    if (((Class<?>) args[0]).isInstance(physical)) {
+                        return physical;
+                    }
+                    break;
+                case "equals":
+                    return proxy == args[0];
+                case "hashCode":
+                    return System.identityHashCode(proxy);
+                case "toString":
+                    return "Cached " + physical;
+                default:
+                    break;
+            }
+
+            if (!inUse) {
+                throw new SQLException("Statement is closed");
+            }
+            switch (method.getName()) {
+                case "setFetchSize":
+                case "setMaxRows":
+                case "setQueryTimeout":
+                    settingsChanged = true;
+                    break;
+                default:
+                    break;
+            }
+            try {
+                Object result = method.invoke(physical, args);
+                if (result instanceof ResultSet) {
+                    lastResultSet = (ResultSet) result;
+                }
+                return result;
+            } catch (InvocationTargetException e) {
+                throw e.getCause();
+            }
+        }
+
+        void lend(Connection owner) {
+            this.owner = owner;
+            inUse = true;
+        }
+
+        void recycle() {
+            inUse = false;
+            owner = null;
+            try {
+                if (lastResultSet != null) {
+                    lastResultSet.close();
+                    lastResultSet = null;
+                }
+                physical.clearParameters();
+                physical.clearBatch();
+                physical.clearWarnings();
+                if (settingsChanged) {
+                    // e.g. a streaming fetch size must not carry over to the next borrower
+                    physical.setFetchSize(0);
+                    physical.setMaxRows(0);
+                    physical.setQueryTimeout(0);
+                    settingsChanged = false;
+                }
+            } catch (SQLException e) {
+                logger.fine("Could not reset cached statement, closing it: " + e.getMessage());
+                evicted = true;
+                closePhysical();
+            }
+        }
+
+        void closePhysical() {
+            try {
+                physical.close();
+            } catch (SQLException e) {
+                logger.fine("Error closing cached statement: " + e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Handler behind each borrowed connection: {@code close()} hands the physical
+     * connection back, everything else is delegated until then.
+     */
+    private final class LogicalConnection implements InvocationHandler {
+        private final PooledEntry entry;
+        private boolean released;
+
+        LogicalConnection(PooledEntry entry) {
+            this.entry = entry;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            switch (method.getName()) {
+                case "close":
+                    if (!released) {
+                        released = true;
+                        release(entry);
+                    }
+                    return null;
+                case "isClosed":
+                    return released || entry.physical.isClosed();
+                case "prepareStatement":
+                    if (!released) {
+                        return args.length == 1
+                                ? entry.prepare((Connection) proxy, (String) args[0])
+                                : entry.track((Statement) invokePhysical(method, args));
+                    }
+                    break;
+                case "createStatement":
+                case "prepareCall":
+                    if (!released) {
+                        return entry.track((Statement) invokePhysical(method, args));
+                    }
+                    break;
+                case "unwrap":
+                    if (((Class<?>) args[0]).isInstance(entry.physical)) {
+                        return entry.physical;
+                    }
+                    break;
+                case "equals":
+                    return proxy == args[0];
+                case "hashCode":
+                    return System.identityHashCode(proxy);
+                case "toString":
+                    return "Pooled[" + name + "] " + entry.physical;
+                default:
+                    break;
+            }
+
+            if (released) {
+                throw new SQLException("Connection has already been returned to the pool");
+            }
+            Object result = invokePhysical(method, args);
+            if (method.getName().equals("setAutoCommit")) {
+                entry.autoCommit = (Boolean) args[0];
+            } else if (method.getName().equals("setReadOnly")) {
+                entry.readOnly = (Boolean) args[0];
+            }
+            return result;
+        }
+
+        private Object invokePhysical(Method method, Object[] args) throws Throwable {
+            try {
+                return method.invoke(entry.physical, args);
+            } catch (InvocationTargetException e) {
+                throw e.getCause();
+            }
+        }
+    }
+}
@@ -1,26 +1,109 @@
 package com.example.util;
 
 import java.sql.Connection;
-import java.sql.DriverManager;
 import java.sql.SQLException;
 
 public class DBConfig {
 
-    private static final String URL = "jdbc:mysql://localhost:3306/apitest";
-    private static final String USER = "user";
-    private static final String PASSWORD = "password";
+    private static final String URL = ConfigUtil.setting("db.url", "jdbc:mysql://localhost:3306/apitest");
+    private static final String USER = ConfigUtil.setting("db.user", "user");
+    private static final String PASSWORD = ConfigUtil.setting("db.password", "password");
     private static final String DRIVER = "com.mysql.cj.jdbc.Driver";
 
+    private static final ConnectionPool POOL;
+    private static final ReplicaRouter REPLICA;
+
     static {
         try {
             Class.forName(DRIVER);
         } catch (ClassNotFoundException e) {
             throw new RuntimeException("Failed to load MySQL JDBC driver", e);
         }
+        POOL = new ConnectionPool("primary", URL, USER, PASSWORD, ConnectionPool.Settings.fromProperties("db.pool"));
+
+        String replicaUrl = ConfigUtil.setting("db.replica.url", null);
+        if (replicaUrl != null && !replicaUrl.trim().isEmpty()) {
+            ConnectionPool replicaPool = new ConnectionPool("replica", replicaUrl,
+                    ConfigUtil.setting("db.replica.user", USER), ConfigUtil.setting("db.replica.password", PASSWORD),
+                    ConnectionPool.Settings.fromProperties("db.replica.pool"));
+            REPLICA = new ReplicaRouter(replicaPool,
+                    ConfigUtil.longSetting("db.replica.maxLagSeconds", 5),
+                    ConfigUtil.longSetting("db.replica.checkIntervalMillis", 5000));
+        } else {
+            REPLICA = null;
+        }
     }
 
+    /**
+     * Borrows a connection from the pool. Closing the returned connection
+     * hands it back to the pool.
+     *
+     * Inside a {@link ReadOnly} resource method the connection comes from the
+     * replica pool when a replica is configured and healthy, otherwise from the primary.
+     * Statements on the connection are measured by {@link QueryMetrics}.
+     *
+     * Most requests hold one connection, but lookups forked through
+     * {@link ParallelQueries} each borrow their own: the /Header call made on
+     * every page navigation holds up to 3. Size {@code db.pool.maxSize} for that.
+     *
+     * @return A pooled connection
+     * @throws SQLException if no connection could be obtained within the configured wait
+     */
     public static Connection getConnection() throws SQLException {
-        return DriverManager.getConnection(URL, USER, PASSWORD);
+        if (REPLICA != null && ReplicaRouter.isReadOnly()) {
+            Connection con = REPLICA.tryGetConnection();
+            if (con != null) {
+                return QueryMetrics.instrument(con);
+            }
+        }
+        return QueryMetrics.instrument(POOL.getConnection());
+    }
+
+    /**
+     * Borrows a connection from the primary pool regardless of read-only routing.
+     *
+     * @return A pooled primary connection
+     * @throws SQLException if no connection could be obtained within the configured wait
+     */
+    public static Connection getPrimaryConnection() throws SQLException {
+        return QueryMetrics.instrument(POOL.getConnection());
+    }
+
+    /**
+     * Returns the current connection pool metrics.
+     *
+     * @return The pool statistics
+     */
+    public static ConnectionPool.PoolStats getPoolStats() {
+        return POOL.getStats();
+    }
+
+    /**
+     * Returns the replica pool metrics, or null when no replica is configured.
+     *
+     * @return The replica pool statistics
+     */
+    public static ConnectionPool.PoolStats getReplicaPoolStats() {
+        return REPLICA != null ? REPLICA.getPool().getStats() : null;
+    }
+
+    /**
+     * Returns replica health and routing counters, or null when no replica is configured.
+     *
+     * @return The routing statistics
+     */
+    public static ReplicaRouter.RoutingStats getRoutingStats() {
+        return REPLICA != null ? REPLICA.getStats() : null;
+    }
+
+    /**
+     * Closes the connection pools. Called on server shutdown.
+     */
+    public static void shutdown() {
+        POOL.close();
+        if (REPLICA != null) {
+            REPLICA.close();
+        }
     }
 
     public static void closeConnection(Connection con) {
@@ -47,6 +47,30 @@ public class ErrorHandler {
         return createErrorResponse(Response.Status.NOT_FOUND, message);
     }
 
+    /**
+     * Creates a standardized error response for requests rejected because of load.
+     * 
+     * @param message The error message
+     * @param logMessage The message to log (can be more detailed than the client-facing message)
+     * @return A Response object with status 429 (Too Many Requests)
+     */
+    public static Response tooManyRequests(String message, String logMessage) {
+        logger.warning(logMessage);
+        return createErrorResponse(Response.Status.TOO_MANY_REQUESTS, message);
+    }
+
+    /**
+     * Creates a standardized error response for requests that could not be served in time.
+     * 
+     * @param message The error message
+     * @param logMessage The message to log (can be more detailed than the client-facing message)
+     * @return A Response object with status 503 (Service Unavailable)
+     */
+    public static Response serviceUnavailable(String message, String logMessage) {
+        logger.warning(logMessage);
+        return createErrorResponse(Response.Status.SERVICE_UNAVAILABLE, message);
+    }
+
     /**
      * Creates a standardized error response for internal server errors.
      * 
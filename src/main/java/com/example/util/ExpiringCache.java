@@ -0,0 +1,214 @@
+package com.example.util;
+
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.logging.Logger;
+
+/**
+ * A small in-memory cache of values read from the database, keyed by string.
+ *
+ * Entries expire after {@code cache.<name>.ttlSeconds} and the cache holds at
+ * most {@code cache.<name>.maxEntries}; when full, expired entries are dropped
+ * first and then the oldest ones. Every cache registers itself by name so the
+ * admin endpoints can report on it and invalidate it.
+ *
+ * Invalidation bumps a generation counter, and a value loaded while an
+ * invalidation was in progress is returned to its caller but not stored, so a
+ * load that read the old rows cannot put them back after the invalidation.
+ *
+ * @param <V> The cached value type; values are shared between callers and
+ *            should not be modified
+ */
+public final class ExpiringCache<V> {
+
+    private static final Logger logger = Logger.getLogger(ExpiringCache.class.getName());
+
+    private static final Map<String, ExpiringCache<?>> CACHES = new ConcurrentHashMap<>();
+
+    private final String name;
+    private final long ttlNanos;
+    private final int maxEntries;
+    private final Map<String, Entry<V>> entries = new ConcurrentHashMap<>();
+    private final AtomicLong generation = new AtomicLong();
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder invalidations = new LongAdder();
+
+    /**
+     * Loads a value on a cache miss.
+     *
+     * @param <V> The loaded type
+     */
+    @FunctionalInterface
+    public interface Loader<V> {
+        V load() throws SQLException;
+    }
+
+    /**
+     * Per-cache numbers for the admin endpoint.
+     */
+    public static class CacheStats {
+        public int size;
+        public int maxEntries;
+        public long ttlSeconds;
+        public long hits;
+        public long misses;
+        public long invalidations;
+        public double hitRatio;
+    }
+
+    private static class Entry<V> {
+        final V value;
+        final long loadedAt;
+
+        Entry(V value, long loadedAt) {
+            this.value = value;
+            this.loadedAt = loadedAt;
+        }
+    }
+
+    /**
+     * Creates and registers a cache.
+     *
+     * @param name The cache name, also used for its settings
+     * @param defaultTtlSeconds Time to live when {@code cache.<name>.ttlSeconds} is not set; 0 disables caching
+     * @param defaultMaxEntries Size limit when {@code cache.<name>.maxEntries} is not set
+     */
+    public ExpiringCache(String name, int defaultTtlSeconds, int defaultMaxEntries) {
+        this.name = name;
+        this.ttlNanos = TimeUnit.SECONDS.toNanos(Math.max(0, ConfigUtil.intSetting("cache." + name + ".ttlSeconds", defaultTtlSeconds)));
+        this.maxEntries = Math.max(1, ConfigUtil.intSetting("cache." + name + ".maxEntries", defaultMaxEntries));
+        if (CACHES.putIfAbsent(name, this) != null) {
+            throw new IllegalStateException("Duplicate cache name: " + name);
+        }
+    }
+
+    /**
+     * Returns the cached value for a key, loading and storing it on a miss.
+     * Concurrent misses on the same key may each run the loader.
+     *
+     * @param key The key
+     * @param loader Reads the value from the database
+     * @return The value
+     * @throws SQLException if the loader fails; nothing is stored then
+     */
+    public V get(String key, Loader<V> loader) throws SQLException {
+        long now = System.nanoTime();
+        Entry<V> entry = entries.get(key);
+        if (entry != null && now - entry.loadedAt < ttlNanos) {
+            hits.increment();
+            return entry.value;
+        }
+
+        misses.increment();
+        long startGeneration = generation.get();
+        V value = loader.load();
+        if (ttlNanos > 0 && value != null) {
+            if (entries.size() >= maxEntries && !entries.containsKey(key)) {
+                evict(now);
+            }
+            entries.put(key, new Entry<>(value, now));
+            if (generation.get() != startGeneration) {
+                // An invalidation ran during the load; the value may predate it
+                entries.remove(key);
+            }
+        }
+        return value;
+    }
+
+    /**
+     * Returns the cached value for a key without loading it.
+     *
+     * @param key The key
+     * @return The value, or null if it is not cached or has expired
+     */
+    public V getIfPresent(String key) {
+        Entry<V> entry = entries.get(key);
+        if (entry != null && System.nanoTime() - entry.loadedAt < ttlNanos) {
+            hits.increment();
+            return entry.value;
+        }
+        return null;
+    }
+
+    /**
+     * Drops one key.
+     */
+    public void invalidate(String key) {
+        generation.incrementAndGet();
+        invalidations.increment();
+        entries.remove(key);
+    }
+
+    /**
+     * Drops every key starting with the prefix, e.g. all entries of one company.
+     */
+    public void invalidatePrefix(String prefix) {
+        generation.incrementAndGet();
+        invalidations.increment();
+        entries.keySet().removeIf(k -> k.startsWith(prefix));
+    }
+
+    /**
+     * Drops every entry.
+     */
+    public void clear() {
+        generation.incrementAndGet();
+        invalidations.increment();
+        entries.clear();
+    }
+
+    private void evict(long now) {
+        entries.values().removeIf(e -> now - e.loadedAt >= ttlNanos);
+        int excess = entries.size() - maxEntries + 1;
+        if (excess <= 0) {
+            return;
+        }
+        List<Map.Entry<String, Entry<V>>> oldest = new ArrayList<>(entries.entrySet());
+        oldest.sort(Comparator.comparingLong(e -> e.getValue().loadedAt));
+        for (int i = 0; i < excess && i < oldest.size(); i++) {
+            entries.remove(oldest.get(i).getKey());
+        }
+        logger.fine("Cache " + name + " full, evicted " + excess + " entries");
+    }
+
+    /**
+     * Looks up a registered cache.
+     *
+     * @param name The cache name
+     * @return The cache, or null if none has that name
+     */
+    public static ExpiringCache<?> named(String name) {
+        return CACHES.get(name);
+    }
+
+    /**
+     * Returns the numbers of every registered cache, sorted by name.
+     *
+     * @return Map of cache name to its stats
+     */
+    public static Map<String, CacheStats> getStats() {
+        Map<String, CacheStats> result = new TreeMap<>();
+        for (ExpiringCache<?> cache : CACHES.values()) {
+            CacheStats stats = new CacheStats();
+            stats.size = cache.entries.size();
+            stats.maxEntries = cache.maxEntries;
+            stats.ttlSeconds = TimeUnit.NANOSECONDS.toSeconds(cache.ttlNanos);
+            stats.hits = cache.hits.sum();
+            stats.misses = cache.misses.sum();
+            stats.invalidations = cache.invalidations.sum();
+            long lookups = stats.hits + stats.misses;
+            stats.hitRatio = lookups == 0 ? 0 : (double) stats.hits / lookups;
+            result.put(cache.name, stats);
+        }
+        return result;
+    }
+}
@@ -0,0 +1,182 @@
+package com.example.util;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.logging.Logger;
+
+/**
+ * Utility class for allocating primary keys for the tenant tables.
+ *
+ * Replaces {@code SELECT MAX(id)} + 1 with a hi/lo scheme: a block of
+ * {@code db.ids.blockSize} ids per table is reserved from the {@code id_sequence}
+ * table in one short transaction, then handed out from memory with a single
+ * atomic increment.
+ *
+ * The id_sequence table is created with the schema (db/id_sequence.sql). A
+ * table's sequence row is seeded from its current MAX(id) the first time the
+ * table is seen, in its own statement before the reserving transaction, so the
+ * transaction only ever locks a row that exists.
+ *
+ * Every writer of a table must take ids from here; a writer still using
+ * MAX(id) + 1 could pick an id inside a reserved block.
+ */
+public class IdAllocator {
+
+    private static final Logger logger = Logger.getLogger(IdAllocator.class.getName());
+
+    private static final int BLOCK_SIZE = Math.max(1, ConfigUtil.intSetting("db.ids.blockSize", 50));
+
+    private static final Map<String, Sequence> SEQUENCES = new ConcurrentHashMap<>();
+
+    /**
+     * The ids [next, end) reserved in one block. A refill publishes a new range
+     * instead of moving the bounds of this one, so a thread still holding it can
+     * only take ids from its own block.
+     */
+    private static final class Range {
+        final AtomicLong next;
+        final long end;
+
+        Range(long start, long end) {
+            this.next = new AtomicLong(start);
+            this.end = end;
+        }
+    }
+
+    /**
+     * The current range of one table. The refill lock is only taken when the
+     * range runs out.
+     */
+    private static final class Sequence {
+        final AtomicReference<Range> range = new AtomicReference<>(new Range(0, 0));
+        final ReentrantLock refillLock = new ReentrantLock();
+        volatile boolean seeded;
+    }
+
+    /**
+     * Returns the next id for the given table.
+     *
+     * When the caller's connection is in auto-commit mode it is used for the
+     * (rare) block reservation; inside a caller transaction a separate primary
+     * connection is used so the reservation commits independently.
+     *
+     * @param con The caller's connection
+     * @param table The full table name, e.g. {@code companyCode + "_log_master"}
+     * @return A new unique id
+     * @throws SQLException if a new block could not be reserved
+     */
+    public static int nextId(Connection con, String table) throws SQLException {
+        Sequence sequence = SEQUENCES.computeIfAbsent(table, t -> new Sequence());
+        while (true) {
+            Range range = sequence.range.get();
+            long id = range.next.getAndIncrement();
+            if (id < range.end) {
+                return Math.toIntExact(id);
+            }
+
+            sequence.refillLock.lock();
+            try {
+                // Another thread may have refilled while we waited
+                if (sequence.range.get() == range) {
+                    long start = reserve(con, table, sequence);
+                    sequence.range.set(new Range(start, start + BLOCK_SIZE));
+                }
+            } finally {
+                sequence.refillLock.unlock();
+            }
+        }
+    }
+
+    /**
+     * Forgets the cached block for a table, e.g. after its rows were bulk-loaded
+     * outside the application. The next call reserves a fresh block.
+     *
+     * @param table The full table name
+     */
+    public static void reset(String table) {
+        SEQUENCES.remove(table);
+    }
+
+    private static long reserve(Connection con, String table, Sequence sequence) throws SQLException {
+        if (con != null && !con.isClosed() && con.getAutoCommit()) {
+            return reserveInTransaction(con, table, sequence);
+        }
+        try (Connection own = DBConfig.getPrimaryConnection()) {
+            return reserveInTransaction(own, table, sequence);
+        }
+    }
+
+    private static long reserveInTransaction(Connection con, String table, Sequence sequence) throws SQLException {
+        if (!sequence.seeded) {
+            seedSequenceRow(con, table);
+            sequence.seeded = true;
+        }
+
+        con.setAutoCommit(false);
+        try {
+            long next;
+            try (PreparedStatement ps = con.prepareStatement("SELECT next_id FROM id_sequence WHERE table_name = ? FOR UPDATE")) {
+                ps.setString(1, table);
+                try (ResultSet rs = ps.executeQuery()) {
+                    if (!rs.next()) {
+                        throw new SQLException("No id_sequence row for " + table);
+                    }
+                    next = rs.getLong(1);
+                }
+            }
+
+            try (PreparedStatement ps = con.prepareStatement("UPDATE id_sequence SET next_id = ? WHERE table_name = ?")) {
+                ps.setLong(1, next + BLOCK_SIZE);
+                ps.setString(2, table);
+                ps.executeUpdate();
+            }
+            con.commit();
+
+            logger.fine("Reserved ids " + next + ".." + (next + BLOCK_SIZE - 1) + " for " + table);
+            return next;
+        } catch (SQLException e) {
+            con.rollback();
+            throw e;
+        } finally {
+            con.setAutoCommit(true);
+        }
+    }
+
+    /**
+     * Creates the sequence row of a table if it is missing. Runs in auto-commit,
+     * outside the reserving transaction: a locking read of a missing row would
+     * take a gap lock, and two instances seeding the same table could deadlock.
+     */
+    private static void seedSequenceRow(Connection con, String table) throws SQLException {
+        try (PreparedStatement ps = con.prepareStatement("SELECT 1 FROM id_sequence WHERE table_name = ?")) {
+            ps.setString(1, table);
+            try (ResultSet rs = ps.executeQuery()) {
+                if (rs.next()) {
+                    return;
+                }
+            }
+        }
+
+        long next = 1;
+        try (Statement stmt = con.createStatement();
+             ResultSet rs = stmt.executeQuery("SELECT COALESCE(MAX(id), 0) + 1 FROM " + table)) {
+            if (rs.next()) {
+                next = rs.getLong(1);
+            }
+        }
+        // IGNORE: another instance may have seeded the row concurrently
+        try (PreparedStatement ps = con.prepareStatement("INSERT IGNORE INTO id_sequence (table_name, next_id) VALUES (?, ?)")) {
+            ps.setString(1, table);
+            ps.setLong(2, next);
+            ps.executeUpdate();
+        }
+    }
+}
@@ -0,0 +1,251 @@
+package com.example.util;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.SQLTimeoutException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Logger;
+
+/**
+ * Runs the independent lookups of one request in parallel, each on its own
+ * pooled connection, so the request waits for the slowest query instead of
+ * the sum of all of them.
+ *
+ * Usage follows Java 21's StructuredTaskScope, which is still a preview API:
+ * <pre>
+ * try (ParallelQueries scope = new ParallelQueries()) {
+ *     ParallelQueries.Subtask&lt;String&gt; name = scope.fork(con -&gt; loadName(con, id));
+ *     ParallelQueries.Subtask&lt;List&lt;String&gt;&gt; rows = scope.fork(con -&gt; loadRows(con, id));
+ *     scope.join();
+ *     use(name.get(), rows.get());
+ * }
+ * </pre>
+ * {@link #join} waits for every subtask, up to a deadline shared by all of
+ * them ({@code db.parallel.deadlineMillis}). The first failure or the deadline
+ * cancels the remaining subtasks, and {@link #close} waits briefly for them to
+ * stop. Each subtask inherits the caller's read-only routing and query-metrics
+ * tenant.
+ *
+ * Every subtask borrows a connection, so the caller should not hold one of its
+ * own while it waits; otherwise one request needs several connections at once.
+ * At most {@code db.parallel.maxInFlight} subtasks run at a time across all
+ * requests, by default half of {@code db.pool.maxSize}, so parallel lookups
+ * cannot take every connection from the requests that use one directly.
+ * Up to {@code db.parallel.maxQueued} more wait for a slot (by default as many
+ * as may run); a subtask forked beyond that fails at {@link #join}.
+ * TenantBulkhead limits requests, not the connections each of them forks.
+ * For pool sizing: HeaderResource.getHeaderData, called on every page
+ * navigation, forks up to 3 lookups and so takes up to 3 connections at once.
+ */
+public class ParallelQueries implements AutoCloseable {
+
+    private static final Logger logger = Logger.getLogger(ParallelQueries.class.getName());
+
+    private static final long DEFAULT_DEADLINE_MILLIS = ConfigUtil.longSetting("db.parallel.deadlineMillis", 15000);
+    private static final long CLOSE_WAIT_MILLIS = 1000;
+
+    private static final int MAX_IN_FLIGHT =
+            Math.max(1, ConfigUtil.intSetting("db.parallel.maxInFlight", DBConfig.getPoolStats().maxSize / 2));
+    private static final VirtualThreadExecutor EXECUTOR = new VirtualThreadExecutor("parallel-query",
+            MAX_IN_FLIGHT, Math.max(0, ConfigUtil.intSetting("db.parallel.maxQueued", MAX_IN_FLIGHT)));
+
+    private final long deadline;
+    private final ConnectionSource connections;
+    private final List<Subtask<?>> subtasks = new ArrayList<>();
+    private final BlockingQueue<Subtask<?>> completed = new LinkedBlockingQueue<>();
+
+    /**
+     * Where subtasks borrow their connections: {@link DBConfig#getConnection} outside tests.
+     */
+    @FunctionalInterface
+    interface ConnectionSource {
+        Connection get() throws SQLException;
+    }
+
+    /**
+     * A lookup run on a connection of its own.
+     *
+     * @param <T> The result type
+     */
+    @FunctionalInterface
+    public interface Query<T> {
+        T run(Connection con) throws SQLException;
+    }
+
+    /**
+     * A forked lookup. Its result is available after {@link #join} returns.
+     *
+     * @param <T> The result type
+     */
+    public static class Subtask<T> {
+        private final FutureTask<T> task;
+        private final CountDownLatch finished = new CountDownLatch(1);
+        private volatile RejectedExecutionException rejected;
+
+        private Subtask(ParallelQueries scope, Query<T> query) {
+            boolean readOnly = ReplicaRouter.isReadOnly();
+            String tenant = QueryMetrics.getTenant();
+            this.task = new FutureTask<>(() -> {
+                if (readOnly) {
+                    ReplicaRouter.markReadOnly();
+                }
+                QueryMetrics.setTenant(tenant);
+                try (Connection con = scope.connections.get()) {
+                    return query.run(con);
+                } finally {
+                    ReplicaRouter.clear();
+                    QueryMetrics.clearTenant();
+                }
+            }) {
+                @Override
+                protected void done() {
+                    scope.completed.add(Subtask.this);
+                }
+            };
+        }
+
+        /**
+         * @return The lookup's result
+         * @throws IllegalStateException if the scope was not joined or the lookup did not succeed
+         */
+        public T get() {
+            if (!task.isDone()) {
+                throw new IllegalStateException("Subtask has not completed; call join() first");
+            }
+            try {
+                return task.get();
+            } catch (ExecutionException | CancellationException e) {
+                throw new IllegalStateException("Subtask did not complete successfully", e);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException(e);
+            }
+        }
+    }
+
+    /**
+     * Opens a scope with the default deadline.
+     */
+    public ParallelQueries() {
+        this(DEFAULT_DEADLINE_MILLIS);
+    }
+
+    /**
+     * Opens a scope whose subtasks must all finish within the given time.
+     *
+     * @param deadlineMillis Time allowed from now until {@link #join} gives up
+     */
+    public ParallelQueries(long deadlineMillis) {
+        this(deadlineMillis, DBConfig::getConnection);
+    }
+
+    ParallelQueries(long deadlineMillis, ConnectionSource connections) {
+        this.deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(deadlineMillis);
+        this.connections = connections;
+    }
+
+    /**
+     * Starts a lookup on a virtual thread.
+     *
+     * @param query The lookup
+     * @return Handle to its result
+     */
+    public <T> Subtask<T> fork(Query<T> query) {
+        Subtask<T> subtask = new Subtask<>(this, query);
+        subtasks.add(subtask);
+        try {
+            EXECUTOR.execute(() -> {
+                try {
+                    subtask.task.run();
+                } finally {
+                    subtask.finished.countDown();
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            // Never started: join() reports it like any other failed lookup
+            subtask.rejected = e;
+            subtask.task.cancel(false);
+            subtask.finished.countDown();
+        }
+        return subtask;
+    }
+
+    /**
+     * Waits for every forked lookup. On the first failure, or when the deadline
+     * passes, the other lookups are cancelled and the failure is thrown.
+     *
+     * @throws SQLException the first lookup's SQLException, or SQLTimeoutException on the deadline
+     */
+    public void join() throws SQLException {
+        for (int remaining = subtasks.size(); remaining > 0; remaining--) {
+            Subtask<?> done;
+            try {
+                done = completed.poll(deadline - System.nanoTime(), TimeUnit.NANOSECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                cancelAll();
+                throw new SQLException("Interrupted while waiting for parallel queries", e);
+            }
+            if (done == null) {
+                cancelAll();
+                throw new SQLTimeoutException("Parallel queries did not finish within the deadline ("
+                        + remaining + " of " + subtasks.size() + " still running)");
+            }
+            try {
+                done.task.get();
+            } catch (ExecutionException e) {
+                cancelAll();
+                Throwable cause = e.getCause();
+                if (cause instanceof SQLException) {
+                    throw (SQLException) cause;
+                }
+                if (cause instanceof RuntimeException) {
+                    throw (RuntimeException) cause;
+                }
+                throw new SQLException("Parallel query failed: " + cause, cause);
+            } catch (CancellationException | InterruptedException e) {
+                cancelAll();
+                if (done.rejected != null) {
+                    throw new SQLException("Parallel query rejected: " + done.rejected.getMessage(), done.rejected);
+                }
+                throw new SQLException("Parallel query was cancelled", e);
+            }
+        }
+    }
+
+    /**
+     * Cancels any lookups still running and waits briefly for their threads to
+     * return their connections.
+     */
+    @Override
+    public void close() {
+        cancelAll();
+        long waitUntil = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(CLOSE_WAIT_MILLIS);
+        for (Subtask<?> subtask : subtasks) {
+            try {
+                if (!subtask.finished.await(waitUntil - System.nanoTime(), TimeUnit.NANOSECONDS)) {
+                    logger.warning("Parallel query still running after cancellation");
+                    return;
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+        }
+    }
+
+    private void cancelAll() {
+        for (Subtask<?> subtask : subtasks) {
+            subtask.task.cancel(true);
+        }
+    }
+}
@@ -0,0 +1,140 @@
+package com.example.util;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The columns a list endpoint may select, each under the field name it is
+ * serialized as.
+ *
+ * Fields are either summary fields, which a list returns by default, or large
+ * fields (free text such as root causes or evidence), which are only selected
+ * when asked for with {@code fields=}. The key field is always included so the
+ * caller can load the full record from the per-record endpoint.
+ */
+public final class Projection {
+
+    private final String keyField;
+    private final Map<String, String> columns = new LinkedHashMap<>();
+    private final List<String> summary = new ArrayList<>();
+
+    /**
+     * The fields picked for one request.
+     */
+    public final class Selection {
+        private final List<String> fields;
+
+        private Selection(List<String> fields) {
+            this.fields = fields;
+        }
+
+        /**
+         * @return The select list, e.g. {@code "id, nc_no, status"}
+         */
+        public String columns() {
+            StringBuilder sql = new StringBuilder();
+            for (String field : fields) {
+                if (sql.length() > 0) {
+                    sql.append(", ");
+                }
+                sql.append(Projection.this.columns.get(field));
+            }
+            return sql.toString();
+        }
+
+        /**
+         * @return true if the field is selected
+         */
+        public boolean includes(String field) {
+            return fields.contains(field);
+        }
+
+        /**
+         * Reads one field of the current row.
+         *
+         * @param rs The result set, positioned on a row
+         * @param field The field name
+         * @return The value, or null if the field is not selected
+         * @throws SQLException if the column cannot be read
+         */
+        public String getString(ResultSet rs, String field) throws SQLException {
+            return includes(field) ? rs.getString(Projection.this.columns.get(field)) : null;
+        }
+
+        /**
+         * Reads the selected fields of the current row.
+         *
+         * @param rs The result set, positioned on a row
+         * @return Field name to value, in selection order
+         * @throws SQLException if a column cannot be read
+         */
+        public Map<String, Object> read(ResultSet rs) throws SQLException {
+            Map<String, Object> row = new LinkedHashMap<>();
+            for (String field : fields) {
+                row.put(field, rs.getString(Projection.this.columns.get(field)));
+            }
+            return row;
+        }
+    }
+
+    /**
+     * @param keyField The field identifying a record
+     * @param keyColumn Its column
+     */
+    public Projection(String keyField, String keyColumn) {
+        this.keyField = keyField;
+        summary(keyField, keyColumn);
+    }
+
+    /**
+     * Adds a field returned by default.
+     */
+    public Projection summary(String field, String column) {
+        columns.put(field, column);
+        summary.add(field);
+        return this;
+    }
+
+    /**
+     * Adds a field returned only when requested.
+     */
+    public Projection large(String field, String column) {
+        columns.put(field, column);
+        return this;
+    }
+
+    /**
+     * Resolves a {@code fields=} parameter.
+     *
+     * @param fields Comma-separated field names, "all" for every field, or
+     *               null/empty for the summary fields
+     * @return The selection, always starting with the key field
+     * @throws IllegalArgumentException if a name is not a known field
+     */
+    public Selection select(String fields) {
+        if (fields == null || fields.trim().isEmpty()) {
+            return new Selection(summary);
+        }
+        if ("all".equalsIgnoreCase(fields.trim())) {
+            return new Selection(new ArrayList<>(columns.keySet()));
+        }
+
+        List<String> selected = new ArrayList<>();
+        selected.add(keyField);
+        for (String part : fields.split(",")) {
+            String field = part.trim();
+            if (field.isEmpty() || selected.contains(field)) {
+                continue;
+            }
+            if (!columns.containsKey(field)) {
+                throw new IllegalArgumentException("Unknown field: " + field);
+            }
+            selected.add(field);
+        }
+        return new Selection(selected);
+    }
+}
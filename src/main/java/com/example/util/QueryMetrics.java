@@ -0,0 +1,645 @@
+package com.example.util;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.CallableStatement;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.Statement;
+import java.time.Instant;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.logging.Logger;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Utility class for per-query JDBC metrics.
+ *
+ * Connections handed out by {@link DBConfig} are wrapped so every statement
+ * execution is timed and attributed to a template: the SQL text with the
+ * company prefix replaced by {@code {tenant}} and literals by {@code ?}, e.g.
+ * {@code SELECT * FROM {tenant}_internal_audit_detail WHERE internal_audit_id = ?}.
+ * Calls, errors, rows and a latency histogram are kept per template, and calls,
+ * rows and time per tenant. Work is attributed to the company whose tables the
+ * SQL names, or else to the company of the current request. Codes that
+ * {@link TenantRegistry} has not loaded are counted together as
+ * "(unregistered)", so made-up company-code headers cannot grow the tenant maps.
+ *
+ * Executions slower than {@code db.metrics.slowQueryMillis} are logged and the
+ * most recent ones are kept for the admin endpoint. Only the template and the
+ * type and length of each bind value are recorded, never the values, which may
+ * be credentials or personal data.
+ * Set {@code db.metrics.enabled=false} to hand out unwrapped connections.
+ */
+public class QueryMetrics {
+
+    private static final Logger logger = Logger.getLogger(QueryMetrics.class.getName());
+
+    private static final boolean ENABLED = ConfigUtil.booleanSetting("db.metrics.enabled", true);
+    private static final long SLOW_QUERY_MILLIS = ConfigUtil.longSetting("db.metrics.slowQueryMillis", 500);
+    private static final int MAX_TEMPLATES = ConfigUtil.intSetting("db.metrics.maxTemplates", 2000);
+    private static final int SLOW_LOG_SIZE = ConfigUtil.intSetting("db.metrics.slowLogSize", 100);
+
+    private static final int MAX_NORMALISED_SQL = 20000;
+    private static final String NO_TENANT = "-";
+    private static final String UNREGISTERED_TENANT = "(unregistered)";
+    private static final String OVERFLOW_TEMPLATE = "{other}";
+
+    /** Upper bounds of the latency buckets, in milliseconds; the last bucket is unbounded */
+    private static final long[] BUCKET_BOUNDS_MILLIS = { 1, 2, 5, 10, 25, 50, 100, 250, 500, 1000, 2500, 5000, 10000 };
+
+    private static final Pattern TABLE_POSITION = Pattern.compile(
+            "(?i)\\b(FROM|JOIN|INTO|UPDATE|TABLE)\\s+([A-Za-z0-9_]+)");
+    private static final Pattern STRING_LITERAL = Pattern.compile("'(?:[^'\\\\]|\\\\.|'')*'");
+    private static final Pattern NUMBER_LITERAL = Pattern.compile("(?<![A-Za-z0-9_{}])-?\\d+(?:\\.\\d+)?(?![A-Za-z0-9_])");
+    private static final Pattern PLACEHOLDER_LIST = Pattern.compile("\\?(?:\\s*,\\s*\\?)+");
+    private static final Pattern TUPLE_LIST = Pattern.compile("\\(\\?, \\.\\.\\.\\)(?:\\s*,\\s*\\(\\?, \\.\\.\\.\\))+");
+    private static final Pattern WHITESPACE = Pattern.compile("\\s+");
+
+    private static final ThreadLocal<String> TENANT = new ThreadLocal<>();
+
+    private static final Map<String, Query> NORMALISED = new ConcurrentHashMap<>();
+    private static final Map<String, Template> TEMPLATES = new ConcurrentHashMap<>();
+    private static final Map<String, TenantCounters> TENANTS = new ConcurrentHashMap<>();
+    private static final Set<String> TENANT_TABLE_SUFFIXES = ConcurrentHashMap.newKeySet();
+    private static final Deque<SlowQuery> SLOW_QUERIES = new ArrayDeque<>();
+
+    /**
+     * Latency and volume for one SQL template.
+     */
+    public static class TemplateStats {
+        public String template;
+        public long calls;
+        public long errors;
+        public long rows;
+        public double totalMillis;
+        public double avgMillis;
+        public double maxMillis;
+        public double p50Millis;
+        public double p95Millis;
+        public double p99Millis;
+        public Map<String, Long> histogram;
+        public Map<String, Long> callsByTenant;
+    }
+
+    /**
+     * Database work attributed to one company.
+     */
+    public static class TenantStats {
+        public long calls;
+        public long errors;
+        public long rows;
+        public long slowQueries;
+        public double totalMillis;
+        public double avgMillis;
+    }
+
+    /**
+     * One execution over the slow-query threshold.
+     */
+    public static class SlowQuery {
+        public String at;
+        public String tenant;
+        public String template;
+        public double millis;
+        public long updateCount;
+        /** Type of each bind value with its length, e.g. "String(8)"; the values are not kept. */
+        public List<String> binds;
+        public String thread;
+    }
+
+    /**
+     * The template a piece of SQL text was normalised to, and the company whose
+     * tables it names (null if none). Shared by every thread running that SQL,
+     * so it holds nothing about the request that first ran it.
+     */
+    private static class Query {
+        final String template;
+        final String tablePrefix;
+
+        Query(String template, String tablePrefix) {
+            this.template = template;
+            this.tablePrefix = tablePrefix;
+        }
+    }
+
+    private static class Template {
+        final LongAdder calls = new LongAdder();
+        final LongAdder errors = new LongAdder();
+        final LongAdder rows = new LongAdder();
+        final LongAdder totalNanos = new LongAdder();
+        final AtomicLong maxNanos = new AtomicLong();
+        final LongAdder[] buckets = new LongAdder[BUCKET_BOUNDS_MILLIS.length + 1];
+        final Map<String, LongAdder> callsByTenant = new ConcurrentHashMap<>();
+
+        Template() {
+            for (int i = 0; i < buckets.length; i++) {
+                buckets[i] = new LongAdder();
+            }
+        }
+    }
+
+    private static class TenantCounters {
+        final LongAdder calls = new LongAdder();
+        final LongAdder errors = new LongAdder();
+        final LongAdder rows = new LongAdder();
+        final LongAdder slowQueries = new LongAdder();
+        final LongAdder totalNanos = new LongAdder();
+    }
+
+    /**
+     * Wraps a connection so its statements are measured. Returns the
+     * connection unchanged when metrics are disabled.
+     *
+     * @param con The connection to wrap
+     * @return The instrumented connection
+     */
+    public static Connection instrument(Connection con) {
+        if (!ENABLED || con == null) {
+            return con;
+        }
+        return (Connection) Proxy.newProxyInstance(QueryMetrics.class.getClassLoader(),
+                new Class<?>[] { Connection.class }, new InstrumentedConnection(con));
+    }
+
+    /**
+     * Sets the company code of the current request, used to recognise its
+     * table prefix in SQL text.
+     *
+     * @param companyCode The company code, or null if unknown
+     */
+    public static void setTenant(String companyCode) {
+        if (companyCode == null) {
+            TENANT.remove();
+        } else {
+            TENANT.set(companyCode);
+        }
+    }
+
+    /**
+     * Clears the company code of the current thread.
+     */
+    public static void clearTenant() {
+        TENANT.remove();
+    }
+
+    /**
+     * @return The company code of the current thread, or null if none is set
+     */
+    public static String getTenant() {
+        return TENANT.get();
+    }
+
+    /**
+     * Returns per-template metrics.
+     *
+     * @param sortBy One of "total", "avg", "max", "p99", "calls", "rows" or "errors"
+     * @param limit Maximum number of templates to return
+     * @return The templates ordered by the given measure, largest first
+     */
+    public static List<TemplateStats> getTemplateStats(String sortBy, int limit) {
+        List<TemplateStats> result = new ArrayList<>();
+        for (Map.Entry<String, Template> e : TEMPLATES.entrySet()) {
+            result.add(toStats(e.getKey(), e.getValue()));
+        }
+
+        Comparator<TemplateStats> order;
+        switch (sortBy == null ? "total" : sortBy) {
+            case "avg": order = Comparator.comparingDouble(s -> s.avgMillis); break;
+            case "max": order = Comparator.comparingDouble(s -> s.maxMillis); break;
+            case "p99": order = Comparator.comparingDouble(s -> s.p99Millis); break;
+            case "calls": order = Comparator.comparingLong(s -> s.calls); break;
+            case "rows": order = Comparator.comparingLong(s -> s.rows); break;
+            case "errors": order = Comparator.comparingLong(s -> s.errors); break;
+            default: order = Comparator.comparingDouble(s -> s.totalMillis); break;
+        }
+        result.sort(order.reversed());
+        return result.size() > limit ? new ArrayList<>(result.subList(0, Math.max(0, limit))) : result;
+    }
+
+    /**
+     * Returns per-company totals, sorted by company code.
+     *
+     * @return Map of company code to its stats
+     */
+    public static Map<String, TenantStats> getTenantStats() {
+        Map<String, TenantStats> result = new TreeMap<>();
+        for (Map.Entry<String, TenantCounters> e : TENANTS.entrySet()) {
+            TenantCounters c = e.getValue();
+            TenantStats stats = new TenantStats();
+            stats.calls = c.calls.sum();
+            stats.errors = c.errors.sum();
+            stats.rows = c.rows.sum();
+            stats.slowQueries = c.slowQueries.sum();
+            stats.totalMillis = c.totalNanos.sum() / 1_000_000.0;
+            stats.avgMillis = stats.calls == 0 ? 0 : stats.totalMillis / stats.calls;
+            result.put(e.getKey(), stats);
+        }
+        return result;
+    }
+
+    /**
+     * Returns the most recent slow queries, newest first.
+     *
+     * @return The slow-query log
+     */
+    public static List<SlowQuery> getSlowQueries() {
+        synchronized (SLOW_QUERIES) {
+            return new ArrayList<>(SLOW_QUERIES);
+        }
+    }
+
+    /**
+     * Discards all collected metrics.
+     */
+    public static void reset() {
+        TEMPLATES.clear();
+        TENANTS.clear();
+        synchronized (SLOW_QUERIES) {
+            SLOW_QUERIES.clear();
+        }
+    }
+
+    private static TemplateStats toStats(String text, Template t) {
+        TemplateStats stats = new TemplateStats();
+        stats.template = text;
+        stats.calls = t.calls.sum();
+        stats.errors = t.errors.sum();
+        stats.rows = t.rows.sum();
+        stats.totalMillis = t.totalNanos.sum() / 1_000_000.0;
+        stats.avgMillis = stats.calls == 0 ? 0 : stats.totalMillis / stats.calls;
+        stats.maxMillis = t.maxNanos.get() / 1_000_000.0;
+
+        long[] counts = new long[t.buckets.length];
+        long total = 0;
+        stats.histogram = new LinkedHashMap<>();
+        for (int i = 0; i < counts.length; i++) {
+            counts[i] = t.buckets[i].sum();
+            total += counts[i];
+            String label = i < BUCKET_BOUNDS_MILLIS.length ? "<=" + BUCKET_BOUNDS_MILLIS[i] + "ms" : ">" + BUCKET_BOUNDS_MILLIS[i - 1] + "ms";
+            stats.histogram.put(label, counts[i]);
+        }
+        stats.p50Millis = percentile(counts, total, 0.50, stats.maxMillis);
+        stats.p95Millis = percentile(counts, total, 0.95, stats.maxMillis);
+        stats.p99Millis = percentile(counts, total, 0.99, stats.maxMillis);
+
+        stats.callsByTenant = new TreeMap<>();
+        for (Map.Entry<String, LongAdder> e : t.callsByTenant.entrySet()) {
+            stats.callsByTenant.put(e.getKey(), e.getValue().sum());
+        }
+        return stats;
+    }
+
+    /**
+     * Upper bound of the bucket holding the given percentile, capped at the observed maximum.
+     */
+    private static double percentile(long[] counts, long total, double p, double maxMillis) {
+        if (total == 0) {
+            return 0;
+        }
+        long rank = (long) Math.ceil(p * total);
+        long seen = 0;
+        for (int i = 0; i < counts.length; i++) {
+            seen += counts[i];
+            if (seen >= rank) {
+                return i < BUCKET_BOUNDS_MILLIS.length ? Math.min(BUCKET_BOUNDS_MILLIS[i], maxMillis) : maxMillis;
+            }
+        }
+        return maxMillis;
+    }
+
+    private static Query normalise(String sql) {
+        Query query = NORMALISED.get(sql);
+        if (query != null) {
+            return query;
+        }
+
+        String tenant = TENANT.get();
+        String text = sql;
+        String found = null;
+
+        if (tenant != null && text.contains(tenant + "_")) {
+            // The request's own prefix: replace it wherever it starts an identifier
+            Matcher m = Pattern.compile("(?<![A-Za-z0-9_])" + Pattern.quote(tenant) + "_([A-Za-z0-9_]+)").matcher(text);
+            StringBuilder sb = new StringBuilder();
+            while (m.find()) {
+                TENANT_TABLE_SUFFIXES.add(m.group(1));
+                m.appendReplacement(sb, Matcher.quoteReplacement("{tenant}_" + m.group(1)));
+            }
+            m.appendTail(sb);
+            text = sb.toString();
+            found = tenant;
+        } else {
+            // No request context (background work, body-supplied company codes): match
+            // table names against suffixes already seen with a known prefix
+            Matcher m = TABLE_POSITION.matcher(text);
+            StringBuilder sb = new StringBuilder();
+            while (m.find()) {
+                String table = m.group(2);
+                String replacement = table;
+                for (int i = table.indexOf('_'); i > 0; i = table.indexOf('_', i + 1)) {
+                    if (TENANT_TABLE_SUFFIXES.contains(table.substring(i + 1))) {
+                        if (found == null) {
+                            found = table.substring(0, i);
+                        }
+                        replacement = "{tenant}_" + table.substring(i + 1);
+                        break;
+                    }
+                }
+                m.appendReplacement(sb, Matcher.quoteReplacement(m.group(1) + " " + replacement));
+            }
+            m.appendTail(sb);
+            text = sb.toString();
+        }
+
+        text = STRING_LITERAL.matcher(text).replaceAll("?");
+        text = NUMBER_LITERAL.matcher(text).replaceAll("?");
+        text = PLACEHOLDER_LIST.matcher(text).replaceAll("?, ...");
+        text = TUPLE_LIST.matcher(text).replaceAll("(?, ...), ...");
+        text = WHITESPACE.matcher(text).replaceAll(" ").trim();
+
+        query = new Query(text, found);
+        if (NORMALISED.size() >= MAX_NORMALISED_SQL) {
+            NORMALISED.clear();
+        }
+        NORMALISED.put(sql, query);
+        return query;
+    }
+
+    /**
+     * The company a single execution is counted against: the one whose tables
+     * the SQL names, or else the current request's.
+     */
+    private static String tenantOf(Query query) {
+        String tenant = query.tablePrefix != null ? query.tablePrefix : TENANT.get();
+        if (tenant == null) {
+            return NO_TENANT;
+        }
+        return TenantRegistry.isKnownTableCode(tenant) ? tenant : UNREGISTERED_TENANT;
+    }
+
+    private static Template template(Query query) {
+        Template t = TEMPLATES.get(query.template);
+        if (t != null) {
+            return t;
+        }
+        if (TEMPLATES.size() >= MAX_TEMPLATES) {
+            return TEMPLATES.computeIfAbsent(OVERFLOW_TEMPLATE, k -> new Template());
+        }
+        return TEMPLATES.computeIfAbsent(query.template, k -> new Template());
+    }
+
+    private static void record(Query query, String tenant, long nanos, long updateCount, boolean error, List<Object> binds) {
+        Template t = template(query);
+        t.calls.increment();
+        t.totalNanos.add(nanos);
+        t.maxNanos.accumulateAndGet(nanos, Math::max);
+        t.callsByTenant.computeIfAbsent(tenant, k -> new LongAdder()).increment();
+
+        long millis = nanos / 1_000_000;
+        int bucket = 0;
+        while (bucket < BUCKET_BOUNDS_MILLIS.length && millis > BUCKET_BOUNDS_MILLIS[bucket]) {
+            bucket++;
+        }
+        t.buckets[bucket].increment();
+
+        TenantCounters c = TENANTS.computeIfAbsent(tenant, k -> new TenantCounters());
+        c.calls.increment();
+        c.totalNanos.add(nanos);
+        if (updateCount > 0) {
+            t.rows.add(updateCount);
+            c.rows.add(updateCount);
+        }
+        if (error) {
+            t.errors.increment();
+            c.errors.increment();
+        }
+
+        if (SLOW_QUERY_MILLIS >= 0 && millis >= SLOW_QUERY_MILLIS) {
+            c.slowQueries.increment();
+            logSlowQuery(query, tenant, nanos, updateCount, binds);
+        }
+    }
+
+    private static void logSlowQuery(Query query, String tenant, long nanos, long updateCount, List<Object> binds) {
+        SlowQuery slow = new SlowQuery();
+        slow.at = Instant.now().toString();
+        slow.tenant = tenant;
+        slow.template = query.template;
+        slow.millis = nanos / 1_000_000.0;
+        slow.updateCount = updateCount;
+        slow.binds = new ArrayList<>();
+        if (binds != null) {
+            for (Object bind : binds) {
+                slow.binds.add(describe(bind));
+            }
+        }
+        slow.thread = Thread.currentThread().getName();
+
+        logger.warning("Slow query (" + slow.millis + "ms, tenant " + slow.tenant + "): " + slow.template + " binds=" + slow.binds);
+
+        synchronized (SLOW_QUERIES) {
+            SLOW_QUERIES.addFirst(slow);
+            while (SLOW_QUERIES.size() > SLOW_LOG_SIZE) {
+                SLOW_QUERIES.removeLast();
+            }
+        }
+    }
+
+    /**
+     * Describes a bind value without revealing it: its type, plus the length of
+     * strings and byte arrays.
+     */
+    static String describe(Object value) {
+        if (value == null) {
+            return "NULL";
+        }
+        if (value instanceof byte[]) {
+            return "byte[" + ((byte[]) value).length + "]";
+        }
+        if (value instanceof CharSequence) {
+            return "String(" + ((CharSequence) value).length() + ")";
+        }
+        return value.getClass().getSimpleName();
+    }
+
+    private static boolean isExecute(String name) {
+        return name.equals("execute") || name.equals("executeQuery") || name.equals("executeUpdate")
+                || name.equals("executeLargeUpdate") || name.equals("executeBatch") || name.equals("executeLargeBatch");
+    }
+
+    private static long updateCount(Object result) {
+        if (result instanceof Integer) {
+            return (Integer) result;
+        }
+        if (result instanceof Long) {
+            return (Long) result;
+        }
+        long sum = 0;
+        if (result instanceof int[]) {
+            for (int n : (int[]) result) {
+                sum += Math.max(n, 0);
+            }
+        } else if (result instanceof long[]) {
+            for (long n : (long[]) result) {
+                sum += Math.max(n, 0);
+            }
+        }
+        return sum;
+    }
+
+    private static Object invokeTarget(Object target, Method method, Object[] args) throws Throwable {
+        try {
+            return method.invoke(target, args);
+        } catch (InvocationTargetException e) {
+            throw e.getCause();
+        }
+    }
+
+    /**
+     * Handler behind each instrumented connection: statements it creates are wrapped.
+     */
+    private static final class InstrumentedConnection implements InvocationHandler {
+        private final Connection target;
+
+        InstrumentedConnection(Connection target) {
+            this.target = target;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            switch (method.getName()) {
+                case "prepareStatement":
+                case "prepareCall": {
+                    Statement statement = (Statement) invokeTarget(target, method, args);
+                    Class<?> type = method.getName().equals("prepareCall") ? CallableStatement.class : PreparedStatement.class;
+                    return wrap(statement, type, proxy, (String) args[0]);
+                }
+                case "createStatement": {
+                    Statement statement = (Statement) invokeTarget(target, method, args);
+                    return wrap(statement, Statement.class, proxy, null);
+                }
+                case "equals":
+                    return proxy == args[0];
+                case "hashCode":
+                    return System.identityHashCode(proxy);
+                case "toString":
+                    return "Instrumented " + target;
+                default:
+                    return invokeTarget(target, method, args);
+            }
+        }
+
+        private Object wrap(Statement statement, Class<?> type, Object connection, String sql) {
+            return Proxy.newProxyInstance(QueryMetrics.class.getClassLoader(),
+                    new Class<?>[] { type }, new InstrumentedStatement(statement, (Connection) connection, sql));
+        }
+    }
+
+    /**
+     * Handler behind each instrumented statement: times executions and remembers bind values.
+     */
+    private static final class InstrumentedStatement implements InvocationHandler {
+        private final Statement target;
+        private final Connection connection;
+        private final String sql;
+        private final List<Object> binds = new ArrayList<>();
+        private String batchSql;
+
+        InstrumentedStatement(Statement target, Connection connection, String sql) {
+            this.target = target;
+            this.connection = connection;
+            this.sql = sql;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            String name = method.getName();
+
+            if (name.startsWith("set") && args != null && args.length >= 2 && args[0] instanceof Integer) {
+                int index = (Integer) args[0] - 1;
+                while (binds.size() <= index) {
+                    binds.add(null);
+                }
+                binds.set(index, name.equals("setNull") ? null : args[1]);
+            } else if (name.equals("clearParameters")) {
+                binds.clear();
+            } else if (name.equals("addBatch") && args != null && args.length == 1) {
+                batchSql = (String) args[0];
+            } else if (name.equals("getConnection")) {
+                return connection;
+            } else if (name.equals("getResultSet")) {
+                ResultSet rs = (ResultSet) invokeTarget(target, method, args);
+                if (rs == null || sql == null) {
+                    return rs;
+                }
+                Query query = normalise(sql);
+                return countRows(rs, query, tenantOf(query));
+            } else if (name.equals("equals")) {
+                return proxy == args[0];
+            } else if (name.equals("hashCode")) {
+                return System.identityHashCode(proxy);
+            } else if (isExecute(name)) {
+                return execute(method, args);
+            }
+            return invokeTarget(target, method, args);
+        }
+
+        private Object execute(Method method, Object[] args) throws Throwable {
+            String text = args != null && args.length > 0 && args[0] instanceof String ? (String) args[0] : sql;
+            if (text == null) {
+                text = batchSql;
+            }
+            if (text == null) {
+                return invokeTarget(target, method, args);
+            }
+
+            Query query = normalise(text);
+            String tenant = tenantOf(query);
+            long start = System.nanoTime();
+            Object result;
+            try {
+                result = invokeTarget(target, method, args);
+            } catch (Throwable e) {
+                record(query, tenant, System.nanoTime() - start, -1, true, binds);
+                throw e;
+            }
+            long elapsed = System.nanoTime() - start;
+
+            if (result instanceof ResultSet) {
+                record(query, tenant, elapsed, -1, false, binds);
+                return countRows((ResultSet) result, query, tenant);
+            }
+            record(query, tenant, elapsed, result instanceof Boolean ? -1 : updateCount(result), false, binds);
+            return result;
+        }
+
+        private ResultSet countRows(ResultSet rs, Query query, String tenant) {
+            Template t = template(query);
+            TenantCounters c = TENANTS.computeIfAbsent(tenant, k -> new TenantCounters());
+            return (ResultSet) Proxy.newProxyInstance(QueryMetrics.class.getClassLoader(),
+                    new Class<?>[] { ResultSet.class }, (proxy, method, args) -> {
+                        Object result = invokeTarget(rs, method, args);
+                        if (method.getName().equals("next") && Boolean.TRUE.equals(result)) {
+                            t.rows.increment();
+                            c.rows.increment();
+                        }
+                        return result;
+                    });
+        }
+    }
+}
@@ -0,0 +1,16 @@
+package com.example.util;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Marks a resource method (or every method of a resource class) as read-only.
+ * Connections obtained through {@link DBConfig#getConnection()} while such a
+ * method runs are served from the replica pool when one is configured and healthy.
+ */
+@Retention(RetentionPolicy.RUNTIME)
+@Target({ ElementType.METHOD, ElementType.TYPE })
+public @interface ReadOnly {
+}
@@ -0,0 +1,162 @@
+package com.example.util;
+
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.logging.Logger;
+
+/**
+ * Utility class for routing read-only work to a replica database.
+ *
+ * The replica is enabled by setting {@code db.replica.url}. A background check
+ * pings the replica and reads its replication lag; reads fall back to the
+ * primary while the replica is unreachable or lags more than
+ * {@code db.replica.maxLagSeconds}.
+ */
+public class ReplicaRouter {
+
+    private static final Logger logger = Logger.getLogger(ReplicaRouter.class.getName());
+
+    private static final ThreadLocal<Boolean> READ_ONLY = new ThreadLocal<>();
+
+    private final ConnectionPool replica;
+    private final long maxLagSeconds;
+    private final ScheduledExecutorService monitor;
+
+    private volatile boolean healthy;
+    private volatile long lagSeconds = -1;
+    private volatile String lastError;
+    private final LongAdder replicaReads = new LongAdder();
+    private final LongAdder fallbackReads = new LongAdder();
+
+    /**
+     * Routing counters and replica health as last observed.
+     */
+    public static class RoutingStats {
+        public boolean replicaHealthy;
+        public long replicaLagSeconds;
+        public long maxLagSeconds;
+        public long replicaReads;
+        public long fallbackReads;
+        public String lastError;
+    }
+
+    ReplicaRouter(ConnectionPool replica, long maxLagSeconds, long checkIntervalMillis) {
+        this.replica = replica;
+        this.maxLagSeconds = maxLagSeconds;
+        this.monitor = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "db-replica-monitor");
+            t.setDaemon(true);
+            return t;
+        });
+        this.monitor.scheduleWithFixedDelay(this::checkHealth, 0, checkIntervalMillis, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Marks the current thread as running read-only work.
+     */
+    public static void markReadOnly() {
+        READ_ONLY.set(Boolean.TRUE);
+    }
+
+    /**
+     * Clears the read-only mark for the current thread.
+     */
+    public static void clear() {
+        READ_ONLY.remove();
+    }
+
+    /**
+     * @return true if the current thread is running read-only work
+     */
+    public static boolean isReadOnly() {
+        return READ_ONLY.get() != null;
+    }
+
+    /**
+     * Returns a replica connection, or null when reads should go to the primary.
+     */
+    Connection tryGetConnection() {
+        if (!healthy) {
+            fallbackReads.increment();
+            return null;
+        }
+        try {
+            Connection con = replica.getConnection();
+            replicaReads.increment();
+            return con;
+        } catch (SQLException e) {
+            logger.warning("Replica connection failed, falling back to primary: " + e.getMessage());
+            fallbackReads.increment();
+            return null;
+        }
+    }
+
+    private void checkHealth() {
+        try (Connection con = replica.getConnection();
+             Statement stmt = con.createStatement()) {
+            long lag = readLag(stmt);
+            lagSeconds = lag;
+            healthy = lag >= 0 && lag <= maxLagSeconds;
+            lastError = healthy ? null : (lag < 0 ? "Replication is not running" : "Replica lag " + lag + "s exceeds " + maxLagSeconds + "s");
+        } catch (SQLException e) {
+            healthy = false;
+            lastError = e.getMessage();
+        }
+        if (!healthy) {
+            logger.warning("Replica unavailable for reads: " + lastError);
+        }
+    }
+
+    /**
+     * Reads the replication lag in seconds. A server that is not configured as a
+     * replica (e.g. a second standalone instance used in testing) reports zero lag;
+     * a replica whose replication threads are stopped reports -1.
+     */
+    private long readLag(Statement stmt) throws SQLException {
+        ResultSet rs;
+        String column;
+        try {
+            rs = stmt.executeQuery("SHOW REPLICA STATUS");
+            column = "Seconds_Behind_Source";
+        } catch (SQLException e) {
+            // MySQL before 8.0.22
+            rs = stmt.executeQuery("SHOW SLAVE STATUS");
+            column = "Seconds_Behind_Master";
+        }
+        try {
+            if (!rs.next()) {
+                return 0;
+            }
+            long lag = rs.getLong(column);
+            return rs.wasNull() ? -1 : lag;
+        } finally {
+            rs.close();
+        }
+    }
+
+    RoutingStats getStats() {
+        RoutingStats stats = new RoutingStats();
+        stats.replicaHealthy = healthy;
+        stats.replicaLagSeconds = lagSeconds;
+        stats.maxLagSeconds = maxLagSeconds;
+        stats.replicaReads = replicaReads.sum();
+        stats.fallbackReads = fallbackReads.sum();
+        stats.lastError = lastError;
+        return stats;
+    }
+
+    ConnectionPool getPool() {
+        return replica;
+    }
+
+    void close() {
+        monitor.shutdownNow();
+        replica.close();
+    }
+}
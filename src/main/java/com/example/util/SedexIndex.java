@@ -0,0 +1,261 @@
+package com.example.util;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.logging.Logger;
+
+/**
+ * Utility class serving the SEDEX nonconformity pickers from memory.
+ *
+ * sedex_nonconformities is read once into a hierarchy of workplace
+ * requirement, subcategory and issue title, with every level's children
+ * sorted ahead of time, plus a sorted array of all issue titles for prefix
+ * search. The index is immutable and kept in an {@link ExpiringCache} named
+ * "sedex" ({@code cache.sedex.ttlSeconds}, one hour by default); a reload
+ * swaps in a new index, and only a reload touches the database. The admin
+ * endpoints invalidate it after the table is edited.
+ *
+ * Names are matched ignoring case and trailing spaces, as MySQL did.
+ */
+public class SedexIndex {
+
+    private static final Logger logger = Logger.getLogger(SedexIndex.class.getName());
+
+    private static final String KEY = "all";
+    private static final ExpiringCache<Index> CACHE = new ExpiringCache<>("sedex", 3600, 1);
+
+    private static final Comparator<String> NAME_ORDER =
+            Comparator.comparing((String s) -> s.toLowerCase(Locale.ROOT)).thenComparing(Comparator.naturalOrder());
+
+    /**
+     * One issue title with what the auditor fills in for it.
+     */
+    public static class Issue {
+        public final String workplace;
+        public final String subCategory;
+        public final String title;
+        public final String verificationMethod;
+        public final String completion;
+
+        Issue(String workplace, String subCategory, String title, String verificationMethod, String completion) {
+            this.workplace = workplace;
+            this.subCategory = subCategory;
+            this.title = title;
+            this.verificationMethod = verificationMethod;
+            this.completion = completion;
+        }
+    }
+
+    /**
+     * One level of the hierarchy: the sorted names of its children and the
+     * child nodes by name key.
+     */
+    private static class Node {
+        final List<String> names;
+        final Map<String, Node> children;
+        final Issue issue;
+
+        Node(List<String> names, Map<String, Node> children, Issue issue) {
+            this.names = names;
+            this.children = children;
+            this.issue = issue;
+        }
+    }
+
+    static class Index {
+        final Node root;
+        final String[] titleKeys;
+        final Issue[] titles;
+
+        Index(Node root, String[] titleKeys, Issue[] titles) {
+            this.root = root;
+            this.titleKeys = titleKeys;
+            this.titles = titles;
+        }
+
+        /**
+         * @see SedexIndex#searchIssueTitles
+         */
+        List<Issue> searchIssueTitles(String prefix, int limit) {
+            String key = prefix == null ? "" : prefix.toLowerCase(Locale.ROOT);
+            int from = Arrays.binarySearch(titleKeys, key);
+            if (from < 0) {
+                from = -from - 1;
+            } else {
+                // Equal keys may precede the one found
+                while (from > 0 && titleKeys[from - 1].equals(key)) {
+                    from--;
+                }
+            }
+
+            List<Issue> matches = new ArrayList<>();
+            for (int i = from; i < titleKeys.length && matches.size() < limit; i++) {
+                if (!titleKeys[i].startsWith(key)) {
+                    break;
+                }
+                matches.add(titles[i]);
+            }
+            return matches;
+        }
+    }
+
+    /**
+     * @return Every workplace requirement, sorted
+     * @throws SQLException if the index has to be loaded and that fails
+     */
+    public static List<String> getWorkplaceRequirements() throws SQLException {
+        return index().root.names;
+    }
+
+    /**
+     * @return The subcategories of a workplace requirement, sorted; empty if unknown
+     * @throws SQLException if the index has to be loaded and that fails
+     */
+    public static List<String> getSubCategories(String workplace) throws SQLException {
+        Node node = child(index().root, workplace);
+        return node != null ? node.names : Collections.emptyList();
+    }
+
+    /**
+     * @return The issue titles of a subcategory, sorted; empty if unknown
+     * @throws SQLException if the index has to be loaded and that fails
+     */
+    public static List<String> getIssueTitles(String workplace, String subCategory) throws SQLException {
+        Node node = child(child(index().root, workplace), subCategory);
+        return node != null ? node.names : Collections.emptyList();
+    }
+
+    /**
+     * @return The issue, or null if there is no such title under the subcategory
+     * @throws SQLException if the index has to be loaded and that fails
+     */
+    public static Issue getIssue(String workplace, String subCategory, String title) throws SQLException {
+        Node node = child(child(child(index().root, workplace), subCategory), title);
+        return node != null ? node.issue : null;
+    }
+
+    /**
+     * Finds issue titles starting with a prefix, ignoring case, in title order.
+     * A title used under several subcategories is returned once per subcategory.
+     *
+     * @param prefix The typed prefix
+     * @param limit Maximum number of matches
+     * @return The matching issues
+     * @throws SQLException if the index has to be loaded and that fails
+     */
+    public static List<Issue> searchIssueTitles(String prefix, int limit) throws SQLException {
+        return index().searchIssueTitles(prefix, limit);
+    }
+
+    /**
+     * Drops the loaded index; the next request reads sedex_nonconformities again.
+     */
+    public static void invalidate() {
+        CACHE.invalidate(KEY);
+    }
+
+    private static Node child(Node node, String name) {
+        return node == null || name == null ? null : node.children.get(nameKey(name));
+    }
+
+    private static Index index() throws SQLException {
+        return CACHE.get(KEY, SedexIndex::load);
+    }
+
+    private static Index load() throws SQLException {
+        try (Connection con = DBConfig.getConnection()) {
+            return load(con);
+        }
+    }
+
+    static Index load(Connection con) throws SQLException {
+        Level root = new Level(null);
+        List<Issue> titles = new ArrayList<>();
+        String query = "SELECT Workplace_Requirement, Subcategory, New_Issue_Title, verification_method, Recomended_Completion " +
+                "FROM sedex_nonconformities WHERE id > 0 ORDER BY id";
+        int count = 0;
+        try (PreparedStatement ps = con.prepareStatement(query);
+             ResultSet rs = ps.executeQuery()) {
+            while (rs.next()) {
+                count++;
+                String workplace = rs.getString("Workplace_Requirement");
+                String subCategory = rs.getString("Subcategory");
+                String title = rs.getString("New_Issue_Title");
+                if (workplace == null) {
+                    continue;
+                }
+                Level level = root.child(workplace);
+                if (subCategory == null) {
+                    continue;
+                }
+                level = level.child(subCategory);
+                if (title == null) {
+                    continue;
+                }
+                level = level.child(title);
+                // The first row wins, as with the old LIMIT 1 lookup
+                if (level.issue == null) {
+                    level.issue = new Issue(workplace, subCategory, title,
+                            rs.getString("verification_method"), rs.getString("Recomended_Completion"));
+                    titles.add(level.issue);
+                }
+            }
+        }
+
+        titles.sort(Comparator.comparing((Issue issue) -> issue.title, NAME_ORDER)
+                .thenComparing(issue -> issue.workplace, NAME_ORDER)
+                .thenComparing(issue -> issue.subCategory, NAME_ORDER));
+        String[] titleKeys = new String[titles.size()];
+        for (int i = 0; i < titleKeys.length; i++) {
+            titleKeys[i] = titles.get(i).title.toLowerCase(Locale.ROOT);
+        }
+
+        logger.info("Loaded SEDEX index: " + count + " rows, " + root.children.size() + " workplace requirements, "
+                + titles.size() + " issue titles");
+        return new Index(root.freeze(), titleKeys, titles.toArray(new Issue[0]));
+    }
+
+    /**
+     * Mutable level used while loading, frozen into a {@link Node}.
+     */
+    private static class Level {
+        final String name;
+        final Map<String, Level> children = new HashMap<>();
+        Issue issue;
+
+        Level(String name) {
+            this.name = name;
+        }
+
+        Level child(String name) {
+            // The first spelling of a name is the one shown
+            return children.computeIfAbsent(nameKey(name), k -> new Level(name));
+        }
+
+        Node freeze() {
+            String[] names = new String[children.size()];
+            Map<String, Node> nodes = new HashMap<>();
+            int i = 0;
+            for (Map.Entry<String, Level> e : children.entrySet()) {
+                names[i++] = e.getValue().name;
+                nodes.put(e.getKey(), e.getValue().freeze());
+            }
+            Arrays.sort(names, NAME_ORDER);
+            return new Node(Collections.unmodifiableList(Arrays.asList(names)), nodes, issue);
+        }
+    }
+
+    private static String nameKey(String name) {
+        return name.stripTrailing().toLowerCase(Locale.ROOT);
+    }
+}
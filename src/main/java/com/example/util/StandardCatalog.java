@@ -0,0 +1,131 @@
+package com.example.util;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Logger;
+
+/**
+ * Utility class for looking up standard_master rows by name or id without a
+ * query per lookup.
+ *
+ * The whole table is held as one immutable snapshot in an {@link ExpiringCache}
+ * named "standards", so reads take no lock. The snapshot is reloaded when it
+ * expires ({@code cache.standards.ttlSeconds}, one hour by default), when it is
+ * invalidated through the admin endpoints, and when a lookup misses and the
+ * snapshot is older than {@code catalog.standards.missReloadSeconds}, so a
+ * standard added since the last load is found without waiting for expiry.
+ *
+ * Names are matched ignoring case and trailing spaces, as MySQL's
+ * {@code std_name = ?} did.
+ */
+public class StandardCatalog {
+
+    private static final Logger logger = Logger.getLogger(StandardCatalog.class.getName());
+
+    private static final String KEY = "all";
+    private static final ExpiringCache<Snapshot> CACHE = new ExpiringCache<>("standards", 3600, 1);
+    private static final long MISS_RELOAD_NANOS =
+            TimeUnit.SECONDS.toNanos(ConfigUtil.intSetting("catalog.standards.missReloadSeconds", 60));
+
+    private static class Snapshot {
+        final Map<String, String> idByName;
+        final Map<String, String> nameById;
+        final long loadedAt;
+
+        Snapshot(Map<String, String> idByName, Map<String, String> nameById) {
+            this.idByName = idByName;
+            this.nameById = nameById;
+            this.loadedAt = System.nanoTime();
+        }
+    }
+
+    /**
+     * Looks up the id of a standard.
+     *
+     * @param con Connection used if the catalog has to be loaded
+     * @param stdName The standard name, e.g. "ISO 9001:2015"
+     * @return The id, or null if there is no such standard
+     * @throws SQLException if loading the catalog fails
+     */
+    public static String getId(Connection con, String stdName) throws SQLException {
+        if (stdName == null) {
+            return null;
+        }
+        String key = nameKey(stdName);
+        Snapshot snapshot = snapshot(con);
+        String id = snapshot.idByName.get(key);
+        if (id == null && reloadOnMiss(snapshot)) {
+            id = snapshot(con).idByName.get(key);
+        }
+        return id;
+    }
+
+    /**
+     * Looks up the name of a standard.
+     *
+     * @param con Connection used if the catalog has to be loaded
+     * @param stdId The standard id
+     * @return The name, or null if there is no such standard
+     * @throws SQLException if loading the catalog fails
+     */
+    public static String getName(Connection con, String stdId) throws SQLException {
+        if (stdId == null) {
+            return null;
+        }
+        String key = stdId.trim();
+        Snapshot snapshot = snapshot(con);
+        String name = snapshot.nameById.get(key);
+        if (name == null && reloadOnMiss(snapshot)) {
+            name = snapshot(con).nameById.get(key);
+        }
+        return name;
+    }
+
+    /**
+     * Drops the loaded catalog; the next lookup reads standard_master again.
+     */
+    public static void invalidate() {
+        CACHE.invalidate(KEY);
+    }
+
+    private static Snapshot snapshot(Connection con) throws SQLException {
+        return CACHE.get(KEY, () -> load(con));
+    }
+
+    private static boolean reloadOnMiss(Snapshot snapshot) {
+        if (System.nanoTime() - snapshot.loadedAt < MISS_RELOAD_NANOS) {
+            return false;
+        }
+        CACHE.invalidate(KEY);
+        return true;
+    }
+
+    private static Snapshot load(Connection con) throws SQLException {
+        Map<String, String> idByName = new HashMap<>();
+        Map<String, String> nameById = new HashMap<>();
+        try (PreparedStatement ps = con.prepareStatement("SELECT id, std_name FROM standard_master ORDER BY id");
+             ResultSet rs = ps.executeQuery()) {
+            while (rs.next()) {
+                String id = rs.getString("id");
+                String name = rs.getString("std_name");
+                nameById.put(id, name);
+                if (name != null) {
+                    // The first row wins, as with the old single-row lookup
+                    idByName.putIfAbsent(nameKey(name), id);
+                }
+            }
+        }
+        logger.info("Loaded " + nameById.size() + " standards");
+        return new Snapshot(idByName, nameById);
+    }
+
+    private static String nameKey(String name) {
+        return name.stripTrailing().toLowerCase(Locale.ROOT);
+    }
+}
@@ -0,0 +1,214 @@
+package com.example.util;
+
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.logging.Logger;
+
+/**
+ * Utility class for per-company concurrency limits on database work.
+ *
+ * Each company code gets its own compartment with a cap on concurrent requests
+ * and on requests queued behind them, so one tenant running heavy reports
+ * cannot hold every connection and worker thread. Limits default to
+ * {@code db.tenant.maxConcurrent}, {@code db.tenant.maxQueued} and
+ * {@code db.tenant.maxWaitMillis}, and can be overridden per company with
+ * e.g. {@code db.tenant.ACME.maxConcurrent}.
+ *
+ * Only companies known to {@link TenantRegistry} get a compartment of their
+ * own, so the map cannot grow with made-up header values. Any other code,
+ * including a real company not loaded since startup, shares the
+ * {@value #UNREGISTERED} compartment, configured with
+ * {@code db.tenant.unregistered.maxConcurrent} and so on.
+ */
+public class TenantBulkhead {
+
+    private static final Logger logger = Logger.getLogger(TenantBulkhead.class.getName());
+
+    private static final int DEFAULT_MAX_CONCURRENT = ConfigUtil.intSetting("db.tenant.maxConcurrent", 8);
+    private static final int DEFAULT_MAX_QUEUED = ConfigUtil.intSetting("db.tenant.maxQueued", 16);
+    private static final long DEFAULT_MAX_WAIT_MILLIS = ConfigUtil.longSetting("db.tenant.maxWaitMillis", 2000);
+
+    /** Stats key of the compartment shared by unregistered company codes. */
+    public static final String UNREGISTERED = "(unregistered)";
+
+    private static final Map<String, Compartment> COMPARTMENTS = new ConcurrentHashMap<>();
+    private static final Compartment UNREGISTERED_COMPARTMENT = new Compartment("unregistered");
+
+    /**
+     * Why a request was turned away.
+     */
+    public enum Rejection {
+        /** Too many requests already waiting for this company; reported as 429 */
+        QUEUE_FULL,
+        /** Waited {@code maxWaitMillis} without getting a slot; reported as 503 */
+        TIMEOUT
+    }
+
+    /**
+     * Thrown when a company's compartment cannot admit another request.
+     */
+    public static class RejectedException extends Exception {
+        private static final long serialVersionUID = 1L;
+
+        private final Rejection reason;
+
+        public RejectedException(String message, Rejection reason) {
+            super(message);
+            this.reason = reason;
+        }
+
+        public Rejection getReason() {
+            return reason;
+        }
+    }
+
+    /**
+     * A held slot in a company's compartment. Releasing it more than once is harmless.
+     */
+    public static class Permit {
+        private final Compartment compartment;
+        private final AtomicBoolean released = new AtomicBoolean();
+
+        private Permit(Compartment compartment) {
+            this.compartment = compartment;
+        }
+
+        public void release() {
+            if (released.compareAndSet(false, true)) {
+                compartment.active.decrementAndGet();
+                compartment.permits.release();
+            }
+        }
+    }
+
+    /**
+     * Saturation counters for one company.
+     */
+    public static class TenantStats {
+        public int maxConcurrent;
+        public int maxQueued;
+        public int active;
+        public int queued;
+        public int peakActive;
+        public double saturation;
+        public long admitted;
+        public long rejectedQueueFull;
+        public long rejectedTimeout;
+        public double avgWaitMillis;
+    }
+
+    private static class Compartment {
+        final int maxConcurrent;
+        final int maxQueued;
+        final long maxWaitMillis;
+        final Semaphore permits;
+        final AtomicInteger active = new AtomicInteger();
+        final AtomicInteger queued = new AtomicInteger();
+        final AtomicInteger peakActive = new AtomicInteger();
+        final LongAdder admitted = new LongAdder();
+        final LongAdder rejectedQueueFull = new LongAdder();
+        final LongAdder rejectedTimeout = new LongAdder();
+        final LongAdder waitNanos = new LongAdder();
+
+        Compartment(String name) {
+            this.maxConcurrent = ConfigUtil.intSetting("db.tenant." + name + ".maxConcurrent", DEFAULT_MAX_CONCURRENT);
+            this.maxQueued = ConfigUtil.intSetting("db.tenant." + name + ".maxQueued", DEFAULT_MAX_QUEUED);
+            this.maxWaitMillis = ConfigUtil.longSetting("db.tenant." + name + ".maxWaitMillis", DEFAULT_MAX_WAIT_MILLIS);
+            this.permits = new Semaphore(maxConcurrent, true);
+        }
+
+        Permit admit(long waitStart) {
+            waitNanos.add(System.nanoTime() - waitStart);
+            admitted.increment();
+            peakActive.accumulateAndGet(active.incrementAndGet(), Math::max);
+            return new Permit(this);
+        }
+    }
+
+    /**
+     * Takes a slot for the company, waiting in its queue if all slots are busy.
+     *
+     * @param companyCode The company code (table prefix) of the request
+     * @return The permit, to be released when the request finishes
+     * @throws RejectedException if the queue is full or the wait times out
+     */
+    public static Permit acquire(String companyCode) throws RejectedException {
+        Compartment c = compartment(companyCode);
+        long start = System.nanoTime();
+
+        if (c.permits.tryAcquire()) {
+            return c.admit(start);
+        }
+
+        if (c.queued.incrementAndGet() > c.maxQueued) {
+            c.queued.decrementAndGet();
+            c.rejectedQueueFull.increment();
+            throw new RejectedException("Too many concurrent requests for company " + companyCode
+                    + " (active=" + c.active.get() + ", queued=" + c.maxQueued + ")", Rejection.QUEUE_FULL);
+        }
+
+        boolean acquired;
+        try {
+            acquired = c.permits.tryAcquire(c.maxWaitMillis, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            acquired = false;
+        } finally {
+            c.queued.decrementAndGet();
+        }
+
+        if (!acquired) {
+            c.rejectedTimeout.increment();
+            throw new RejectedException("Timed out after " + c.maxWaitMillis + "ms waiting for a slot for company "
+                    + companyCode, Rejection.TIMEOUT);
+        }
+        return c.admit(start);
+    }
+
+    private static Compartment compartment(String companyCode) {
+        Compartment c = COMPARTMENTS.get(companyCode);
+        if (c != null) {
+            return c;
+        }
+        if (!TenantRegistry.isKnownTableCode(companyCode)) {
+            return UNREGISTERED_COMPARTMENT;
+        }
+        return COMPARTMENTS.computeIfAbsent(companyCode, Compartment::new);
+    }
+
+    /**
+     * Returns saturation metrics for every company seen so far, sorted by company
+     * code, plus the shared {@link #UNREGISTERED} compartment.
+     *
+     * @return Map of company code to its stats
+     */
+    public static Map<String, TenantStats> getStats() {
+        Map<String, TenantStats> result = new TreeMap<>();
+        for (Map.Entry<String, Compartment> e : COMPARTMENTS.entrySet()) {
+            result.put(e.getKey(), stats(e.getValue()));
+        }
+        result.put(UNREGISTERED, stats(UNREGISTERED_COMPARTMENT));
+        return result;
+    }
+
+    private static TenantStats stats(Compartment c) {
+        TenantStats stats = new TenantStats();
+        stats.maxConcurrent = c.maxConcurrent;
+        stats.maxQueued = c.maxQueued;
+        stats.active = c.active.get();
+        stats.queued = c.queued.get();
+        stats.peakActive = c.peakActive.get();
+        stats.saturation = c.maxConcurrent == 0 ? 0 : (double) stats.active / c.maxConcurrent;
+        stats.admitted = c.admitted.sum();
+        stats.rejectedQueueFull = c.rejectedQueueFull.sum();
+        stats.rejectedTimeout = c.rejectedTimeout.sum();
+        stats.avgWaitMillis = stats.admitted == 0 ? 0 : c.waitNanos.sum() / 1_000_000.0 / stats.admitted;
+        return stats;
+    }
+}
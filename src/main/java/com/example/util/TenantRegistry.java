@@ -0,0 +1,373 @@
+package com.example.util;
+
+import java.sql.Connection;
+import java.sql.Date;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.logging.Logger;
+
+/**
+ * Utility class resolving a company code to its registration row.
+ *
+ * Which table holds a company depends on the login type: company_registration
+ * for direct clients, CB_/CS_/CPA_&lt;parent&gt;_company_registration for clients
+ * of a certification body, consultant or CPA, and certification_body,
+ * consultant or cpa for those firms themselves. The registry picks the table,
+ * reads the row and keeps it as an immutable {@link Tenant} in an
+ * {@link ExpiringCache} named "tenants" ({@code cache.tenants.ttlSeconds}, five
+ * minutes by default). The admin endpoints drop a company after its
+ * registration is edited.
+ *
+ * Only descriptive fields are taken from the cache. Whether a company may log
+ * in, its status and active package, is read with {@link #readStatus} or
+ * {@link #getWithStatus} each time, so a deactivated company or lapsed package
+ * takes effect at once.
+ *
+ * The table codes of every company loaded since startup are remembered, so
+ * {@link TenantBulkhead} can tell a registered company from an arbitrary
+ * header value without a query.
+ */
+public class TenantRegistry {
+
+    private static final Logger logger = Logger.getLogger(TenantRegistry.class.getName());
+
+    private static final ExpiringCache<Tenant> CACHE = new ExpiringCache<>("tenants", 300, 10000);
+
+    // Table codes of the companies loaded so far; bounded by the number of registrations
+    private static final Set<String> TABLE_CODES = ConcurrentHashMap.newKeySet();
+
+    /**
+     * One company as seen from a login type.
+     */
+    public static class Tenant {
+        public final String companyCode;
+        public final String loginType;
+        public final String parentCompanyCode;
+        /** Table the row was read from, e.g. "CB_ACME_company_registration". */
+        public final String registrationTable;
+        /** Prefix of the company's own tables, e.g. "CB_ACME_CLIENT1_". */
+        public final String tablePrefix;
+
+        public final String id;
+        public final String name;
+        public final String street1;
+        public final String street2;
+        public final String village;
+        public final String city;
+        public final String state;
+        public final String pincode;
+        public final String country;
+        public final String personName;
+        public final String configType;
+        public final String riskType;
+
+        /** Every column of the registration row, by column name, for display. */
+        public final Map<String, String> columns;
+
+        Tenant(String companyCode, String loginType, String parentCompanyCode, String registrationTable,
+               Map<String, String> columns) {
+            this.companyCode = companyCode;
+            this.loginType = loginType;
+            this.parentCompanyCode = parentCompanyCode;
+            this.registrationTable = registrationTable;
+            this.tablePrefix = tableCode(companyCode, loginType, parentCompanyCode) + "_";
+            this.columns = Collections.unmodifiableMap(columns);
+            this.id = columns.get("id");
+            this.name = columns.get("company_name");
+            this.street1 = columns.get("street1");
+            this.street2 = columns.get("street2");
+            this.village = columns.get("village");
+            this.city = columns.get("city");
+            this.state = columns.get("state");
+            this.pincode = columns.get("pincode");
+            this.country = columns.get("country");
+            this.personName = columns.get("person_name");
+            this.configType = columns.get("config_type");
+            this.riskType = columns.get("risk_type");
+        }
+    }
+
+    /**
+     * A direct client's company status and active package, as read just now.
+     */
+    public static class Status {
+        public final String companyStatus;
+        /** Status of the active package; null if there is none. */
+        public final String packageStatus;
+        public final LocalDate packageValidTo;
+
+        Status(String companyStatus, String packageStatus, LocalDate packageValidTo) {
+            this.companyStatus = companyStatus;
+            this.packageStatus = packageStatus;
+            this.packageValidTo = packageValidTo;
+        }
+
+        /**
+         * The package status as of a date: "Expired" when there is no active
+         * package or its validity ended before that date.
+         */
+        public String getPackageStatus(LocalDate today) {
+            if (packageStatus == null || (packageValidTo != null && packageValidTo.isBefore(today))) {
+                return "Expired";
+            }
+            return packageStatus;
+        }
+    }
+
+    /**
+     * A direct client together with its status, as returned by {@link #getWithStatus}.
+     */
+    public static class Registration {
+        public final Tenant tenant;
+        public final Status status;
+
+        Registration(Tenant tenant, Status status) {
+            this.tenant = tenant;
+            this.status = status;
+        }
+    }
+
+    /**
+     * Looks up a direct client in company_registration.
+     *
+     * @param con Connection used if the company has to be loaded
+     * @param companyCode The company code
+     * @return The tenant, or null if there is no such company
+     * @throws SQLException if loading fails
+     */
+    public static Tenant get(Connection con, String companyCode) throws SQLException {
+        return get(con, companyCode, "Client Login", null);
+    }
+
+    /**
+     * Looks up a company in the registration table of a login type.
+     *
+     * @param con Connection used if the company has to be loaded
+     * @param companyCode The company code as registered
+     * @param loginType The login type, e.g. "Consultant Client"
+     * @param parentCompanyCode The certification body, consultant or CPA of a client; ignored for other types
+     * @return The tenant, or null if there is no such company or the login type has no registration table
+     * @throws IllegalArgumentException if the parent company code is not a valid company code
+     * @throws SQLException if loading fails
+     */
+    public static Tenant get(Connection con, String companyCode, String loginType, String parentCompanyCode) throws SQLException {
+        if (companyCode == null || loginType == null) {
+            return null;
+        }
+        String parent = isClientOfFirm(loginType) ? parentCode(parentCompanyCode) : "";
+        String table = registrationTable(loginType, parent);
+        if (table == null) {
+            return null;
+        }
+        return CACHE.get(key(companyCode, loginType, parent), () -> load(con, companyCode, loginType, parent, table));
+    }
+
+    /**
+     * Returns a direct client from the cache without touching the database, so
+     * callers can skip borrowing a connection when the company is cached.
+     *
+     * @param companyCode The company code
+     * @return The tenant, or null if it is not cached
+     */
+    public static Tenant getIfPresent(String companyCode) {
+        return companyCode == null ? null : CACHE.getIfPresent(key(companyCode, "Client Login", ""));
+    }
+
+    /**
+     * Looks up a direct client and reads its current status in one query: the
+     * status alone when the company is cached, or the registration row joined
+     * with the active package on a miss, which also fills the cache.
+     *
+     * @param con The connection to use
+     * @param companyCode The company code
+     * @return The company and its status, or null if there is no such company
+     * @throws SQLException if a query fails
+     */
+    public static Registration getWithStatus(Connection con, String companyCode) throws SQLException {
+        if (companyCode == null) {
+            return null;
+        }
+        Tenant cached = getIfPresent(companyCode);
+        if (cached != null) {
+            Status status = readStatus(con, companyCode);
+            return status != null ? new Registration(cached, status) : null;
+        }
+
+        String query = "SELECT c.*, p.status AS package_status, p.validity_to AS package_validity_to " +
+                "FROM company_registration c " +
+                "LEFT JOIN package_validity_detail p ON p.company_id = c.id AND p.status = 'Active' " +
+                "WHERE c.company_code = ?";
+        Tenant loaded;
+        Status status;
+        try (PreparedStatement ps = con.prepareStatement(query)) {
+            ps.setString(1, companyCode);
+            try (ResultSet rs = ps.executeQuery()) {
+                if (!rs.next()) {
+                    return null;
+                }
+                Map<String, String> columns = readColumns(rs);
+                columns.remove("package_status");
+                columns.remove("package_validity_to");
+                loaded = tenant(companyCode, "Client Login", "", "company_registration", columns);
+                status = readStatus(rs);
+            }
+        }
+        Tenant tenant = CACHE.get(key(companyCode, "Client Login", ""), () -> loaded);
+        return new Registration(tenant, status);
+    }
+
+    /**
+     * Reads a direct client's company status and active package from the
+     * database. Never cached.
+     *
+     * @param con The connection to use
+     * @param companyCode The company code
+     * @return The status, or null if there is no such company
+     * @throws SQLException if the query fails
+     */
+    public static Status readStatus(Connection con, String companyCode) throws SQLException {
+        String query = "SELECT c.company_status, p.status AS package_status, p.validity_to AS package_validity_to " +
+                "FROM company_registration c " +
+                "LEFT JOIN package_validity_detail p ON p.company_id = c.id AND p.status = 'Active' " +
+                "WHERE c.company_code = ?";
+        try (PreparedStatement ps = con.prepareStatement(query)) {
+            ps.setString(1, companyCode);
+            try (ResultSet rs = ps.executeQuery()) {
+                return rs.next() ? readStatus(rs) : null;
+            }
+        }
+    }
+
+    private static Status readStatus(ResultSet rs) throws SQLException {
+        Date validTo = rs.getDate("package_validity_to");
+        return new Status(rs.getString("company_status"), rs.getString("package_status"),
+                validTo != null ? validTo.toLocalDate() : null);
+    }
+
+    /**
+     * The code a company's own tables are named with, e.g. "CS_ACME_CLIENT1" for
+     * CLIENT1 logging in as a client of consultant ACME. Spaces become underscores.
+     */
+    public static String tableCode(String companyCode, String loginType, String parentCompanyCode) {
+        String code = companyCode.replaceAll(" ", "_");
+        String parent = parentCompanyCode != null ? parentCompanyCode.replaceAll(" ", "_") : "";
+        if ("Certification body".equalsIgnoreCase(loginType)) {
+            return "CB_" + code;
+        } else if ("Consultant".equalsIgnoreCase(loginType)) {
+            return "CS_" + code;
+        } else if ("CPA".equalsIgnoreCase(loginType)) {
+            return "CPA_" + code;
+        } else if ("Certification body Client".equalsIgnoreCase(loginType)) {
+            return "CB_" + parent + "_" + code;
+        } else if ("Consultant Client".equalsIgnoreCase(loginType)) {
+            return "CS_" + parent + "_" + code;
+        } else if ("CPA Client".equalsIgnoreCase(loginType)) {
+            return "CPA_" + parent + "_" + code;
+        }
+        return code;
+    }
+
+    /**
+     * Whether a company with this table code has been loaded since startup,
+     * under any login type. Never queries the database.
+     *
+     * @param tableCode The table code, as from {@link #tableCode}
+     * @return True if the code belongs to a registered company
+     */
+    public static boolean isKnownTableCode(String tableCode) {
+        return tableCode != null && TABLE_CODES.contains(tableCode);
+    }
+
+    /**
+     * Drops every cached view of a company, under any login type.
+     */
+    public static void invalidate(String companyCode) {
+        CACHE.invalidatePrefix(companyCode + "|");
+    }
+
+    /**
+     * Drops every company.
+     */
+    public static void invalidateAll() {
+        CACHE.clear();
+    }
+
+    private static String key(String companyCode, String loginType, String parent) {
+        return companyCode + "|" + loginType.toLowerCase(Locale.ROOT) + "|" + parent;
+    }
+
+    private static boolean isClientOfFirm(String loginType) {
+        return "Certification body Client".equalsIgnoreCase(loginType)
+                || "Consultant Client".equalsIgnoreCase(loginType)
+                || "CPA Client".equalsIgnoreCase(loginType);
+    }
+
+    private static String parentCode(String parentCompanyCode) {
+        String parent = parentCompanyCode != null ? parentCompanyCode.replaceAll(" ", "_") : "";
+        // The parent code becomes part of a table name
+        if (!ValidationUtil.isValidCompanyCode(parent)) {
+            throw new IllegalArgumentException("Invalid parent company code: " + parentCompanyCode);
+        }
+        return parent;
+    }
+
+    private static String registrationTable(String loginType, String parent) {
+        if ("Client Login".equalsIgnoreCase(loginType)) {
+            return "company_registration";
+        } else if ("Certification body Client".equalsIgnoreCase(loginType)) {
+            return "CB_" + parent + "_company_registration";
+        } else if ("Consultant Client".equalsIgnoreCase(loginType)) {
+            return "CS_" + parent + "_company_registration";
+        } else if ("CPA Client".equalsIgnoreCase(loginType)) {
+            return "CPA_" + parent + "_company_registration";
+        } else if ("Certification body".equalsIgnoreCase(loginType)) {
+            return "certification_body";
+        } else if ("Consultant".equalsIgnoreCase(loginType)) {
+            return "consultant";
+        } else if ("CPA".equalsIgnoreCase(loginType)) {
+            return "cpa";
+        }
+        return null;
+    }
+
+    private static Tenant load(Connection con, String companyCode, String loginType, String parent, String table)
+            throws SQLException {
+        String query = "SELECT * FROM " + table + " WHERE company_code = ?";
+
+        try (PreparedStatement ps = con.prepareStatement(query)) {
+            ps.setString(1, companyCode);
+            try (ResultSet rs = ps.executeQuery()) {
+                if (!rs.next()) {
+                    logger.fine("No company " + companyCode + " in " + table);
+                    return null;
+                }
+                return tenant(companyCode, loginType, parent, table, readColumns(rs));
+            }
+        }
+    }
+
+    private static Tenant tenant(String companyCode, String loginType, String parent, String table,
+                                 Map<String, String> columns) {
+        Tenant tenant = new Tenant(companyCode, loginType, parent, table, columns);
+        TABLE_CODES.add(tableCode(companyCode, loginType, parent));
+        return tenant;
+    }
+
+    private static Map<String, String> readColumns(ResultSet rs) throws SQLException {
+        Map<String, String> columns = new LinkedHashMap<>();
+        ResultSetMetaData metaData = rs.getMetaData();
+        for (int i = 1; i <= metaData.getColumnCount(); i++) {
+            columns.put(metaData.getColumnLabel(i), rs.getString(i));
+        }
+        return columns;
+    }
+}
@@ -0,0 +1,95 @@
+package com.example.util;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A template text parsed once into literal text and placeholders, such as the
+ * gap_assessment_template texts with -CLIENT- and -STANDARD-.
+ *
+ * Rendering appends the literals and the placeholder values to the caller's
+ * buffer in one pass. Values are copied as they are: unlike
+ * {@code String.replaceAll}, a value containing {@code $} or {@code \} is not
+ * treated as a group reference, and a value containing another placeholder is
+ * not expanded again. Instances are immutable and can be shared across threads.
+ */
+public class TextTemplate {
+
+    private final String[] literals;
+    private final String[] placeholders;
+
+    private TextTemplate(String[] literals, String[] placeholders) {
+        this.literals = literals;
+        this.placeholders = placeholders;
+    }
+
+    /**
+     * Parses a template. Text matching none of the placeholders is kept as it is.
+     *
+     * @param text The template text; null is treated as empty
+     * @param placeholders The placeholder tokens, e.g. "-CLIENT-"; empty tokens are ignored
+     * @return The compiled template
+     */
+    public static TextTemplate compile(String text, String... placeholders) {
+        List<String> literals = new ArrayList<>();
+        List<String> found = new ArrayList<>();
+        String source = text == null ? "" : text;
+        int start = 0;
+        while (true) {
+            // Earliest placeholder from here; the longer token wins at the same position
+            int at = -1;
+            String token = null;
+            for (String placeholder : placeholders) {
+                if (placeholder == null || placeholder.isEmpty()) {
+                    continue;
+                }
+                int i = source.indexOf(placeholder, start);
+                if (i >= 0 && (at < 0 || i < at || (i == at && placeholder.length() > token.length()))) {
+                    at = i;
+                    token = placeholder;
+                }
+            }
+            if (token == null) {
+                literals.add(source.substring(start));
+                break;
+            }
+            literals.add(source.substring(start, at));
+            found.add(token);
+            start = at + token.length();
+        }
+        return new TextTemplate(literals.toArray(new String[0]), found.toArray(new String[0]));
+    }
+
+    /**
+     * Appends the template to a buffer.
+     *
+     * @param out The buffer to append to
+     * @param values Placeholder token to value. A placeholder without an entry
+     *               is left in the text; a null value renders as empty.
+     */
+    public void renderTo(StringBuilder out, Map<String, String> values) {
+        for (int i = 0; i < placeholders.length; i++) {
+            out.append(literals[i]);
+            String placeholder = placeholders[i];
+            if (values.containsKey(placeholder)) {
+                String value = values.get(placeholder);
+                if (value != null) {
+                    out.append(value);
+                }
+            } else {
+                out.append(placeholder);
+            }
+        }
+        out.append(literals[literals.length - 1]);
+    }
+
+    /**
+     * Renders the template into a new string.
+     */
+    public String render(Map<String, String> values) {
+        StringBuilder out = new StringBuilder();
+        renderTo(out, values);
+        return out.toString();
+    }
+}
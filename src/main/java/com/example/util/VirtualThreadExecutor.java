@@ -0,0 +1,131 @@
+package com.example.util;
+
+import java.util.List;
+import java.util.concurrent.AbstractExecutorService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Executor that runs every task on its own virtual thread, with a cap on how
+ * many tasks may run at once. Tasks over the cap park their (cheap) virtual
+ * thread until a slot frees up, up to a small number of queued tasks; beyond
+ * that {@link #execute} rejects the task, so the submitting selector thread
+ * never blocks and a burst cannot pile up unbounded work.
+ */
+public class VirtualThreadExecutor extends AbstractExecutorService {
+
+    private final ExecutorService delegate;
+    private final Semaphore inFlight;
+    private final Semaphore admitted;
+    private final int maxInFlight;
+    private final int maxQueued;
+    private final AtomicInteger running = new AtomicInteger();
+    private final AtomicLong rejected = new AtomicLong();
+
+    /**
+     * @param name Prefix for the virtual thread names
+     * @param maxInFlight Maximum number of tasks running at the same time
+     * @param maxQueued Maximum number of tasks parked waiting for a slot
+     */
+    public VirtualThreadExecutor(String name, int maxInFlight, int maxQueued) {
+        this.delegate = Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name(name + "-", 0).factory());
+        this.inFlight = new Semaphore(maxInFlight);
+        this.admitted = new Semaphore(maxInFlight + maxQueued);
+        this.maxInFlight = maxInFlight;
+        this.maxQueued = maxQueued;
+    }
+
+    /**
+     * @throws RejectedExecutionException if maxInFlight tasks are running and
+     *         maxQueued more are already waiting, or the executor is shut down
+     */
+    @Override
+    public void execute(Runnable command) {
+        if (!admitted.tryAcquire()) {
+            rejected.incrementAndGet();
+            throw new RejectedExecutionException("Executor full: " + running.get() + " running, "
+                    + inFlight.getQueueLength() + " queued");
+        }
+        try {
+            delegate.execute(() -> {
+                inFlight.acquireUninterruptibly();
+                running.incrementAndGet();
+                try {
+                    command.run();
+                } finally {
+                    inFlight.release();
+                    admitted.release();
+                    running.decrementAndGet();
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            admitted.release();
+            throw e;
+        }
+    }
+
+    /**
+     * @return Number of tasks currently running
+     */
+    public int getRunning() {
+        return running.get();
+    }
+
+    /**
+     * @return Number of tasks parked waiting for an in-flight slot
+     */
+    public int getWaiting() {
+        return inFlight.getQueueLength();
+    }
+
+    /**
+     * @return The configured in-flight limit
+     */
+    public int getMaxInFlight() {
+        return maxInFlight;
+    }
+
+    /**
+     * @return The configured queue limit
+     */
+    public int getMaxQueued() {
+        return maxQueued;
+    }
+
+    /**
+     * @return Number of tasks rejected because the executor was full
+     */
+    public long getRejected() {
+        return rejected.get();
+    }
+
+    @Override
+    public void shutdown() {
+        delegate.shutdown();
+    }
+
+    @Override
+    public List<Runnable> shutdownNow() {
+        return delegate.shutdownNow();
+    }
+
+    @Override
+    public boolean isShutdown() {
+        return delegate.isShutdown();
+    }
+
+    @Override
+    public boolean isTerminated() {
+        return delegate.isTerminated();
+    }
+
+    @Override
+    public boolean awaitTermination(long timeout, TimeUnit unit) throws InterruptedException {
+        return delegate.awaitTermination(timeout, unit);
+    }
+}
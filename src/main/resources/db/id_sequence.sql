@@ -0,0 +1,13 @@
+-- Id blocks handed out by com.example.util.IdAllocator, one row per tenant table.
+-- Create it once per database before deploying a build that uses IdAllocator.
+--
+-- The application seeds a table's row from MAX(id) + 1 the first time it
+-- allocates for that table. To seed rows up front (e.g. when provisioning a
+-- company), run for each table:
+--   INSERT IGNORE INTO id_sequence (table_name, next_id)
+--   SELECT '<table>', COALESCE(MAX(id), 0) + 1 FROM <table>;
+
+CREATE TABLE IF NOT EXISTS id_sequence (
+    table_name VARCHAR(128) NOT NULL PRIMARY KEY,
+    next_id BIGINT NOT NULL
+);
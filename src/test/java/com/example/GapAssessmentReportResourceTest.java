@@ -0,0 +1,199 @@
+package com.example;
+
+import static com.example.util.StubJdbc.row;
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import com.example.util.ClauseCatalog;
+import com.example.util.StubJdbc;
+
+class GapAssessmentReportResourceTest {
+
+    private static final String STD_ID = "std-report-1";
+    private static final String STD_NAME = "ISO report test";
+
+    // The third and fifth dates repeat the first; 2026-03-01 has no header
+    private static final List<String> MEETING_DATES = List.of("2026-02-05", "2026-03-01", "2026-01-10", "2026-02-05");
+    private static final List<String> LABELS = List.of("Key stakeholders interviewed", "scope", "Missing");
+
+    private static final List<Map<String, Object>> HEADERS = List.of(
+            header("1", "2026-01-10", "10:00", "Asha"),
+            header("2", "2026-01-10", "15:00", "Ben"),
+            header("3", "2026-02-05", "09:30", "Chen"));
+
+    private static final List<Map<String, Object>> DETAILS = List.of(
+            detail("1", "4 .1", "Policy signed", "Reviews", "Defined", "Yes", "ok"),
+            detail("1", "A. 1", "Register kept", "Owners", "initial", "yes", "-"),
+            detail("2", "7.7", "Second header", "None", "Managed", "No", "never shown"),
+            detail("3", "9.9", "Nothing", "All", "Not applicable", "No", "n/a"),
+            detail("3", "5 .2", "Drafted", "Approval", "Managed", "No", "pending"));
+
+    private static final List<Map<String, Object>> CLAUSES = List.of(
+            clause("10", "4.1", "Leadership"),
+            clause("11", "a.1", "Annex control"),
+            clause("12", "5.2", "Policy"),
+            clause("13", "7.7", "Hidden"));
+
+    private static final List<Map<String, Object>> TEMPLATES = List.of(
+            row("label", "Key stakeholders interviewed",
+                    "template_text", "-DEPT- of -CLIENT- met on -M_DATE- at -M_TIME- with -C_PERSON-"),
+            row("label", "Scope", "template_text", "-CLIENT- against -STANDARD- by -UnderDefense-"),
+            row("label", "Scope", "template_text", "Second -DEPT-"));
+
+    private final StubJdbc.Log log = new StubJdbc.Log();
+    private final GapAssessmentReportResource resource = new GapAssessmentReportResource();
+    private Connection con;
+
+    @BeforeEach
+    void setUp() {
+        ClauseCatalog.invalidate(STD_ID);
+        con = StubJdbc.connection(GapAssessmentReportResourceTest::query, log);
+    }
+
+    /**
+     * Answers both the current queries and the per-row lookups of the previous
+     * implementation, comparing values like MySQL: ignoring case and trailing spaces.
+     */
+    static List<Map<String, Object>> query(String sql, List<Object> binds) {
+        if (sql.contains("_gap_assessment_header")) {
+            return matching(HEADERS, "meeting_date", binds.subList(2, binds.size()));
+        } else if (sql.contains("_gap_assessment_detail")) {
+            return matching(DETAILS, "gap_assessment_header_id", binds);
+        } else if (sql.contains("FROM clause_master")) {
+            return binds.size() == 1 ? CLAUSES : matching(CLAUSES, "number", binds.subList(1, 2));
+        } else if (sql.contains("FROM gap_assessment_template")) {
+            return matching(TEMPLATES, "label", binds.subList(1, binds.size()));
+        } else if (sql.contains("FROM company_registration")) {
+            return List.of(row("company_name", "Acme Ltd"));
+        } else if (sql.contains("FROM standard_master")) {
+            return List.of(row("id", STD_ID));
+        }
+        return List.of();
+    }
+
+    private static List<Map<String, Object>> matching(List<Map<String, Object>> rows, String column, List<Object> values) {
+        List<Map<String, Object>> result = new ArrayList<>();
+        for (Map<String, Object> row : rows) {
+            for (Object value : values) {
+                if (mysqlKey(row.get(column)).equals(mysqlKey(value))) {
+                    result.add(row);
+                    break;
+                }
+            }
+        }
+        return result;
+    }
+
+    private static String mysqlKey(Object value) {
+        return String.valueOf(value).stripTrailing().toLowerCase(Locale.ROOT);
+    }
+
+    private static Map<String, Object> header(String id, String date, String time, String contactPerson) {
+        return row("id", id, "meeting_date", date, "meeting_time", time, "contact_person", contactPerson);
+    }
+
+    private static Map<String, Object> detail(String headerId, String clauseNo, String description, String area,
+                                              String status, String barrier, String remarks) {
+        return row("gap_assessment_header_id", headerId, "clause_no", clauseNo, "description", description,
+                "area_require_improvement", area, "status", status,
+                "possible_barrier_to_certification", barrier, "remarks", remarks);
+    }
+
+    private static Map<String, Object> clause(String id, String number, String name) {
+        return row("id", id, "number", number, "name", name, "description", name + " description",
+                "guidance", name + " guidance", "requirement", null, "clause_required_document", null,
+                "main_clause_id", null);
+    }
+
+    private static List<String> clauseNumbers(GapAssessmentReportResource.ReportRows rows) {
+        List<String> numbers = new ArrayList<>();
+        for (GapAssessmentReportResource.DetailRow row : rows.details) {
+            numbers.add(row.clauseNo);
+        }
+        return numbers;
+    }
+
+    @Test
+    void rowsFollowTheRequestedDatesWithTheFirstHeaderOfEachDate() throws SQLException {
+        GapAssessmentReportResource.ReportRows rows =
+                resource.loadReportRows(con, "ACME", STD_ID, "Quality", MEETING_DATES);
+
+        assertEquals(List.of("9.9", "5 .2", "4 .1", "A. 1", "9.9", "5 .2"), clauseNumbers(rows));
+        assertEquals("2026-02-05,2026-01-10,2026-02-05,", rows.mergeMeetingDate);
+        assertEquals("09:30,10:00,09:30,", rows.mergeMeetingTime);
+        assertEquals("Chen,Asha,Chen,", rows.mergeContactPerson);
+
+        assertEquals(1, log.count("_gap_assessment_header"));
+        assertEquals(1, log.count("_gap_assessment_detail"));
+        assertEquals(1, log.count("FROM clause_master"));
+    }
+
+    @Test
+    void clausesMatchWithSpacesStripped() throws SQLException {
+        GapAssessmentReportResource.ReportRows rows =
+                resource.loadReportRows(con, "ACME", STD_ID, "Quality", List.of("2026-01-10", "2026-02-05"));
+
+        GapAssessmentReportResource.DetailRow leadership = rows.details.get(0);
+        assertEquals("Leadership", leadership.clauseName);
+        assertEquals("Leadership description", leadership.clauseDescription);
+        assertEquals("Leadership guidance", leadership.guidance);
+        assertEquals("Annex control", rows.details.get(1).clauseName);
+        assertEquals("", rows.details.get(2).clauseName);
+        assertEquals("Policy", rows.details.get(3).clauseName);
+    }
+
+    @Test
+    void noDatesOrNoHeadersReadNoDetails() throws SQLException {
+        assertEquals(0, resource.loadReportRows(con, "ACME", STD_ID, "Quality", null).details.size());
+        assertEquals(0, resource.loadReportRows(con, "ACME", STD_ID, "Quality", List.of("2026-03-01")).details.size());
+        assertEquals(1, log.sql.size());
+    }
+
+    @Test
+    void countsStatusesAndBarriersIgnoringCase() {
+        GapAssessmentReportResource.ReportRows rows = new GapAssessmentReportResource.ReportRows();
+        rows.add(statusRow("Defined", "Yes"));
+        rows.add(statusRow("DEFINED", "no"));
+        rows.add(statusRow("not applicable", "YES"));
+        rows.add(statusRow(null, "Yes"));
+        rows.add(statusRow("Unknown", "Yes"));
+        rows.add(statusRow("Initial", null));
+
+        assertArrayEquals(new int[]{0, 1, 0, 2, 0, 0, 1}, rows.statusCounts);
+        assertArrayEquals(new int[]{0, 0, 0, 1, 0, 0, 1}, rows.barrierCounts);
+        assertEquals(6, rows.details.size());
+    }
+
+    private static GapAssessmentReportResource.DetailRow statusRow(String status, String barrier) {
+        GapAssessmentReportResource.DetailRow row = new GapAssessmentReportResource.DetailRow();
+        row.status = status;
+        row.possibleBarrier = barrier;
+        return row;
+    }
+
+    @Test
+    void htmlMatchesThePreviousImplementation() throws SQLException, IOException {
+        GapAssessmentReportResource.ReportRows rows =
+                resource.loadReportRows(con, "ACME", STD_ID, "Quality", MEETING_DATES);
+        List<String> labelData = resource.loadLabelData(con, "Acme Ltd", STD_NAME, "Quality", LABELS, rows);
+        String html = GapAssessmentReportResource.buildReportHtml("Acme Ltd", STD_NAME, "Quality", rows, labelData);
+
+        // Output of generateReport before the set-based rewrite, for the same fixture
+        try (InputStream expected = getClass().getResourceAsStream("gap-assessment-report.html")) {
+            assertEquals(new String(expected.readAllBytes(), StandardCharsets.UTF_8), html);
+        }
+    }
+}
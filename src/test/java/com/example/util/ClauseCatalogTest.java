@@ -0,0 +1,105 @@
+package com.example.util;
+
+import static com.example.util.StubJdbc.row;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+import org.junit.jupiter.api.Test;
+
+class ClauseCatalogTest {
+
+    private static int sign(int value) {
+        return Integer.signum(value);
+    }
+
+    @Test
+    void numbersCompareNaturally() {
+        List<String> numbers = new ArrayList<>(Arrays.asList("10", "4.10", "4.2", "4", "A.1", "4.2.1", "a.2", "9"));
+        numbers.sort(ClauseCatalog.NUMBER_ORDER);
+        assertEquals(List.of("4", "4.2", "4.2.1", "4.10", "9", "10", "A.1", "a.2"), numbers);
+    }
+
+    @Test
+    void leadingZerosAndCaseDoNotMatter() {
+        assertEquals(0, ClauseCatalog.NUMBER_ORDER.compare("4.02", "4.2"));
+        assertEquals(0, ClauseCatalog.NUMBER_ORDER.compare("a.1", "A.1"));
+        assertEquals(-1, sign(ClauseCatalog.NUMBER_ORDER.compare("4.2", "4.010")));
+    }
+
+    @Test
+    void longNumbersDoNotOverflow() {
+        assertEquals(-1, sign(ClauseCatalog.NUMBER_ORDER.compare("99999999999999999999", "100000000000000000000")));
+    }
+
+    @Test
+    void nullsSortFirst() {
+        assertEquals(0, ClauseCatalog.NUMBER_ORDER.compare(null, null));
+        assertEquals(-1, sign(ClauseCatalog.NUMBER_ORDER.compare(null, "1")));
+        assertEquals(1, sign(ClauseCatalog.NUMBER_ORDER.compare("1", null)));
+    }
+
+    @Test
+    void prefixSortsBeforeLongerNumber() {
+        assertEquals(-1, sign(ClauseCatalog.NUMBER_ORDER.compare("4.1", "4.1a")));
+        assertEquals(1, sign(ClauseCatalog.NUMBER_ORDER.compare("4.1.", "4.1")));
+    }
+
+    @Test
+    void treeSortsLooksUpAndCaches() throws SQLException {
+        StubJdbc.Log log = new StubJdbc.Log();
+        Connection con = StubJdbc.connection((sql, binds) -> List.of(
+                clause("1", "4.10", null),
+                clause("2", "4", null),
+                clause("3", "4.2", "2")), log);
+
+        ClauseCatalog.ClauseTree tree = ClauseCatalog.get(con, "std-test-1");
+        List<String> order = new ArrayList<>();
+        for (ClauseCatalog.Clause clause : tree.getClauses()) {
+            order.add(clause.number);
+        }
+        assertEquals(List.of("4", "4.2", "4.10"), order);
+
+        ClauseCatalog.Clause clause = tree.get("4.2  ");
+        assertEquals("Clause 4.2", clause.name);
+        assertEquals("4", tree.getMainClause(clause).number);
+        assertNull(tree.get("5"));
+        // MySQL's comparison ignores trailing spaces only
+        assertNull(tree.get(" 4.2"));
+        assertTrue(tree.compare("4.10", "4.2") > 0);
+
+        assertSame(tree, ClauseCatalog.get(con, "std-test-1"));
+        assertEquals(1, log.count("FROM clause_master"));
+
+        ClauseCatalog.invalidate("std-test-1");
+        ClauseCatalog.get(con, "std-test-1");
+        assertEquals(2, log.count("FROM clause_master"));
+    }
+
+    @Test
+    void lookupIgnoresCaseWhateverTheDefaultLocale() throws SQLException {
+        Locale saved = Locale.getDefault();
+        Locale.setDefault(Locale.forLanguageTag("tr-TR"));
+        try {
+            Connection con = StubJdbc.connection((sql, binds) -> List.of(clause("1", "ANNEX I", null)), new StubJdbc.Log());
+            ClauseCatalog.ClauseTree tree = ClauseCatalog.get(con, "std-test-2");
+            assertEquals("1", tree.get("annex i").id);
+        } finally {
+            Locale.setDefault(saved);
+        }
+    }
+
+    private static Map<String, Object> clause(String id, String number, String mainClauseId) {
+        return row("id", id, "number", number, "name", "Clause " + number, "description", null,
+                "guidance", null, "requirement", null, "clause_required_document", null, "main_clause_id", mainClauseId);
+    }
+}
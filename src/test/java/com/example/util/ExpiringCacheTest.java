@@ -0,0 +1,124 @@
+package com.example.util;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.sql.SQLException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.Test;
+
+class ExpiringCacheTest {
+
+    private static final AtomicInteger NAMES = new AtomicInteger();
+
+    private static <V> ExpiringCache<V> cache(int ttlSeconds, int maxEntries) {
+        return new ExpiringCache<>("test" + NAMES.incrementAndGet(), ttlSeconds, maxEntries);
+    }
+
+    @Test
+    void loadsOnceAndServesHits() throws SQLException {
+        ExpiringCache<String> cache = cache(60, 10);
+        AtomicInteger loads = new AtomicInteger();
+
+        assertEquals("a", cache.get("k", () -> {
+            loads.incrementAndGet();
+            return "a";
+        }));
+        assertEquals("a", cache.get("k", () -> "b"));
+        assertEquals("a", cache.getIfPresent("k"));
+        assertEquals(1, loads.get());
+    }
+
+    @Test
+    void invalidateDropsKeyAndPrefix() throws SQLException {
+        ExpiringCache<String> cache = cache(60, 10);
+        cache.get("c1|u1", () -> "one");
+        cache.get("c1|u2", () -> "two");
+        cache.get("c2|u1", () -> "three");
+
+        cache.invalidate("c1|u1");
+        assertNull(cache.getIfPresent("c1|u1"));
+        assertEquals("two", cache.getIfPresent("c1|u2"));
+
+        cache.invalidatePrefix("c1|");
+        assertNull(cache.getIfPresent("c1|u2"));
+        assertEquals("three", cache.getIfPresent("c2|u1"));
+    }
+
+    @Test
+    void valueLoadedDuringInvalidationIsReturnedButNotStored() throws Exception {
+        ExpiringCache<String> cache = cache(60, 10);
+        CountDownLatch loading = new CountDownLatch(1);
+        CountDownLatch invalidated = new CountDownLatch(1);
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            Future<String> stale = executor.submit(() -> cache.get("k", () -> {
+                loading.countDown();
+                try {
+                    invalidated.await(5, TimeUnit.SECONDS);
+                } catch (InterruptedException e) {
+                    throw new SQLException(e);
+                }
+                return "old";
+            }));
+
+            assertTrue(loading.await(5, TimeUnit.SECONDS));
+            cache.invalidate("k");
+            invalidated.countDown();
+
+            assertEquals("old", stale.get(5, TimeUnit.SECONDS));
+            assertNull(cache.getIfPresent("k"));
+            assertEquals("new", cache.get("k", () -> "new"));
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    void failedLoadStoresNothing() {
+        ExpiringCache<String> cache = cache(60, 10);
+        assertThrows(SQLException.class, () -> cache.get("k", () -> {
+            throw new SQLException("down");
+        }));
+        assertNull(cache.getIfPresent("k"));
+    }
+
+    @Test
+    void zeroTtlDisablesCaching() throws SQLException {
+        ExpiringCache<String> cache = cache(0, 10);
+        AtomicInteger loads = new AtomicInteger();
+        cache.get("k", () -> "v" + loads.incrementAndGet());
+        assertEquals("v2", cache.get("k", () -> "v" + loads.incrementAndGet()));
+    }
+
+    @Test
+    void fullCacheEvictsOldest() throws Exception {
+        ExpiringCache<String> cache = cache(60, 2);
+        cache.get("a", () -> "1");
+        Thread.sleep(2);
+        cache.get("b", () -> "2");
+        Thread.sleep(2);
+        cache.get("c", () -> "3");
+
+        assertNull(cache.getIfPresent("a"));
+        assertEquals("2", cache.getIfPresent("b"));
+        assertEquals("3", cache.getIfPresent("c"));
+    }
+
+    @Test
+    void registersByName() {
+        ExpiringCache<String> cache = cache(60, 10);
+        String name = "test" + NAMES.get();
+        assertSame(cache, ExpiringCache.named(name));
+        assertThrows(IllegalStateException.class, () -> new ExpiringCache<String>(name, 60, 10));
+    }
+}
@@ -0,0 +1,141 @@
+package com.example.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class IdAllocatorTest {
+
+    /**
+     * An id_sequence table plus MAX(id) of the tenant tables.
+     */
+    private static class Sequences implements StubJdbc.Database {
+        final Map<String, Long> rows = new ConcurrentHashMap<>();
+        final Map<String, Long> maxIds = new ConcurrentHashMap<>();
+
+        @Override
+        public synchronized List<Map<String, Object>> query(String sql, List<Object> binds) {
+            if (sql.startsWith("SELECT COALESCE(MAX(id), 0) + 1 FROM ")) {
+                String table = sql.substring("SELECT COALESCE(MAX(id), 0) + 1 FROM ".length());
+                return List.of(StubJdbc.row("next", maxIds.getOrDefault(table, 0L) + 1));
+            }
+            Long next = rows.get((String) binds.get(0));
+            if (next == null) {
+                return Collections.emptyList();
+            }
+            return List.of(StubJdbc.row("next_id", next));
+        }
+
+        @Override
+        public synchronized int update(String sql, List<Object> binds) {
+            if (sql.startsWith("INSERT IGNORE INTO id_sequence")) {
+                return rows.putIfAbsent((String) binds.get(0), (Long) binds.get(1)) == null ? 1 : 0;
+            }
+            rows.put((String) binds.get(1), (Long) binds.get(0));
+            return 1;
+        }
+    }
+
+    @Test
+    void seedsFromMaxIdAndHandsOutConsecutiveIds() throws SQLException {
+        Sequences db = new Sequences();
+        db.maxIds.put("t1_log_master", 41L);
+        StubJdbc.Log log = new StubJdbc.Log();
+        Connection con = StubJdbc.connection(db, log);
+        IdAllocator.reset("t1_log_master");
+
+        assertEquals(42, IdAllocator.nextId(con, "t1_log_master"));
+        assertEquals(43, IdAllocator.nextId(con, "t1_log_master"));
+
+        assertEquals(92L, db.rows.get("t1_log_master"), "one block of 50 reserved");
+        assertEquals(1, log.count("MAX(id)"));
+        assertEquals(1, log.count("FOR UPDATE"));
+    }
+
+    @Test
+    void existingSequenceRowIsNotReseeded() throws SQLException {
+        Sequences db = new Sequences();
+        db.rows.put("t2_log_master", 1000L);
+        db.maxIds.put("t2_log_master", 5L);
+        StubJdbc.Log log = new StubJdbc.Log();
+        IdAllocator.reset("t2_log_master");
+
+        assertEquals(1000, IdAllocator.nextId(StubJdbc.connection(db, log), "t2_log_master"));
+        assertEquals(0, log.count("MAX(id)"));
+        assertEquals(0, log.count("INSERT IGNORE"));
+    }
+
+    @Test
+    void rowIsSeededBeforeTheLockingRead() throws SQLException {
+        Sequences db = new Sequences();
+        StubJdbc.Log log = new StubJdbc.Log();
+        IdAllocator.reset("t3_log_master");
+
+        IdAllocator.nextId(StubJdbc.connection(db, log), "t3_log_master");
+
+        List<String> sql = new ArrayList<>(log.sql);
+        int insert = indexOf(sql, "INSERT IGNORE");
+        int lock = indexOf(sql, "FOR UPDATE");
+        assertTrue(insert >= 0 && insert < lock, "seed runs before SELECT ... FOR UPDATE: " + sql);
+    }
+
+    @Test
+    void concurrentCallersNeverShareAnId() throws Exception {
+        Sequences db = new Sequences();
+        IdAllocator.reset("t4_log_master");
+        int threads = 8;
+        int perThread = 2000;
+
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        try {
+            List<Future<List<Integer>>> results = new ArrayList<>();
+            for (int t = 0; t < threads; t++) {
+                results.add(pool.submit(() -> {
+                    Connection con = StubJdbc.connection(db, new StubJdbc.Log());
+                    List<Integer> ids = new ArrayList<>();
+                    for (int i = 0; i < perThread; i++) {
+                        ids.add(IdAllocator.nextId(con, "t4_log_master"));
+                    }
+                    return ids;
+                }));
+            }
+
+            Set<Integer> seen = new HashSet<>();
+            for (Future<List<Integer>> result : results) {
+                for (int id : result.get()) {
+                    assertTrue(seen.add(id), "duplicate id " + id);
+                }
+            }
+            assertEquals(threads * perThread, seen.size());
+            long reservedEnd = db.rows.get("t4_log_master");
+            for (int id : seen) {
+                assertTrue(id >= 1 && id < reservedEnd, "id " + id + " outside the reserved blocks");
+            }
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    private static int indexOf(List<String> sql, String fragment) {
+        for (int i = 0; i < sql.size(); i++) {
+            if (sql.get(i).contains(fragment)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+}
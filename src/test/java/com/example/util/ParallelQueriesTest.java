@@ -0,0 +1,144 @@
+package com.example.util;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.SQLTimeoutException;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+class ParallelQueriesTest {
+
+    // Every connection handed to a subtask, to check they are all returned
+    private final List<Connection> borrowed = new CopyOnWriteArrayList<>();
+    private final List<Boolean> borrowedReadOnly = new CopyOnWriteArrayList<>();
+
+    @AfterEach
+    void tearDown() {
+        ReplicaRouter.clear();
+        QueryMetrics.clearTenant();
+    }
+
+    private Connection borrow() {
+        Connection con = StubJdbc.connection((sql, binds) -> List.of(), new StubJdbc.Log());
+        borrowed.add(con);
+        borrowedReadOnly.add(ReplicaRouter.isReadOnly());
+        return con;
+    }
+
+    private void assertAllReturned() throws SQLException {
+        for (Connection con : borrowed) {
+            assertTrue(con.isClosed());
+        }
+    }
+
+    // Blocks until interrupted, recording the interrupt
+    private static String blockUntilInterrupted(CountDownLatch started, CountDownLatch interrupted) throws SQLException {
+        started.countDown();
+        try {
+            Thread.sleep(TimeUnit.SECONDS.toMillis(30));
+            return "not interrupted";
+        } catch (InterruptedException e) {
+            interrupted.countDown();
+            throw new SQLException("interrupted", e);
+        }
+    }
+
+    @Test
+    void joinsEveryResultAndReturnsTheConnections() throws SQLException {
+        ParallelQueries.Subtask<String> a;
+        ParallelQueries.Subtask<Integer> b;
+        try (ParallelQueries scope = new ParallelQueries(5000, this::borrow)) {
+            a = scope.fork(con -> "a");
+            b = scope.fork(con -> 2);
+            scope.join();
+        }
+        assertEquals("a", a.get());
+        assertEquals(2, b.get());
+        assertEquals(2, borrowed.size());
+        assertAllReturned();
+    }
+
+    @Test
+    void subtasksInheritRoutingAndTenant() throws SQLException {
+        ReplicaRouter.markReadOnly();
+        QueryMetrics.setTenant("ACME");
+        ParallelQueries.Subtask<String> seen;
+        try (ParallelQueries scope = new ParallelQueries(5000, this::borrow)) {
+            seen = scope.fork(con -> ReplicaRouter.isReadOnly() + "|" + QueryMetrics.getTenant());
+            scope.join();
+        }
+        assertEquals("true|ACME", seen.get());
+        // The connection was borrowed with the replica routing in place
+        assertEquals(List.of(true), borrowedReadOnly);
+
+        ReplicaRouter.clear();
+        QueryMetrics.clearTenant();
+        try (ParallelQueries scope = new ParallelQueries(5000, this::borrow)) {
+            seen = scope.fork(con -> ReplicaRouter.isReadOnly() + "|" + QueryMetrics.getTenant());
+            scope.join();
+        }
+        assertEquals("false|null", seen.get());
+    }
+
+    @Test
+    void deadlineCancelsWhatIsStillRunning() throws Exception {
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch interrupted = new CountDownLatch(1);
+        long start = System.nanoTime();
+        try (ParallelQueries scope = new ParallelQueries(200, this::borrow)) {
+            scope.fork(con -> "fast");
+            scope.fork(con -> blockUntilInterrupted(started, interrupted));
+            assertTrue(started.await(5, TimeUnit.SECONDS));
+            SQLTimeoutException e = assertThrows(SQLTimeoutException.class, scope::join);
+            assertTrue(e.getMessage().contains("1 of 2 still running"), e.getMessage());
+        }
+        assertTrue(System.nanoTime() - start < TimeUnit.SECONDS.toNanos(5));
+        assertTrue(interrupted.await(0, TimeUnit.SECONDS));
+        // close() waited for the cancelled subtask to give its connection back
+        assertEquals(2, borrowed.size());
+        assertAllReturned();
+    }
+
+    @Test
+    void firstFailureCancelsTheOthersAndIsThrown() throws Exception {
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch interrupted = new CountDownLatch(1);
+        ParallelQueries.Subtask<String> slow;
+        try (ParallelQueries scope = new ParallelQueries(10000, this::borrow)) {
+            slow = scope.fork(con -> blockUntilInterrupted(started, interrupted));
+            assertTrue(started.await(5, TimeUnit.SECONDS));
+            scope.fork(con -> {
+                throw new SQLException("boom");
+            });
+            SQLException e = assertThrows(SQLException.class, scope::join);
+            assertEquals("boom", e.getMessage());
+        }
+        assertTrue(interrupted.await(0, TimeUnit.SECONDS));
+        assertThrows(IllegalStateException.class, slow::get);
+        assertAllReturned();
+    }
+
+    @Test
+    void failureToBorrowIsThrown() {
+        try (ParallelQueries scope = new ParallelQueries(5000, () -> {
+            throw new SQLException("pool exhausted");
+        })) {
+            scope.fork(con -> "never");
+            SQLException e = assertThrows(SQLException.class, scope::join);
+            assertEquals("pool exhausted", e.getMessage());
+        }
+        assertFalse(Thread.currentThread().isInterrupted());
+        assertNull(QueryMetrics.getTenant());
+    }
+}
@@ -0,0 +1,62 @@
+package com.example.util;
+
+import static com.example.util.StubJdbc.row;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.jupiter.api.Test;
+
+class ProjectionTest {
+
+    private static final Projection FIELDS = new Projection("id", "id")
+            .summary("ncNo", "nc_no")
+            .summary("status", "status")
+            .large("rootCause", "root_cause");
+
+    @Test
+    void defaultsToSummaryFields() {
+        assertEquals("id, nc_no, status", FIELDS.select(null).columns());
+        assertEquals("id, nc_no, status", FIELDS.select("  ").columns());
+    }
+
+    @Test
+    void allSelectsEveryField() {
+        assertEquals("id, nc_no, status, root_cause", FIELDS.select("ALL").columns());
+    }
+
+    @Test
+    void requestedFieldsKeepTheKeyFirstAndSkipDuplicates() {
+        Projection.Selection selection = FIELDS.select("rootCause, status,rootCause,, id");
+        assertEquals("id, root_cause, status", selection.columns());
+        assertTrue(selection.includes("rootCause"));
+        assertFalse(selection.includes("ncNo"));
+    }
+
+    @Test
+    void unknownFieldIsRejected() {
+        IllegalArgumentException e = assertThrows(IllegalArgumentException.class, () -> FIELDS.select("status,password"));
+        assertEquals("Unknown field: password", e.getMessage());
+    }
+
+    @Test
+    void readsSelectedFieldsByColumn() throws SQLException {
+        ResultSet rs = StubJdbc.resultSet(List.of(row("id", "7", "root_cause", "No training", "status", "Open")));
+        assertTrue(rs.next());
+
+        Projection.Selection selection = FIELDS.select("rootCause,status");
+        Map<String, Object> fields = selection.read(rs);
+        assertEquals(List.of("id", "rootCause", "status"), List.copyOf(fields.keySet()));
+        assertEquals("No training", fields.get("rootCause"));
+
+        assertEquals("Open", selection.getString(rs, "status"));
+        assertNull(selection.getString(rs, "ncNo"));
+    }
+}
@@ -0,0 +1,54 @@
+package com.example.util;
+
+import static com.example.util.StubJdbc.row;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+class QueryMetricsTest {
+
+    @AfterEach
+    void tearDown() {
+        QueryMetrics.clearTenant();
+        QueryMetrics.reset();
+    }
+
+    private static void query(Connection con, String sql) throws SQLException {
+        try (PreparedStatement ps = con.prepareStatement(sql); ResultSet rs = ps.executeQuery()) {
+            while (rs.next()) {
+                rs.getString(1);
+            }
+        }
+    }
+
+    @Test
+    void unregisteredCompaniesShareOneEntry() throws SQLException {
+        Connection con = QueryMetrics.instrument(StubJdbc.connection(
+                (sql, binds) -> List.of(row("id", "1", "company_code", "METRICS1", "company_name", "Metrics Ltd")),
+                new StubJdbc.Log()));
+        TenantRegistry.get(con, "METRICS1");
+        QueryMetrics.reset();
+
+        QueryMetrics.setTenant("METRICS1");
+        query(con, "SELECT id FROM METRICS1_audit_plan");
+        for (int i = 0; i < 20; i++) {
+            QueryMetrics.setTenant("FAKE" + i);
+            query(con, "SELECT id FROM FAKE" + i + "_audit_plan");
+        }
+
+        Map<String, QueryMetrics.TenantStats> stats = QueryMetrics.getTenantStats();
+        assertEquals(List.of("(unregistered)", "METRICS1"), List.copyOf(stats.keySet()));
+        assertEquals(1, stats.get("METRICS1").calls);
+        assertEquals(20, stats.get("(unregistered)").calls);
+        assertFalse(stats.containsKey("FAKE0"));
+    }
+}
@@ -0,0 +1,83 @@
+package com.example.util;
+
+import static com.example.util.StubJdbc.row;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+class SedexIndexTest {
+
+    private static SedexIndex.Index index;
+
+    @BeforeAll
+    static void load() throws SQLException {
+        List<Map<String, Object>> rows = List.of(
+                issue("Wages", "Overtime", "Excessive overtime", "first"),
+                issue("Wages", "Overtime", "excessive overtime ", "duplicate spelling"),
+                issue("Health", "Fire", "Exit blocked", "exit"),
+                issue("Wages", "Payslips", "Excessive deductions", "deductions"),
+                issue("Health", "Fire", "Extinguisher missing", "extinguisher"),
+                issue("Health", "Overtime", "Excessive overtime", "other subcategory"),
+                issue("Health", "Fire", null, "no title"),
+                issue(null, null, "Orphan title", "no workplace"));
+        index = SedexIndex.load(StubJdbc.connection((sql, binds) -> rows, new StubJdbc.Log()));
+    }
+
+    private static Map<String, Object> issue(String workplace, String subCategory, String title, String completion) {
+        return row("Workplace_Requirement", workplace, "Subcategory", subCategory, "New_Issue_Title", title,
+                "verification_method", "Interview", "Recomended_Completion", completion);
+    }
+
+    private static List<String> completions(List<SedexIndex.Issue> issues) {
+        List<String> result = new ArrayList<>();
+        for (SedexIndex.Issue issue : issues) {
+            result.add(issue.completion);
+        }
+        return result;
+    }
+
+    @Test
+    void matchesPrefixIgnoringCaseInTitleOrder() {
+        assertEquals(List.of("deductions", "other subcategory", "first"),
+                completions(index.searchIssueTitles("EXCESSIVE", 10)));
+        assertEquals(List.of("deductions", "other subcategory", "first", "exit", "extinguisher"),
+                completions(index.searchIssueTitles("ex", 10)));
+        assertEquals(List.of("exit"), completions(index.searchIssueTitles("exi", 10)));
+    }
+
+    @Test
+    void firstRowWinsForTheSameTitleUnderOneSubcategory() {
+        List<SedexIndex.Issue> matches = index.searchIssueTitles("excessive overtime", 10);
+        assertEquals(List.of("other subcategory", "first"), completions(matches));
+        assertEquals("Excessive overtime", matches.get(1).title);
+    }
+
+    @Test
+    void exactKeyReturnsEveryEqualTitle() {
+        assertEquals(2, index.searchIssueTitles("Excessive overtime", 10).size());
+    }
+
+    @Test
+    void respectsTheLimit() {
+        assertEquals(List.of("deductions"), completions(index.searchIssueTitles("excessive", 1)));
+    }
+
+    @Test
+    void emptyOrNullPrefixListsEveryTitle() {
+        assertEquals(5, index.searchIssueTitles("", 100).size());
+        assertEquals(5, index.searchIssueTitles(null, 100).size());
+    }
+
+    @Test
+    void noMatch() {
+        assertTrue(index.searchIssueTitles("zz", 10).isEmpty());
+        assertTrue(index.searchIssueTitles("Orphan", 10).isEmpty());
+    }
+}
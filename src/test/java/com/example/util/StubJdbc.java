@@ -0,0 +1,194 @@
+package com.example.util;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * Minimal in-memory JDBC stubs for unit tests. A {@link Database} answers
+ * each executed statement from its SQL and bind values; the connection,
+ * statements and result sets only implement what the code under test calls.
+ * Public so that resource tests in {@code com.example} can use them too.
+ */
+public final class StubJdbc {
+
+    private StubJdbc() {
+    }
+
+    /**
+     * Answers the statements run on a stub connection.
+     */
+    public interface Database {
+        /** Rows for a query, each row a column label to value map in column order. */
+        List<Map<String, Object>> query(String sql, List<Object> binds) throws SQLException;
+
+        /** Update count for an insert, update or delete. */
+        default int update(String sql, List<Object> binds) throws SQLException {
+            throw new SQLException("Unexpected update: " + sql);
+        }
+    }
+
+    /**
+     * Every statement executed through a stub connection, in order.
+     */
+    public static final class Log {
+        public final List<String> sql = new CopyOnWriteArrayList<>();
+
+        public long count(String fragment) {
+            return sql.stream().filter(s -> s.contains(fragment)).count();
+        }
+    }
+
+    public static Map<String, Object> row(Object... labelsAndValues) {
+        Map<String, Object> row = new LinkedHashMap<>();
+        for (int i = 0; i < labelsAndValues.length; i += 2) {
+            row.put((String) labelsAndValues[i], labelsAndValues[i + 1]);
+        }
+        return row;
+    }
+
+    public static Connection connection(Database db, Log log) {
+        boolean[] autoCommit = {true};
+        boolean[] closed = {false};
+        return proxy(Connection.class, (proxy, method, args) -> {
+            switch (method.getName()) {
+                case "prepareStatement":
+                    return statement(db, log, (String) args[0]);
+                case "createStatement":
+                    return statement(db, log, null);
+                case "getAutoCommit":
+                    return autoCommit[0];
+                case "setAutoCommit":
+                    autoCommit[0] = (Boolean) args[0];
+                    return null;
+                case "commit":
+                case "rollback":
+                    log.sql.add(method.getName().toUpperCase());
+                    return null;
+                case "close":
+                    closed[0] = true;
+                    return null;
+                case "isClosed":
+                    return closed[0];
+                default:
+                    return defaultValue(proxy, method.getName(), method.getReturnType(), args);
+            }
+        });
+    }
+
+    private static PreparedStatement statement(Database db, Log log, String preparedSql) {
+        Map<Integer, Object> binds = new HashMap<>();
+        return proxy(PreparedStatement.class, (proxy, method, args) -> {
+            String name = method.getName();
+            if (name.startsWith("set") && args != null && args.length == 2 && args[0] instanceof Integer) {
+                binds.put((Integer) args[0], args[1]);
+                return null;
+            }
+            String sql = args != null && args.length > 0 && args[0] instanceof String ? (String) args[0] : preparedSql;
+            switch (name) {
+                case "executeQuery":
+                    log.sql.add(sql);
+                    return resultSet(db.query(sql, bindList(binds)));
+                case "executeUpdate":
+                    log.sql.add(sql);
+                    return db.update(sql, bindList(binds));
+                case "clearParameters":
+                    binds.clear();
+                    return null;
+                default:
+                    return defaultValue(proxy, name, method.getReturnType(), args);
+            }
+        });
+    }
+
+    private static List<Object> bindList(Map<Integer, Object> binds) {
+        List<Object> list = new ArrayList<>();
+        for (int i = 1; i <= binds.size(); i++) {
+            list.add(binds.get(i));
+        }
+        return list;
+    }
+
+    public static ResultSet resultSet(List<Map<String, Object>> rows) {
+        List<String> labels = rows.isEmpty() ? Collections.emptyList() : new ArrayList<>(rows.get(0).keySet());
+        int[] at = {-1};
+        Object[] last = {null};
+        ResultSetMetaData metaData = proxy(ResultSetMetaData.class, (proxy, method, args) -> {
+            switch (method.getName()) {
+                case "getColumnCount":
+                    return labels.size();
+                case "getColumnLabel":
+                case "getColumnName":
+                    return labels.get((Integer) args[0] - 1);
+                default:
+                    return defaultValue(proxy, method.getName(), method.getReturnType(), args);
+            }
+        });
+        return proxy(ResultSet.class, (proxy, method, args) -> {
+            String name = method.getName();
+            if (name.equals("next")) {
+                return ++at[0] < rows.size();
+            } else if (name.equals("getMetaData")) {
+                return metaData;
+            } else if (name.equals("wasNull")) {
+                return last[0] == null;
+            } else if (name.startsWith("get") && args != null && args.length == 1) {
+                Map<String, Object> row = rows.get(at[0]);
+                Object value = args[0] instanceof Integer
+                        ? row.get(labels.get((Integer) args[0] - 1))
+                        : row.get((String) args[0]);
+                last[0] = value;
+                return convert(value, method.getReturnType());
+            }
+            return defaultValue(proxy, name, method.getReturnType(), args);
+        });
+    }
+
+    private static Object convert(Object value, Class<?> type) {
+        if (type == String.class) {
+            return value != null ? value.toString() : null;
+        } else if (type == long.class) {
+            return value != null ? ((Number) value).longValue() : 0L;
+        } else if (type == int.class) {
+            return value != null ? ((Number) value).intValue() : 0;
+        }
+        return value;
+    }
+
+    private static Object defaultValue(Object proxy, String name, Class<?> type, Object[] args) {
+        switch (name) {
+            case "equals":
+                return proxy == args[0];
+            case "hashCode":
+                return System.identityHashCode(proxy);
+            case "toString":
+                return "Stub" + type.getSimpleName();
+            default:
+                break;
+        }
+        if (type == boolean.class) {
+            return false;
+        } else if (type == int.class) {
+            return 0;
+        } else if (type == long.class) {
+            return 0L;
+        }
+        return null;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <T> T proxy(Class<T> type, InvocationHandler handler) {
+        return (T) Proxy.newProxyInstance(StubJdbc.class.getClassLoader(), new Class<?>[] { type }, handler);
+    }
+}
@@ -0,0 +1,45 @@
+package com.example.util;
+
+import static com.example.util.StubJdbc.row;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.jupiter.api.Test;
+
+class TenantBulkheadTest {
+
+    @Test
+    void onlyRegisteredCompaniesGetACompartment() throws Exception {
+        Connection con = StubJdbc.connection((sql, binds) -> sql.contains("FROM company_registration ")
+                ? List.of(row("id", "1", "company_code", binds.get(0), "company_name", "Bulkhead Ltd"))
+                : List.of(), new StubJdbc.Log());
+        TenantRegistry.get(con, "BULKHEAD1");
+
+        long unregistered = TenantBulkhead.getStats().get(TenantBulkhead.UNREGISTERED).admitted;
+        for (int i = 0; i < 50; i++) {
+            TenantBulkhead.acquire("JUNK" + i).release();
+        }
+        TenantBulkhead.acquire("BULKHEAD1").release();
+
+        Map<String, TenantBulkhead.TenantStats> stats = TenantBulkhead.getStats();
+        assertEquals(unregistered + 50, stats.get(TenantBulkhead.UNREGISTERED).admitted);
+        assertFalse(stats.containsKey("JUNK0"));
+        assertEquals(1, stats.get("BULKHEAD1").admitted);
+    }
+
+    @Test
+    void tableCodesOfFirmClientsAreKnown() throws SQLException {
+        Connection con = StubJdbc.connection((sql, binds) -> List.of(row("id", "2", "company_name", "Shop")),
+                new StubJdbc.Log());
+        TenantRegistry.get(con, "SHOP", "Consultant Client", "BIG FIRM");
+
+        assertTrue(TenantRegistry.isKnownTableCode("CS_BIG_FIRM_SHOP"));
+        assertFalse(TenantRegistry.isKnownTableCode("SHOP"));
+    }
+}
@@ -0,0 +1,156 @@
+package com.example.util;
+
+import static com.example.util.StubJdbc.row;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.sql.Connection;
+import java.sql.Date;
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+class TenantRegistryTest {
+
+    private static final LocalDate TODAY = LocalDate.of(2026, 6, 1);
+
+    // Table name to its rows; every row is served regardless of the bound company code
+    private final Map<String, List<Map<String, Object>>> tables = new ConcurrentHashMap<>();
+    private final StubJdbc.Log log = new StubJdbc.Log();
+    private Connection con;
+
+    @BeforeEach
+    void setUp() {
+        TenantRegistry.invalidateAll();
+        con = StubJdbc.connection((sql, binds) -> {
+            for (Map.Entry<String, List<Map<String, Object>>> table : tables.entrySet()) {
+                if (sql.contains("FROM " + table.getKey() + " ")) {
+                    return table.getValue();
+                }
+            }
+            return List.of();
+        }, log);
+    }
+
+    private static Map<String, Object> company(String code, String status) {
+        return row("id", "7", "company_code", code, "company_name", code + " Ltd", "config_type", "Basic",
+                "risk_type", "Low", "company_status", status);
+    }
+
+    @Test
+    void clientIsLoadedOnceAndServedFromTheCache() throws SQLException {
+        tables.put("company_registration", List.of(company("ACME", "Active")));
+
+        assertNull(TenantRegistry.getIfPresent("ACME"));
+        TenantRegistry.Tenant tenant = TenantRegistry.get(con, "ACME");
+        assertEquals("ACME Ltd", tenant.name);
+        assertEquals("7", tenant.id);
+        assertEquals("Basic", tenant.configType);
+        assertEquals("company_registration", tenant.registrationTable);
+        assertEquals("ACME_", tenant.tablePrefix);
+
+        assertSame(tenant, TenantRegistry.get(con, "ACME"));
+        assertSame(tenant, TenantRegistry.getIfPresent("ACME"));
+        assertEquals(1, log.count("FROM company_registration"));
+
+        TenantRegistry.invalidate("ACME");
+        assertNull(TenantRegistry.getIfPresent("ACME"));
+        TenantRegistry.get(con, "ACME");
+        assertEquals(2, log.count("FROM company_registration"));
+    }
+
+    @Test
+    void clientOfAFirmIsReadFromTheParentsTable() throws SQLException {
+        tables.put("CS_BIG_FIRM_company_registration", List.of(company("SHOP", "Active")));
+
+        TenantRegistry.Tenant tenant = TenantRegistry.get(con, "SHOP", "Consultant Client", "BIG FIRM");
+        assertEquals("CS_BIG_FIRM_company_registration", tenant.registrationTable);
+        assertEquals("CS_BIG_FIRM_SHOP_", tenant.tablePrefix);
+        assertNull(TenantRegistry.getIfPresent("SHOP"));
+    }
+
+    @Test
+    void unknownCompanyOrLoginTypeIsNull() throws SQLException {
+        assertNull(TenantRegistry.get(con, "NOBODY"));
+        assertNull(TenantRegistry.get(con, "ACME", "Niall Login", null));
+        assertEquals(1, log.sql.size());
+    }
+
+    @Test
+    void invalidParentCodeIsRejected() {
+        assertThrows(IllegalArgumentException.class,
+                () -> TenantRegistry.get(con, "SHOP", "CPA Client", "x; DROP TABLE y"));
+        assertTrue(log.sql.isEmpty());
+    }
+
+    @Test
+    void statusIsReadOnEveryCall() throws SQLException {
+        tables.put("company_registration", List.of(row("company_status", "Active",
+                "package_status", "Active", "package_validity_to", Date.valueOf(TODAY.plusDays(1)))));
+
+        TenantRegistry.Status status = TenantRegistry.readStatus(con, "ACME");
+        assertEquals("Active", status.companyStatus);
+        assertEquals("Active", status.getPackageStatus(TODAY));
+
+        tables.put("company_registration", List.of(row("company_status", "Inactive",
+                "package_status", null, "package_validity_to", null)));
+        status = TenantRegistry.readStatus(con, "ACME");
+        assertEquals("Inactive", status.companyStatus);
+        assertEquals("Expired", status.getPackageStatus(TODAY));
+        assertEquals(2, log.count("package_validity_detail"));
+    }
+
+    @Test
+    void packagePastItsValidityIsExpired() throws SQLException {
+        tables.put("company_registration", List.of(row("company_status", "Active",
+                "package_status", "Active", "package_validity_to", Date.valueOf(TODAY.minusDays(1)))));
+
+        TenantRegistry.Status status = TenantRegistry.readStatus(con, "ACME");
+        assertEquals("Expired", status.getPackageStatus(TODAY));
+        assertEquals("Active", status.getPackageStatus(TODAY.minusDays(1)));
+    }
+
+    @Test
+    void statusOfUnknownCompanyIsNull() throws SQLException {
+        assertNull(TenantRegistry.readStatus(con, "NOBODY"));
+    }
+
+    @Test
+    void missReadsCompanyAndStatusInOneQuery() throws SQLException {
+        Map<String, Object> company = company("ACME", "Active");
+        company.put("package_status", "Active");
+        company.put("package_validity_to", Date.valueOf(TODAY.plusDays(1)));
+        tables.put("company_registration", List.of(company));
+
+        TenantRegistry.Registration registration = TenantRegistry.getWithStatus(con, "ACME");
+        assertEquals(1, log.sql.size());
+        assertEquals("ACME Ltd", registration.tenant.name);
+        assertEquals("Active", registration.status.companyStatus);
+        assertEquals("Active", registration.status.getPackageStatus(TODAY));
+        assertNull(registration.tenant.columns.get("package_status"));
+        assertSame(registration.tenant, TenantRegistry.getIfPresent("ACME"));
+        assertTrue(TenantRegistry.isKnownTableCode("ACME"));
+
+        // A hit reads the status only, and still sees a change at once
+        company.put("company_status", "Inactive");
+        registration = TenantRegistry.getWithStatus(con, "ACME");
+        assertEquals(2, log.sql.size());
+        assertEquals(1, log.count("SELECT c.*"));
+        assertEquals("Inactive", registration.status.companyStatus);
+        assertSame(TenantRegistry.getIfPresent("ACME"), registration.tenant);
+    }
+
+    @Test
+    void unknownCompanyHasNoRegistration() throws SQLException {
+        assertNull(TenantRegistry.getWithStatus(con, "NOBODY"));
+        assertNull(TenantRegistry.getIfPresent("NOBODY"));
+    }
+}
@@ -0,0 +1,65 @@
+package com.example.util;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import org.junit.jupiter.api.Test;
+
+class TextTemplateTest {
+
+    private static final Map<String, String> VALUES = Map.of("-CLIENT-", "Acme", "-STANDARD-", "ISO 9001");
+
+    @Test
+    void replacesEveryPlaceholder() {
+        TextTemplate template = TextTemplate.compile("-CLIENT- follows -STANDARD-; -CLIENT- agrees.", "-CLIENT-", "-STANDARD-");
+        assertEquals("Acme follows ISO 9001; Acme agrees.", template.render(VALUES));
+    }
+
+    @Test
+    void textWithoutPlaceholdersIsUnchanged() {
+        assertEquals("plain text", TextTemplate.compile("plain text", "-CLIENT-").render(VALUES));
+        assertEquals("", TextTemplate.compile(null, "-CLIENT-").render(VALUES));
+        assertEquals("-CLIENT-", TextTemplate.compile("-CLIENT-").render(VALUES));
+    }
+
+    @Test
+    void placeholdersAtTheEdgesAndAdjacent() {
+        TextTemplate template = TextTemplate.compile("-CLIENT--STANDARD-", "-CLIENT-", "-STANDARD-");
+        assertEquals("AcmeISO 9001", template.render(VALUES));
+    }
+
+    @Test
+    void valuesAreCopiedLiterally() {
+        TextTemplate template = TextTemplate.compile("Pay -CLIENT-", "-CLIENT-", "-STANDARD-");
+        assertEquals("Pay $1 \\ -STANDARD-", template.render(Map.of("-CLIENT-", "$1 \\ -STANDARD-", "-STANDARD-", "x")));
+    }
+
+    @Test
+    void missingValueKeepsThePlaceholderAndNullRendersEmpty() {
+        TextTemplate template = TextTemplate.compile("[-CLIENT-|-STANDARD-]", "-CLIENT-", "-STANDARD-");
+        Map<String, String> values = new HashMap<>();
+        values.put("-CLIENT-", null);
+        assertEquals("[|-STANDARD-]", template.render(values));
+    }
+
+    @Test
+    void longerTokenWinsAtTheSamePosition() {
+        TextTemplate template = TextTemplate.compile("-CLIENT-NAME- and -CLIENT-", "-CLIENT-", "-CLIENT-NAME-");
+        assertEquals("Acme Ltd and Acme", template.render(Map.of("-CLIENT-", "Acme", "-CLIENT-NAME-", "Acme Ltd")));
+    }
+
+    @Test
+    void emptyPlaceholderIsIgnored() {
+        TextTemplate template = TextTemplate.compile("-CLIENT- ok", "", "-CLIENT-");
+        assertEquals("Acme ok", template.render(VALUES));
+    }
+
+    @Test
+    void renderToAppends() {
+        StringBuilder out = new StringBuilder("Dear ");
+        TextTemplate.compile("-CLIENT-,", "-CLIENT-").renderTo(out, VALUES);
+        assertEquals("Dear Acme,", out.toString());
+    }
+}
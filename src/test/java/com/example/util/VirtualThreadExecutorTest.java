@@ -0,0 +1,66 @@
+package com.example.util;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.Test;
+
+class VirtualThreadExecutorTest {
+
+    @Test
+    void rejectsOnceRunningAndQueuedAreFull() throws InterruptedException {
+        VirtualThreadExecutor executor = new VirtualThreadExecutor("test", 1, 1);
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        CountDownLatch finished = new CountDownLatch(2);
+        Runnable blocking = () -> {
+            started.countDown();
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            finished.countDown();
+        };
+        try {
+            executor.execute(blocking);
+            assertTrue(started.await(5, TimeUnit.SECONDS));
+            executor.execute(blocking);
+
+            assertThrows(RejectedExecutionException.class, () -> executor.execute(() -> { }));
+            assertEquals(1, executor.getRejected());
+            assertEquals(1, executor.getRunning());
+
+            release.countDown();
+            assertTrue(finished.await(5, TimeUnit.SECONDS));
+            long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+            while (executor.getRunning() > 0 && System.nanoTime() < deadline) {
+                Thread.sleep(10);
+            }
+
+            // The slots are given back once the tasks are done
+            CountDownLatch ran = new CountDownLatch(1);
+            executor.execute(ran::countDown);
+            assertTrue(ran.await(5, TimeUnit.SECONDS));
+            assertEquals(1, executor.getRejected());
+        } finally {
+            release.countDown();
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    void rejectedAfterShutdownFreesTheSlot() {
+        VirtualThreadExecutor executor = new VirtualThreadExecutor("test", 1, 0);
+        executor.shutdown();
+        assertThrows(RejectedExecutionException.class, () -> executor.execute(() -> { }));
+        assertThrows(RejectedExecutionException.class, () -> executor.execute(() -> { }));
+        // Only the full-executor case counts as a rejection
+        assertEquals(0, executor.getRejected());
+    }
+}